@@ -0,0 +1,628 @@
+package com.trimble.booking;
+
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.Customer;
+import com.trimble.entity.Lease;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.event.CarStatusChangedEvent;
+import com.trimble.event.ReferenceDataChangedEvent;
+import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.CustomerNotFoundException;
+import com.trimble.exception.LeaseException;
+import com.trimble.mapper.CarDetailsCache;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.CustomerRepository;
+import com.trimble.repository.LeaseRepository;
+import com.trimble.shard.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional single-writer engine for lease start and end
+ * Commands go through a bounded ring to one writer thread, which owns the booking state of
+ * every car and customer it has seen and decides each command in memory without locks or
+ * database round trips. A drained batch of decisions is appended to the journal and flushed
+ * once before any caller gets its answer, then handed to the projector, which writes it to the
+ * leases, cars and customers tables in the background. Cars and customers are loaded from the
+ * database the first time a command needs them.
+ * The engine assumes it is the only writer of bookings: it runs on a single, unsharded node and
+ * assigns lease IDs itself, starting after the highest ID in leases and lease_archive.
+ * The journal is only emptied once the projector has applied everything in it. A decision the
+ * projector cannot apply stops the engine and stays in the journal; it is projected again on the
+ * next start, which fails for as long as that is still impossible.
+ */
+@Component
+@Slf4j
+public class BookingEngine implements SmartInitializingSingleton {
+    
+    private static final int MAX_LOAD_ATTEMPTS = 4;
+    
+    private final CarRepository carRepository;
+    private final CustomerRepository customerRepository;
+    private final LeaseRepository leaseRepository;
+    private final CarDetailsCache carDetailsCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final boolean enabled;
+    private final int ringSize;
+    private final String journalPath;
+    private final DataSize journalSize;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final int defaultMaxActiveLeases;
+    
+    private BlockingQueue<Command> ring;
+    private BookingJournal journal;
+    private BookingProjector projector;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    
+    // Owned by the writer thread
+    private final Map<Long, CarState> cars = new HashMap<>();
+    private final Map<Long, CustomerState> customers = new HashMap<>();
+    private final Map<Long, ActiveLease> activeLeases = new HashMap<>();
+    private final Set<Long> endedEarlierLeases = new HashSet<>();
+    private long firstEngineLeaseId;
+    private long nextLeaseId;
+    
+    public BookingEngine(CarRepository carRepository,
+                         CustomerRepository customerRepository,
+                         LeaseRepository leaseRepository,
+                         CarDetailsCache carDetailsCache,
+                         JdbcTemplate jdbcTemplate,
+                         ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager,
+                         ShardRouter shardRouter,
+                         @Value("${carlease.booking-engine.enabled:false}") boolean enabled,
+                         @Value("${carlease.booking-engine.ring-size:4096}") int ringSize,
+                         @Value("${carlease.booking-engine.journal-path:./data/bookings.journal}") String journalPath,
+                         @Value("${carlease.booking-engine.journal-size:64MB}") DataSize journalSize,
+                         @Value("${carlease.booking-engine.batch-size:256}") int batchSize,
+                         @Value("${carlease.booking-engine.timeout-ms:5000}") long timeoutMillis,
+                         @Value("${carlease.lease.max-active-per-customer:2}") int defaultMaxActiveLeases) {
+        if (enabled && shardRouter.isSharded()) {
+            throw new IllegalStateException("The booking engine cannot be combined with sharding");
+        }
+        this.carRepository = carRepository;
+        this.customerRepository = customerRepository;
+        this.leaseRepository = leaseRepository;
+        this.carDetailsCache = carDetailsCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.ringSize = ringSize;
+        this.journalPath = journalPath;
+        this.journalSize = journalSize;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.defaultMaxActiveLeases = defaultMaxActiveLeases;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Replay what the journal holds from the last run, then start the writer and projector
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = new BookingJournal(Path.of(journalPath), (int) journalSize.toBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open booking journal " + journalPath, e);
+        }
+        projector = new BookingProjector(jdbcTemplate, writeTransaction, eventPublisher, Math.max(1, ringSize / batchSize));
+        List<BookingRecord> pending = journal.replay();
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} journaled booking decisions", pending.size());
+            projector.project(pending);
+        }
+        if (projector.failedRecords() > 0) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Failed to close booking journal: {}", e.getMessage());
+            }
+            throw new IllegalStateException(projector.failedRecords() + " journaled booking decisions could not be projected; "
+                    + journalPath + " keeps them until they can be");
+        }
+        journal.reset();
+        
+        Long maxLeaseId = jdbcTemplate.queryForObject(
+                "SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM leases), (SELECT COALESCE(MAX(id), 0) FROM lease_archive))", Long.class);
+        firstEngineLeaseId = maxLeaseId + 1;
+        nextLeaseId = firstEngineLeaseId;
+        
+        ring = new ArrayBlockingQueue<>(ringSize);
+        running = true;
+        projector.start();
+        writer = new Thread(this::runWriter, "booking-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Booking engine started; first lease ID {}", firstEngineLeaseId);
+    }
+    
+    /**
+     * Start a lease; same checks, messages and result as LeaseService.startLease
+     */
+    public LeaseDto startLease(LeaseDto leaseDto) {
+        log.info("Starting new lease for car ID: {} and customer ID: {}", leaseDto.getCarId(), leaseDto.getCustomerId());
+        Long carId = leaseDto.getCarId();
+        Long customerId = leaseDto.getCustomerId();
+        LocalDateTime startDate = leaseDto.getStartDate();
+        return decideLoadingMissing(records -> decideStart(carId, customerId, startDate, records));
+    }
+    
+    /**
+     * End a lease; same checks, messages and result as LeaseService.endLease
+     */
+    public LeaseDto endLease(Long leaseId) {
+        log.info("Ending lease with ID: {}", leaseId);
+        return decideLoadingMissing(records -> decideEnd(leaseId, records));
+    }
+    
+    /**
+     * Keep engine-owned cars in line with status changes made through the regular services
+     * A car the engine has on lease keeps that status, and no change can put a car on lease.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCarStatusChanged(CarStatusChangedEvent event) {
+        if (!running || projector.isProjectorThread()) {
+            return;
+        }
+        List<Object[]> rows = readOnlyTransaction.execute(status -> carRepository.findStatusRowsByIdIn(event.getCarIds()));
+        enqueueSync(records -> {
+            for (Object[] row : rows) {
+                CarState car = cars.get((Long) row[0]);
+                CarStatus status = (CarStatus) row[1];
+                if (car != null && car.status != CarStatus.ON_LEASE && status != CarStatus.ON_LEASE) {
+                    car.status = status;
+                    car.dailyRate = (BigDecimal) row[2];
+                }
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Pick up a changed active lease limit of a customer the engine already knows
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (!running || !"customers".equals(event.getTable())) {
+            return;
+        }
+        Customer customer = readOnlyTransaction.execute(status -> customerRepository.findById(event.getId()).orElse(null));
+        if (customer == null) {
+            return;
+        }
+        Integer maxActiveLeases = customer.getMaxActiveLeases();
+        enqueueSync(records -> {
+            CustomerState state = customers.get(event.getId());
+            if (state != null) {
+                state.maxActiveLeases = maxActiveLeases;
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Let the writer finish the ring, wait for the projector, and empty the journal once the
+     * database holds every decision
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        projector.close();
+        if (failure == null && projector.failedRecords() == 0) {
+            journal.reset();
+        }
+        journal.close();
+    }
+    
+    private LeaseDto decideLoadingMissing(Decision decision) {
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            Object outcome = submit(decision);
+            if (outcome instanceof LeaseDto lease) {
+                return lease;
+            }
+            load((Miss) outcome);
+        }
+        throw new IllegalStateException("Booking engine could not load the state for this command");
+    }
+    
+    private Object submit(Decision decision) {
+        if (!running) {
+            throw new IllegalStateException("Booking engine is not running");
+        }
+        checkFailure();
+        Command command = new Command(decision);
+        if (!ring.offer(command)) {
+            throw new LeaseException("Booking engine is busy, please retry");
+        }
+        try {
+            return command.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Booking engine failed", e.getCause());
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (command.cancel()) {
+                throw new IllegalStateException(e instanceof TimeoutException
+                        ? "Booking engine did not answer within " + timeoutMillis + " ms; the command was not applied"
+                        : "Interrupted while waiting for the booking engine; the command was not applied");
+            }
+            // The writer took the command first, so it is decided and its outcome is the answer
+            return awaitDecided(command);
+        }
+    }
+    
+    private Object awaitDecided(Command command) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return command.result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException("Booking engine failed", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void enqueueSync(Decision decision) {
+        try {
+            // Never dropped: a lost sync would leave the engine with a stale car or limit
+            ring.put(new Command(decision));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void checkFailure() {
+        IllegalStateException stopped = stopped();
+        if (stopped != null) {
+            throw stopped;
+        }
+    }
+    
+    /**
+     * Why the engine no longer decides commands, or null while it does
+     */
+    private IllegalStateException stopped() {
+        if (failure != null) {
+            return new IllegalStateException("Booking engine stopped after a journal failure", failure);
+        }
+        if (projector.failedRecords() > 0) {
+            return new IllegalStateException("Booking engine stopped after a decision could not be projected");
+        }
+        return null;
+    }
+    
+    private void runWriter() {
+        List<Command> batch = new ArrayList<>(batchSize);
+        List<BookingRecord> records = new ArrayList<>();
+        while (running || !ring.isEmpty()) {
+            try {
+                Command first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                ring.drainTo(batch, batchSize - 1);
+                Object[] outcomes = new Object[batch.size()];
+                IllegalStateException stopped = stopped();
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        if (!batch.get(i).take()) {
+                            // Its caller gave up waiting, having been told it was not applied
+                            continue;
+                        }
+                        outcomes[i] = stopped == null ? batch.get(i).decision.decide(records) : stopped;
+                    } catch (RuntimeException e) {
+                        outcomes[i] = e;
+                    }
+                }
+                if (!records.isEmpty()) {
+                    journalAndProject(records);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (outcomes[i] instanceof Throwable throwable) {
+                        batch.get(i).result.completeExceptionally(throwable);
+                    } else {
+                        batch.get(i).result.complete(outcomes[i]);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                IllegalStateException rejected = new IllegalStateException("Booking engine was interrupted");
+                batch.forEach(command -> command.result.completeExceptionally(rejected));
+                return;
+            } catch (RuntimeException e) {
+                // The decisions of this batch are in memory but not durable, so nothing more can be accepted
+                failure = e;
+                log.error("Booking journal failed; the booking engine stops accepting commands", e);
+                IllegalStateException rejected = new IllegalStateException("Booking engine stopped after a journal failure", e);
+                batch.forEach(command -> command.result.completeExceptionally(rejected));
+            } finally {
+                batch.clear();
+                records.clear();
+            }
+        }
+    }
+    
+    private void journalAndProject(List<BookingRecord> records) throws InterruptedException {
+        if (!journal.hasRoomFor(records.size())) {
+            // Only recycle the file once the database holds everything written to it; a decision the
+            // projector could not apply is kept for the next start
+            projector.awaitIdle();
+            if (projector.failedRecords() > 0) {
+                throw new IllegalStateException("Booking journal is full and holds decisions that could not be projected");
+            }
+            journal.reset();
+        }
+        records.forEach(journal::append);
+        journal.force();
+        projector.submit(new ArrayList<>(records));
+    }
+    
+    private Object decideStart(Long carId, Long customerId, LocalDateTime startDate, List<BookingRecord> records) {
+        CustomerState customer = customers.get(customerId);
+        if (customer == null) {
+            return new Miss(Miss.Kind.CUSTOMER, customerId);
+        }
+        CarState car = cars.get(carId);
+        if (car == null) {
+            return new Miss(Miss.Kind.CAR, carId);
+        }
+        int limit = customer.maxActiveLeases != null ? customer.maxActiveLeases : defaultMaxActiveLeases;
+        if (customer.activeLeases >= limit) {
+            throw new LeaseException("Customer cannot have more than " + limit + " active leases");
+        }
+        if (car.status != CarStatus.AVAILABLE) {
+            throw new LeaseException("Car is not available for lease");
+        }
+        
+        long leaseId = nextLeaseId++;
+        LocalDateTime now = LocalDateTime.now();
+        car.status = CarStatus.ON_LEASE;
+        customer.activeLeases++;
+        activeLeases.put(leaseId, new ActiveLease(carId, customerId, startDate, now));
+        records.add(new BookingRecord(BookingRecord.Type.START, leaseId, carId, customerId, startDate, now, BigDecimal.ZERO));
+        log.info("Lease started successfully with ID: {}", leaseId);
+        return lease(leaseId, carId, customerId, startDate, null, BigDecimal.ZERO, LeaseStatus.ACTIVE, now, now);
+    }
+    
+    private Object decideEnd(Long leaseId, List<BookingRecord> records) {
+        ActiveLease lease = activeLeases.get(leaseId);
+        if (lease == null) {
+            if (leaseId >= nextLeaseId) {
+                throw new LeaseException("Lease not found with ID: " + leaseId);
+            }
+            if (leaseId >= firstEngineLeaseId || endedEarlierLeases.contains(leaseId)) {
+                throw new LeaseException("Lease is not active");
+            }
+            return new Miss(Miss.Kind.LEASE, leaseId);
+        }
+        CarState car = cars.get(lease.carId);
+        if (car == null) {
+            return new Miss(Miss.Kind.CAR, lease.carId);
+        }
+        CustomerState customer = customers.get(lease.customerId);
+        if (customer == null) {
+            return new Miss(Miss.Kind.CUSTOMER, lease.customerId);
+        }
+        
+        LocalDateTime endDate = LocalDateTime.now();
+        long days = ChronoUnit.DAYS.between(lease.startDate, endDate);
+        if (days == 0) days = 1; // Minimum 1 day charge
+        BigDecimal totalAmount = car.dailyRate.multiply(BigDecimal.valueOf(days));
+        
+        activeLeases.remove(leaseId);
+        if (leaseId < firstEngineLeaseId) {
+            endedEarlierLeases.add(leaseId);
+        }
+        car.status = CarStatus.AVAILABLE;
+        customer.activeLeases = Math.max(0, customer.activeLeases - 1);
+        records.add(new BookingRecord(BookingRecord.Type.END, leaseId, lease.carId, lease.customerId, endDate, endDate, totalAmount));
+        log.info("Lease ended successfully. Total amount: {}", totalAmount);
+        return lease(leaseId, lease.carId, lease.customerId, lease.startDate, endDate, totalAmount, LeaseStatus.COMPLETED,
+                lease.createdAt, endDate);
+    }
+    
+    private LeaseDto lease(long leaseId, Long carId, Long customerId, LocalDateTime startDate, LocalDateTime endDate,
+                           BigDecimal totalAmount, LeaseStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        return new LeaseDto(leaseId, carId, customerId, cars.get(carId).details, customers.get(customerId).name,
+                startDate, endDate, totalAmount, status, createdAt, updatedAt);
+    }
+    
+    /**
+     * Read what a command was missing and hand it to the writer, which keeps any state it
+     * learned in the meantime
+     */
+    private void load(Miss miss) {
+        switch (miss.kind) {
+            case CAR -> {
+                CarState state = readOnlyTransaction.execute(status -> carRepository.findById(miss.id)
+                        .map(car -> new CarState(car.getStatus(), car.getDailyRate(), carDetailsCache.carDetails(car)))
+                        .orElseThrow(() -> new CarNotFoundException("Car not found with ID: " + miss.id)));
+                submit(records -> cars.putIfAbsent(miss.id, state));
+            }
+            case CUSTOMER -> {
+                CustomerState state = readOnlyTransaction.execute(status -> customerRepository.findAllWithUserByIdIn(List.of(miss.id)).stream()
+                        .findFirst()
+                        .map(customer -> new CustomerState(customer.getActiveLeaseCount(), customer.getMaxActiveLeases(), customer.getUser().getFullName()))
+                        .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + miss.id)));
+                submit(records -> customers.putIfAbsent(miss.id, state));
+            }
+            case LEASE -> {
+                ActiveLease state = readOnlyTransaction.execute(status -> {
+                    Lease lease = leaseRepository.findById(miss.id)
+                            .orElseThrow(() -> new LeaseException("Lease not found with ID: " + miss.id));
+                    if (lease.getStatus() != LeaseStatus.ACTIVE) {
+                        throw new LeaseException("Lease is not active");
+                    }
+                    return new ActiveLease(lease.getCar().getId(), lease.getCustomer().getId(), lease.getStartDate(), lease.getCreatedAt());
+                });
+                submit(records -> endedEarlierLeases.contains(miss.id) ? null : activeLeases.putIfAbsent(miss.id, state));
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Decision {
+        
+        /**
+         * Runs on the writer thread; journal records go to the given list
+         * @return the result for the caller, or a Miss if state has to be loaded first
+         */
+        Object decide(List<BookingRecord> records);
+    }
+    
+    private static class Command {
+        
+        private static final int PENDING = 0;
+        private static final int TAKEN = 1;
+        private static final int CANCELLED = 2;
+        
+        private final Decision decision;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        
+        Command(Decision decision) {
+            this.decision = decision;
+        }
+        
+        /**
+         * Claim the command for the writer; false if its caller cancelled it
+         */
+        boolean take() {
+            return state.compareAndSet(PENDING, TAKEN);
+        }
+        
+        /**
+         * Withdraw the command; false if the writer has already taken it
+         */
+        boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+    }
+    
+    private static class Miss {
+        
+        enum Kind {
+            CAR,
+            CUSTOMER,
+            LEASE
+        }
+        
+        private final Kind kind;
+        private final Long id;
+        
+        Miss(Kind kind, Long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+    }
+    
+    private static class ActiveLease {
+        
+        private final Long carId;
+        private final Long customerId;
+        private final LocalDateTime startDate;
+        private final LocalDateTime createdAt;
+        
+        ActiveLease(Long carId, Long customerId, LocalDateTime startDate, LocalDateTime createdAt) {
+            this.carId = carId;
+            this.customerId = customerId;
+            this.startDate = startDate;
+            this.createdAt = createdAt;
+        }
+    }
+    
+    private static class CarState {
+        
+        CarStatus status;
+        BigDecimal dailyRate;
+        final String details;
+        
+        CarState(CarStatus status, BigDecimal dailyRate, String details) {
+            this.status = status;
+            this.dailyRate = dailyRate;
+            this.details = details;
+        }
+    }
+    
+    private static class CustomerState {
+        
+        int activeLeases;
+        Integer maxActiveLeases;
+        final String name;
+        
+        CustomerState(int activeLeases, Integer maxActiveLeases, String name) {
+            this.activeLeases = activeLeases;
+            this.maxActiveLeases = maxActiveLeases;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.trimble.booking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of booking decisions in a memory-mapped file
+ * The file starts with the sequence number of its first record, followed by fixed-size records
+ * that each carry their own sequence number and a CRC. Reading stops at the first record that
+ * is out of sequence or fails its CRC, so records left over from before a reset and a torn last
+ * write are both ignored. Not thread-safe; the booking engine's writer thread owns it.
+ */
+public class BookingJournal implements Closeable {
+    
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 64;
+    
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final BookingRecord.Type[] TYPES = BookingRecord.Type.values();
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacityRecords;
+    private long firstSequence;
+    private long nextSequence;
+    private int position = HEADER_SIZE;
+    
+    public BookingJournal(Path path, int sizeBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = Math.max(sizeBytes, (int) Math.max(channel.size(), HEADER_SIZE + RECORD_SIZE));
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.capacityRecords = (size - HEADER_SIZE) / RECORD_SIZE;
+        this.firstSequence = Math.max(1, buffer.getLong(0));
+        this.nextSequence = firstSequence;
+    }
+    
+    /**
+     * Records written since the last reset; leaves the journal positioned after the last one
+     */
+    public List<BookingRecord> replay() {
+        List<BookingRecord> records = new ArrayList<>();
+        position = HEADER_SIZE;
+        nextSequence = firstSequence;
+        while (position + RECORD_SIZE <= HEADER_SIZE + capacityRecords * RECORD_SIZE) {
+            BookingRecord record = read(position, nextSequence);
+            if (record == null) {
+                break;
+            }
+            records.add(record);
+            position += RECORD_SIZE;
+            nextSequence++;
+        }
+        return records;
+    }
+    
+    public boolean hasRoomFor(int records) {
+        return position + (long) records * RECORD_SIZE <= HEADER_SIZE + (long) capacityRecords * RECORD_SIZE;
+    }
+    
+    public int capacityRecords() {
+        return capacityRecords;
+    }
+    
+    public void append(BookingRecord record) {
+        if (!hasRoomFor(1)) {
+            throw new IllegalStateException("Booking journal is full");
+        }
+        int offset = position;
+        buffer.putLong(offset, nextSequence);
+        buffer.putInt(offset + 8, record.getType().ordinal());
+        buffer.putLong(offset + 12, record.getLeaseId());
+        buffer.putLong(offset + 20, record.getCarId());
+        buffer.putLong(offset + 28, record.getCustomerId());
+        buffer.putLong(offset + 36, toMicros(record.getTime()));
+        buffer.putLong(offset + 44, toMicros(record.getRecordedAt()));
+        buffer.putLong(offset + 52, record.getAmount().movePointRight(2).longValueExact());
+        buffer.putInt(offset + 60, checksum(offset));
+        position += RECORD_SIZE;
+        nextSequence++;
+    }
+    
+    /**
+     * Flush appended records to the storage device
+     */
+    public void force() {
+        buffer.force();
+    }
+    
+    /**
+     * Drop every record; called once all of them are reflected in the database
+     */
+    public void reset() {
+        firstSequence = nextSequence;
+        buffer.putLong(0, firstSequence);
+        buffer.force(0, HEADER_SIZE);
+        position = HEADER_SIZE;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private BookingRecord read(int offset, long expectedSequence) {
+        if (buffer.getLong(offset) != expectedSequence || buffer.getInt(offset + 60) != checksum(offset)) {
+            return null;
+        }
+        int type = buffer.getInt(offset + 8);
+        if (type < 0 || type >= TYPES.length) {
+            return null;
+        }
+        return new BookingRecord(TYPES[type],
+                buffer.getLong(offset + 12),
+                buffer.getLong(offset + 20),
+                buffer.getLong(offset + 28),
+                fromMicros(buffer.getLong(offset + 36)),
+                fromMicros(buffer.getLong(offset + 44)),
+                BigDecimal.valueOf(buffer.getLong(offset + 52), 2));
+    }
+    
+    private int checksum(int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+    
+    private static long toMicros(LocalDateTime time) {
+        return ChronoUnit.MICROS.between(EPOCH, time);
+    }
+    
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+}
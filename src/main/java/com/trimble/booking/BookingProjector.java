@@ -0,0 +1,199 @@
+package com.trimble.booking;
+
+import com.trimble.enums.CarStatus;
+import com.trimble.event.CarStatusChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Writes journaled booking decisions to the leases, cars and customers tables
+ * Each batch from the engine is applied in one transaction on its own thread. Every statement is
+ * conditional (a lease is only inserted once, only an ACTIVE lease is completed), so replaying the
+ * journal after a crash never applies a decision twice.
+ */
+@Slf4j
+class BookingProjector {
+    
+    private static final List<BookingRecord> STOP = Collections.emptyList();
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<List<BookingRecord>> queue;
+    private final Thread thread;
+    private final Object idleMonitor = new Object();
+    private long submitted;
+    private long projected;
+    private volatile long failedRecords;
+    
+    BookingProjector(JdbcTemplate jdbcTemplate,
+                     TransactionTemplate transactionTemplate,
+                     ApplicationEventPublisher eventPublisher,
+                     int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, "booking-projector");
+        this.thread.setDaemon(true);
+    }
+    
+    void start() {
+        thread.start();
+    }
+    
+    boolean isProjectorThread() {
+        return Thread.currentThread() == thread;
+    }
+    
+    long failedRecords() {
+        return failedRecords;
+    }
+    
+    /**
+     * Queue a batch for projection; blocks while the queue is full
+     */
+    void submit(List<BookingRecord> records) throws InterruptedException {
+        synchronized (idleMonitor) {
+            submitted += records.size();
+        }
+        queue.put(records);
+    }
+    
+    /**
+     * Wait until every submitted record has been projected
+     */
+    void awaitIdle() throws InterruptedException {
+        synchronized (idleMonitor) {
+            while (projected < submitted) {
+                idleMonitor.wait();
+            }
+        }
+    }
+    
+    /**
+     * Project what is queued, then stop the thread
+     */
+    void close() throws InterruptedException {
+        queue.put(STOP);
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+    
+    /**
+     * Project a batch on the calling thread, falling back to one record at a time so a record
+     * that cannot be applied (e.g. its car no longer exists) does not hold back the others
+     */
+    void project(List<BookingRecord> records) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(records));
+        } catch (RuntimeException batchFailure) {
+            for (BookingRecord record : records) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply(List.of(record)));
+                } catch (RuntimeException e) {
+                    failedRecords++;
+                    log.error("Could not project {} of lease {}: {}", record.getType(), record.getLeaseId(), e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void run() {
+        try {
+            List<BookingRecord> records;
+            while ((records = queue.take()) != STOP) {
+                project(records);
+                synchronized (idleMonitor) {
+                    projected += records.size();
+                    idleMonitor.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void apply(List<BookingRecord> records) {
+        List<BookingRecord> starts = records.stream()
+                .filter(record -> record.getType() == BookingRecord.Type.START)
+                .collect(Collectors.toList());
+        List<BookingRecord> ends = records.stream()
+                .filter(record -> record.getType() == BookingRecord.Type.END)
+                .collect(Collectors.toList());
+        
+        // Starts go first so a lease started and ended in the same batch can be completed
+        Set<BookingRecord> applied = new HashSet<>();
+        Set<Long> existing = existingLeaseIds(starts);
+        List<BookingRecord> inserts = starts.stream()
+                .filter(record -> !existing.contains(record.getLeaseId()))
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO leases (id, car_id, customer_id, start_date, total_amount, status, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, 0, 'ACTIVE', ?, ?)",
+                inserts.stream()
+                        .map(record -> new Object[]{record.getLeaseId(), record.getCarId(), record.getCustomerId(),
+                                record.getTime(), record.getRecordedAt(), record.getRecordedAt()})
+                        .collect(Collectors.toList()));
+        applied.addAll(inserts);
+        
+        int[] completed = jdbcTemplate.batchUpdate("UPDATE leases SET status = 'COMPLETED', end_date = ?, total_amount = ?, updated_at = ? " +
+                        "WHERE id = ? AND status = 'ACTIVE'",
+                ends.stream()
+                        .map(record -> new Object[]{record.getTime(), record.getAmount(), record.getRecordedAt(), record.getLeaseId()})
+                        .collect(Collectors.toList()));
+        for (int i = 0; i < completed.length; i++) {
+            if (completed[i] != 0) {
+                applied.add(ends.get(i));
+            }
+        }
+        
+        // In journal order the last applied decision for a car sets its status
+        Map<Long, CarStatus> carStatuses = new LinkedHashMap<>();
+        Map<Long, Integer> activeLeaseDeltas = new LinkedHashMap<>();
+        for (BookingRecord record : records) {
+            if (applied.contains(record)) {
+                boolean start = record.getType() == BookingRecord.Type.START;
+                carStatuses.put(record.getCarId(), start ? CarStatus.ON_LEASE : CarStatus.AVAILABLE);
+                activeLeaseDeltas.merge(record.getCustomerId(), start ? 1 : -1, Integer::sum);
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE cars SET status = ?, updated_at = ? WHERE id = ?",
+                carStatuses.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue().name(), records.get(records.size() - 1).getRecordedAt(), entry.getKey()})
+                        .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate("UPDATE customers SET active_lease_count = GREATEST(active_lease_count + ?, 0) WHERE id = ?",
+                activeLeaseDeltas.entrySet().stream()
+                        .filter(entry -> entry.getValue() != 0)
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .collect(Collectors.toList()));
+        
+        carStatuses.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((status, carIds) -> eventPublisher.publishEvent(new CarStatusChangedEvent(carIds, status)));
+    }
+    
+    private Set<Long> existingLeaseIds(List<BookingRecord> starts) {
+        if (starts.isEmpty()) {
+            return Set.of();
+        }
+        List<Long> ids = starts.stream().map(BookingRecord::getLeaseId).collect(Collectors.toList());
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        List<Object> args = new ArrayList<>(ids);
+        args.addAll(ids);
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM leases WHERE id IN (" + placeholders + ") " +
+                "UNION SELECT id FROM lease_archive WHERE id IN (" + placeholders + ")", Long.class, args.toArray()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.trimble.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One booking decision taken by the engine, as journaled and projected to the database
+ * For START the time is the lease start date; for END it is the end date and the amount is the
+ * lease total.
+ */
+@Getter
+@AllArgsConstructor
+public class BookingRecord {
+    
+    public enum Type {
+        START,
+        END
+    }
+    
+    private final Type type;
+    private final long leaseId;
+    private final long carId;
+    private final long customerId;
+    private final LocalDateTime time;
+    private final LocalDateTime recordedAt;
+    private final BigDecimal amount;
+}
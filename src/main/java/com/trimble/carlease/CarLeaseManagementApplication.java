@@ -1,14 +1,39 @@
 package com.trimble.carlease;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
-@SpringBootApplication
+import java.util.Arrays;
+
+@SpringBootApplication(scanBasePackages = "com.trimble")
+@EnableJpaRepositories("com.trimble.repository")
+@EntityScan("com.trimble.entity")
+@EnableJpaAuditing
 public class CarLeaseManagementApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(CarLeaseManagementApplication.class, args);
+		SpringApplication application = application(args);
+		if (application.getWebApplicationType() == WebApplicationType.NONE) {
+			// The export has been written during start-up; the exit code comes from the context
+			System.exit(SpringApplication.exit(application.run(args)));
+		}
+		application.run(args);
 		System.out.println("Starting the project");
 	}
 
+	/**
+	 * The application as main starts it: export mode writes one file without a web server
+	 */
+	public static SpringApplication application(String... args) {
+		SpringApplication application = new SpringApplication(CarLeaseManagementApplication.class);
+		if (Arrays.stream(args).anyMatch(arg -> arg.startsWith("--export="))) {
+			application.setWebApplicationType(WebApplicationType.NONE);
+		}
+		return application;
+	}
+
 }
@@ -0,0 +1,58 @@
+package com.trimble.cli;
+
+import com.trimble.service.LeaseExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Command line export mode
+ * Usage: --export=leases|revenue --output=file.csv [--from=yyyy-MM-dd] [--to=yyyy-MM-dd]
+ * The main class starts this mode without a web server and exits once the export has been written
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportCommandLineRunner implements ApplicationRunner {
+    
+    private final LeaseExportService leaseExportService;
+    
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption("export")) {
+            return;
+        }
+        
+        String dataset = single(args, "export");
+        String output = single(args, "output");
+        if (output == null) {
+            throw new IllegalArgumentException("--output is required in export mode");
+        }
+        LocalDate from = args.containsOption("from") ? LocalDate.parse(single(args, "from")) : null;
+        LocalDate to = args.containsOption("to") ? LocalDate.parse(single(args, "to")) : null;
+        
+        try (Writer writer = Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)) {
+            long rows = switch (dataset) {
+                case "leases" -> leaseExportService.exportLeases(from, to, writer);
+                case "revenue" -> leaseExportService.exportRevenue(from, to, writer);
+                default -> throw new IllegalArgumentException("Unknown export: " + dataset);
+            };
+            log.info("Wrote {} {} rows to {}", rows, dataset, output);
+        }
+    }
+    
+    private String single(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
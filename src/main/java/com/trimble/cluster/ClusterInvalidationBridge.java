@@ -0,0 +1,46 @@
+package com.trimble.cluster;
+
+import com.trimble.event.CacheInvalidationEvent;
+import com.trimble.event.CarStatusChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Connects local change events to the cluster invalidation channel
+ * Committed local changes are turned into CacheInvalidationEvents on this node and sent
+ * to the other nodes, which raise the same event when the message arrives
+ */
+@Component
+@Slf4j
+public class ClusterInvalidationBridge {
+    
+    private final InvalidationBus invalidationBus;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    
+    public ClusterInvalidationBridge(InvalidationBus invalidationBus,
+                                     ApplicationEventPublisher eventPublisher,
+                                     ClusterNode clusterNode) {
+        this.invalidationBus = invalidationBus;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = clusterNode.getNodeId();
+        invalidationBus.subscribe(this::onRemoteInvalidation);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCarStatusChanged(CarStatusChangedEvent event) {
+        if (event.getCarIds().isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.CARS, event.getCarIds(), false));
+        invalidationBus.publish(new InvalidationMessage(nodeId, CacheInvalidationEvent.CARS, event.getCarIds()));
+    }
+    
+    private void onRemoteInvalidation(InvalidationMessage message) {
+        log.debug("Invalidation from node {} for {} {}", message.getOriginNodeId(), message.getKeys().size(), message.getRegion());
+        eventPublisher.publishEvent(new CacheInvalidationEvent(message.getRegion(), message.getKeys(), true));
+    }
+}
@@ -0,0 +1,21 @@
+package com.trimble.cluster;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Identity of this application instance within the cluster
+ */
+@Component
+@Getter
+public class ClusterNode {
+    
+    private final String nodeId;
+    
+    public ClusterNode(@Value("${carlease.cluster.node-id:}") String nodeId) {
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+}
@@ -0,0 +1,149 @@
+package com.trimble.cluster;
+
+import com.trimble.entity.ClusterChange;
+import com.trimble.repository.ClusterChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Cluster transport over a shared change table
+ * Every node appends its invalidations to cluster_changes and polls for rows written by
+ * other nodes since the last row it has seen; no service beyond the shared database is needed.
+ * IDENTITY values are taken at insert but become visible at commit, so a row can show up after
+ * one with a higher ID. The IDs skipped over are kept as gaps and polled again for a grace
+ * period; a gap that never fills was a rolled back or unused value.
+ */
+@Component
+@ConditionalOnProperty(name = "carlease.cluster.transport", havingValue = "db")
+@Slf4j
+public class DbPolledInvalidationBus implements InvalidationBus {
+    
+    private static final int POLL_BATCH = 500;
+    private static final int MAX_PENDING_GAPS = 10_000;
+    
+    private final ClusterChangeRepository clusterChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Consumer<InvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+    private final String nodeId;
+    private final int retentionMinutes;
+    private final long gapGraceNanos;
+    // Skipped IDs and when they were first seen missing; only touched by poll
+    private final TreeMap<Long, Long> pendingGaps = new TreeMap<>();
+    private volatile long lastSeenId = -1;
+    
+    public DbPolledInvalidationBus(ClusterChangeRepository clusterChangeRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ClusterNode clusterNode,
+                                   @Value("${carlease.cluster.retention-minutes:10}") int retentionMinutes,
+                                   @Value("${carlease.cluster.gap-grace-ms:10000}") long gapGraceMillis) {
+        this.clusterChangeRepository = clusterChangeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = clusterNode.getNodeId();
+        this.retentionMinutes = retentionMinutes;
+        this.gapGraceNanos = TimeUnit.MILLISECONDS.toNanos(gapGraceMillis);
+    }
+    
+    @Override
+    public void publish(InvalidationMessage message) {
+        ClusterChange change = new ClusterChange();
+        change.setOriginNodeId(message.getOriginNodeId());
+        change.setRegion(message.getRegion());
+        change.setChangedKeys(message.getKeys().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+        change.setCreatedAt(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> clusterChangeRepository.save(change));
+    }
+    
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+    
+    @Scheduled(fixedDelayString = "${carlease.cluster.poll-interval-ms:500}")
+    public synchronized void poll() {
+        if (lastSeenId < 0) {
+            // Start from the current end of the table; older changes predate this node's caches
+            lastSeenId = clusterChangeRepository.findMaxId();
+            return;
+        }
+        long now = System.nanoTime();
+        pollGaps(now);
+        List<ClusterChange> changes;
+        do {
+            changes = clusterChangeRepository.findByIdGreaterThanOrderById(lastSeenId, PageRequest.of(0, POLL_BATCH));
+            for (ClusterChange change : changes) {
+                for (long gap = lastSeenId + 1; gap < change.getId() && pendingGaps.size() < MAX_PENDING_GAPS; gap++) {
+                    pendingGaps.put(gap, now);
+                }
+                lastSeenId = change.getId();
+                accept(change);
+            }
+        } while (changes.size() == POLL_BATCH);
+    }
+    
+    private void pollGaps(long now) {
+        pendingGaps.values().removeIf(firstMissed -> now - firstMissed > gapGraceNanos);
+        if (pendingGaps.isEmpty()) {
+            return;
+        }
+        for (List<Long> ids : partition(new ArrayList<>(pendingGaps.keySet()))) {
+            for (ClusterChange change : clusterChangeRepository.findByIdInOrderById(ids)) {
+                pendingGaps.remove(change.getId());
+                accept(change);
+            }
+        }
+    }
+    
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += POLL_BATCH) {
+            batches.add(ids.subList(from, Math.min(from + POLL_BATCH, ids.size())));
+        }
+        return batches;
+    }
+    
+    private void accept(ClusterChange change) {
+        if (!nodeId.equals(change.getOriginNodeId())) {
+            deliver(change);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${carlease.cluster.purge-interval-ms:60000}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        transactionTemplate.executeWithoutResult(status -> clusterChangeRepository.deleteOlderThan(cutoff));
+    }
+    
+    private void deliver(ClusterChange change) {
+        List<Long> keys = Arrays.stream(change.getChangedKeys().split(","))
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+        InvalidationMessage message = new InvalidationMessage(change.getOriginNodeId(), change.getRegion(), keys);
+        for (Consumer<InvalidationMessage> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                log.error("Invalidation subscriber failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
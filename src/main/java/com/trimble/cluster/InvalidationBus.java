@@ -0,0 +1,14 @@
+package com.trimble.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport for node-to-node cache invalidation
+ * Implementations deliver messages published on one node to the subscribers of every other node
+ */
+public interface InvalidationBus {
+    
+    void publish(InvalidationMessage message);
+    
+    void subscribe(Consumer<InvalidationMessage> subscriber);
+}
@@ -0,0 +1,18 @@
+package com.trimble.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Invalidation sent between nodes
+ */
+@Getter
+@AllArgsConstructor
+public class InvalidationMessage {
+    
+    private final String originNodeId;
+    private final String region;
+    private final List<Long> keys;
+}
@@ -0,0 +1,22 @@
+package com.trimble.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Single-node transport: there are no other nodes to notify
+ */
+@Component
+@ConditionalOnProperty(name = "carlease.cluster.transport", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationBus implements InvalidationBus {
+    
+    @Override
+    public void publish(InvalidationMessage message) {
+    }
+    
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> subscriber) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.trimble.coalescing;
+
+import com.trimble.config.ReplicaLagGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent reads
+ * The first caller for a key runs the computation; callers arriving while it runs, or within
+ * windowMs after it succeeded, wait for it and get the same result instead of running their own.
+ * Results are shared between callers and must be treated as read-only. A failure is passed to
+ * the callers that were already waiting, and the next caller starts a new computation.
+ * Calls are counted in carlease.single-flight.calls, tagged with the read's name and whether it
+ * executed or was coalesced. A caller inside its read-your-writes window always reads on its own:
+ * a flight may have been started before its write, or routed to a replica that lacks it.
+ */
+@Component
+public class SingleFlight {
+    
+    private final MeterRegistry meterRegistry;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Map<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+    
+    public SingleFlight(MeterRegistry meterRegistry,
+                        Optional<ReplicaLagGuard> replicaLagGuard,
+                        @Value("${carlease.single-flight.enabled:true}") boolean enabled,
+                        @Value("${carlease.single-flight.window-ms:0}") long windowMillis) {
+        this.meterRegistry = meterRegistry;
+        this.replicaLagGuard = replicaLagGuard.orElse(null);
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+    
+    /**
+     * Run the computation for name and key, or share the one already in flight
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object key, Supplier<T> computation) {
+        if (!enabled || replicaLagGuard != null && replicaLagGuard.mustReadFromPrimary()) {
+            return computation.get();
+        }
+        FlightKey flightKey = new FlightKey(name, key);
+        Flight[] started = new Flight[1];
+        Flight flight = flights.compute(flightKey, (k, current) -> {
+            if (current != null && current.isJoinable(System.nanoTime(), windowNanos)) {
+                return current;
+            }
+            started[0] = new Flight();
+            return started[0];
+        });
+        
+        if (flight != started[0]) {
+            meterRegistry.counter("carlease.single-flight.calls", "name", name, "outcome", "coalesced").increment();
+            return (T) flight.await();
+        }
+        
+        meterRegistry.counter("carlease.single-flight.calls", "name", name, "outcome", "executed").increment();
+        try {
+            T value = computation.get();
+            flight.succeed(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.fail(e);
+            throw e;
+        } finally {
+            if (windowNanos == 0 || flight.future.isCompletedExceptionally()) {
+                flights.remove(flightKey, flight);
+            } else {
+                CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS)
+                        .execute(() -> flights.remove(flightKey, flight));
+            }
+        }
+    }
+    
+    /**
+     * Keys with a computation running or a result still shareable
+     */
+    public int size() {
+        return flights.size();
+    }
+    
+    private static class Flight {
+        
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private volatile long completedAtNanos;
+        
+        boolean isJoinable(long nowNanos, long windowNanos) {
+            if (!future.isDone()) {
+                return true;
+            }
+            return !future.isCompletedExceptionally() && nowNanos - completedAtNanos <= windowNanos;
+        }
+        
+        void succeed(Object value) {
+            completedAtNanos = System.nanoTime();
+            future.complete(value);
+        }
+        
+        void fail(Throwable failure) {
+            future.completeExceptionally(failure);
+        }
+        
+        Object await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+    }
+    
+    private static class FlightKey {
+        
+        private final String name;
+        private final Object key;
+        
+        FlightKey(String name, Object key) {
+            this.name = name;
+            this.key = key;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FlightKey other && name.equals(other.name) && Objects.equals(key, other.key);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Objects.hashCode(key);
+        }
+    }
+}
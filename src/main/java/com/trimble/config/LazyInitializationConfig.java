@@ -0,0 +1,35 @@
+package com.trimble.config;
+
+import com.trimble.cluster.ClusterInvalidationBridge;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+
+/**
+ * Beans kept eager when spring.main.lazy-initialization is on (the faststart profile)
+ * Nothing injects these, so lazily they would never start: scheduled jobs, schema set-up
+ * run from afterSingletonsInstantiated, and the bridge that subscribes to the cluster channel.
+ */
+@Configuration
+public class LazyInitializationConfig {
+    
+    @Bean
+    static LazyInitializationExcludeFilter backgroundBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> SmartInitializingSingleton.class.isAssignableFrom(beanType)
+                || ClusterInvalidationBridge.class.isAssignableFrom(beanType)
+                || hasScheduledMethods(beanType);
+    }
+    
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        return Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(beanType, ReflectionUtils.USER_DECLARED_METHODS))
+                .anyMatch(method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                        || AnnotatedElementUtils.hasAnnotation(method, Schedules.class));
+    }
+}
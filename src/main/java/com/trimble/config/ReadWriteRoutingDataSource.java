@@ -0,0 +1,61 @@
+package com.trimble.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes read-only transactions to the replica pool and everything else to the primary
+ * Must sit behind a LazyConnectionDataSourceProxy so the routing decision is made after
+ * the transaction's read-only flag has been set
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+    
+    private final ReplicaLagGuard lagGuard;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter guardedReads;
+    
+    public ReadWriteRoutingDataSource(ReplicaLagGuard lagGuard, MeterRegistry meterRegistry) {
+        this.lagGuard = lagGuard;
+        this.primaryConnections = meterRegistry.counter("carlease.datasource.routed", "pool", PRIMARY);
+        this.replicaConnections = meterRegistry.counter("carlease.datasource.routed", "pool", REPLICA);
+        this.guardedReads = meterRegistry.counter("carlease.datasource.read-your-writes");
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()
+                    && TransactionSynchronizationManager.getSynchronizations().stream().noneMatch(RecordWriteOnCommit.class::isInstance)) {
+                TransactionSynchronizationManager.registerSynchronization(new RecordWriteOnCommit());
+            }
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        if (lagGuard.mustReadFromPrimary()) {
+            guardedReads.increment();
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        replicaConnections.increment();
+        return REPLICA;
+    }
+    
+    /**
+     * Starts the lag window when the write becomes visible, not when the connection is taken;
+     * a long transaction would otherwise use up the window before its commit reaches the replica
+     */
+    private class RecordWriteOnCommit implements TransactionSynchronization {
+        
+        @Override
+        public void afterCommit() {
+            lagGuard.recordWrite();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.trimble.config;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-your-writes guard for replica routing
+ * Remembers when each authenticated principal last wrote, and keeps that principal's
+ * reads on the primary until the configured replica lag has passed
+ */
+public class ReplicaLagGuard {
+    
+    private static final int CLEANUP_THRESHOLD = 10_000;
+    
+    private final ConcurrentHashMap<String, Long> lastWriteNanos = new ConcurrentHashMap<>();
+    private final long maxLagNanos;
+    
+    public ReplicaLagGuard(long maxLagMillis) {
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+    }
+    
+    public void recordWrite() {
+        String principal = currentPrincipal();
+        if (principal == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (lastWriteNanos.size() > CLEANUP_THRESHOLD) {
+            lastWriteNanos.values().removeIf(writtenAt -> now - writtenAt > maxLagNanos);
+        }
+        lastWriteNanos.put(principal, now);
+    }
+    
+    public boolean mustReadFromPrimary() {
+        String principal = currentPrincipal();
+        if (principal == null) {
+            return false;
+        }
+        Long writtenAt = lastWriteNanos.get(principal);
+        return writtenAt != null && System.nanoTime() - writtenAt < maxLagNanos;
+    }
+    
+    private String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,76 @@
+package com.trimble.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.service.AdminService;
+import com.trimble.service.CarService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the read paths behind the busiest endpoints before the application reports ready
+ * Readiness only switches to ACCEPTING_TRAFFIC once the ApplicationReadyEvent listeners have
+ * returned, so the first real requests find lazy beans created, the Hibernate query plans
+ * cached and the hot code already compiled. Results are serialized with the web ObjectMapper.
+ */
+@Component
+@ConditionalOnProperty(name = "carlease.warmup.enabled", havingValue = "true")
+@Slf4j
+public class StartupWarmup {
+    
+    private final List<Supplier<Object>> reads;
+    private final ObjectMapper objectMapper;
+    private final int iterations;
+    private final long maxMillis;
+    private volatile int completedIterations;
+    
+    public StartupWarmup(CarService carService,
+                         AdminService adminService,
+                         ObjectMapper objectMapper,
+                         @Value("${carlease.warmup.iterations:50}") int iterations,
+                         @Value("${carlease.warmup.max-ms:5000}") long maxMillis) {
+        this.reads = List.of(
+                carService::getAvailableCars,
+                adminService::getAllCars,
+                adminService::getAllCustomers,
+                adminService::getAllLeases,
+                () -> adminService.getDashboard(30, 5));
+        this.objectMapper = objectMapper;
+        this.iterations = iterations;
+        this.maxMillis = maxMillis;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        int completed = 0;
+        try {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                for (Supplier<Object> read : reads) {
+                    objectMapper.writeValueAsBytes(read.get());
+                }
+                completed++;
+            }
+        } catch (Exception e) {
+            // A failed warm-up only costs speed, it must not keep the application from starting
+            log.warn("Warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        }
+        completedIterations = completed;
+        log.info("Warm-up ran {} iterations in {} ms", completed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    public int getCompletedIterations() {
+        return completedIterations;
+    }
+}
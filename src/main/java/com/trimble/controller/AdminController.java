@@ -1,8 +1,11 @@
 package com.trimble.controller;
 
 import com.trimble.dto.ApiResponse;
+import com.trimble.dto.BulkCarStatusRequest;
+import com.trimble.dto.BulkCarStatusResultDto;
 import com.trimble.dto.CarDto;
 import com.trimble.dto.CustomerDto;
+import com.trimble.dto.DashboardDto;
 import com.trimble.dto.LeaseDto;
 import com.trimble.enums.CarStatus;
 import com.trimble.service.AdminService;
@@ -12,6 +15,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import java.util.List;
 
 /**
@@ -28,41 +33,61 @@ public class AdminController {
     private final AdminService adminService;
     
     /**
-     * Get all cars in the system
+     * Get all cars in the system, or only the fields listed, e.g. ?fields=id,licensePlate,status
      */
     @GetMapping("/cars")
-    public ResponseEntity<ApiResponse<List<CarDto>>> getAllCars() {
+    public ResponseEntity<ApiResponse<List<?>>> getAllCars(@RequestParam(required = false) List<String> fields) {
         log.info("Admin requesting all cars");
         
-        List<CarDto> cars = adminService.getAllCars();
+        List<?> cars = fields == null ? adminService.getAllCars() : adminService.getAllCars(fields);
         
         return ResponseEntity.ok(ApiResponse.success("All cars fetched successfully", cars));
     }
     
     /**
-     * Get all customers in the system
+     * Get all customers in the system, or only the fields listed, e.g. ?fields=id,fullName,activeLeaseCount
+     * The password is never among the fields.
      */
     @GetMapping("/customers")
-    public ResponseEntity<ApiResponse<List<CustomerDto>>> getAllCustomers() {
+    public ResponseEntity<ApiResponse<List<?>>> getAllCustomers(@RequestParam(required = false) List<String> fields) {
         log.info("Admin requesting all customers");
         
-        List<CustomerDto> customers = adminService.getAllCustomers();
+        List<?> customers = fields == null ? adminService.getAllCustomers() : adminService.getAllCustomers(fields);
         
         return ResponseEntity.ok(ApiResponse.success("All customers fetched successfully", customers));
     }
     
     /**
-     * Get all leases in the system
+     * Get all leases in the system, or only the fields listed, e.g. ?fields=id,carDetails,totalAmount
      */
     @GetMapping("/leases")
-    public ResponseEntity<ApiResponse<List<LeaseDto>>> getAllLeases() {
+    public ResponseEntity<ApiResponse<List<?>>> getAllLeases(@RequestParam(required = false) List<String> fields) {
         log.info("Admin requesting all leases");
         
-        List<LeaseDto> leases = adminService.getAllLeases();
+        List<?> leases = fields == null ? adminService.getAllLeases() : adminService.getAllLeases(fields);
         
         return ResponseEntity.ok(ApiResponse.success("All leases fetched successfully", leases));
     }
     
+    /**
+     * Get a dashboard summary: car and lease counts by status, revenue and top owners
+     * Sections that fail or time out are listed as unavailable and the rest is still returned
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<ApiResponse<DashboardDto>> getDashboard(
+            @RequestParam(defaultValue = "30") @Min(1) int days,
+            @RequestParam(defaultValue = "5") @Min(1) int top) {
+        
+        log.info("Admin requesting dashboard for the last {} days", days);
+        
+        DashboardDto dashboard = adminService.getDashboard(days, top);
+        
+        String message = dashboard.isPartial()
+                ? "Dashboard fetched with unavailable sections: " + String.join(", ", dashboard.getUnavailableSections())
+                : "Dashboard fetched successfully";
+        return ResponseEntity.ok(ApiResponse.success(message, dashboard));
+    }
+    
     /**
      * Update car status
      */
@@ -78,6 +103,47 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success("Car status updated successfully", updatedCar));
     }
     
+    /**
+     * Update the status of many cars at once, by ID list or by filter
+     */
+    @PutMapping("/cars/status")
+    public ResponseEntity<ApiResponse<BulkCarStatusResultDto>> bulkUpdateCarStatus(
+            @Valid @RequestBody BulkCarStatusRequest request) {
+        
+        log.info("Admin bulk updating car status to {}", request.getStatus());
+        
+        BulkCarStatusResultDto result = adminService.bulkUpdateCarStatus(request);
+        
+        return ResponseEntity.ok(ApiResponse.success("Car statuses updated successfully", result));
+    }
+    
+    /**
+     * Archive finished leases now
+     */
+    @PostMapping("/leases/archive")
+    public ResponseEntity<ApiResponse<Integer>> archiveLeases() {
+        log.info("Admin archiving finished leases");
+        
+        int archived = adminService.archiveLeases();
+        
+        return ResponseEntity.ok(ApiResponse.success("Leases archived successfully", archived));
+    }
+    
+    /**
+     * Set a customer's active lease limit; omit the parameter to restore the default
+     */
+    @PutMapping("/customers/{customerId}/lease-limit")
+    public ResponseEntity<ApiResponse<CustomerDto>> updateLeaseLimit(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) @Min(0) Integer maxActiveLeases) {
+        
+        log.info("Admin setting active lease limit of customer {} to {}", customerId, maxActiveLeases);
+        
+        CustomerDto customer = adminService.updateLeaseLimit(customerId, maxActiveLeases);
+        
+        return ResponseEntity.ok(ApiResponse.success("Lease limit updated successfully", customer));
+    }
+    
     /**
      * End any lease
      */
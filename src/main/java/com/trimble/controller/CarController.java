@@ -1,8 +1,14 @@
 package com.trimble.controller;
 
 import com.trimble.dto.ApiResponse;
+import com.trimble.dto.BatchItem;
+import com.trimble.dto.BatchRequest;
 import com.trimble.dto.CarDto;
+import com.trimble.dto.CarHoldDto;
+import com.trimble.dto.WaitlistEntryDto;
+import com.trimble.service.CarHoldService;
 import com.trimble.service.CarService;
+import com.trimble.service.CarWaitlistService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -24,6 +30,8 @@ import java.util.List;
 public class CarController {
     
     private final CarService carService;
+    private final CarHoldService carHoldService;
+    private final CarWaitlistService carWaitlistService;
     
     /**
      * Register a new car
@@ -80,4 +88,76 @@ public class CarController {
         
         return ResponseEntity.ok(ApiResponse.success("Car fetched successfully", car));
     }
+    
+    /**
+     * Get several cars by ID
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItem<CarDto>>>> getCarsByIds(@Valid @RequestBody BatchRequest request) {
+        log.info("Batch fetching {} cars", request.getIds().size());
+        
+        List<BatchItem<CarDto>> cars = carService.getCarsByIds(request.getIds());
+        
+        return ResponseEntity.ok(ApiResponse.success("Cars fetched successfully", cars));
+    }
+    
+    /**
+     * Hold a car for a customer for a short time before starting the lease
+     */
+    @PostMapping("/{carId}/hold")
+    public ResponseEntity<ApiResponse<CarHoldDto>> holdCar(@PathVariable Long carId, @RequestParam Long customerId) {
+        log.info("Hold request for car ID: {} by customer ID: {}", carId, customerId);
+        
+        CarHoldDto hold = carHoldService.holdCar(carId, customerId);
+        
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Car held successfully", hold));
+    }
+    
+    /**
+     * Release a hold before it expires
+     */
+    @DeleteMapping("/{carId}/hold")
+    public ResponseEntity<ApiResponse<Void>> releaseHold(@PathVariable Long carId, @RequestParam Long customerId) {
+        log.info("Hold release request for car ID: {} by customer ID: {}", carId, customerId);
+        
+        carHoldService.releaseHold(carId, customerId);
+        
+        return ResponseEntity.ok(ApiResponse.success("Car hold released successfully", null));
+    }
+    
+    /**
+     * Join the waitlist of a car; the customer gets a hold on it when it is their turn
+     */
+    @PostMapping("/{carId}/waitlist")
+    public ResponseEntity<ApiResponse<WaitlistEntryDto>> joinWaitlist(@PathVariable Long carId, @RequestParam Long customerId) {
+        log.info("Waitlist request for car ID: {} by customer ID: {}", carId, customerId);
+        
+        WaitlistEntryDto entry = carWaitlistService.join(carId, customerId);
+        
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Joined waitlist successfully", entry));
+    }
+    
+    /**
+     * Position of a customer in the waitlist of a car
+     */
+    @GetMapping("/{carId}/waitlist")
+    public ResponseEntity<ApiResponse<WaitlistEntryDto>> getWaitlistPosition(@PathVariable Long carId, @RequestParam Long customerId) {
+        WaitlistEntryDto entry = new WaitlistEntryDto(carId, customerId, carWaitlistService.position(carId, customerId));
+        
+        return ResponseEntity.ok(ApiResponse.success("Waitlist position fetched successfully", entry));
+    }
+    
+    /**
+     * Leave the waitlist of a car
+     */
+    @DeleteMapping("/{carId}/waitlist")
+    public ResponseEntity<ApiResponse<Void>> leaveWaitlist(@PathVariable Long carId, @RequestParam Long customerId) {
+        log.info("Waitlist leave request for car ID: {} by customer ID: {}", carId, customerId);
+        
+        carWaitlistService.leave(carId, customerId);
+        
+        return ResponseEntity.ok(ApiResponse.success("Left waitlist successfully", null));
+    }
 }
\ No newline at end of file
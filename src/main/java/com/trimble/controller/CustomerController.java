@@ -1,8 +1,11 @@
 package com.trimble.controller;
 
 import com.trimble.dto.ApiResponse;
+import com.trimble.dto.BatchItem;
+import com.trimble.dto.BatchRequest;
 import com.trimble.dto.CustomerDto;
 import com.trimble.service.CustomerService;
+import com.trimble.service.IdempotencyService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -10,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.List;
 
 /**
  * REST Controller for Customer operations
@@ -21,20 +25,24 @@ import jakarta.validation.Valid;
 public class CustomerController {
     
     private final CustomerService customerService;
+    private final IdempotencyService idempotencyService;
     
     /**
      * Register a new customer
      */
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<CustomerDto>> registerCustomer(
-            @Valid @RequestBody CustomerDto customerDto) {
+            @Valid @RequestBody CustomerDto customerDto,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         
         log.info("Customer registration request received for username: {}", customerDto.getUsername());
         
-        CustomerDto registeredCustomer = customerService.registerCustomer(customerDto);
-        
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Customer registered successfully", registeredCustomer));
+        return idempotencyService.execute("customer-register", idempotencyKey, customerDto, () -> {
+            CustomerDto registeredCustomer = customerService.registerCustomer(customerDto);
+            
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success("Customer registered successfully", registeredCustomer));
+        });
     }
     
     /**
@@ -60,4 +68,16 @@ public class CustomerController {
         
         return ResponseEntity.ok(ApiResponse.success("Customer fetched successfully", customer));
     }
+    
+    /**
+     * Get several customers by ID
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItem<CustomerDto>>>> getCustomersByIds(@Valid @RequestBody BatchRequest request) {
+        log.info("Batch fetching {} customers", request.getIds().size());
+        
+        List<BatchItem<CustomerDto>> customers = customerService.getCustomersByIds(request.getIds());
+        
+        return ResponseEntity.ok(ApiResponse.success("Customers fetched successfully", customers));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.trimble.controller;
+
+import com.trimble.service.LeaseExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * REST Controller for finance exports
+ * Exports are streamed as CSV instead of being built in memory
+ */
+@RestController
+@RequestMapping("/api/admin/exports")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+public class ExportController {
+    
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    
+    private final LeaseExportService leaseExportService;
+    
+    /**
+     * Export leases started in [from, to)
+     */
+    @GetMapping("/leases")
+    public ResponseEntity<StreamingResponseBody> exportLeases(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        
+        log.info("Admin exporting leases from {} to {}", from, to);
+        
+        return csv("leases.csv", outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            leaseExportService.exportLeases(from, to, writer);
+        });
+    }
+    
+    /**
+     * Export monthly revenue per owner for leases completed in [from, to)
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<StreamingResponseBody> exportRevenue(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        
+        log.info("Admin exporting revenue from {} to {}", from, to);
+        
+        return csv("revenue.csv", outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            leaseExportService.exportRevenue(from, to, writer);
+        });
+    }
+    
+    private ResponseEntity<StreamingResponseBody> csv(String filename, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(TEXT_CSV)
+                .body(body);
+    }
+}
@@ -0,0 +1,106 @@
+package com.trimble.controller;
+
+import com.trimble.dto.BatchRequest;
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.Car;
+import com.trimble.entity.Customer;
+import com.trimble.entity.User;
+import com.trimble.exception.LeaseException;
+import com.trimble.service.GraphQueryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL queries over cars, customers, users and leases, served at /graphql
+ * Root fields load only the requested rows. Every association is a batch mapping: the loader
+ * for a request collects the keys of all parents at one level and resolves them with a single
+ * IN query, so a customer with n leases costs one query per level rather than n.
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class GraphQueryController {
+    
+    private final GraphQueryService graphQueryService;
+    
+    @QueryMapping
+    public Car car(@Argument Long id) {
+        log.info("GraphQL car: {}", id);
+        return graphQueryService.findCar(id).orElse(null);
+    }
+    
+    @QueryMapping
+    public List<Car> cars(@Argument List<Long> ids) {
+        log.info("GraphQL cars: {} IDs", ids.size());
+        checkBatchSize(ids);
+        return inOrder(ids, graphQueryService.findCars(ids), Car::getId);
+    }
+    
+    @QueryMapping
+    public Customer customer(@Argument Long id) {
+        log.info("GraphQL customer: {}", id);
+        return graphQueryService.findCustomers(List.of(id)).stream().findFirst().orElse(null);
+    }
+    
+    @QueryMapping
+    public List<Customer> customers(@Argument List<Long> ids) {
+        log.info("GraphQL customers: {} IDs", ids.size());
+        checkBatchSize(ids);
+        return inOrder(ids, graphQueryService.findCustomers(ids), Customer::getId);
+    }
+    
+    /**
+     * Car owners; the owner ID is read from the lazy proxy without loading it
+     */
+    @BatchMapping
+    public List<User> owner(List<Car> cars) {
+        List<Long> ownerIds = cars.stream().map(car -> car.getOwner().getId()).collect(Collectors.toList());
+        return inOrder(ownerIds, graphQueryService.findUsers(new LinkedHashSet<>(ownerIds)), User::getId);
+    }
+    
+    @BatchMapping(typeName = "Customer", field = "leases")
+    public List<List<LeaseDto>> customerLeases(List<Customer> customers) {
+        Map<Long, List<LeaseDto>> histories = graphQueryService.findLeaseHistories(
+                customers.stream().map(Customer::getId).collect(Collectors.toList()));
+        return customers.stream()
+                .map(customer -> histories.getOrDefault(customer.getId(), List.of()))
+                .collect(Collectors.toList());
+    }
+    
+    @BatchMapping(typeName = "Lease", field = "car")
+    public List<Car> leaseCar(List<LeaseDto> leases) {
+        List<Long> carIds = leases.stream().map(LeaseDto::getCarId).collect(Collectors.toList());
+        return inOrder(carIds, graphQueryService.findCars(carIds), Car::getId);
+    }
+    
+    @BatchMapping(typeName = "Lease", field = "customer")
+    public List<Customer> leaseCustomer(List<LeaseDto> leases) {
+        List<Long> customerIds = leases.stream().map(LeaseDto::getCustomerId).collect(Collectors.toList());
+        return inOrder(customerIds, graphQueryService.findCustomers(new LinkedHashSet<>(customerIds)), Customer::getId);
+    }
+    
+    private static void checkBatchSize(Collection<Long> ids) {
+        if (ids.size() > BatchRequest.MAX_IDS) {
+            throw new LeaseException("At most " + BatchRequest.MAX_IDS + " IDs can be requested at once");
+        }
+    }
+    
+    /**
+     * Line loaded rows up with the requested IDs, null where an ID was not found
+     */
+    private static <T> List<T> inOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> byId = rows.stream().collect(Collectors.toMap(idOf, Function.identity(), (first, second) -> first));
+        return ids.stream().map(byId::get).collect(Collectors.toList());
+    }
+}
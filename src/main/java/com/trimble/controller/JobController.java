@@ -0,0 +1,77 @@
+package com.trimble.controller;
+
+import com.trimble.dto.ApiResponse;
+import com.trimble.dto.JobDto;
+import com.trimble.service.JobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+
+/**
+ * REST Controller for asynchronous admin jobs
+ * Long-running operations are submitted here and polled for progress
+ */
+@RestController
+@RequestMapping("/api/admin/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+public class JobController {
+    
+    private final JobService jobService;
+    
+    /**
+     * Submit a new job
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<JobDto>> submitJob(@Valid @RequestBody JobDto jobDto) {
+        log.info("Admin submitting {} job", jobDto.getType());
+        
+        JobDto job = jobService.submitJob(jobDto);
+        
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Job submitted successfully", job));
+    }
+    
+    /**
+     * Get all jobs
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<JobDto>>> getAllJobs() {
+        log.info("Admin requesting all jobs");
+        
+        List<JobDto> jobs = jobService.getAllJobs();
+        
+        return ResponseEntity.ok(ApiResponse.success("All jobs fetched successfully", jobs));
+    }
+    
+    /**
+     * Get job progress by ID
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<JobDto>> getJobById(@PathVariable Long jobId) {
+        log.info("Admin polling job with ID: {}", jobId);
+        
+        JobDto job = jobService.getJobById(jobId);
+        
+        return ResponseEntity.ok(ApiResponse.success("Job fetched successfully", job));
+    }
+    
+    /**
+     * Cancel a job
+     */
+    @PutMapping("/{jobId}/cancel")
+    public ResponseEntity<ApiResponse<JobDto>> cancelJob(@PathVariable Long jobId) {
+        log.info("Admin cancelling job with ID: {}", jobId);
+        
+        JobDto job = jobService.cancelJob(jobId);
+        
+        return ResponseEntity.ok(ApiResponse.success("Job cancelled successfully", job));
+    }
+}
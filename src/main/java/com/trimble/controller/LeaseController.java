@@ -1,8 +1,16 @@
 package com.trimble.controller;
 
+import com.trimble.booking.BookingEngine;
 import com.trimble.dto.ApiResponse;
+import com.trimble.dto.BatchItem;
+import com.trimble.dto.BatchRequest;
+import com.trimble.dto.GroupLeaseRequest;
+import com.trimble.dto.GroupLeaseResultDto;
 import com.trimble.dto.LeaseDto;
+import com.trimble.exception.LeaseException;
+import com.trimble.service.IdempotencyService;
 import com.trimble.service.LeaseService;
+import com.trimble.service.LeaseWriteBatcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -22,30 +30,67 @@ import java.util.List;
 public class LeaseController {
     
     private final LeaseService leaseService;
+    private final IdempotencyService idempotencyService;
+    private final BookingEngine bookingEngine;
+    private final LeaseWriteBatcher leaseWriteBatcher;
     
     /**
      * Start a new lease
      */
     @PostMapping("/start")
-    public ResponseEntity<ApiResponse<LeaseDto>> startLease(@Valid @RequestBody LeaseDto leaseDto) {
+    public ResponseEntity<ApiResponse<LeaseDto>> startLease(
+            @Valid @RequestBody LeaseDto leaseDto,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         log.info("Lease start request received for car ID: {}", leaseDto.getCarId());
         
-        LeaseDto startedLease = leaseService.startLease(leaseDto);
+        return idempotencyService.execute("lease-start", idempotencyKey, leaseDto, () -> {
+            LeaseDto startedLease = bookingEngine.isEnabled()
+                    ? bookingEngine.startLease(leaseDto)
+                    : leaseWriteBatcher.startLease(leaseDto);
+            
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success("Lease started successfully", startedLease));
+        });
+    }
+    
+    /**
+     * Lease several cars to one customer at once
+     */
+    @PostMapping("/group")
+    public ResponseEntity<ApiResponse<GroupLeaseResultDto>> startGroupLease(
+            @Valid @RequestBody GroupLeaseRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        log.info("Group lease request received for {} cars", request.getCarIds().size());
+        
+        // The engine keeps car state in memory and would not see cars booked around it
+        if (bookingEngine.isEnabled()) {
+            throw new LeaseException("Group leases are not available while the booking engine is enabled");
+        }
         
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Lease started successfully", startedLease));
+        return idempotencyService.execute("lease-group", idempotencyKey, request, () -> {
+            GroupLeaseResultDto result = leaseService.startGroupLease(request);
+            
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success("Group lease started successfully", result));
+        });
     }
     
     /**
      * End a lease
      */
     @PutMapping("/{leaseId}/end")
-    public ResponseEntity<ApiResponse<LeaseDto>> endLease(@PathVariable Long leaseId) {
+    public ResponseEntity<ApiResponse<LeaseDto>> endLease(
+            @PathVariable Long leaseId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         log.info("Lease end request received for lease ID: {}", leaseId);
         
-        LeaseDto endedLease = leaseService.endLease(leaseId);
-        
-        return ResponseEntity.ok(ApiResponse.success("Lease ended successfully", endedLease));
+        return idempotencyService.execute("lease-end", idempotencyKey, leaseId, () -> {
+            LeaseDto endedLease = bookingEngine.isEnabled()
+                    ? bookingEngine.endLease(leaseId)
+                    : leaseWriteBatcher.endLease(leaseId);
+            
+            return ResponseEntity.ok(ApiResponse.success("Lease ended successfully", endedLease));
+        });
     }
     
     /**
@@ -83,4 +128,16 @@ public class LeaseController {
         
         return ResponseEntity.ok(ApiResponse.success("Lease history fetched successfully", leases));
     }
+    
+    /**
+     * Get several leases by ID
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItem<LeaseDto>>>> getLeasesByIds(@Valid @RequestBody BatchRequest request) {
+        log.info("Batch fetching {} leases", request.getIds().size());
+        
+        List<BatchItem<LeaseDto>> leases = leaseService.getLeasesByIds(request.getIds());
+        
+        return ResponseEntity.ok(ApiResponse.success("Leases fetched successfully", leases));
+    }
 }
\ No newline at end of file
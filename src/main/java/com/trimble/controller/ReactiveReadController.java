@@ -0,0 +1,81 @@
+package com.trimble.controller;
+
+import com.trimble.dto.CarDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.CustomerNotFoundException;
+import com.trimble.repository.ReactiveReadRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * REST Controller for the reactive read path, enabled with carlease.reactive.enabled=true
+ * Lists and histories are streamed as newline-delimited JSON, one DTO per line. The request
+ * releases its servlet thread while the query runs, and the next row is only read once the
+ * previous one has been written to the client.
+ */
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "carlease.reactive.enabled", havingValue = "true")
+public class ReactiveReadController {
+    
+    private final ReactiveReadRepository reactiveReadRepository;
+    
+    /**
+     * Stream all cars in the system
+     */
+    @GetMapping(value = "/admin/reactive/cars", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<CarDto> streamAllCars() {
+        log.info("Admin streaming all cars");
+        
+        return reactiveReadRepository.findAllCars();
+    }
+    
+    /**
+     * Stream all leases in the system
+     */
+    @GetMapping(value = "/admin/reactive/leases", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<LeaseDto> streamAllLeases() {
+        log.info("Admin streaming all leases");
+        
+        return reactiveReadRepository.findAllLeases();
+    }
+    
+    /**
+     * Stream the lease history of a customer
+     */
+    @GetMapping(value = "/leases/reactive/customer/{customerId}/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<LeaseDto>>> streamLeaseHistoryByCustomer(@PathVariable Long customerId) {
+        log.info("Streaming lease history for customer: {}", customerId);
+        
+        // Checked before the response is committed, so an unknown customer is still a 404
+        return reactiveReadRepository.existsCustomer(customerId)
+                .flatMap(exists -> exists
+                        ? Mono.just(ResponseEntity.ok(reactiveReadRepository.findLeaseHistoryByCustomer(customerId)))
+                        : Mono.error(new CustomerNotFoundException("Customer not found with ID: " + customerId)));
+    }
+    
+    /**
+     * Stream the lease history of a car
+     */
+    @GetMapping(value = "/leases/reactive/car/{carId}/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<LeaseDto>>> streamLeaseHistoryByCar(@PathVariable Long carId) {
+        log.info("Streaming lease history for car: {}", carId);
+        
+        return reactiveReadRepository.existsCar(carId)
+                .flatMap(exists -> exists
+                        ? Mono.just(ResponseEntity.ok(reactiveReadRepository.findLeaseHistoryByCar(carId)))
+                        : Mono.error(new CarNotFoundException("Car not found with ID: " + carId)));
+    }
+}
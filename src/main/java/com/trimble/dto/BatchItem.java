@@ -0,0 +1,43 @@
+package com.trimble.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single entry of a batch lookup response
+ * Entries are returned in request order; missing IDs are marked as not found
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItem<T> {
+    
+    private Long id;
+    private boolean found;
+    private T data;
+    
+    public static <T> BatchItem<T> found(Long id, T data) {
+        return new BatchItem<>(id, true, data);
+    }
+    
+    public static <T> BatchItem<T> notFound(Long id) {
+        return new BatchItem<>(id, false, null);
+    }
+    
+    /**
+     * Arrange looked-up values in the order of the requested IDs
+     */
+    public static <T> List<BatchItem<T>> inRequestOrder(List<Long> ids, Map<Long, T> byId) {
+        List<BatchItem<T>> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T data = byId.get(id);
+            items.add(data != null ? found(id, data) : notFound(id));
+        }
+        return items;
+    }
+}
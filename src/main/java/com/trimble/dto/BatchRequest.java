@@ -0,0 +1,25 @@
+package com.trimble.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Request body for batch lookups by ID
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequest {
+    
+    public static final int MAX_IDS = 500;
+    
+    @NotEmpty(message = "At least one ID is required")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " IDs can be requested at once")
+    private List<@NotNull(message = "IDs must not be null") Long> ids;
+}
@@ -0,0 +1,38 @@
+package com.trimble.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.trimble.enums.CarStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Request body for bulk car status changes
+ * Cars are selected by an explicit ID list, or by owner, current status and make
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCarStatusRequest {
+    
+    @NotNull(message = "Target status is required")
+    private CarStatus status;
+    
+    private List<@NotNull Long> carIds;
+    
+    private Long ownerId;
+    
+    private CarStatus currentStatus;
+    
+    private String make;
+    
+    @JsonIgnore
+    @AssertTrue(message = "Car IDs or at least one filter is required")
+    public boolean isSelectorPresent() {
+        return (carIds != null && !carIds.isEmpty()) || ownerId != null || currentStatus != null || make != null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.trimble.dto;
+
+import com.trimble.enums.CarStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a bulk car status change
+ * Unchanged cars matched the selection but were already in the target status or held by an active lease
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCarStatusResultDto {
+    
+    private CarStatus status;
+    
+    private List<Long> updatedCarIds;
+    
+    private List<Long> unchangedCarIds;
+    
+    private int batches;
+}
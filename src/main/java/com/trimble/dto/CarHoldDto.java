@@ -0,0 +1,22 @@
+package com.trimble.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A short reservation of a car for one customer
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarHoldDto {
+    
+    private Long carId;
+    
+    private Long customerId;
+    
+    private LocalDateTime heldUntil;
+}
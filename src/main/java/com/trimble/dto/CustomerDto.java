@@ -42,6 +42,10 @@ public class CustomerDto {
     @NotBlank(message = "Driver license is required")
     private String driverLicense;
     
+    private int activeLeaseCount;
+    
+    private Integer maxActiveLeases;
+    
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
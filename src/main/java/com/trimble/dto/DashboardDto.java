@@ -0,0 +1,36 @@
+package com.trimble.dto;
+
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin dashboard summary
+ * Sections that failed or timed out are null and listed in unavailableSections
+ */
+@Data
+@NoArgsConstructor
+public class DashboardDto {
+    
+    private Map<CarStatus, Long> carsByStatus;
+    
+    private Map<LeaseStatus, Long> leasesByStatus;
+    
+    private int revenueDays;
+    
+    private BigDecimal revenue;
+    
+    private List<OwnerRevenueDto> topOwners;
+    
+    private boolean partial;
+    
+    private List<String> unavailableSections = new ArrayList<>();
+    
+    private long elapsedMillis;
+}
@@ -0,0 +1,31 @@
+package com.trimble.dto;
+
+import com.trimble.enums.GroupBookingMode;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Request body for leasing several cars for one customer at once
+ * Without a mode, carlease.group-booking.default-mode applies
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupLeaseRequest {
+    
+    @NotNull(message = "Customer ID is required")
+    private Long customerId;
+    
+    @NotEmpty(message = "At least one car ID is required")
+    private List<@NotNull(message = "Car IDs must not be null") Long> carIds;
+    
+    private LocalDateTime startDate;
+    
+    private GroupBookingMode mode;
+}
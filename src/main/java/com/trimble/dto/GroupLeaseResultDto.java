@@ -0,0 +1,28 @@
+package com.trimble.dto;
+
+import com.trimble.enums.GroupBookingMode;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a group booking
+ * Only a best-effort booking can leave cars out: taken or missing cars, and cars beyond the customer's lease limit
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupLeaseResultDto {
+    
+    private GroupBookingMode mode;
+    
+    private List<LeaseDto> leases;
+    
+    private List<Long> unavailableCarIds;
+    
+    private List<Long> notFoundCarIds;
+    
+    private List<Long> overLimitCarIds;
+}
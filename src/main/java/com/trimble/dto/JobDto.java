@@ -0,0 +1,54 @@
+package com.trimble.dto;
+
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.JobStatus;
+import com.trimble.enums.JobType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object for Job entity
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobDto {
+    
+    private Long id;
+    
+    @NotNull(message = "Job type is required")
+    private JobType type;
+    
+    private JobStatus status;
+    
+    private CarStatus carStatus;
+    
+    @NotEmpty(message = "At least one target ID is required")
+    private List<@NotNull Long> targetIds;
+    
+    private int totalItems;
+    
+    private int processedItems;
+    
+    private int failedItems;
+    
+    private double progressPercent;
+    
+    private double itemsPerSecond;
+    
+    private String errorMessage;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime completedAt;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.trimble.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Revenue earned by one car owner over the dashboard window
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerRevenueDto {
+    
+    private Long ownerId;
+    
+    private String ownerName;
+    
+    private BigDecimal revenue;
+    
+    private long completedLeases;
+}
@@ -0,0 +1,20 @@
+package com.trimble.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * A customer's place in the waitlist of a car; position 1 is next in line
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntryDto {
+    
+    private Long carId;
+    
+    private Long customerId;
+    
+    private int position;
+}
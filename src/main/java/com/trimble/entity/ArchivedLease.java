@@ -0,0 +1,68 @@
+package com.trimble.entity;
+
+import com.trimble.enums.LeaseStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Archived lease representing a completed or cancelled lease moved out of the hot leases table
+ * Car and customer details are copied at archive time so reads never join the hot tables
+ */
+@Entity
+@Table(name = "lease_archive", indexes = {
+        @Index(name = "idx_lease_archive_customer", columnList = "customer_id"),
+        @Index(name = "idx_lease_archive_car", columnList = "car_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedLease {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "car_id", nullable = false)
+    private Long carId;
+    
+    @Column(nullable = false)
+    private Long ownerId;
+    
+    @Column(nullable = false)
+    private String licensePlate;
+    
+    @Column(nullable = false)
+    private String make;
+    
+    @Column(nullable = false)
+    private String model;
+    
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+    
+    @Column(nullable = false)
+    private String customerName;
+    
+    @Column(nullable = false)
+    private LocalDateTime startDate;
+    
+    private LocalDateTime endDate;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LeaseStatus status;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -1,11 +1,12 @@
 package com.trimble.entity;
 
 import com.trimble.enums.CarStatus;
+import com.trimble.registry.RegistrationKeyListener;
 import jakarta.persistence.*;
-import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -20,12 +21,12 @@ import java.util.List;
  */
 @Entity
 @Table(name = "cars")
-@Data
 @Getter
 @Setter
+@ToString
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, RegistrationKeyListener.class})
 public class Car {
     
     @Id
@@ -54,11 +55,20 @@ public class Car {
     @Column(nullable = false)
     private CarStatus status = CarStatus.AVAILABLE;
     
+    /**
+     * Customer holding the car and when the hold lapses; only meaningful while the status is HELD
+     */
+    private Long heldByCustomerId;
+    
+    private LocalDateTime heldUntil;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
+    @ToString.Exclude
     private User owner;
     
     @OneToMany(mappedBy = "car", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @ToString.Exclude
     private List<Lease> leases;
     
     @CreatedDate
@@ -67,4 +77,20 @@ public class Car {
     
     @LastModifiedDate
     private LocalDateTime updatedAt;
+    
+    /**
+     * Identity is the database ID; hashCode is constant so it is stable across persist and never touches associations
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Car other && id != null && id.equals(other.getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return Car.class.hashCode();
+    }
 }
@@ -0,0 +1,36 @@
+package com.trimble.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change record of the DB-polled cluster invalidation channel
+ */
+@Entity
+@Table(name = "cluster_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterChange {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String originNodeId;
+    
+    @Column(nullable = false)
+    private String region;
+    
+    @Lob
+    @Column(nullable = false)
+    private String changedKeys;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,9 +1,13 @@
 package com.trimble.entity;
 
+import com.trimble.registry.RegistrationKeyListener;
+import com.trimble.shard.ReferenceDataListener;
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -16,10 +20,12 @@ import java.util.List;
  */
 @Entity
 @Table(name = "customers")
-@Data
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, ReferenceDataListener.class, RegistrationKeyListener.class})
 public class Customer {
     
     @Id
@@ -28,6 +34,7 @@ public class Customer {
     
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
     private User user;
     
     @Column(nullable = false)
@@ -36,10 +43,18 @@ public class Customer {
     @Column(nullable = false)
     private String address;
     
-    @Column(nullable = false)
+    @Column(unique = true, nullable = false)
     private String driverLicense;
     
+    // Denormalized count of ACTIVE leases on all shards, kept on the home shard by HomeShardKeyRepository
+    @Column(nullable = false)
+    private int activeLeaseCount = 0;
+    
+    // Per-customer override of the default active lease limit
+    private Integer maxActiveLeases;
+    
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @ToString.Exclude
     private List<Lease> leases;
     
     @CreatedDate
@@ -48,4 +63,20 @@ public class Customer {
     
     @LastModifiedDate
     private LocalDateTime updatedAt;
+    
+    /**
+     * Equal when both customers are persisted with the same ID; user and leases are never compared
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Customer other && id != null && id.equals(other.getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return Customer.class.hashCode();
+    }
 }
@@ -0,0 +1,68 @@
+package com.trimble.entity;
+
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.JobStatus;
+import com.trimble.enums.JobType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Job entity representing a long-running admin operation
+ * processedItems is the checkpoint: items before it have been committed
+ */
+@Entity
+@Table(name = "jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class Job {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobType type;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status = JobStatus.PENDING;
+    
+    @Enumerated(EnumType.STRING)
+    private CarStatus carStatus;
+    
+    @Lob
+    @Column(nullable = false)
+    private String targetIds;
+    
+    @Column(nullable = false)
+    private int totalItems;
+    
+    @Column(nullable = false)
+    private int processedItems;
+    
+    @Column(nullable = false)
+    private int failedItems;
+    
+    private String errorMessage;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime completedAt;
+    
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+}
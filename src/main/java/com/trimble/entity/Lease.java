@@ -2,10 +2,11 @@ package com.trimble.entity;
 
 import com.trimble.enums.LeaseStatus;
 import jakarta.persistence.*;
-import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -18,9 +19,10 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "leases")
-@Data
 @NoArgsConstructor
 @Getter
+@Setter
+@ToString
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
 public class Lease {
@@ -31,10 +33,12 @@ public class Lease {
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "car_id", nullable = false)
+    @ToString.Exclude
     private Car car;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
+    @ToString.Exclude
     private Customer customer;
     
     @Column(nullable = false)
@@ -55,4 +59,20 @@ public class Lease {
     
     @LastModifiedDate
     private LocalDateTime updatedAt;
+    
+    /**
+     * Same ID-only equality as Car, so a lease held in a set never initializes its car or customer proxy
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Lease other && id != null && id.equals(other.getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return Lease.class.hashCode();
+    }
 }
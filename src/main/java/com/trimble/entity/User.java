@@ -1,6 +1,8 @@
 package com.trimble.entity;
 
 import com.trimble.enums.UserRole;
+import com.trimble.registry.RegistrationKeyListener;
+import com.trimble.shard.ReferenceDataListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,7 +21,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, ReferenceDataListener.class, RegistrationKeyListener.class})
 public class User {
     
     @Id
@@ -32,7 +34,7 @@ public class User {
     @Column(nullable = false)
     private String password;
     
-    @Column(nullable = false)
+    @Column(unique = true, nullable = false)
     private String email;
     
     @Column(nullable = false)
@@ -4,5 +4,6 @@ public enum CarStatus {
     AVAILABLE,     // Car is available for lease
     ON_LEASE,      // Car is currently leased
     ON_SERVICE,    // Car is under maintenance
-    INACTIVE       // Car is not available for lease
+    INACTIVE,      // Car is not available for lease
+    HELD           // Car is reserved for one customer for a short time
 }
@@ -0,0 +1,7 @@
+package com.trimble.enums;
+
+public enum EndpointClass {
+    CHEAP_READ,    // Single-entity lookups
+    HEAVY_READ,    // List, history and batch reads
+    WRITE          // Any state-changing request
+}
@@ -0,0 +1,6 @@
+package com.trimble.enums;
+
+public enum GroupBookingMode {
+    ALL_OR_NOTHING,    // Book every requested car or none of them
+    BEST_EFFORT        // Book the cars that can be booked and report the rest
+}
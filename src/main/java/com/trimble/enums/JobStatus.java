@@ -0,0 +1,9 @@
+package com.trimble.enums;
+
+public enum JobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
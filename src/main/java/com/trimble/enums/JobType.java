@@ -0,0 +1,6 @@
+package com.trimble.enums;
+
+public enum JobType {
+    CAR_STATUS_UPDATE,     // Change the status of many cars
+    LEASE_TERMINATION      // End many active leases
+}
@@ -0,0 +1,8 @@
+package com.trimble.enums;
+
+public enum RegistrationKey {
+    USERNAME,          // users.username
+    EMAIL,             // users.email
+    DRIVER_LICENSE,    // customers.driver_license
+    LICENSE_PLATE      // cars.license_plate
+}
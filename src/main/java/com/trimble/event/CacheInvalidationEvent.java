@@ -0,0 +1,22 @@
+package com.trimble.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published on every node when cached data for the given keys is stale
+ * Fired after the local transaction commits, and again on other nodes when the change
+ * arrives over the cluster invalidation channel; in-memory views should listen to this
+ */
+@Getter
+@AllArgsConstructor
+public class CacheInvalidationEvent {
+    
+    public static final String CARS = "cars";
+    
+    private final String region;
+    private final List<Long> keys;
+    private final boolean remote;
+}
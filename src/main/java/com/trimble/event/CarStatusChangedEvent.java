@@ -0,0 +1,20 @@
+package com.trimble.event;
+
+import com.trimble.enums.CarStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published when the status of one or more cars changes
+ * Bulk updates publish a single event per batch; listeners that keep in-memory
+ * views of cars should refresh the given IDs after the transaction commits
+ */
+@Getter
+@AllArgsConstructor
+public class CarStatusChangedEvent {
+    
+    private final List<Long> carIds;
+    private final CarStatus status;
+}
@@ -0,0 +1,15 @@
+package com.trimble.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a row of a reference table (users, customers) is written on the home shard
+ */
+@Getter
+@AllArgsConstructor
+public class ReferenceDataChangedEvent {
+    
+    private final String table;
+    private final Long id;
+}
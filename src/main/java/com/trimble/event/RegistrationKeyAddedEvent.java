@@ -0,0 +1,17 @@
+package com.trimble.event;
+
+import com.trimble.enums.RegistrationKey;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a user, customer or car carrying a unique registration value is inserted,
+ * before the transaction commits
+ */
+@Getter
+@AllArgsConstructor
+public class RegistrationKeyAddedEvent {
+    
+    private final RegistrationKey key;
+    private final String value;
+}
@@ -0,0 +1,19 @@
+package com.trimble.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when the customer at the head of a car's waitlist has been given a hold on it
+ * Notification channels (mail, push) subscribe to this; the hold lapses at heldUntil
+ */
+@Getter
+@AllArgsConstructor
+public class WaitlistHoldGrantedEvent {
+    
+    private final Long carId;
+    private final Long customerId;
+    private final LocalDateTime heldUntil;
+}
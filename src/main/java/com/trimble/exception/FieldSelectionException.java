@@ -0,0 +1,8 @@
+package com.trimble.exception;
+
+public class FieldSelectionException extends RuntimeException {
+    
+    public FieldSelectionException(String message) {
+        super(message);
+    }
+}
@@ -40,6 +40,34 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
     
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ApiResponse<String>> handleJobNotFoundException(JobNotFoundException ex) {
+        log.error("Job not found: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(JobException.class)
+    public ResponseEntity<ApiResponse<String>> handleJobException(JobException ex) {
+        log.error("Job error: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(IdempotencyException.class)
+    public ResponseEntity<ApiResponse<String>> handleIdempotencyException(IdempotencyException ex) {
+        log.error("Idempotency error: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(FieldSelectionException.class)
+    public ResponseEntity<ApiResponse<String>> handleFieldSelectionException(FieldSelectionException ex) {
+        log.error("Field selection error: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationExceptions(
             MethodArgumentNotValidException ex) {
@@ -0,0 +1,12 @@
+package com.trimble.exception;
+
+public class JobNotFoundException extends RuntimeException {
+    
+    public JobNotFoundException(String message) {
+        super(message);
+    }
+    
+    public JobNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
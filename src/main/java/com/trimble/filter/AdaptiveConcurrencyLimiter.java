@@ -0,0 +1,109 @@
+package com.trimble.filter;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD concurrency limiter
+ * Requests queue for a permit for at most the queueing threshold; a timeout shrinks the
+ * limit multiplicatively, while fast grants at saturation grow it by one
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final double DECREASE_FACTOR = 0.9;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long queueThresholdNanos;
+    private final AdjustableSemaphore permits;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder rejected = new LongAdder();
+    
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long queueThresholdMillis) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueThresholdNanos = TimeUnit.MILLISECONDS.toNanos(queueThresholdMillis);
+        this.permits = new AdjustableSemaphore(initialLimit);
+        this.limit = new AtomicInteger(initialLimit);
+    }
+    
+    /**
+     * Wait for a permit for at most the queueing threshold
+     * @return the time spent queueing in nanos, or -1 if the request should be shed
+     */
+    public long acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(queueThresholdNanos, TimeUnit.NANOSECONDS)) {
+            rejected.increment();
+            decrease(System.nanoTime());
+            return -1;
+        }
+        long waited = System.nanoTime() - start;
+        int running = inFlight.incrementAndGet();
+        if (waited < queueThresholdNanos / 2 && running >= limit.get()) {
+            increase();
+        }
+        return waited;
+    }
+    
+    public void release() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+    
+    private void increase() {
+        int current = limit.get();
+        if (current < maxLimit && limit.compareAndSet(current, current + 1)) {
+            permits.release();
+        }
+    }
+    
+    private void decrease(long nowNanos) {
+        // At most one decrease per threshold interval, so a burst of timeouts does not collapse the limit
+        long last = lastDecreaseNanos.get();
+        if (nowNanos - last < queueThresholdNanos || !lastDecreaseNanos.compareAndSet(last, nowNanos)) {
+            return;
+        }
+        int current = limit.get();
+        int next = Math.max(minLimit, (int) (current * DECREASE_FACTOR));
+        if (next < current && limit.compareAndSet(current, next)) {
+            permits.reducePermits(current - next);
+        }
+    }
+    
+    public int getLimit() {
+        return limit.get();
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    public long getQueueThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(queueThresholdNanos);
+    }
+    
+    private static class AdjustableSemaphore extends Semaphore {
+        
+        AdjustableSemaphore(int permits) {
+            super(permits, true);
+        }
+        
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.trimble.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.dto.ApiResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load shedding in front of the controllers
+ * Bounds the number of concurrently executing API requests with an adaptive limit and
+ * sheds requests with 503 and Retry-After once queueing for a slot exceeds the threshold
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Timer queueWait;
+    
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${carlease.concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${carlease.concurrency-limit.initial:20}") int initialLimit,
+                                  @Value("${carlease.concurrency-limit.min:4}") int minLimit,
+                                  @Value("${carlease.concurrency-limit.max:200}") int maxLimit,
+                                  @Value("${carlease.concurrency-limit.queue-threshold-ms:250}") long queueThresholdMillis) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, queueThresholdMillis);
+        this.queueWait = Timer.builder("carlease.concurrency.queue.wait")
+                .description("Time requests spent waiting for a concurrency slot")
+                .register(meterRegistry);
+        Gauge.builder("carlease.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("carlease.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently executing")
+                .register(meterRegistry);
+        FunctionCounter.builder("carlease.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejectedCount)
+                .description("Requests shed because queueing exceeded the threshold")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !enabled || !(uri.startsWith("/api/") || uri.equals("/graphql"));
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long waited;
+        try {
+            waited = limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            waited = -1;
+        }
+        
+        if (waited < 0) {
+            log.warn("Shedding request {} {} at concurrency limit {}", request.getMethod(), request.getRequestURI(), limiter.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(limiter.getQueueThresholdMillis() + 999))));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Server is overloaded, please retry later"));
+            return;
+        }
+        
+        queueWait.record(waited, TimeUnit.NANOSECONDS);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.trimble.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.dto.ApiResponse;
+import com.trimble.enums.EndpointClass;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client rate limiting
+ * Keeps one token bucket per authenticated principal (or remote address) and endpoint class,
+ * and rejects requests with 429 and Retry-After once the bucket is empty.
+ * Runs after the Spring Security filter chain so the principal is known.
+ * At most max-tracked-clients buckets are kept; idle ones are swept periodically, and while
+ * the map is full, new clients share one overflow bucket per endpoint class.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 20)
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private final Map<EndpointClass, double[]> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejectedCounters = new EnumMap<>(EndpointClass.class);
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<EndpointClass, TokenBucket> overflowBuckets = new EnumMap<>(EndpointClass.class);
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxTrackedClients;
+    
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${carlease.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${carlease.rate-limit.max-tracked-clients:10000}") int maxTrackedClients,
+                           @Value("${carlease.rate-limit.cheap-read.per-second:50}") double cheapReadRate,
+                           @Value("${carlease.rate-limit.cheap-read.burst:100}") double cheapReadBurst,
+                           @Value("${carlease.rate-limit.heavy-read.per-second:2}") double heavyReadRate,
+                           @Value("${carlease.rate-limit.heavy-read.burst:5}") double heavyReadBurst,
+                           @Value("${carlease.rate-limit.write.per-second:10}") double writeRate,
+                           @Value("${carlease.rate-limit.write.burst:20}") double writeBurst) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxTrackedClients = maxTrackedClients;
+        limits.put(EndpointClass.CHEAP_READ, new double[] {cheapReadRate, cheapReadBurst});
+        limits.put(EndpointClass.HEAVY_READ, new double[] {heavyReadRate, heavyReadBurst});
+        limits.put(EndpointClass.WRITE, new double[] {writeRate, writeBurst});
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            rejectedCounters.put(endpointClass, Counter.builder("carlease.ratelimit.rejected")
+                    .description("Requests rejected by the per-client rate limiter")
+                    .tag("endpointClass", endpointClass.name())
+                    .register(meterRegistry));
+            overflowBuckets.put(endpointClass, newBucket(endpointClass));
+        }
+        meterRegistry.gauge("carlease.ratelimit.tracked.clients", buckets, Map::size);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !enabled || !(uri.startsWith("/api/") || uri.equals("/graphql"));
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        long now = System.nanoTime();
+        
+        String key = clientKey(request) + "|" + endpointClass;
+        TokenBucket bucket = bucketFor(key, endpointClass);
+        long waitNanos = bucket.tryAcquire(now);
+        
+        if (waitNanos > 0) {
+            rejectedCounters.get(endpointClass).increment();
+            log.warn("Rate limit exceeded for {}", key);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Too many requests"));
+            return;
+        }
+        
+        chain.doFilter(request, response);
+    }
+    
+    /**
+     * Drop the buckets that have refilled completely
+     */
+    @Scheduled(fixedDelayString = "${carlease.rate-limit.sweep-interval-ms:10000}")
+    public void sweepIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+    
+    int getTrackedClients() {
+        return buckets.size();
+    }
+    
+    private TokenBucket bucketFor(String key, EndpointClass endpointClass) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        // Concurrent first requests can overshoot the cap by at most one entry per request thread
+        if (buckets.size() >= maxTrackedClients) {
+            return overflowBuckets.get(endpointClass);
+        }
+        return buckets.computeIfAbsent(key, k -> newBucket(endpointClass));
+    }
+    
+    /**
+     * Classify a request by the cost of the endpoint it targets
+     */
+    static EndpointClass classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        boolean get = HttpMethod.GET.matches(request.getMethod());
+        
+        // GraphQL only has queries, but they come in as POSTs and may span many rows
+        if (uri.endsWith("/batch") || uri.equals("/graphql")) {
+            return EndpointClass.HEAVY_READ;
+        }
+        if (!get) {
+            return EndpointClass.WRITE;
+        }
+        if (uri.startsWith("/api/admin/") || uri.endsWith("/history") || uri.endsWith("/active")
+                || uri.endsWith("/available") || uri.contains("/owner/")) {
+            return EndpointClass.HEAVY_READ;
+        }
+        return EndpointClass.CHEAP_READ;
+    }
+    
+    private TokenBucket newBucket(EndpointClass endpointClass) {
+        double[] limit = limits.get(endpointClass);
+        return new TokenBucket(limit[0], (int) limit[1]);
+    }
+    
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName();
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,225 @@
+package com.trimble.hold;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts
+ * Level 0 has one bucket per tick and every higher level one bucket per full turn of the level
+ * below; when a higher bucket comes round its timeouts move down to where they now fit.
+ * Scheduling and cancelling are lock-free and O(1): both are queued and applied by the single
+ * thread that calls advance(), which also runs the expiries. Timeouts never fire early, and at
+ * most one tick late when advance() keeps up.
+ */
+public class TimingWheel<T> {
+    
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (BITS * LEVELS);
+    
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket<T>[][] buckets;
+    private final Queue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<T>> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private long currentTick;
+    
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tick, TimeUnit unit, long startNanos) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.startNanos = startNanos;
+        this.buckets = new Bucket[LEVELS][SLOTS];
+        for (Bucket<T>[] level : buckets) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = new Bucket<>();
+            }
+        }
+    }
+    
+    /**
+     * Timeouts scheduled and neither expired nor cancelled yet
+     */
+    public int size() {
+        return size.get();
+    }
+    
+    /**
+     * Schedule an item to expire once System.nanoTime() reaches deadlineNanos
+     */
+    public Timeout<T> schedule(T item, long deadlineNanos) {
+        long elapsed = deadlineNanos - startNanos;
+        // Round up, so nothing expires before its deadline
+        Timeout<T> timeout = new Timeout<>(this, item, elapsed <= 0 ? 0 : -Math.floorDiv(-elapsed, tickNanos));
+        size.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+    
+    /**
+     * Run every tick up to nowNanos, handing each expired timeout to the consumer
+     * Must only be called from one thread at a time.
+     */
+    public void advance(long nowNanos, Consumer<Timeout<T>> expired) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        removeCancelled();
+        Timeout<T> timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() == Timeout.PENDING) {
+                place(timeout);
+            }
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Timeout<T> due = buckets[0][(int) (currentTick & (SLOTS - 1))].clear();
+            while (due != null) {
+                Timeout<T> next = due.next;
+                due.next = null;
+                if (due.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                    size.decrementAndGet();
+                    expired.accept(due);
+                }
+                due = next;
+            }
+        }
+    }
+    
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Timeout<T> timeout = buckets[level][(int) ((currentTick >>> (BITS * level)) & (SLOTS - 1))].clear();
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                if (timeout.state.get() == Timeout.PENDING) {
+                    place(timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+    
+    private void place(Timeout<T> timeout) {
+        long tick = Math.max(timeout.deadlineTick, currentTick + 1);
+        if (tick - currentTick >= SPAN) {
+            // Beyond the top level: park at its far end and place again when that bucket comes round
+            tick = currentTick + SPAN - 1;
+        }
+        long delta = tick - currentTick;
+        int level = 0;
+        while (delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        buckets[level][(int) ((tick >>> (BITS * level)) & (SLOTS - 1))].add(timeout);
+    }
+    
+    private void removeCancelled() {
+        Timeout<T> timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+    
+    /**
+     * Handle to one scheduled item
+     */
+    public static class Timeout<T> {
+        
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        
+        private final TimingWheel<T> wheel;
+        private final T item;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private Bucket<T> bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        
+        private Timeout(TimingWheel<T> wheel, T item, long deadlineTick) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        public T getItem() {
+            return item;
+        }
+        
+        /**
+         * @return false if the timeout has already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.size.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+    }
+    
+    /**
+     * Doubly linked list of timeouts, only touched by the advancing thread
+     */
+    private static class Bucket<T> {
+        
+        private Timeout<T> head;
+        private Timeout<T> tail;
+        
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+        
+        void remove(Timeout<T> timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+        
+        /**
+         * Empty the bucket, returning its former head; the timeouts stay chained through next
+         */
+        Timeout<T> clear() {
+            Timeout<T> first = head;
+            for (Timeout<T> timeout = head; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.previous = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
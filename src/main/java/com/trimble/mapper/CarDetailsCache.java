@@ -0,0 +1,60 @@
+package com.trimble.mapper;
+
+import com.trimble.entity.ArchivedLease;
+import com.trimble.entity.Car;
+import com.trimble.event.CacheInvalidationEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One shared "Make Model (PLATE)" string per car
+ * Every lease row of a car gets the same String instance instead of a fresh concatenation, and a
+ * cache hit only needs the car ID, so a lazy car proxy is not initialized just to describe it.
+ * Entries are dropped on car invalidations; the whole map is cleared if it grows past its bound.
+ */
+@Component
+public class CarDetailsCache {
+    
+    private final Map<Long, String> details = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    
+    public CarDetailsCache(@Value("${carlease.mapping.car-details-cache-size:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+    
+    public String carDetails(Car car) {
+        if (car == null) {
+            return null;
+        }
+        String cached = details.get(car.getId());
+        return cached != null ? cached : put(car.getId(), car.getMake(), car.getModel(), car.getLicensePlate());
+    }
+    
+    public String carDetails(ArchivedLease lease) {
+        String cached = details.get(lease.getCarId());
+        return cached != null ? cached : put(lease.getCarId(), lease.getMake(), lease.getModel(), lease.getLicensePlate());
+    }
+    
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (CacheInvalidationEvent.CARS.equals(event.getRegion())) {
+            event.getKeys().forEach(details::remove);
+        }
+    }
+    
+    private String put(Long carId, String make, String model, String licensePlate) {
+        String value = make + " " + model + " (" + licensePlate + ")";
+        if (carId == null) {
+            return value;
+        }
+        if (details.size() >= maxEntries) {
+            details.clear();
+        }
+        String previous = details.putIfAbsent(carId, value);
+        return previous != null ? previous : value;
+    }
+}
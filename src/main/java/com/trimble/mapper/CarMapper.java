@@ -0,0 +1,23 @@
+package com.trimble.mapper;
+
+import com.trimble.dto.CarDto;
+import com.trimble.entity.Car;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Car entity to CarDto mapping, generated at compile time
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface CarMapper {
+    
+    @Mapping(target = "ownerId", source = "owner.id")
+    @Mapping(target = "ownerName", source = "owner.fullName")
+    CarDto toDto(Car car);
+    
+    List<CarDto> toDtos(List<Car> cars);
+}
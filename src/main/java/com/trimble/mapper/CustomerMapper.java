@@ -0,0 +1,26 @@
+package com.trimble.mapper;
+
+import com.trimble.dto.CustomerDto;
+import com.trimble.entity.Customer;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Customer entity to CustomerDto mapping, generated at compile time
+ * The password is never copied out.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface CustomerMapper {
+    
+    @Mapping(target = "username", source = "user.username")
+    @Mapping(target = "email", source = "user.email")
+    @Mapping(target = "fullName", source = "user.fullName")
+    @Mapping(target = "password", ignore = true)
+    CustomerDto toDto(Customer customer);
+    
+    List<CustomerDto> toDtos(List<Customer> customers);
+}
@@ -0,0 +1,59 @@
+package com.trimble.mapper;
+
+import com.trimble.entity.Car;
+import com.trimble.entity.Customer;
+import com.trimble.entity.Lease;
+import com.trimble.repository.FieldSet;
+
+/**
+ * Fields of CarDto, CustomerDto and LeaseDto that can be requested with fields=
+ * Names and sources match the mappers, so a sparse row has the same keys and values as the
+ * full DTO. The customer password is never among them.
+ */
+public final class FieldSets {
+    
+    public static final FieldSet<Car> CARS = FieldSet.of(Car.class)
+            .path("id", "id")
+            .path("licensePlate", "licensePlate")
+            .path("make", "make")
+            .path("model", "model")
+            .path("year", "year")
+            .path("color", "color")
+            .path("dailyRate", "dailyRate")
+            .path("status", "status")
+            .path("ownerId", "owner.id")
+            .path("ownerName", "owner.fullName")
+            .path("createdAt", "createdAt")
+            .path("updatedAt", "updatedAt");
+    
+    public static final FieldSet<Customer> CUSTOMERS = FieldSet.of(Customer.class)
+            .path("id", "id")
+            .path("username", "user.username")
+            .path("email", "user.email")
+            .path("fullName", "user.fullName")
+            .path("phoneNumber", "phoneNumber")
+            .path("address", "address")
+            .path("driverLicense", "driverLicense")
+            .path("activeLeaseCount", "activeLeaseCount")
+            .path("maxActiveLeases", "maxActiveLeases")
+            .path("createdAt", "createdAt")
+            .path("updatedAt", "updatedAt");
+    
+    public static final FieldSet<Lease> LEASES = FieldSet.of(Lease.class)
+            .path("id", "id")
+            .path("carId", "car.id")
+            .path("customerId", "customer.id")
+            // Same text as CarDetailsCache, built by the query
+            .computed("carDetails", paths -> paths.concat(
+                    paths.get("car.make"), " ", paths.get("car.model"), " (", paths.get("car.licensePlate"), ")"))
+            .path("customerName", "customer.user.fullName")
+            .path("startDate", "startDate")
+            .path("endDate", "endDate")
+            .path("totalAmount", "totalAmount")
+            .path("status", "status")
+            .path("createdAt", "createdAt")
+            .path("updatedAt", "updatedAt");
+    
+    private FieldSets() {
+    }
+}
@@ -0,0 +1,53 @@
+package com.trimble.mapper;
+
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.ArchivedLease;
+import com.trimble.entity.Lease;
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.Named;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Lease and ArchivedLease to LeaseDto mapping, generated at compile time
+ * carDetails comes from CarDetailsCache; the car and customer IDs are read without
+ * initializing their lazy proxies.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING,
+        uses = CarDetailsCache.class,
+        injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface LeaseMapper {
+    
+    @Mapping(target = "carId", source = "car.id")
+    @Mapping(target = "customerId", source = "customer.id")
+    @Mapping(target = "carDetails", source = "car")
+    @Mapping(target = "customerName", source = "customer.user.fullName")
+    LeaseDto toDto(Lease lease);
+    
+    @Mapping(target = "carDetails", source = "lease")
+    LeaseDto toDto(ArchivedLease lease);
+    
+    List<LeaseDto> toDtos(List<Lease> leases);
+    
+    List<LeaseDto> archivedToDtos(List<ArchivedLease> leases);
+    
+    /**
+     * Without carDetails and customerName, for readers that resolve the car and customer themselves
+     */
+    @Named("withoutDetails")
+    @Mapping(target = "carId", source = "car.id")
+    @Mapping(target = "customerId", source = "customer.id")
+    @Mapping(target = "carDetails", ignore = true)
+    @Mapping(target = "customerName", ignore = true)
+    LeaseDto toDtoWithoutDetails(Lease lease);
+    
+    @Named("withoutDetails")
+    @Mapping(target = "carDetails", ignore = true)
+    @Mapping(target = "customerName", ignore = true)
+    LeaseDto toDtoWithoutDetails(ArchivedLease lease);
+}
@@ -0,0 +1,214 @@
+package com.trimble.registry;
+
+import com.trimble.enums.CarStatus;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Open-addressing map from car ID to status, daily rate in cents and owner ID
+ * Entries live in parallel primitive arrays, about 28 bytes per slot and no object per car.
+ * Reads and status transitions are lock-free; inserts and growth take a lock. While the table
+ * grows every copied slot's status is swapped to MOVED, so a concurrent CAS either lands before
+ * the copy or fails and retries on the new table.
+ */
+public class CarStatusMap {
+    
+    public static final long UNKNOWN = -1L;
+    
+    private static final int MOVED = -1;
+    private static final CarStatus[] STATUSES = CarStatus.values();
+    
+    private final Object writeLock = new Object();
+    private volatile Table table;
+    private int size;
+    
+    public CarStatusMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+    
+    public int size() {
+        synchronized (writeLock) {
+            return size;
+        }
+    }
+    
+    /**
+     * Status of a car, or null if the car is not in the map
+     */
+    public CarStatus status(long carId) {
+        while (true) {
+            Table current = table;
+            int slot = current.find(carId);
+            if (slot < 0) {
+                return null;
+            }
+            int status = current.statuses.get(slot);
+            if (status != MOVED) {
+                return STATUSES[status];
+            }
+            awaitResize(current);
+        }
+    }
+    
+    public long dailyRateCents(long carId) {
+        Table current = table;
+        int slot = current.find(carId);
+        return slot < 0 ? UNKNOWN : current.rates.get(slot);
+    }
+    
+    public long ownerId(long carId) {
+        Table current = table;
+        int slot = current.find(carId);
+        return slot < 0 ? UNKNOWN : current.owners.get(slot);
+    }
+    
+    /**
+     * Move a car from one status to another if it currently has the expected one
+     * @return false if the car has a different status or is not in the map
+     */
+    public boolean compareAndSetStatus(long carId, CarStatus expected, CarStatus update) {
+        while (true) {
+            Table current = table;
+            int slot = current.find(carId);
+            if (slot < 0) {
+                return false;
+            }
+            int status = current.statuses.get(slot);
+            if (status == MOVED) {
+                awaitResize(current);
+            } else if (status != expected.ordinal()) {
+                return false;
+            } else if (current.statuses.compareAndSet(slot, status, update.ordinal())) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Overwrite the status of a car
+     * @return false if the car is not in the map
+     */
+    public boolean setStatus(long carId, CarStatus update) {
+        while (true) {
+            Table current = table;
+            int slot = current.find(carId);
+            if (slot < 0) {
+                return false;
+            }
+            int status = current.statuses.get(slot);
+            if (status == MOVED) {
+                awaitResize(current);
+            } else if (current.statuses.compareAndSet(slot, status, update.ordinal())) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Add a car, or overwrite all of its values if it is already present
+     */
+    public void put(long carId, CarStatus status, long dailyRateCents, long ownerId) {
+        put(carId, status, dailyRateCents, ownerId, true);
+    }
+    
+    /**
+     * Add a car unless it is already present; an existing entry keeps its values
+     */
+    public void putIfAbsent(long carId, CarStatus status, long dailyRateCents, long ownerId) {
+        put(carId, status, dailyRateCents, ownerId, false);
+    }
+    
+    private void put(long carId, CarStatus status, long dailyRateCents, long ownerId, boolean overwrite) {
+        if (carId <= 0) {
+            throw new IllegalArgumentException("Car IDs must be positive");
+        }
+        synchronized (writeLock) {
+            int slot = table.find(carId);
+            if (slot >= 0) {
+                if (overwrite) {
+                    table.rates.set(slot, dailyRateCents);
+                    table.owners.set(slot, ownerId);
+                    setStatus(carId, status);
+                }
+                return;
+            }
+            if ((size + 1) * 2 > table.keys.length()) {
+                table = grow(table);
+            }
+            table.insert(carId, status.ordinal(), dailyRateCents, ownerId);
+            size++;
+        }
+    }
+    
+    private static Table grow(Table old) {
+        Table grown = new Table(old.keys.length() * 2);
+        for (int slot = 0; slot < old.keys.length(); slot++) {
+            long key = old.keys.get(slot);
+            if (key != 0) {
+                grown.insert(key, old.statuses.getAndSet(slot, MOVED), old.rates.get(slot), old.owners.get(slot));
+            }
+        }
+        return grown;
+    }
+    
+    private void awaitResize(Table stale) {
+        // The writer publishes the grown table right after the copy loop
+        while (table == stale) {
+            Thread.onSpinWait();
+        }
+    }
+    
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    private static final class Table {
+        
+        private final AtomicLongArray keys;
+        private final AtomicIntegerArray statuses;
+        private final AtomicLongArray rates;
+        private final AtomicLongArray owners;
+        private final int mask;
+        
+        private Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.statuses = new AtomicIntegerArray(capacity);
+            this.rates = new AtomicLongArray(capacity);
+            this.owners = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+        
+        private int find(long carId) {
+            for (int slot = hash(carId) & mask; ; slot = (slot + 1) & mask) {
+                long key = keys.get(slot);
+                if (key == carId) {
+                    return slot;
+                }
+                if (key == 0) {
+                    return -1;
+                }
+            }
+        }
+        
+        private void insert(long carId, int status, long dailyRateCents, long ownerId) {
+            int slot = hash(carId) & mask;
+            while (keys.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            statuses.set(slot, status);
+            rates.set(slot, dailyRateCents);
+            owners.set(slot, ownerId);
+            // Publishing the key last makes the values visible to readers that find it
+            keys.set(slot, carId);
+        }
+        
+        private static int hash(long carId) {
+            return (int) ((carId * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+}
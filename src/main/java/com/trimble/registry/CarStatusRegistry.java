@@ -0,0 +1,227 @@
+package com.trimble.registry;
+
+import com.trimble.enums.CarStatus;
+import com.trimble.event.CacheInvalidationEvent;
+import com.trimble.event.CarStatusChangedEvent;
+import com.trimble.repository.CarRepository;
+import com.trimble.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory status of every car, used to turn down bookings of taken cars before any database
+ * round trip
+ * Loaded from the cars table once the application is ready and kept current from car status
+ * events; changes made on other nodes are re-read when their invalidation arrives, so a car freed
+ * elsewhere may be turned down here until then. Cars the registry reports as available, held or
+ * does not know always go on to the database's conditional update, which decides them.
+ */
+@Component
+@Slf4j
+public class CarStatusRegistry {
+    
+    private final CarRepository carRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final CarStatusMap cars;
+    private final boolean enabled;
+    private final int loadBatchSize;
+    private volatile boolean loaded;
+    
+    public CarStatusRegistry(CarRepository carRepository,
+                             ShardRouter shardRouter,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${carlease.car-registry.enabled:true}") boolean enabled,
+                             @Value("${carlease.car-registry.expected-cars:1024}") int expectedCars,
+                             @Value("${carlease.car-registry.load-batch-size:5000}") int loadBatchSize) {
+        this.carRepository = carRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cars = new CarStatusMap(expectedCars);
+        this.enabled = enabled;
+        this.loadBatchSize = loadBatchSize;
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    public int size() {
+        return cars.size();
+    }
+    
+    /**
+     * Status of a car, or null if it is not known here
+     */
+    public CarStatus status(Long carId) {
+        return enabled ? cars.status(carId) : null;
+    }
+    
+    /**
+     * Daily rate of a car in cents, or CarStatusMap.UNKNOWN
+     */
+    public long dailyRateCents(Long carId) {
+        return enabled ? cars.dailyRateCents(carId) : CarStatusMap.UNKNOWN;
+    }
+    
+    /**
+     * Owner of a car, or CarStatusMap.UNKNOWN
+     */
+    public long ownerId(Long carId) {
+        return enabled ? cars.ownerId(carId) : CarStatusMap.UNKNOWN;
+    }
+    
+    /**
+     * Mark an available car as leased for the current booking
+     * The claim is undone if the surrounding transaction rolls back. Held cars are let through,
+     * only the database knows whose hold it is.
+     * @return false if the car is known to be taken; true if it was claimed, is held or is unknown,
+     *         which the caller still has to confirm with the database
+     */
+    public boolean tryClaimForLease(Long carId) {
+        if (!enabled || carId == null) {
+            return true;
+        }
+        CarStatus status = cars.status(carId);
+        if (status == null || status == CarStatus.HELD) {
+            return true;
+        }
+        if (!cars.compareAndSetStatus(carId, CarStatus.AVAILABLE, CarStatus.ON_LEASE)) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            ClaimUndo undo = claimUndo();
+            if (undo == null) {
+                undo = new ClaimUndo();
+                TransactionSynchronizationManager.registerSynchronization(undo);
+            }
+            undo.carIds.add(carId);
+        }
+        return true;
+    }
+    
+    /**
+     * Undo a claim of the current transaction right away, e.g. when only the part of the
+     * transaction that made it is rolled back to a savepoint
+     */
+    public void releaseClaim(Long carId) {
+        if (!enabled || carId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        ClaimUndo undo = claimUndo();
+        if (undo != null && undo.carIds.remove(carId)) {
+            cars.compareAndSetStatus(carId, CarStatus.ON_LEASE, CarStatus.AVAILABLE);
+        }
+    }
+    
+    /**
+     * Load every car, shard by shard, in ID order
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        shardRouter.forEachShard(shard -> {
+            long afterId = 0;
+            List<Object[]> rows;
+            do {
+                long from = afterId;
+                rows = readOnlyTransaction.execute(status ->
+                        carRepository.findStatusRowsAfter(from, PageRequest.of(0, loadBatchSize)));
+                for (Object[] row : rows) {
+                    // Cars that changed while loading already hold a newer status
+                    cars.putIfAbsent((Long) row[0], (CarStatus) row[1], toCents((BigDecimal) row[2]), (Long) row[3]);
+                    afterId = (Long) row[0];
+                }
+            } while (rows.size() == loadBatchSize);
+            return null;
+        });
+        loaded = true;
+        log.info("Car status registry loaded {} cars in {} ms", cars.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCarStatusChanged(CarStatusChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<Long> unknown = new ArrayList<>();
+        for (Long carId : event.getCarIds()) {
+            if (!cars.setStatus(carId, event.getStatus())) {
+                unknown.add(carId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            reload(unknown);
+        }
+    }
+    
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (enabled && event.isRemote() && CacheInvalidationEvent.CARS.equals(event.getRegion())) {
+            reload(event.getKeys());
+        }
+    }
+    
+    private void reload(Collection<Long> carIds) {
+        shardRouter.groupByShard(carIds).forEach((shard, ids) -> shardRouter.callOnShard(shard, () -> {
+            readOnlyTransaction.execute(status -> carRepository.findStatusRowsByIdIn(ids)).forEach(row ->
+                    cars.put((Long) row[0], (CarStatus) row[1], toCents((BigDecimal) row[2]), (Long) row[3]));
+            return null;
+        }));
+    }
+    
+    private ClaimUndo claimUndo() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof ClaimUndo undo && undo.registry() == this) {
+                return undo;
+            }
+        }
+        return null;
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+    
+    /**
+     * Claims made by one transaction, handed back if it does not commit
+     */
+    private class ClaimUndo implements TransactionSynchronization {
+        
+        private final Set<Long> carIds = new HashSet<>();
+        
+        CarStatusRegistry registry() {
+            return CarStatusRegistry.this;
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                carIds.forEach(carId -> cars.compareAndSetStatus(carId, CarStatus.ON_LEASE, CarStatus.AVAILABLE));
+            }
+        }
+    }
+}
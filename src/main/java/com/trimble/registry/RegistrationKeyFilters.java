@@ -0,0 +1,258 @@
+package com.trimble.registry;
+
+import com.trimble.enums.RegistrationKey;
+import com.trimble.event.RegistrationKeyAddedEvent;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.CustomerRepository;
+import com.trimble.repository.UserRepository;
+import com.trimble.shard.ShardContext;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filters over usernames, emails, driver licenses and license plates, used to skip the
+ * uniqueness queries of a registration when the value is certainly new
+ * Built once the application is ready and again on a schedule, which also drops the bits of
+ * deleted rows. Inserts are added as they happen, including those of a rebuild in progress.
+ * Until the first build, and whenever a filter reports a possible match, the database decides;
+ * the unique constraints stay the final guard, e.g. against inserts made on another node since
+ * the last rebuild.
+ */
+@Component
+@Slf4j
+public class RegistrationKeyFilters {
+    
+    private final UserRepository userRepository;
+    private final CustomerRepository customerRepository;
+    private final CarRepository carRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final int loadBatchSize;
+    private final Map<RegistrationKey, Counter> skippedCounters = new EnumMap<>(RegistrationKey.class);
+    private final Map<RegistrationKey, Counter> duplicateCounters = new EnumMap<>(RegistrationKey.class);
+    private final Map<RegistrationKey, Counter> falsePositiveCounters = new EnumMap<>(RegistrationKey.class);
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong rebuilds = new AtomicLong();
+    
+    // Filters in use, null until the first build; the ones being built during a rebuild
+    private volatile Map<RegistrationKey, BloomFilter> filters;
+    private volatile Map<RegistrationKey, BloomFilter> building;
+    
+    public RegistrationKeyFilters(UserRepository userRepository,
+                                  CustomerRepository customerRepository,
+                                  CarRepository carRepository,
+                                  ShardRouter shardRouter,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${carlease.registration-filter.enabled:true}") boolean enabled,
+                                  @Value("${carlease.registration-filter.expected-keys:100000}") long expectedKeys,
+                                  @Value("${carlease.registration-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${carlease.registration-filter.load-batch-size:5000}") int loadBatchSize) {
+        this.userRepository = userRepository;
+        this.customerRepository = customerRepository;
+        this.carRepository = carRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveRate = falsePositiveRate;
+        this.loadBatchSize = loadBatchSize;
+        for (RegistrationKey key : RegistrationKey.values()) {
+            skippedCounters.put(key, checkCounter(meterRegistry, key, "skipped"));
+            duplicateCounters.put(key, checkCounter(meterRegistry, key, "duplicate"));
+            falsePositiveCounters.put(key, checkCounter(meterRegistry, key, "false_positive"));
+            Gauge.builder("carlease.registration.filter.expected.fpp", this, registry -> registry.expectedFalsePositiveRate(key))
+                    .description("False positive rate expected from the bits set in the filter")
+                    .tag("key", key.name())
+                    .register(meterRegistry);
+        }
+    }
+    
+    public boolean isLoaded() {
+        return filters != null;
+    }
+    
+    /**
+     * Whether the value is already taken
+     * A definite miss of the filter answers false without a query; otherwise the database check
+     * decides, and a possible match it turns down is counted as a false positive.
+     */
+    public boolean exists(RegistrationKey key, String value, Predicate<String> databaseCheck) {
+        Map<RegistrationKey, BloomFilter> current = filters;
+        if (current == null || value == null) {
+            return databaseCheck.test(value);
+        }
+        if (!current.get(key).mightContain(value)) {
+            skippedCounters.get(key).increment();
+            return false;
+        }
+        boolean exists = databaseCheck.test(value);
+        (exists ? duplicateCounters : falsePositiveCounters).get(key).increment();
+        return exists;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+    
+    @Scheduled(cron = "${carlease.registration-filter.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        if (enabled && filters != null) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Build new filters from the tables and swap them in
+     * Sized for twice the current rows, or expected-keys if that is more.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.info("Registration key filters already rebuilding");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long users = onHomeShard(userRepository::count);
+            long customers = onHomeShard(customerRepository::count);
+            long cars = shardRouter.scatterGather(shard -> List.of(carRepository.count())).stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+            
+            Map<RegistrationKey, BloomFilter> next = new EnumMap<>(RegistrationKey.class);
+            next.put(RegistrationKey.USERNAME, newFilter(users));
+            next.put(RegistrationKey.EMAIL, newFilter(users));
+            next.put(RegistrationKey.DRIVER_LICENSE, newFilter(customers));
+            next.put(RegistrationKey.LICENSE_PLATE, newFilter(cars));
+            // Set before the counter moves on, so an insert that reads the new count also puts into these
+            building = next;
+            rebuilds.incrementAndGet();
+            
+            shardRouter.callOnShard(ShardContext.HOME_SHARD, () -> {
+                loadRows(userRepository::findRegistrationKeysAfter, row -> {
+                    next.get(RegistrationKey.USERNAME).put((String) row[1]);
+                    next.get(RegistrationKey.EMAIL).put((String) row[2]);
+                });
+                loadRows(customerRepository::findRegistrationKeysAfter,
+                        row -> next.get(RegistrationKey.DRIVER_LICENSE).put((String) row[1]));
+                return null;
+            });
+            shardRouter.forEachShard(shard -> {
+                loadRows(carRepository::findRegistrationKeysAfter,
+                        row -> next.get(RegistrationKey.LICENSE_PLATE).put((String) row[1]));
+                return null;
+            });
+            
+            filters = next;
+            building = null;
+            log.info("Registration key filters built from {} users, {} customers and {} cars in {} ms",
+                    users, customers, cars, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+    
+    @EventListener
+    public void onRegistrationKeyAdded(RegistrationKeyAddedEvent event) {
+        if (!enabled || event.getValue() == null) {
+            return;
+        }
+        RegistrationKey key = event.getKey();
+        String value = event.getValue();
+        long rebuildsBefore = rebuilds.get();
+        put(key, value);
+        // A rebuild that started after the put may have read the table before this row was
+        // committed, so the value is added again once it is
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (rebuilds.get() != rebuildsBefore) {
+                        put(key, value);
+                    }
+                }
+            });
+        }
+    }
+    
+    private void put(RegistrationKey key, String value) {
+        Map<RegistrationKey, BloomFilter> current = filters;
+        if (current != null) {
+            current.get(key).put(value);
+        }
+        Map<RegistrationKey, BloomFilter> next = building;
+        if (next != null) {
+            next.get(key).put(value);
+        }
+    }
+    
+    private double expectedFalsePositiveRate(RegistrationKey key) {
+        Map<RegistrationKey, BloomFilter> current = filters;
+        return current == null ? Double.NaN : current.get(key).expectedFalsePositiveRate();
+    }
+    
+    private BloomFilter newFilter(long rows) {
+        return new BloomFilter(Math.max(expectedKeys, 2 * rows), falsePositiveRate);
+    }
+    
+    private <T> T onHomeShard(Supplier<T> read) {
+        return shardRouter.callOnShard(ShardContext.HOME_SHARD, () -> readOnlyTransaction.execute(status -> read.get()));
+    }
+    
+    /**
+     * Page through (id, key...) rows in ID order
+     */
+    private void loadRows(BiFunction<Long, Pageable, List<Object[]>> query, Consumer<Object[]> consumer) {
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            long from = afterId;
+            rows = readOnlyTransaction.execute(status -> query.apply(from, PageRequest.of(0, loadBatchSize)));
+            for (Object[] row : rows) {
+                consumer.accept(row);
+                afterId = (Long) row[0];
+            }
+        } while (rows.size() == loadBatchSize);
+    }
+    
+    private static Counter checkCounter(MeterRegistry meterRegistry, RegistrationKey key, String outcome) {
+        return Counter.builder("carlease.registration.filter.checks")
+                .description("Uniqueness checks of registrations by filter outcome")
+                .tag("key", key.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
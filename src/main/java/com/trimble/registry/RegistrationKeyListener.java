@@ -0,0 +1,34 @@
+package com.trimble.registry;
+
+import com.trimble.entity.Car;
+import com.trimble.entity.Customer;
+import com.trimble.entity.User;
+import com.trimble.enums.RegistrationKey;
+import com.trimble.event.RegistrationKeyAddedEvent;
+import jakarta.persistence.PostPersist;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener that announces the unique values of inserted users, customers and cars
+ * Covers every insert made through JPA, not only the registration endpoints
+ */
+public class RegistrationKeyListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    public RegistrationKeyListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+    
+    @PostPersist
+    public void onInsert(Object entity) {
+        if (entity instanceof User user) {
+            eventPublisher.publishEvent(new RegistrationKeyAddedEvent(RegistrationKey.USERNAME, user.getUsername()));
+            eventPublisher.publishEvent(new RegistrationKeyAddedEvent(RegistrationKey.EMAIL, user.getEmail()));
+        } else if (entity instanceof Customer customer) {
+            eventPublisher.publishEvent(new RegistrationKeyAddedEvent(RegistrationKey.DRIVER_LICENSE, customer.getDriverLicense()));
+        } else if (entity instanceof Car car) {
+            eventPublisher.publishEvent(new RegistrationKeyAddedEvent(RegistrationKey.LICENSE_PLATE, car.getLicensePlate()));
+        }
+    }
+}
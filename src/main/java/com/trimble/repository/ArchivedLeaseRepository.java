@@ -0,0 +1,46 @@
+package com.trimble.repository;
+
+import com.trimble.entity.ArchivedLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for ArchivedLease entity
+ */
+@Repository
+public interface ArchivedLeaseRepository extends JpaRepository<ArchivedLease, Long> {
+    
+    List<ArchivedLease> findByCustomerIdOrderById(Long customerId);
+    
+    List<ArchivedLease> findByCarIdOrderById(Long carId);
+    
+    List<ArchivedLease> findByIdIn(Collection<Long> ids);
+    
+    List<ArchivedLease> findByCustomerIdInOrderById(Collection<Long> customerIds);
+    
+    @Query("SELECT a.status, COUNT(a) FROM ArchivedLease a GROUP BY a.status")
+    List<Object[]> countGroupByStatus();
+    
+    @Query("SELECT COALESCE(SUM(a.totalAmount), 0) FROM ArchivedLease a WHERE a.status = 'COMPLETED' AND a.endDate >= :since")
+    BigDecimal sumRevenueSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT a.ownerId, SUM(a.totalAmount), COUNT(a) FROM ArchivedLease a " +
+           "WHERE a.status = 'COMPLETED' AND a.endDate >= :since GROUP BY a.ownerId")
+    List<Object[]> sumRevenueByOwnerSince(@Param("since") LocalDateTime since);
+    
+    @Modifying
+    @Query("INSERT INTO ArchivedLease (id, carId, ownerId, licensePlate, make, model, customerId, customerName, " +
+           "startDate, endDate, totalAmount, status, createdAt, updatedAt, archivedAt) " +
+           "SELECT l.id, c.id, c.owner.id, c.licensePlate, c.make, c.model, cu.id, u.fullName, " +
+           "l.startDate, l.endDate, l.totalAmount, l.status, l.createdAt, l.updatedAt, :now " +
+           "FROM Lease l JOIN l.car c JOIN l.customer cu JOIN cu.user u WHERE l.id IN :ids")
+    int copyFromLeases(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
@@ -3,11 +3,17 @@ package com.trimble.repository;
 import com.trimble.entity.Car;
 import com.trimble.entity.User;
 import com.trimble.enums.CarStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,8 +32,98 @@ public interface CarRepository extends JpaRepository<Car, Long> {
     @Query("SELECT c FROM Car c WHERE c.owner.id = :ownerId")
     List<Car> findByOwnerId(@Param("ownerId") Long ownerId);
     
-    @Query("SELECT c FROM Car c WHERE c.status = 'AVAILABLE'")
-    List<Car> findAvailableCars();
+    /**
+     * Available cars, including held ones whose hold has lapsed but not been released yet
+     */
+    @Query("SELECT c FROM Car c WHERE c.status = 'AVAILABLE' OR (c.status = 'HELD' AND c.heldUntil <= :now)")
+    List<Car> findAvailableCars(@Param("now") LocalDateTime now);
     
     boolean existsByLicensePlate(String licensePlate);
+    
+    @Query("SELECT c.status, COUNT(c) FROM Car c GROUP BY c.status")
+    List<Object[]> countGroupByStatus();
+    
+    @Query("SELECT c FROM Car c JOIN FETCH c.owner WHERE c.id IN :ids")
+    List<Car> findAllWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT c.id FROM Car c WHERE c.id > :afterId " +
+           "AND (:ownerId IS NULL OR c.owner.id = :ownerId) " +
+           "AND (:currentStatus IS NULL OR c.status = :currentStatus) " +
+           "AND (:make IS NULL OR c.make = :make) ORDER BY c.id")
+    List<Long> findIdsByFilter(@Param("afterId") Long afterId,
+                               @Param("ownerId") Long ownerId,
+                               @Param("currentStatus") CarStatus currentStatus,
+                               @Param("make") String make,
+                               Pageable pageable);
+    
+    @Query("SELECT c.id FROM Car c WHERE c.id IN :ids AND c.status <> :status AND c.status <> 'ON_LEASE' " +
+           "AND NOT EXISTS (SELECT l.id FROM Lease l WHERE l.car.id = c.id AND l.status = 'ACTIVE')")
+    List<Long> findIdsEligibleForStatus(@Param("ids") Collection<Long> ids, @Param("status") CarStatus status);
+    
+    @Query("SELECT c.id, c.status, c.dailyRate, c.owner.id FROM Car c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findStatusRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT c.id, c.status, c.dailyRate, c.owner.id FROM Car c WHERE c.id IN :ids")
+    List<Object[]> findStatusRowsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT c.id, c.licensePlate FROM Car c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findRegistrationKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT c.id FROM Car c WHERE c.id IN :ids AND c.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") CarStatus status);
+    
+    /**
+     * Lock cars in ID order, so concurrent group bookings of overlapping cars cannot deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Car c WHERE c.id IN :ids ORDER BY c.id")
+    List<Car> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE Car c SET c.status = 'ON_LEASE', c.heldByCustomerId = NULL, c.heldUntil = NULL, c.updatedAt = :now " +
+           "WHERE c.id IN :ids")
+    int putOnLease(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT c.id, c.heldUntil FROM Car c WHERE c.status = 'HELD'")
+    List<Object[]> findHeldCars();
+    
+    /**
+     * Hold an available car, or one whose previous hold has lapsed but not been released yet
+     */
+    @Modifying
+    @Query("UPDATE Car c SET c.status = 'HELD', c.heldByCustomerId = :customerId, c.heldUntil = :until, c.updatedAt = :now " +
+           "WHERE c.id = :id AND (c.status = 'AVAILABLE' OR (c.status = 'HELD' AND c.heldUntil <= :now))")
+    int placeHold(@Param("id") Long id,
+                  @Param("customerId") Long customerId,
+                  @Param("until") LocalDateTime until,
+                  @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Car c SET c.status = 'AVAILABLE', c.heldByCustomerId = NULL, c.heldUntil = NULL, c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.status = 'HELD' AND c.heldByCustomerId = :customerId")
+    int releaseHold(@Param("id") Long id, @Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Car c SET c.status = 'AVAILABLE', c.heldByCustomerId = NULL, c.heldUntil = NULL, c.updatedAt = :now " +
+           "WHERE c.id IN :ids AND c.status = 'HELD' AND c.heldUntil <= :cutoff")
+    int releaseExpiredHolds(@Param("ids") Collection<Long> ids,
+                            @Param("cutoff") LocalDateTime cutoff,
+                            @Param("now") LocalDateTime now);
+    
+    /**
+     * Put a car on lease for a customer in one conditional update: an available car, one held by
+     * this customer, or one whose hold has lapsed but not been released yet
+     */
+    @Modifying
+    @Query("UPDATE Car c SET c.status = 'ON_LEASE', c.heldByCustomerId = NULL, c.heldUntil = NULL, c.updatedAt = :now " +
+           "WHERE c.id = :id AND (c.status = 'AVAILABLE' " +
+           "OR (c.status = 'HELD' AND (c.heldUntil <= :now OR c.heldByCustomerId = :customerId)))")
+    int claimForLease(@Param("id") Long id, @Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Car c SET c.status = :status, c.updatedAt = :now WHERE c.id IN :ids AND c.status <> 'ON_LEASE' " +
+           "AND NOT EXISTS (SELECT l.id FROM Lease l WHERE l.car.id = c.id AND l.status = 'ACTIVE')")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids,
+                           @Param("status") CarStatus status,
+                           @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,31 @@
+package com.trimble.repository;
+
+import com.trimble.entity.ClusterChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for ClusterChange entity
+ */
+@Repository
+public interface ClusterChangeRepository extends JpaRepository<ClusterChange, Long> {
+    
+    List<ClusterChange> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+    
+    List<ClusterChange> findByIdInOrderById(Collection<Long> ids);
+    
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM ClusterChange c")
+    long findMaxId();
+    
+    @Modifying
+    @Query("DELETE FROM ClusterChange c WHERE c.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
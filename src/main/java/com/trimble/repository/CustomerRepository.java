@@ -2,9 +2,18 @@ package com.trimble.repository;
 
 import com.trimble.entity.Customer;
 import com.trimble.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,4 +27,25 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByDriverLicense(String driverLicense);
     
     boolean existsByDriverLicense(String driverLicense);
+    
+    @Query("SELECT c.id, c.driverLicense FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findRegistrationKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT c FROM Customer c JOIN FETCH c.user WHERE c.id IN :ids")
+    List<Customer> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = :id")
+    Optional<Customer> lockById(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Customer c SET c.activeLeaseCount = :count WHERE c.id = :id AND c.activeLeaseCount <> :count")
+    int setActiveLeaseCount(@Param("id") Long id, @Param("count") int count);
+    
+    @Query("SELECT c.id, c.activeLeaseCount FROM Customer c ORDER BY c.id")
+    List<Object[]> findActiveLeaseCounts();
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Customer c SET c.maxActiveLeases = :max, c.updatedAt = :now WHERE c.id = :id")
+    int updateMaxActiveLeases(@Param("id") Long id, @Param("max") Integer max, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,54 @@
+package com.trimble.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads of selected fields only, for the sparse fieldsets of the list endpoints
+ * The fields become a tuple query: no entities are loaded into the persistence context and only
+ * the associations behind the requested fields are joined.
+ */
+@Repository
+public class FieldProjectionRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * The given fields of every row, keyed by field name in the given order, rows ordered by ID
+     */
+    public <E> List<Map<String, Object>> findAll(FieldSet<E> fieldSet, List<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<E> root = query.from(fieldSet.getEntityClass());
+        FieldSet.Paths paths = new FieldSet.Paths(builder, root);
+        
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(fieldSet.expression(field, paths).alias(field));
+        }
+        query.multiselect(selections).orderBy(builder.asc(root.get("id")));
+        
+        List<Tuple> tuples = entityManager.createQuery(query).getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
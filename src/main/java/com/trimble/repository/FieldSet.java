@@ -0,0 +1,119 @@
+package com.trimble.repository;
+
+import com.trimble.exception.FieldSelectionException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The fields a client may ask for from one entity, each with the expression that reads it
+ * Most fields are a property path such as "owner.fullName"; computed ones build their value in
+ * the query. Used by FieldProjectionRepository to select only the requested columns.
+ */
+public final class FieldSet<E> {
+    
+    private final Class<E> entityClass;
+    private final Map<String, Function<Paths, Expression<?>>> fields = new LinkedHashMap<>();
+    
+    private FieldSet(Class<E> entityClass) {
+        this.entityClass = entityClass;
+    }
+    
+    public static <E> FieldSet<E> of(Class<E> entityClass) {
+        return new FieldSet<>(entityClass);
+    }
+    
+    public FieldSet<E> path(String field, String path) {
+        fields.put(field, paths -> paths.get(path));
+        return this;
+    }
+    
+    public FieldSet<E> computed(String field, Function<Paths, Expression<?>> expression) {
+        fields.put(field, expression);
+        return this;
+    }
+    
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
+    
+    /**
+     * The requested fields without duplicates, in request order
+     */
+    public List<String> select(Collection<String> requested) {
+        LinkedHashSet<String> selected = new LinkedHashSet<>();
+        for (String field : requested) {
+            String name = field.trim();
+            if (!fields.containsKey(name)) {
+                throw new FieldSelectionException("Unknown field '" + name + "'; available fields: " + String.join(", ", fields.keySet()));
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new FieldSelectionException("At least one field must be requested");
+        }
+        return List.copyOf(selected);
+    }
+    
+    Expression<?> expression(String field, Paths paths) {
+        return fields.get(field).apply(paths);
+    }
+    
+    /**
+     * Property paths of one query
+     * An association is joined once, and only when a field beyond its ID is read; its ID is the
+     * foreign key column of the row itself.
+     */
+    public static final class Paths {
+        
+        private final CriteriaBuilder builder;
+        private final Root<?> root;
+        private final Map<String, From<?, ?>> joins = new HashMap<>();
+        
+        Paths(CriteriaBuilder builder, Root<?> root) {
+            this.builder = builder;
+            this.root = root;
+        }
+        
+        public Expression<?> get(String path) {
+            String[] parts = path.split("\\.");
+            From<?, ?> from = root;
+            String joined = "";
+            for (int i = 0; i < parts.length - 1; i++) {
+                if (i == parts.length - 2 && "id".equals(parts[i + 1])) {
+                    return from.get(parts[i]).get("id");
+                }
+                From<?, ?> parent = from;
+                String association = parts[i];
+                joined = joined.isEmpty() ? association : joined + "." + association;
+                from = joins.computeIfAbsent(joined, key -> parent.join(association, JoinType.LEFT));
+            }
+            return from.get(parts[parts.length - 1]);
+        }
+        
+        /**
+         * Concatenation of string expressions and literal text
+         */
+        @SuppressWarnings("unchecked")
+        public Expression<String> concat(Object... parts) {
+            Expression<String> result = null;
+            for (Object part : parts) {
+                Expression<String> next = part instanceof Expression<?> expression
+                        ? (Expression<String>) expression
+                        : builder.literal(part.toString());
+                result = result == null ? next : builder.concat(result, next);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.trimble.repository;
+
+import com.trimble.shard.HomeShardWriter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Rows decided on the home shard whichever shard a transaction is bound to: the customers'
+ * active lease counters and, with sharding, the license plate keys of cars on every shard
+ * All writes join the current transaction through HomeShardWriter.
+ */
+@Repository
+public class HomeShardKeyRepository {
+    
+    public static final String LICENSE_PLATE_KEYS = "license_plate_keys";
+    
+    private final HomeShardWriter homeShardWriter;
+    
+    public HomeShardKeyRepository(HomeShardWriter homeShardWriter) {
+        this.homeShardWriter = homeShardWriter;
+    }
+    
+    /**
+     * Take one of the customer's active lease slots, if one is free
+     */
+    public boolean reserveActiveLease(Long customerId, int defaultMax) {
+        return homeShardWriter.jdbcTemplate().update(
+                "UPDATE customers SET active_lease_count = active_lease_count + 1 " +
+                "WHERE id = ? AND active_lease_count < COALESCE(max_active_leases, ?)", customerId, defaultMax) > 0;
+    }
+    
+    public void releaseActiveLease(Long customerId) {
+        homeShardWriter.jdbcTemplate().update(
+                "UPDATE customers SET active_lease_count = active_lease_count - 1 WHERE id = ? AND active_lease_count > 0",
+                customerId);
+    }
+    
+    /**
+     * The customer's active lease count, locked until the current transaction ends; null for an unknown customer
+     */
+    public Integer lockActiveLeaseCount(Long customerId) {
+        List<Integer> counts = homeShardWriter.jdbcTemplate().queryForList(
+                "SELECT active_lease_count FROM customers WHERE id = ? FOR UPDATE", Integer.class, customerId);
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+    
+    public void addActiveLeases(Long customerId, int count) {
+        homeShardWriter.jdbcTemplate().update(
+                "UPDATE customers SET active_lease_count = active_lease_count + ? WHERE id = ?", count, customerId);
+    }
+    
+    /**
+     * Claim a license plate for a new car; false when a car on any shard has it already
+     * Only kept with sharding, each shard's unique constraint covering its own cars only.
+     */
+    public boolean claimLicensePlate(String licensePlate) {
+        try {
+            homeShardWriter.jdbcTemplate().update("INSERT INTO " + LICENSE_PLATE_KEYS + " (license_plate) VALUES (?)", licensePlate);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
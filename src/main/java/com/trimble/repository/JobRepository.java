@@ -0,0 +1,42 @@
+package com.trimble.repository;
+
+import com.trimble.entity.Job;
+import com.trimble.enums.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for Job entity
+ */
+@Repository
+public interface JobRepository extends JpaRepository<Job, Long> {
+    
+    List<Job> findByStatusIn(Collection<JobStatus> statuses);
+    
+    @Modifying
+    @Query("UPDATE Job j SET j.status = 'RUNNING', j.startedAt = COALESCE(j.startedAt, :now) " +
+           "WHERE j.id = :id AND j.status IN ('PENDING', 'RUNNING')")
+    int markRunning(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Job j SET j.processedItems = :processed, j.failedItems = :failed " +
+           "WHERE j.id = :id AND j.status = 'RUNNING'")
+    int advanceCheckpoint(@Param("id") Long id, @Param("processed") int processed, @Param("failed") int failed);
+    
+    // Cleared afterwards, so a job read again in the same transaction shows its final status
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Job j SET j.status = :status, j.errorMessage = :errorMessage, j.completedAt = :now " +
+           "WHERE j.id = :id AND j.status IN :from")
+    int finish(@Param("id") Long id,
+               @Param("from") Collection<JobStatus> from,
+               @Param("status") JobStatus status,
+               @Param("errorMessage") String errorMessage,
+               @Param("now") LocalDateTime now);
+}
@@ -4,11 +4,16 @@ import com.trimble.entity.Car;
 import com.trimble.entity.Customer;
 import com.trimble.entity.Lease;
 import com.trimble.enums.LeaseStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,4 +36,56 @@ public interface LeaseRepository extends JpaRepository<Lease, Long> {
     
     @Query("SELECT COUNT(l) FROM Lease l WHERE l.customer.id = :customerId AND l.status = 'ACTIVE'")
     long countActiveLeasesByCustomerId(@Param("customerId") Long customerId);
+    
+    @Query("SELECT l.customer.id, COUNT(l) FROM Lease l WHERE l.status = 'ACTIVE' GROUP BY l.customer.id")
+    List<Object[]> countActiveGroupByCustomerId();
+    
+    @Query("SELECT l.status, COUNT(l) FROM Lease l GROUP BY l.status")
+    List<Object[]> countGroupByStatus();
+    
+    @Query("SELECT COALESCE(SUM(l.totalAmount), 0) FROM Lease l WHERE l.status = 'COMPLETED' AND l.endDate >= :since")
+    BigDecimal sumRevenueSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT l.car.owner.id, SUM(l.totalAmount), COUNT(l) FROM Lease l " +
+           "WHERE l.status = 'COMPLETED' AND l.endDate >= :since GROUP BY l.car.owner.id")
+    List<Object[]> sumRevenueByOwnerSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT l FROM Lease l JOIN FETCH l.car JOIN FETCH l.customer cu JOIN FETCH cu.user WHERE l.id IN :ids")
+    List<Lease> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT l FROM Lease l WHERE l.customer.id IN :customerIds ORDER BY l.id")
+    List<Lease> findByCustomerIdIn(@Param("customerIds") Collection<Long> customerIds);
+    
+    @Query("SELECT l FROM Lease l JOIN FETCH l.car JOIN FETCH l.customer cu JOIN FETCH cu.user " +
+           "WHERE l.car.id IN :carIds AND l.status = 'ACTIVE' ORDER BY l.car.id")
+    List<Lease> findActiveWithDetailsByCarIdIn(@Param("carIds") Collection<Long> carIds);
+    
+    /**
+     * Insert one active lease per car with a single INSERT ... SELECT
+     */
+    @Modifying
+    @Query("INSERT INTO Lease (car, customer, startDate, totalAmount, status, createdAt, updatedAt) " +
+           "SELECT c, cu, :startDate, :totalAmount, :status, :now, :now FROM Car c, Customer cu " +
+           "WHERE c.id IN :carIds AND cu.id = :customerId")
+    int insertLeases(@Param("carIds") Collection<Long> carIds,
+                     @Param("customerId") Long customerId,
+                     @Param("startDate") LocalDateTime startDate,
+                     @Param("totalAmount") BigDecimal totalAmount,
+                     @Param("status") LeaseStatus status,
+                     @Param("now") LocalDateTime now);
+    
+    @Query("SELECT l.id FROM Lease l WHERE l.status IN ('COMPLETED', 'CANCELLED') " +
+           "AND COALESCE(l.endDate, l.startDate) < :cutoff ORDER BY l.id")
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Lease l SET l.status = 'COMPLETED', l.endDate = :endDate, l.totalAmount = :totalAmount " +
+           "WHERE l.id = :id AND l.status = 'ACTIVE'")
+    int completeIfActive(@Param("id") Long id,
+                         @Param("endDate") LocalDateTime endDate,
+                         @Param("totalAmount") BigDecimal totalAmount);
+    
+    @Modifying
+    @Query("DELETE FROM Lease l WHERE l.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,188 @@
+package com.trimble.repository;
+
+import com.trimble.dto.CarDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.shard.ShardRouter;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking reads of the car list, the lease list and lease histories over R2DBC
+ * Rows are mapped straight to DTOs in SQL order and produced as the subscriber asks for them,
+ * so a slow reader holds back the cursor instead of a buffered list. The pool is separate from
+ * the JDBC one and reads the single, unsharded database.
+ * The embedded H2 driver runs a query on the thread that subscribes to it, so queries are
+ * subscribed on a scheduler with one thread per pooled connection; a request thread only
+ * starts the query and never waits for it.
+ */
+@Repository
+@ConditionalOnProperty(name = "carlease.reactive.enabled", havingValue = "true")
+public class ReactiveReadRepository {
+    
+    private static final String CAR_COLUMNS =
+            "SELECT c.id, c.license_plate, c.make, c.model, c.\"YEAR\" AS car_year, c.color, c.daily_rate, c.status, " +
+            "c.owner_id, u.full_name AS owner_name, c.created_at, c.updated_at " +
+            "FROM cars c JOIN users u ON u.id = c.owner_id ";
+    
+    private static final String LEASE_COLUMNS =
+            "SELECT l.id, l.car_id, l.customer_id, c.make, c.model, c.license_plate, u.full_name AS customer_name, " +
+            "l.start_date, l.end_date, l.total_amount, l.status, l.created_at, l.updated_at " +
+            "FROM leases l JOIN cars c ON c.id = l.car_id " +
+            "JOIN customers cu ON cu.id = l.customer_id JOIN users u ON u.id = cu.user_id ";
+    
+    private static final String ARCHIVED_LEASE_COLUMNS =
+            "SELECT id, car_id, customer_id, make, model, license_plate, customer_name, " +
+            "start_date, end_date, total_amount, status, created_at, updated_at FROM lease_archive ";
+    
+    private final ConnectionPool pool;
+    private final DatabaseClient databaseClient;
+    private final Scheduler scheduler;
+    
+    public ReactiveReadRepository(ShardRouter shardRouter,
+                                  @Value("${carlease.reactive.url}") String url,
+                                  @Value("${carlease.reactive.username:sa}") String username,
+                                  @Value("${carlease.reactive.password:}") String password,
+                                  @Value("${carlease.reactive.max-pool-size:4}") int maxPoolSize,
+                                  @Value("${carlease.reactive.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        if (shardRouter.isSharded()) {
+            throw new IllegalStateException("The reactive read path cannot be combined with sharding");
+        }
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.scheduler = Schedulers.newBoundedElastic(maxPoolSize, Integer.MAX_VALUE, "reactive-read");
+        // Connections are handed over on the scheduler too; otherwise the pool would run waiting
+        // queries one after another on the thread that released the previous connection
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-read")
+                .initialSize(0)
+                .maxSize(maxPoolSize)
+                .maxAcquireTime(Duration.ofMillis(acquireTimeoutMillis))
+                .allocatorSubscribeOn(scheduler)
+                .customizer(builder -> builder.acquisitionScheduler(scheduler))
+                .build());
+        this.databaseClient = DatabaseClient.create(pool);
+    }
+    
+    public Flux<CarDto> findAllCars() {
+        return databaseClient.sql(CAR_COLUMNS + "ORDER BY c.id")
+                .map(ReactiveReadRepository::toCarDto)
+                .all()
+                .subscribeOn(scheduler);
+    }
+    
+    public Flux<LeaseDto> findAllLeases() {
+        return databaseClient.sql(LEASE_COLUMNS + "ORDER BY l.id")
+                .map(ReactiveReadRepository::toLeaseDto)
+                .all()
+                .subscribeOn(scheduler);
+    }
+    
+    /**
+     * Archived leases of the customer, then live ones, as in LeaseService.getLeaseHistoryByCustomer
+     */
+    public Flux<LeaseDto> findLeaseHistoryByCustomer(Long customerId) {
+        return Flux.concat(
+                leases(ARCHIVED_LEASE_COLUMNS + "WHERE customer_id = :id ORDER BY id", customerId),
+                leases(LEASE_COLUMNS + "WHERE l.customer_id = :id ORDER BY l.id", customerId));
+    }
+    
+    public Flux<LeaseDto> findLeaseHistoryByCar(Long carId) {
+        return Flux.concat(
+                leases(ARCHIVED_LEASE_COLUMNS + "WHERE car_id = :id ORDER BY id", carId),
+                leases(LEASE_COLUMNS + "WHERE l.car_id = :id ORDER BY l.id", carId));
+    }
+    
+    public Mono<Boolean> existsCustomer(Long customerId) {
+        return exists("SELECT 1 FROM customers WHERE id = :id", customerId);
+    }
+    
+    public Mono<Boolean> existsCar(Long carId) {
+        return exists("SELECT 1 FROM cars WHERE id = :id", carId);
+    }
+    
+    /**
+     * Connections of the R2DBC pool, for comparing with the JDBC pool under load
+     */
+    public PoolMetrics poolMetrics() {
+        return pool.getMetrics().orElseThrow();
+    }
+    
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+        scheduler.dispose();
+    }
+    
+    private Flux<LeaseDto> leases(String sql, Long id) {
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(ReactiveReadRepository::toLeaseDto)
+                .all()
+                .subscribeOn(scheduler);
+    }
+    
+    private Mono<Boolean> exists(String sql, Long id) {
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE)
+                .subscribeOn(scheduler);
+    }
+    
+    private static CarDto toCarDto(Readable row) {
+        CarDto car = new CarDto();
+        car.setId(row.get("id", Long.class));
+        car.setLicensePlate(row.get("license_plate", String.class));
+        car.setMake(row.get("make", String.class));
+        car.setModel(row.get("model", String.class));
+        car.setYear(row.get("car_year", Integer.class));
+        car.setColor(row.get("color", String.class));
+        car.setDailyRate(row.get("daily_rate", BigDecimal.class));
+        car.setStatus(CarStatus.valueOf(row.get("status", String.class)));
+        car.setOwnerId(row.get("owner_id", Long.class));
+        car.setOwnerName(row.get("owner_name", String.class));
+        car.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        car.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        return car;
+    }
+    
+    private static LeaseDto toLeaseDto(Readable row) {
+        LeaseDto lease = new LeaseDto();
+        lease.setId(row.get("id", Long.class));
+        lease.setCarId(row.get("car_id", Long.class));
+        lease.setCustomerId(row.get("customer_id", Long.class));
+        // Same text as CarDetailsCache
+        lease.setCarDetails(row.get("make", String.class) + " " + row.get("model", String.class)
+                + " (" + row.get("license_plate", String.class) + ")");
+        lease.setCustomerName(row.get("customer_name", String.class));
+        lease.setStartDate(row.get("start_date", LocalDateTime.class));
+        lease.setEndDate(row.get("end_date", LocalDateTime.class));
+        lease.setTotalAmount(row.get("total_amount", BigDecimal.class));
+        lease.setStatus(LeaseStatus.valueOf(row.get("status", String.class)));
+        lease.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        lease.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        return lease;
+    }
+}
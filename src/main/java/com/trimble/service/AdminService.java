@@ -1,15 +1,21 @@
 package com.trimble.service;
 
+import com.trimble.booking.BookingEngine;
+import com.trimble.dto.BulkCarStatusRequest;
+import com.trimble.dto.BulkCarStatusResultDto;
 import com.trimble.dto.CarDto;
 import com.trimble.dto.CustomerDto;
+import com.trimble.dto.DashboardDto;
 import com.trimble.dto.LeaseDto;
 import com.trimble.enums.CarStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for Admin operations
@@ -24,6 +30,9 @@ public class AdminService {
     private final CarService carService;
     private final CustomerService customerService;
     private final LeaseService leaseService;
+    private final LeaseArchiveService leaseArchiveService;
+    private final DashboardService dashboardService;
+    private final BookingEngine bookingEngine;
     
     /**
      * Get all cars in the system
@@ -52,6 +61,33 @@ public class AdminService {
         return leaseService.getAllLeases();
     }
     
+    /**
+     * Get the requested fields of all cars, customers or leases, read without loading entities
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllCars(List<String> fields) {
+        return carService.getAllCars(fields);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllCustomers(List<String> fields) {
+        return customerService.getAllCustomers(fields);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllLeases(List<String> fields) {
+        return leaseService.getAllLeases(fields);
+    }
+    
+    /**
+     * Get the dashboard summary; no transaction is held while the section queries run
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DashboardDto getDashboard(int days, int topOwners) {
+        log.info("Admin fetching dashboard for the last {} days", days);
+        return dashboardService.getDashboard(days, topOwners);
+    }
+    
     /**
      * Update car status
      */
@@ -60,12 +96,38 @@ public class AdminService {
         return carService.updateCarStatus(carId, status);
     }
     
+    /**
+     * Update the status of many cars at once
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkCarStatusResultDto bulkUpdateCarStatus(BulkCarStatusRequest request) {
+        log.info("Admin bulk updating car status to {}", request.getStatus());
+        return carService.bulkUpdateCarStatus(request);
+    }
+    
+    /**
+     * Set a customer's active lease limit
+     */
+    public CustomerDto updateLeaseLimit(Long customerId, Integer maxActiveLeases) {
+        log.info("Admin setting active lease limit of customer {} to {}", customerId, maxActiveLeases);
+        return customerService.updateLeaseLimit(customerId, maxActiveLeases);
+    }
+    
     /**
      * End any lease
      */
     public LeaseDto endLease(Long leaseId) {
         log.info("Admin ending lease with ID: {}", leaseId);
-        return leaseService.endLease(leaseId);
+        return bookingEngine.isEnabled() ? bookingEngine.endLease(leaseId) : leaseService.endLease(leaseId);
+    }
+    
+    /**
+     * Archive finished leases now instead of waiting for the scheduled run
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int archiveLeases() {
+        log.info("Admin triggering lease archival");
+        return leaseArchiveService.archiveLeases();
     }
     
     /**
@@ -0,0 +1,264 @@
+package com.trimble.service;
+
+import com.trimble.booking.BookingEngine;
+import com.trimble.dto.CarHoldDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.event.CarStatusChangedEvent;
+import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.CustomerNotFoundException;
+import com.trimble.exception.LeaseException;
+import com.trimble.hold.TimingWheel;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.CustomerRepository;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short reservations of cars between browsing and booking
+ * A hold moves the car from AVAILABLE to HELD for ttlSeconds; only the holding customer can then
+ * start a lease on it, which takes the hold over in the same conditional update. Expiry is driven
+ * by an in-memory timing wheel rather than by polling the cars table: each hold costs one wheel
+ * entry, and a lapsed hold is released with a conditional update, so a hold converted or released
+ * meanwhile, here or on another node, is left alone. Holds still in the database at startup are
+ * scheduled again, and a lapsed hold never blocks a new one: until it is released, the car is
+ * listed as available and can be held or leased by anyone.
+ * No holds are placed while the booking engine is enabled, as its projector writes car statuses
+ * without knowing of them.
+ */
+@Service
+@Slf4j
+public class CarHoldService {
+    
+    private static final int RELEASE_BATCH_SIZE = 500;
+    
+    private final CarRepository carRepository;
+    private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final BookingEngine bookingEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final long tickMillis;
+    private final TimingWheel<Long> wheel;
+    private final Map<Long, TimingWheel.Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+    private final Counter placedHolds;
+    private final Counter expiredHolds;
+    private final Thread ticker;
+    private volatile boolean running;
+    
+    public CarHoldService(CarRepository carRepository,
+                          CustomerRepository customerRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          ShardRouter shardRouter,
+                          BookingEngine bookingEngine,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${carlease.holds.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${carlease.holds.tick-ms:100}") long tickMillis) {
+        this.carRepository = carRepository;
+        this.customerRepository = customerRepository;
+        this.eventPublisher = eventPublisher;
+        this.shardRouter = shardRouter;
+        this.bookingEngine = bookingEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.tickMillis = tickMillis;
+        this.wheel = new TimingWheel<>(tickMillis, TimeUnit.MILLISECONDS, System.nanoTime());
+        this.placedHolds = meterRegistry.counter("carlease.holds.placed");
+        this.expiredHolds = meterRegistry.counter("carlease.holds.expired");
+        meterRegistry.gauge("carlease.holds.scheduled", wheel, TimingWheel::size);
+        this.running = true;
+        this.ticker = new Thread(this::run, "car-hold-expiry");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+    
+    /**
+     * Hold a car for a customer
+     */
+    @Transactional
+    public CarHoldDto holdCar(Long carId, Long customerId) {
+        log.info("Placing hold on car ID: {} for customer ID: {}", carId, customerId);
+        // The engine decides leases from its own car states and would not see the hold
+        if (bookingEngine.isEnabled()) {
+            throw new LeaseException("Car holds are not available while the booking engine is enabled");
+        }
+        shardRouter.bindToId(carId);
+        
+        if (!customerRepository.existsById(customerId)) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + customerId);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(ttl);
+        if (carRepository.placeHold(carId, customerId, until, now) == 0) {
+            if (!carRepository.existsById(carId)) {
+                throw new CarNotFoundException("Car not found with ID: " + carId);
+            }
+            throw new LeaseException("Car is not available for hold");
+        }
+        eventPublisher.publishEvent(new CarStatusChangedEvent(List.of(carId), CarStatus.HELD));
+        afterCommit(() -> schedule(carId, System.nanoTime() + ttl.toNanos()));
+        placedHolds.increment();
+        
+        return new CarHoldDto(carId, customerId, until);
+    }
+    
+    /**
+     * Give up a hold before it lapses
+     */
+    @Transactional
+    public void releaseHold(Long carId, Long customerId) {
+        log.info("Releasing hold on car ID: {} for customer ID: {}", carId, customerId);
+        shardRouter.bindToId(carId);
+        
+        if (carRepository.releaseHold(carId, customerId, LocalDateTime.now()) == 0) {
+            if (!carRepository.existsById(carId)) {
+                throw new CarNotFoundException("Car not found with ID: " + carId);
+            }
+            throw new LeaseException("Customer " + customerId + " has no hold on car " + carId);
+        }
+        eventPublisher.publishEvent(new CarStatusChangedEvent(List.of(carId), CarStatus.AVAILABLE));
+    }
+    
+    /**
+     * Holds scheduled for expiry on this node
+     */
+    public int scheduledHolds() {
+        return wheel.size();
+    }
+    
+    /**
+     * Schedule the holds left in the database, e.g. by a previous run of this node
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleExistingHolds() {
+        shardRouter.forEachShard(shard -> {
+            List<Object[]> holds = transactionTemplate.execute(status -> carRepository.findHeldCars());
+            LocalDateTime now = LocalDateTime.now();
+            long nowNanos = System.nanoTime();
+            for (Object[] hold : holds) {
+                LocalDateTime until = (LocalDateTime) hold[1];
+                long remaining = until == null ? 0 : Math.max(Duration.between(now, until).toNanos(), 0);
+                schedule((Long) hold[0], nowNanos + remaining);
+            }
+            if (!holds.isEmpty()) {
+                log.info("Scheduled {} existing car holds on shard {}", holds.size(), shard);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Cars that are no longer held, whether leased, released or changed by an admin, need no expiry
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCarStatusChanged(CarStatusChangedEvent event) {
+        if (event.getStatus() == CarStatus.HELD) {
+            return;
+        }
+        for (Long carId : event.getCarIds()) {
+            TimingWheel.Timeout<Long> timeout = timeouts.remove(carId);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        ticker.interrupt();
+        ticker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    
+    private void schedule(Long carId, long deadlineNanos) {
+        TimingWheel.Timeout<Long> previous = timeouts.put(carId, wheel.schedule(carId, deadlineNanos));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+    
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+                List<Long> expired = new ArrayList<>();
+                wheel.advance(System.nanoTime(), timeout -> {
+                    timeouts.remove(timeout.getItem(), timeout);
+                    expired.add(timeout.getItem());
+                });
+                if (!expired.isEmpty()) {
+                    release(expired);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Car hold expiry failed", e);
+            }
+        }
+    }
+    
+    private void release(List<Long> carIds) {
+        shardRouter.groupByShard(carIds).forEach((shard, ids) -> {
+            for (int from = 0; from < ids.size(); from += RELEASE_BATCH_SIZE) {
+                List<Long> batch = ids.subList(from, Math.min(from + RELEASE_BATCH_SIZE, ids.size()));
+                try {
+                    shardRouter.callOnShard(shard, () -> transactionTemplate.execute(status -> {
+                        LocalDateTime now = LocalDateTime.now();
+                        // Allow a tick of slack between the wheel's clock and the wall clock of heldUntil
+                        int count = carRepository.releaseExpiredHolds(batch, now.plus(Duration.ofMillis(tickMillis)), now);
+                        if (count > 0) {
+                            List<Long> released = carRepository.findIdsByIdInAndStatus(batch, CarStatus.AVAILABLE);
+                            eventPublisher.publishEvent(new CarStatusChangedEvent(released, CarStatus.AVAILABLE));
+                            expiredHolds.increment(count);
+                        }
+                        return null;
+                    }));
+                } catch (RuntimeException e) {
+                    // Try again a second later rather than leave the cars held
+                    log.warn("Releasing {} expired car holds failed ({}); retrying", batch.size(), e.getMessage());
+                    long retryAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                    batch.forEach(carId -> timeouts.computeIfAbsent(carId, id -> wheel.schedule(id, retryAt)));
+                }
+            }
+        });
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
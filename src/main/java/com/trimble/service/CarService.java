@@ -1,31 +1,91 @@
 package com.trimble.service;
 
+import com.trimble.coalescing.SingleFlight;
+import com.trimble.dto.BatchItem;
+import com.trimble.dto.BulkCarStatusRequest;
+import com.trimble.dto.BulkCarStatusResultDto;
 import com.trimble.dto.CarDto;
 import com.trimble.entity.Car;
 import com.trimble.entity.User;
 import com.trimble.enums.CarStatus;
+import com.trimble.enums.RegistrationKey;
+import com.trimble.event.CarStatusChangedEvent;
 import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.LeaseException;
+import com.trimble.mapper.CarMapper;
+import com.trimble.mapper.FieldSets;
+import com.trimble.registry.RegistrationKeyFilters;
 import com.trimble.repository.CarRepository;
+import com.trimble.repository.FieldProjectionRepository;
+import com.trimble.repository.HomeShardKeyRepository;
 import com.trimble.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.trimble.shard.ShardRouter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Service class for Car operations
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class CarService {
     
     private final CarRepository carRepository;
     private final UserRepository userRepository;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final HomeShardKeyRepository homeShardKeyRepository;
+    private final CarMapper carMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SingleFlight singleFlight;
+    private final RegistrationKeyFilters registrationKeyFilters;
+    private final int bulkBatchSize;
+    
+    public CarService(CarRepository carRepository,
+                      UserRepository userRepository,
+                      FieldProjectionRepository fieldProjectionRepository,
+                      HomeShardKeyRepository homeShardKeyRepository,
+                      CarMapper carMapper,
+                      ApplicationEventPublisher eventPublisher,
+                      ShardRouter shardRouter,
+                      PlatformTransactionManager transactionManager,
+                      SingleFlight singleFlight,
+                      RegistrationKeyFilters registrationKeyFilters,
+                      @Value("${carlease.bulk-update.batch-size:500}") int bulkBatchSize) {
+        this.carRepository = carRepository;
+        this.userRepository = userRepository;
+        this.fieldProjectionRepository = fieldProjectionRepository;
+        this.homeShardKeyRepository = homeShardKeyRepository;
+        this.carMapper = carMapper;
+        this.eventPublisher = eventPublisher;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.singleFlight = singleFlight;
+        this.registrationKeyFilters = registrationKeyFilters;
+        this.bulkBatchSize = bulkBatchSize;
+    }
     
     /**
      * Register a new car
@@ -33,9 +93,14 @@ public class CarService {
     public CarDto registerCar(CarDto carDto, Long ownerId) {
         log.info("Registering new car with license plate: {} for owner: {}", 
                 carDto.getLicensePlate(), ownerId);
+        shardRouter.bindToOwner(ownerId);
         
         // Check if car already exists
-        if (carRepository.existsByLicensePlate(carDto.getLicensePlate())) {
+        if (registrationKeyFilters.exists(RegistrationKey.LICENSE_PLATE, carDto.getLicensePlate(), carRepository::existsByLicensePlate)) {
+            throw new RuntimeException("Car with license plate " + carDto.getLicensePlate() + " already exists");
+        }
+        // The check above sees this owner's shard only; the home shard's plate keys cover all of them
+        if (shardRouter.isSharded() && !homeShardKeyRepository.claimLicensePlate(carDto.getLicensePlate())) {
             throw new RuntimeException("Car with license plate " + carDto.getLicensePlate() + " already exists");
         }
         
@@ -55,35 +120,41 @@ public class CarService {
         car.setOwner(owner);
         
         Car savedCar = carRepository.save(car);
+        eventPublisher.publishEvent(new CarStatusChangedEvent(List.of(savedCar.getId()), CarStatus.AVAILABLE));
         log.info("Car registered successfully with ID: {}", savedCar.getId());
         
-        return convertToDto(savedCar);
+        return carMapper.toDto(savedCar);
     }
     
     /**
      * Get all cars by owner
+     * Concurrent calls for the same owner share one read and one unmodifiable list; callers wait outside
+     * any transaction.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CarDto> getCarsByOwner(Long ownerId) {
         log.info("Fetching cars for owner: {}", ownerId);
         
-        List<Car> cars = carRepository.findByOwnerId(ownerId);
-        return cars.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return singleFlight.execute("cars.by-owner", ownerId, () -> readOnlyTransaction.execute(status -> {
+            shardRouter.bindToOwner(ownerId);
+            
+            List<Car> cars = carRepository.findByOwnerId(ownerId);
+            return cars.stream()
+                    .map(carMapper::toDto)
+                    .toList();
+        }));
     }
     
     /**
      * Get all available cars
+     * Concurrent calls share one read, as for getCarsByOwner.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CarDto> getAvailableCars() {
         log.info("Fetching all available cars");
         
-        List<Car> cars = carRepository.findAvailableCars();
-        return cars.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return singleFlight.execute("cars.available", null, () -> readOnlyTransaction.execute(status -> List.copyOf(
+                shardRouter.scatterGather(shard -> carMapper.toDtos(carRepository.findAvailableCars(LocalDateTime.now()))))));
     }
     
     /**
@@ -92,11 +163,30 @@ public class CarService {
     @Transactional(readOnly = true)
     public CarDto getCarById(Long carId) {
         log.info("Fetching car with ID: {}", carId);
+        shardRouter.bindToId(carId);
         
         Car car = carRepository.findById(carId)
                 .orElseThrow(() -> new CarNotFoundException("Car not found with ID: " + carId));
         
-        return convertToDto(car);
+        return carMapper.toDto(car);
+    }
+    
+    /**
+     * Get several cars by ID with a single query
+     */
+    @Transactional(readOnly = true)
+    public List<BatchItem<CarDto>> getCarsByIds(List<Long> carIds) {
+        log.info("Fetching {} cars by ID", carIds.size());
+        
+        Map<Integer, List<Long>> idsByShard = shardRouter.groupByShard(new LinkedHashSet<>(carIds));
+        Map<Long, CarDto> cars = shardRouter.scatterGather(shard -> idsByShard.containsKey(shard)
+                        ? carRepository.findAllWithOwnerByIdIn(idsByShard.get(shard)).stream()
+                                .map(carMapper::toDto)
+                                .collect(Collectors.toList())
+                        : List.<CarDto>of()).stream()
+                .collect(Collectors.toMap(CarDto::getId, Function.identity()));
+        
+        return BatchItem.inRequestOrder(carIds, cars);
     }
     
     /**
@@ -104,15 +194,101 @@ public class CarService {
      */
     public CarDto updateCarStatus(Long carId, CarStatus status) {
         log.info("Updating car status for ID: {} to {}", carId, status);
+        shardRouter.bindToId(carId);
+        
+        if (status == CarStatus.HELD) {
+            throw new LeaseException("Cars can only be held by a customer hold");
+        }
         
         Car car = carRepository.findById(carId)
                 .orElseThrow(() -> new CarNotFoundException("Car not found with ID: " + carId));
         
         car.setStatus(status);
         Car updatedCar = carRepository.save(car);
+        eventPublisher.publishEvent(new CarStatusChangedEvent(List.of(carId), status));
         
         log.info("Car status updated successfully");
-        return convertToDto(updatedCar);
+        return carMapper.toDto(updatedCar);
+    }
+    
+    /**
+     * Change the status of many cars with set-based UPDATE statements
+     * Each batch of at most bulkBatchSize cars runs in its own short transaction;
+     * cars on an active lease are never touched
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkCarStatusResultDto bulkUpdateCarStatus(BulkCarStatusRequest request) {
+        CarStatus status = request.getStatus();
+        log.info("Bulk updating car status to {}", status);
+        
+        if (status == CarStatus.ON_LEASE) {
+            throw new LeaseException("Cars can only be put on lease by starting a lease");
+        }
+        if (status == CarStatus.HELD) {
+            throw new LeaseException("Cars can only be held by a customer hold");
+        }
+        
+        List<Long> updated = new ArrayList<>();
+        List<Long> unchanged = new ArrayList<>();
+        int batches = 0;
+        
+        if (request.getCarIds() != null && !request.getCarIds().isEmpty()) {
+            // A batch never spans shards, so each one stays a single-shard transaction
+            for (List<Long> ids : shardRouter.groupByShard(new LinkedHashSet<>(request.getCarIds())).values()) {
+                ids.sort(null);
+                for (int from = 0; from < ids.size(); from += bulkBatchSize) {
+                    List<Long> batch = ids.subList(from, Math.min(from + bulkBatchSize, ids.size()));
+                    updateBatch(batch, status, updated, unchanged);
+                    batches++;
+                }
+            }
+        } else {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                batches += shardRouter.callOnShard(shard, () -> updateByFilter(request, status, updated, unchanged));
+            }
+        }
+        
+        log.info("Bulk status update to {} finished: {} updated, {} unchanged in {} batches",
+                status, updated.size(), unchanged.size(), batches);
+        return new BulkCarStatusResultDto(status, updated, unchanged, batches);
+    }
+    
+    private int updateByFilter(BulkCarStatusRequest request, CarStatus status, List<Long> updated, List<Long> unchanged) {
+        int batches = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Long> batch = carRepository.findIdsByFilter(afterId, request.getOwnerId(),
+                    request.getCurrentStatus(), request.getMake(), PageRequest.of(0, bulkBatchSize));
+            if (batch.isEmpty()) {
+                return batches;
+            }
+            updateBatch(batch, status, updated, unchanged);
+            batches++;
+            afterId = batch.get(batch.size() - 1);
+        }
+    }
+    
+    private void updateBatch(List<Long> batch, CarStatus status, List<Long> updated, List<Long> unchanged) {
+        List<Long> changed = transactionTemplate.execute(tx -> {
+            shardRouter.bindToId(batch.get(0));
+            List<Long> eligible = carRepository.findIdsEligibleForStatus(batch, status);
+            if (eligible.isEmpty()) {
+                return eligible;
+            }
+            int count = carRepository.updateStatusByIdIn(eligible, status, LocalDateTime.now());
+            if (count != eligible.size()) {
+                // A lease started between the select and the update; report only what actually changed
+                eligible = carRepository.findIdsByIdInAndStatus(eligible, status);
+            }
+            eventPublisher.publishEvent(new CarStatusChangedEvent(eligible, status));
+            return eligible;
+        });
+        
+        Set<Long> changedIds = new HashSet<>(changed);
+        updated.addAll(changed);
+        batch.stream()
+                .filter(id -> !changedIds.contains(id))
+                .forEach(unchanged::add);
     }
     
     /**
@@ -122,29 +298,17 @@ public class CarService {
     public List<CarDto> getAllCars() {
         log.info("Fetching all cars");
         
-        List<Car> cars = carRepository.findAll();
-        return cars.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return shardRouter.scatterGather(shard -> carMapper.toDtos(carRepository.findAll()));
     }
     
     /**
-     * Convert Car entity to CarDto
+     * Get the given fields of all cars; the owner is only joined for ownerName
      */
-    private CarDto convertToDto(Car car) {
-        CarDto dto = new CarDto();
-        dto.setId(car.getId());
-        dto.setLicensePlate(car.getLicensePlate());
-        dto.setMake(car.getMake());
-        dto.setModel(car.getModel());
-        dto.setYear(car.getYear());
-        dto.setColor(car.getColor());
-        dto.setDailyRate(car.getDailyRate());
-        dto.setStatus(car.getStatus());
-        dto.setOwnerId(car.getOwner().getId());
-        dto.setOwnerName(car.getOwner().getFullName());
-        dto.setCreatedAt(car.getCreatedAt());
-        dto.setUpdatedAt(car.getUpdatedAt());
-        return dto;
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllCars(List<String> fields) {
+        List<String> selected = FieldSets.CARS.select(fields);
+        log.info("Fetching fields {} of all cars", selected);
+        
+        return shardRouter.scatterGather(shard -> fieldProjectionRepository.findAll(FieldSets.CARS, selected));
     }
 }
\ No newline at end of file
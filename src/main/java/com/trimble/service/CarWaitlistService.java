@@ -0,0 +1,236 @@
+package com.trimble.service;
+
+import com.trimble.booking.BookingEngine;
+import com.trimble.dto.CarHoldDto;
+import com.trimble.dto.WaitlistEntryDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.event.CacheInvalidationEvent;
+import com.trimble.event.CarStatusChangedEvent;
+import com.trimble.event.WaitlistHoldGrantedEvent;
+import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.CustomerNotFoundException;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.CustomerRepository;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * First come, first served waitlists for cars that are taken
+ * Each car has its own lock-free queue of customers. Whenever a car becomes AVAILABLE, whether a
+ * lease ended, an admin changed it or a hold lapsed, the customer at the head gets a hold on it
+ * and a WaitlistHoldGrantedEvent; if that hold lapses too, the next customer is offered the car.
+ * Offers run on a few single-threaded stripes chosen by car ID, so offers for one car stay in
+ * order while different cars are served in parallel. Waitlists live on the node that took them;
+ * cars freed on other nodes are offered when their invalidation arrives.
+ */
+@Service
+@Slf4j
+public class CarWaitlistService {
+    
+    private final CarHoldService carHoldService;
+    private final CarRepository carRepository;
+    private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final BookingEngine bookingEngine;
+    private final int maxPerCar;
+    private final Map<Long, Deque<Long>> waitlists = new ConcurrentHashMap<>();
+    private final ExecutorService[] stripes;
+    private final Counter joined;
+    private final Counter granted;
+    
+    public CarWaitlistService(CarHoldService carHoldService,
+                              CarRepository carRepository,
+                              CustomerRepository customerRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              ShardRouter shardRouter,
+                              BookingEngine bookingEngine,
+                              MeterRegistry meterRegistry,
+                              @Value("${carlease.waitlist.max-per-car:100}") int maxPerCar,
+                              @Value("${carlease.waitlist.dispatch-threads:4}") int dispatchThreads) {
+        this.carHoldService = carHoldService;
+        this.carRepository = carRepository;
+        this.customerRepository = customerRepository;
+        this.eventPublisher = eventPublisher;
+        this.shardRouter = shardRouter;
+        this.bookingEngine = bookingEngine;
+        this.maxPerCar = maxPerCar;
+        this.stripes = new ExecutorService[dispatchThreads];
+        AtomicInteger threadNumber = new AtomicInteger();
+        for (int i = 0; i < dispatchThreads; i++) {
+            stripes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "waitlist-dispatch-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.joined = meterRegistry.counter("carlease.waitlist.joined");
+        this.granted = meterRegistry.counter("carlease.waitlist.granted");
+    }
+    
+    /**
+     * Put a customer at the back of a car's waitlist
+     * A customer who is first in line is offered the car at once, in case it is free already.
+     * Waitlists hand cars out as holds, so they are closed while the booking engine is enabled.
+     */
+    @Transactional(readOnly = true)
+    public WaitlistEntryDto join(Long carId, Long customerId) {
+        log.info("Customer ID: {} joining waitlist of car ID: {}", customerId, carId);
+        if (bookingEngine.isEnabled()) {
+            throw new LeaseException("Car waitlists are not available while the booking engine is enabled");
+        }
+        shardRouter.bindToId(carId);
+        
+        if (!carRepository.existsById(carId)) {
+            throw new CarNotFoundException("Car not found with ID: " + carId);
+        }
+        if (!customerRepository.existsById(customerId)) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + customerId);
+        }
+        
+        // Joins take the map's per-bin lock, so a queue is never dropped as empty while one is added to it
+        int[] position = new int[1];
+        waitlists.compute(carId, (id, queue) -> {
+            Deque<Long> waiting = queue != null ? queue : new ConcurrentLinkedDeque<>();
+            if (waiting.contains(customerId)) {
+                throw new LeaseException("Customer " + customerId + " is already waiting for car " + carId);
+            }
+            if (waiting.size() >= maxPerCar) {
+                throw new LeaseException("Waitlist of car " + carId + " is full");
+            }
+            waiting.offerLast(customerId);
+            position[0] = waiting.size();
+            return waiting;
+        });
+        joined.increment();
+        
+        if (position[0] == 1) {
+            dispatch(carId);
+        }
+        return new WaitlistEntryDto(carId, customerId, position[0]);
+    }
+    
+    /**
+     * Take a customer off a car's waitlist
+     */
+    public void leave(Long carId, Long customerId) {
+        log.info("Customer ID: {} leaving waitlist of car ID: {}", customerId, carId);
+        Deque<Long> queue = waitlists.get(carId);
+        if (queue == null || !queue.remove(customerId)) {
+            throw new LeaseException("Customer " + customerId + " is not waiting for car " + carId);
+        }
+        removeIfEmpty(carId);
+    }
+    
+    /**
+     * Place of a customer in a car's waitlist, 1 for the head, or 0 if not waiting
+     */
+    public int position(Long carId, Long customerId) {
+        Deque<Long> queue = waitlists.get(carId);
+        if (queue == null) {
+            return 0;
+        }
+        int position = 0;
+        for (Long waiting : queue) {
+            position++;
+            if (waiting.equals(customerId)) {
+                return position;
+            }
+        }
+        return 0;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCarStatusChanged(CarStatusChangedEvent event) {
+        if (event.getStatus() == CarStatus.AVAILABLE) {
+            event.getCarIds().forEach(this::dispatch);
+        }
+    }
+    
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        // The status is not part of the message; offering a car that is still taken just keeps the queue as it is
+        if (event.isRemote() && CacheInvalidationEvent.CARS.equals(event.getRegion())) {
+            event.getKeys().forEach(this::dispatch);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ExecutorService stripe : stripes) {
+            stripe.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    private void dispatch(Long carId) {
+        if (!waitlists.containsKey(carId)) {
+            return;
+        }
+        try {
+            stripes[(int) Math.floorMod(carId, (long) stripes.length)].execute(() -> offer(carId));
+        } catch (RejectedExecutionException e) {
+            log.debug("Waitlist dispatch is shut down, car ID: {} not offered", carId);
+        }
+    }
+    
+    /**
+     * Hold the car for the first customer in line who can take it
+     * Only ever runs on the stripe of the car, so nothing else offers it meanwhile. The customer
+     * stays at the head until the hold is written, so positions read meanwhile stay right.
+     */
+    private void offer(Long carId) {
+        Deque<Long> queue = waitlists.get(carId);
+        Long customerId;
+        while (queue != null && (customerId = queue.peekFirst()) != null) {
+            try {
+                CarHoldDto hold = carHoldService.holdCar(carId, customerId);
+                queue.remove(customerId);
+                granted.increment();
+                log.info("Car ID: {} held for customer ID: {} from its waitlist", carId, customerId);
+                eventPublisher.publishEvent(new WaitlistHoldGrantedEvent(carId, customerId, hold.getHeldUntil()));
+                break;
+            } catch (CustomerNotFoundException e) {
+                log.info("Dropping deleted customer ID: {} from waitlist of car ID: {}", customerId, carId);
+                queue.remove(customerId);
+            } catch (CarNotFoundException e) {
+                waitlists.remove(carId);
+                return;
+            } catch (RuntimeException e) {
+                // Taken again before the hold, or the hold could not be written: the customer keeps their place
+                if (!(e instanceof LeaseException)) {
+                    log.warn("Offering car ID: {} to its waitlist failed: {}", carId, e.getMessage());
+                }
+                break;
+            }
+        }
+        removeIfEmpty(carId);
+    }
+    
+    private void removeIfEmpty(Long carId) {
+        waitlists.computeIfPresent(carId, (id, queue) -> queue.isEmpty() ? null : queue);
+    }
+}
@@ -1,11 +1,17 @@
 package com.trimble.service;
 
+import com.trimble.dto.BatchItem;
 import com.trimble.dto.CustomerDto;
 import com.trimble.entity.Customer;
 import com.trimble.entity.User;
+import com.trimble.enums.RegistrationKey;
 import com.trimble.enums.UserRole;
 import com.trimble.exception.CustomerNotFoundException;
+import com.trimble.mapper.CustomerMapper;
+import com.trimble.mapper.FieldSets;
+import com.trimble.registry.RegistrationKeyFilters;
 import com.trimble.repository.CustomerRepository;
+import com.trimble.repository.FieldProjectionRepository;
 import com.trimble.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,7 +19,11 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -27,7 +37,10 @@ public class CustomerService {
     
     private final CustomerRepository customerRepository;
     private final UserRepository userRepository;
+    private final CustomerMapper customerMapper;
     private final PasswordEncoder passwordEncoder;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final RegistrationKeyFilters registrationKeyFilters;
     
     /**
      * Register a new customer
@@ -35,18 +48,18 @@ public class CustomerService {
     public CustomerDto registerCustomer(CustomerDto customerDto) {
         log.info("Registering new customer: {}", customerDto.getUsername());
         
-        // Check if username already exists
-        if (userRepository.existsByUsername(customerDto.getUsername())) {
+        // Check if username already exists; the filters skip the query for values that are certainly new
+        if (registrationKeyFilters.exists(RegistrationKey.USERNAME, customerDto.getUsername(), userRepository::existsByUsername)) {
             throw new RuntimeException("Username already exists: " + customerDto.getUsername());
         }
         
         // Check if email already exists
-        if (userRepository.existsByEmail(customerDto.getEmail())) {
+        if (registrationKeyFilters.exists(RegistrationKey.EMAIL, customerDto.getEmail(), userRepository::existsByEmail)) {
             throw new RuntimeException("Email already exists: " + customerDto.getEmail());
         }
         
         // Check if driver license already exists
-        if (customerRepository.existsByDriverLicense(customerDto.getDriverLicense())) {
+        if (registrationKeyFilters.exists(RegistrationKey.DRIVER_LICENSE, customerDto.getDriverLicense(), customerRepository::existsByDriverLicense)) {
             throw new RuntimeException("Driver license already exists: " + customerDto.getDriverLicense());
         }
         
@@ -70,7 +83,7 @@ public class CustomerService {
         Customer savedCustomer = customerRepository.save(customer);
         log.info("Customer registered successfully with ID: {}", savedCustomer.getId());
         
-        return convertToDto(savedCustomer);
+        return customerMapper.toDto(savedCustomer);
     }
     
     /**
@@ -83,7 +96,7 @@ public class CustomerService {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + customerId));
         
-        return convertToDto(customer);
+        return customerMapper.toDto(customer);
     }
     
     /**
@@ -99,7 +112,37 @@ public class CustomerService {
         Customer customer = customerRepository.findByUser(user)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with username: " + username));
         
-        return convertToDto(customer);
+        return customerMapper.toDto(customer);
+    }
+    
+    /**
+     * Get several customers by ID with a single query
+     */
+    @Transactional(readOnly = true)
+    public List<BatchItem<CustomerDto>> getCustomersByIds(List<Long> customerIds) {
+        log.info("Fetching {} customers by ID", customerIds.size());
+        
+        Map<Long, CustomerDto> customers = customerRepository.findAllWithUserByIdIn(new LinkedHashSet<>(customerIds)).stream()
+                .map(customerMapper::toDto)
+                .collect(Collectors.toMap(CustomerDto::getId, Function.identity()));
+        
+        return BatchItem.inRequestOrder(customerIds, customers);
+    }
+    
+    /**
+     * Set a customer's active lease limit; null restores the default
+     * Only the limit column is written, so a lease started or ended meanwhile keeps its count
+     */
+    public CustomerDto updateLeaseLimit(Long customerId, Integer maxActiveLeases) {
+        log.info("Setting active lease limit of customer {} to {}", customerId, maxActiveLeases);
+        
+        if (customerRepository.updateMaxActiveLeases(customerId, maxActiveLeases, LocalDateTime.now()) == 0) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + customerId);
+        }
+        
+        Customer updatedCustomer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + customerId));
+        return customerMapper.toDto(updatedCustomer);
     }
     
     /**
@@ -111,24 +154,18 @@ public class CustomerService {
         
         List<Customer> customers = customerRepository.findAll();
         return customers.stream()
-                .map(this::convertToDto)
+                .map(customerMapper::toDto)
                 .collect(Collectors.toList());
     }
     
     /**
-     * Convert Customer entity to CustomerDto
+     * Get the given fields of all customers; the user is only joined for its fields
      */
-    private CustomerDto convertToDto(Customer customer) {
-        CustomerDto dto = new CustomerDto();
-        dto.setId(customer.getId());
-        dto.setUsername(customer.getUser().getUsername());
-        dto.setEmail(customer.getUser().getEmail());
-        dto.setFullName(customer.getUser().getFullName());
-        dto.setPhoneNumber(customer.getPhoneNumber());
-        dto.setAddress(customer.getAddress());
-        dto.setDriverLicense(customer.getDriverLicense());
-        dto.setCreatedAt(customer.getCreatedAt());
-        dto.setUpdatedAt(customer.getUpdatedAt());
-        return dto;
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllCustomers(List<String> fields) {
+        List<String> selected = FieldSets.CUSTOMERS.select(fields);
+        log.info("Fetching fields {} of all customers", selected);
+        
+        return fieldProjectionRepository.findAll(FieldSets.CUSTOMERS, selected);
     }
 }
@@ -0,0 +1,221 @@
+package com.trimble.service;
+
+import com.trimble.dto.DashboardDto;
+import com.trimble.dto.OwnerRevenueDto;
+import com.trimble.entity.User;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.repository.ArchivedLeaseRepository;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.LeaseRepository;
+import com.trimble.repository.UserRepository;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for the admin dashboard
+ * The aggregate queries are independent, so they run concurrently on a bounded executor and
+ * the summary takes about as long as the slowest one. Each query has the same deadline; a
+ * query that fails or misses it is left out and reported, the rest of the summary is returned.
+ */
+@Service
+@Slf4j
+public class DashboardService {
+    
+    public static final String CARS_BY_STATUS = "carsByStatus";
+    public static final String LEASES_BY_STATUS = "leasesByStatus";
+    public static final String REVENUE = "revenue";
+    public static final String TOP_OWNERS = "topOwners";
+    
+    private final CarRepository carRepository;
+    private final LeaseRepository leaseRepository;
+    private final ArchivedLeaseRepository archivedLeaseRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int timeoutSeconds;
+    private final ThreadPoolExecutor executor;
+    private final long subqueryTimeoutMillis;
+    
+    public DashboardService(CarRepository carRepository,
+                            LeaseRepository leaseRepository,
+                            ArchivedLeaseRepository archivedLeaseRepository,
+                            UserRepository userRepository,
+                            ShardRouter shardRouter,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${carlease.dashboard.threads:4}") int threads,
+                            @Value("${carlease.dashboard.queue-capacity:32}") int queueCapacity,
+                            @Value("${carlease.dashboard.subquery-timeout-ms:2000}") long subqueryTimeoutMillis) {
+        this.carRepository = carRepository;
+        this.leaseRepository = leaseRepository;
+        this.archivedLeaseRepository = archivedLeaseRepository;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.meterRegistry = meterRegistry;
+        this.subqueryTimeoutMillis = subqueryTimeoutMillis;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // The transaction timeout becomes the JDBC query timeout, so abandoned queries stop on the database too;
+        // the per-shard transactions of a scatter read run on other threads and are given it explicitly
+        this.timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(subqueryTimeoutMillis + 999));
+        this.readOnlyTransaction.setTimeout(timeoutSeconds);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * Build the dashboard summary
+     * @param days revenue window in days, ending now
+     * @param topOwners number of owners to list by revenue
+     */
+    public DashboardDto getDashboard(int days, int topOwners) {
+        long start = System.nanoTime();
+        LocalDateTime since = LocalDateTime.now().minusDays(days);
+        
+        Future<Map<CarStatus, Long>> carsByStatus = submit(CARS_BY_STATUS, this::countCarsByStatus);
+        Future<Map<LeaseStatus, Long>> leasesByStatus = submit(LEASES_BY_STATUS, this::countLeasesByStatus);
+        Future<BigDecimal> revenue = submit(REVENUE, () -> sumRevenue(since));
+        Future<List<OwnerRevenueDto>> owners = submit(TOP_OWNERS, () -> findTopOwners(since, topOwners));
+        
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(subqueryTimeoutMillis);
+        DashboardDto dashboard = new DashboardDto();
+        dashboard.setRevenueDays(days);
+        dashboard.setCarsByStatus(await(CARS_BY_STATUS, carsByStatus, deadline, dashboard));
+        dashboard.setLeasesByStatus(await(LEASES_BY_STATUS, leasesByStatus, deadline, dashboard));
+        dashboard.setRevenue(await(REVENUE, revenue, deadline, dashboard));
+        dashboard.setTopOwners(await(TOP_OWNERS, owners, deadline, dashboard));
+        dashboard.setPartial(!dashboard.getUnavailableSections().isEmpty());
+        dashboard.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        
+        meterRegistry.timer("carlease.dashboard.duration", "partial", String.valueOf(dashboard.isPartial()))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return dashboard;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private Map<CarStatus, Long> countCarsByStatus() {
+        Map<CarStatus, Long> counts = new EnumMap<>(CarStatus.class);
+        for (CarStatus status : CarStatus.values()) {
+            counts.put(status, 0L);
+        }
+        shardRouter.scatterGather(shard -> carRepository.countGroupByStatus(), timeoutSeconds)
+                .forEach(row -> counts.merge((CarStatus) row[0], (Long) row[1], Long::sum));
+        return counts;
+    }
+    
+    private Map<LeaseStatus, Long> countLeasesByStatus() {
+        Map<LeaseStatus, Long> counts = new EnumMap<>(LeaseStatus.class);
+        for (LeaseStatus status : LeaseStatus.values()) {
+            counts.put(status, 0L);
+        }
+        shardRouter.scatterGather(shard -> {
+            List<Object[]> rows = new ArrayList<>(leaseRepository.countGroupByStatus());
+            rows.addAll(archivedLeaseRepository.countGroupByStatus());
+            return rows;
+        }, timeoutSeconds).forEach(row -> counts.merge((LeaseStatus) row[0], (Long) row[1], Long::sum));
+        return counts;
+    }
+    
+    private BigDecimal sumRevenue(LocalDateTime since) {
+        return shardRouter.scatterGather(shard -> List.of(
+                        leaseRepository.sumRevenueSince(since),
+                        archivedLeaseRepository.sumRevenueSince(since)), timeoutSeconds).stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+    
+    private List<OwnerRevenueDto> findTopOwners(LocalDateTime since, int limit) {
+        Map<Long, OwnerRevenueDto> byOwner = new HashMap<>();
+        shardRouter.scatterGather(shard -> {
+            List<Object[]> rows = new ArrayList<>(leaseRepository.sumRevenueByOwnerSince(since));
+            rows.addAll(archivedLeaseRepository.sumRevenueByOwnerSince(since));
+            return rows;
+        }, timeoutSeconds).forEach(row -> byOwner.merge((Long) row[0],
+                new OwnerRevenueDto((Long) row[0], null, (BigDecimal) row[1], (Long) row[2]),
+                (a, b) -> new OwnerRevenueDto(a.getOwnerId(), null,
+                        a.getRevenue().add(b.getRevenue()), a.getCompletedLeases() + b.getCompletedLeases())));
+        
+        List<OwnerRevenueDto> top = byOwner.values().stream()
+                .sorted(Comparator.comparing(OwnerRevenueDto::getRevenue).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+        Map<Long, String> names = userRepository.findAllById(top.stream().map(OwnerRevenueDto::getOwnerId).toList()).stream()
+                .collect(Collectors.toMap(User::getId, User::getFullName));
+        top.forEach(owner -> owner.setOwnerName(names.get(owner.getOwnerId())));
+        return top;
+    }
+    
+    private <T> Future<T> submit(String section, Supplier<T> query) {
+        try {
+            return executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return readOnlyTransaction.execute(status -> query.get());
+                } finally {
+                    meterRegistry.timer("carlease.dashboard.subquery", "section", section)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private <T> T await(String section, Future<T> future, long deadline, DashboardDto dashboard) {
+        String reason;
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            reason = "timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            reason = "interrupted";
+        } catch (ExecutionException e) {
+            reason = e.getCause() instanceof RejectedExecutionException ? "rejected" : "error";
+            log.warn("Dashboard section {} failed: {}", section, e.getCause().getMessage());
+        }
+        meterRegistry.counter("carlease.dashboard.unavailable", "section", section, "reason", reason).increment();
+        log.warn("Dashboard section {} unavailable ({})", section, reason);
+        dashboard.getUnavailableSections().add(section);
+        return null;
+    }
+}
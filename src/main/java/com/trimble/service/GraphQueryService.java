@@ -0,0 +1,95 @@
+package com.trimble.service;
+
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.Car;
+import com.trimble.entity.Customer;
+import com.trimble.entity.User;
+import com.trimble.mapper.LeaseMapper;
+import com.trimble.repository.ArchivedLeaseRepository;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.CustomerRepository;
+import com.trimble.repository.LeaseRepository;
+import com.trimble.repository.UserRepository;
+import com.trimble.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Batched reads behind the GraphQL endpoint
+ * Each method loads one kind of entity for many IDs with a single IN query per shard, and leaves
+ * lazy associations uninitialized: the car owner and the lease's car and customer are only read
+ * when a query selects them, through another batched call.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphQueryService {
+    
+    private final CarRepository carRepository;
+    private final CustomerRepository customerRepository;
+    private final UserRepository userRepository;
+    private final LeaseRepository leaseRepository;
+    private final ArchivedLeaseRepository archivedLeaseRepository;
+    private final LeaseMapper leaseMapper;
+    private final ShardRouter shardRouter;
+    
+    @Transactional(readOnly = true)
+    public Optional<Car> findCar(Long carId) {
+        shardRouter.bindToId(carId);
+        return carRepository.findById(carId);
+    }
+    
+    /**
+     * Cars by ID, in no particular order; unknown IDs are left out
+     */
+    @Transactional(readOnly = true)
+    public List<Car> findCars(Collection<Long> carIds) {
+        log.debug("Loading {} cars", carIds.size());
+        Map<Integer, List<Long>> idsByShard = shardRouter.groupByShard(new LinkedHashSet<>(carIds));
+        return shardRouter.scatterGather(shard -> idsByShard.containsKey(shard)
+                ? carRepository.findAllById(idsByShard.get(shard))
+                : List.of());
+    }
+    
+    /**
+     * Customers by ID with their users, which are always loaded with them
+     */
+    @Transactional(readOnly = true)
+    public List<Customer> findCustomers(Collection<Long> customerIds) {
+        log.debug("Loading {} customers", customerIds.size());
+        return customerRepository.findAllWithUserByIdIn(customerIds);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<User> findUsers(Collection<Long> userIds) {
+        log.debug("Loading {} users", userIds.size());
+        return userRepository.findAllById(userIds);
+    }
+    
+    /**
+     * Lease histories of several customers, each archived leases first as in the REST history
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<LeaseDto>> findLeaseHistories(Collection<Long> customerIds) {
+        log.debug("Loading lease histories of {} customers", customerIds.size());
+        List<LeaseDto> archived = shardRouter.scatterGather(shard -> archivedLeaseRepository.findByCustomerIdInOrderById(customerIds).stream()
+                .map(leaseMapper::toDtoWithoutDetails)
+                .collect(Collectors.toList()));
+        List<LeaseDto> leases = shardRouter.scatterGather(shard -> leaseRepository.findByCustomerIdIn(customerIds).stream()
+                .map(leaseMapper::toDtoWithoutDetails)
+                .collect(Collectors.toList()));
+        return Stream.concat(archived.stream(), leases.stream())
+                .collect(Collectors.groupingBy(LeaseDto::getCustomerId, LinkedHashMap::new, Collectors.toList()));
+    }
+}
@@ -0,0 +1,186 @@
+package com.trimble.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.trimble.exception.IdempotencyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Service for Idempotency-Key handling on write endpoints
+ * Completed responses are kept in a bounded store with TTL eviction; a retry that arrives
+ * while the original request is still running waits for its result instead of re-executing it.
+ * Keys are scoped by principal, or by remote address for anonymous callers, and a key is bound
+ * to the SHA-256 of the canonical JSON of its request.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long waitTimeoutMillis;
+    private final Counter replayed;
+    private final ObjectMapper canonicalMapper;
+    
+    public IdempotencyService(MeterRegistry meterRegistry,
+                              ObjectMapper objectMapper,
+                              @Value("${carlease.idempotency.ttl-seconds:3600}") long ttlSeconds,
+                              @Value("${carlease.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${carlease.idempotency.wait-timeout-ms:30000}") long waitTimeoutMillis) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        // Sorted properties and map keys, so equal requests always serialize to the same bytes
+        ObjectMapper canonical = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        canonical.setConfig(canonical.getSerializationConfig().with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY));
+        this.canonicalMapper = canonical;
+        this.replayed = Counter.builder("carlease.idempotency.replayed")
+                .description("Requests answered from the idempotency store")
+                .register(meterRegistry);
+        meterRegistry.gauge("carlease.idempotency.entries", entries, ConcurrentHashMap::size);
+    }
+    
+    /**
+     * Execute a write at most once per idempotency key
+     * Without a key the action simply runs. Failed actions are not stored, so they can be retried.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String operation, String idempotencyKey, Object request,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        
+        long now = System.nanoTime();
+        evict(now);
+        
+        String key = operation + "|" + currentClient() + "|" + idempotencyKey;
+        byte[] fingerprint = fingerprint(request);
+        Entry created = new Entry(key, fingerprint);
+        Entry existing = entries.putIfAbsent(key, created);
+        
+        if (existing == null) {
+            try {
+                ResponseEntity<T> response = action.get();
+                // Only completed entries can expire or be evicted, so a retry never runs alongside the original
+                created.expiresAt = System.nanoTime() + ttlNanos;
+                evictionQueue.add(created);
+                created.result.complete(response);
+                return response;
+            } catch (RuntimeException | Error e) {
+                entries.remove(key, created);
+                created.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        
+        if (!Arrays.equals(existing.fingerprint, fingerprint)) {
+            throw new IdempotencyException("Idempotency key " + idempotencyKey + " was already used with a different request");
+        }
+        
+        log.info("Replaying {} response for idempotency key: {}", operation, idempotencyKey);
+        ResponseEntity<T> response = (ResponseEntity<T>) await(existing, idempotencyKey);
+        replayed.increment();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+    
+    private ResponseEntity<?> await(Entry entry, String idempotencyKey) {
+        try {
+            return entry.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IdempotencyException("Original request failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyException("Request with idempotency key " + idempotencyKey + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+    
+    /**
+     * Drop expired entries, then the oldest ones while the store is over capacity
+     * Entries share one TTL and are queued when they complete, so queue order is also expiry order.
+     * Requests still in flight are not queued and stay in the store.
+     */
+    private void evict(long now) {
+        Entry head;
+        while ((head = evictionQueue.peek()) != null
+                && (head.expiresAt - now <= 0 || entries.size() > maxEntries)) {
+            if (evictionQueue.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+    
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonicalMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint idempotent request", e);
+        }
+    }
+    
+    /**
+     * The authenticated principal, or the remote address of an anonymous caller
+     */
+    private String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return "anonymous:" + servletAttributes.getRequest().getRemoteAddr();
+        }
+        return "anonymous";
+    }
+    
+    private static class Entry {
+        
+        private final String key;
+        private final byte[] fingerprint;
+        private volatile long expiresAt;
+        private final CompletableFuture<ResponseEntity<?>> result = new CompletableFuture<>();
+        
+        Entry(String key, byte[] fingerprint) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
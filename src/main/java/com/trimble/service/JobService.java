@@ -0,0 +1,363 @@
+package com.trimble.service;
+
+import com.trimble.booking.BookingEngine;
+import com.trimble.dto.JobDto;
+import com.trimble.entity.Job;
+import com.trimble.enums.JobStatus;
+import com.trimble.enums.JobType;
+import com.trimble.exception.JobException;
+import com.trimble.exception.JobNotFoundException;
+import com.trimble.repository.JobRepository;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for asynchronous admin jobs
+ * Jobs run on a bounded worker pool in chunks; each chunk and its checkpoint commit in one
+ * transaction, so a job interrupted by a restart resumes after the last committed chunk
+ */
+@Service
+@Slf4j
+@Transactional
+public class JobService {
+    
+    private static final EnumSet<JobStatus> UNFINISHED = EnumSet.of(JobStatus.PENDING, JobStatus.RUNNING);
+    
+    private final JobRepository jobRepository;
+    private final CarService carService;
+    private final LeaseService leaseService;
+    private final BookingEngine bookingEngine;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final int chunkSize;
+    
+    public JobService(JobRepository jobRepository,
+                      CarService carService,
+                      LeaseService leaseService,
+                      BookingEngine bookingEngine,
+                      ShardRouter shardRouter,
+                      PlatformTransactionManager transactionManager,
+                      MeterRegistry meterRegistry,
+                      @Value("${carlease.jobs.workers:2}") int workers,
+                      @Value("${carlease.jobs.queue-capacity:50}") int queueCapacity,
+                      @Value("${carlease.jobs.chunk-size:100}") int chunkSize) {
+        this.jobRepository = jobRepository;
+        this.carService = carService;
+        this.leaseService = leaseService;
+        this.bookingEngine = bookingEngine;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "job-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        meterRegistry.gauge("carlease.jobs.queued", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("carlease.jobs.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+    
+    /**
+     * Submit a new job; it is queued once the submitting transaction commits
+     */
+    public JobDto submitJob(JobDto jobDto) {
+        log.info("Submitting {} job for {} items", jobDto.getType(), jobDto.getTargetIds().size());
+        
+        if (jobDto.getType() == JobType.CAR_STATUS_UPDATE && jobDto.getCarStatus() == null) {
+            throw new JobException("Car status is required for a car status update job");
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new JobException("Job queue is full, try again later");
+        }
+        
+        Job job = new Job();
+        job.setType(jobDto.getType());
+        job.setStatus(JobStatus.PENDING);
+        job.setCarStatus(jobDto.getCarStatus());
+        job.setTargetIds(jobDto.getTargetIds().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+        job.setTotalItems(jobDto.getTargetIds().size());
+        
+        Job savedJob = jobRepository.save(job);
+        enqueueAfterCommit(savedJob.getId());
+        
+        log.info("Job submitted with ID: {}", savedJob.getId());
+        return convertToDto(savedJob);
+    }
+    
+    /**
+     * Get job by ID
+     */
+    @Transactional(readOnly = true)
+    public JobDto getJobById(Long jobId) {
+        return convertToDto(findJob(jobId));
+    }
+    
+    /**
+     * Get all jobs
+     */
+    @Transactional(readOnly = true)
+    public List<JobDto> getAllJobs() {
+        return jobRepository.findAll().stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Cancel a pending or running job
+     * A running job stops at its next chunk boundary; the chunk in progress is rolled back
+     */
+    public JobDto cancelJob(Long jobId) {
+        log.info("Cancelling job with ID: {}", jobId);
+        
+        findJob(jobId);
+        int updated = jobRepository.finish(jobId, UNFINISHED, JobStatus.CANCELLED, null, LocalDateTime.now());
+        if (updated == 0) {
+            throw new JobException("Job " + jobId + " has already finished");
+        }
+        
+        return convertToDto(findJob(jobId));
+    }
+    
+    /**
+     * Re-queue jobs that were pending or running when the application last stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void resumeUnfinishedJobs() {
+        List<Job> jobs = jobRepository.findByStatusIn(UNFINISHED);
+        for (Job job : jobs) {
+            log.info("Resuming job {} from checkpoint {}/{}", job.getId(), job.getProcessedItems(), job.getTotalItems());
+            enqueue(job.getId());
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private Job findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new JobNotFoundException("Job not found with ID: " + jobId));
+    }
+    
+    private void enqueueAfterCommit(Long jobId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(jobId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(jobId);
+            }
+        });
+    }
+    
+    /**
+     * Hand a job to the workers, or fail it if the queue filled up since it was submitted
+     * A job left pending would only be picked up by a restart, which the in-memory database does not survive
+     */
+    private void enqueue(Long jobId) {
+        try {
+            executor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            log.warn("Job queue is full; failing job {}", jobId);
+            newTransaction.execute(status -> jobRepository.finish(jobId, UNFINISHED, JobStatus.FAILED,
+                    "Job queue was full, submit the job again", LocalDateTime.now()));
+        }
+    }
+    
+    private void run(Long jobId) {
+        Job job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || transactionTemplate.execute(status -> jobRepository.markRunning(jobId, LocalDateTime.now())) == 0) {
+            return;
+        }
+        
+        String type = job.getType().name();
+        Counter processedCounter = meterRegistry.counter("carlease.jobs.items.processed", "type", type);
+        Counter failedCounter = meterRegistry.counter("carlease.jobs.items.failed", "type", type);
+        Timer chunkTimer = meterRegistry.timer("carlease.jobs.chunk", "type", type);
+        
+        List<Long> ids = Arrays.stream(job.getTargetIds().split(","))
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+        int processed = job.getProcessedItems();
+        int failed = job.getFailedItems();
+        
+        try {
+            while (processed < ids.size()) {
+                int end = Math.min(processed + chunkSize, ids.size());
+                List<Long> chunk = ids.subList(processed, end);
+                long start = System.nanoTime();
+                
+                int chunkFailures = runChunk(job, chunk, end, failed);
+                if (chunkFailures < 0) {
+                    log.info("Job {} was cancelled at {}/{}", jobId, processed, ids.size());
+                    return;
+                }
+                
+                chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                processedCounter.increment(chunk.size());
+                failedCounter.increment(chunkFailures);
+                failed += chunkFailures;
+                processed = end;
+            }
+            
+            transactionTemplate.execute(status ->
+                    jobRepository.finish(jobId, EnumSet.of(JobStatus.RUNNING), JobStatus.COMPLETED, null, LocalDateTime.now()));
+            log.info("Job {} completed: {} items, {} failed", jobId, processed, failed);
+        } catch (RuntimeException e) {
+            log.error("Job {} failed: {}", jobId, e.getMessage(), e);
+            transactionTemplate.execute(status ->
+                    jobRepository.finish(jobId, EnumSet.of(JobStatus.RUNNING), JobStatus.FAILED, e.getMessage(), LocalDateTime.now()));
+        }
+    }
+    
+    /**
+     * Process one chunk and advance the checkpoint in the same transaction
+     * If any item fails, the chunk is replayed item by item so good items still commit.
+     * With sharding, items may live on other shards than the jobs table, so they always run one by one.
+     * So do lease terminations taken by the booking engine, which a rolled back chunk cannot undo.
+     * A replay advances the checkpoint after every item, so a restart neither repeats items nor
+     * counts their failures twice, and a cancellation stops it at the next item.
+     * @return the number of failed items, or -1 if the job was cancelled
+     */
+    private int runChunk(Job job, List<Long> chunk, int checkpoint, int failedSoFar) {
+        boolean decidedByEngine = job.getType() == JobType.LEASE_TERMINATION && bookingEngine.isEnabled();
+        if (!shardRouter.isSharded() && !decidedByEngine) {
+            try {
+                Boolean advanced = transactionTemplate.execute(status -> {
+                    chunk.forEach(id -> processItem(job, id));
+                    if (jobRepository.advanceCheckpoint(job.getId(), checkpoint, failedSoFar) == 0) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    return true;
+                });
+                return Boolean.TRUE.equals(advanced) ? 0 : -1;
+            } catch (RuntimeException e) {
+                log.warn("Chunk of job {} failed ({}); retrying item by item", job.getId(), e.getMessage());
+            }
+        }
+        
+        // Items on another shard, or decided by the engine, cannot commit with the checkpoint; a
+        // restart between the two repeats that single item
+        boolean checkpointSeparately = shardRouter.isSharded() || decidedByEngine;
+        int failures = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            Long id = chunk.get(i);
+            int itemCheckpoint = checkpoint - chunk.size() + i + 1;
+            int failedBefore = failedSoFar + failures;
+            boolean advanced;
+            try {
+                advanced = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    processItem(job, id);
+                    if (checkpointSeparately) {
+                        return true;
+                    }
+                    if (jobRepository.advanceCheckpoint(job.getId(), itemCheckpoint, failedBefore) == 0) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    return true;
+                }));
+                if (advanced && checkpointSeparately) {
+                    advanced = advanceCheckpoint(job.getId(), itemCheckpoint, failedBefore);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Job {} item {} failed: {}", job.getId(), id, e.getMessage());
+                failures++;
+                advanced = advanceCheckpoint(job.getId(), itemCheckpoint, failedSoFar + failures);
+            }
+            if (!advanced) {
+                return -1;
+            }
+        }
+        return failures;
+    }
+    
+    /**
+     * @return false if the job is no longer running, i.e. it was cancelled
+     */
+    private boolean advanceCheckpoint(Long jobId, int processed, int failed) {
+        Integer updated = transactionTemplate.execute(status -> jobRepository.advanceCheckpoint(jobId, processed, failed));
+        return updated != null && updated > 0;
+    }
+    
+    private void processItem(Job job, Long id) {
+        switch (job.getType()) {
+            case CAR_STATUS_UPDATE -> carService.updateCarStatus(id, job.getCarStatus());
+            case LEASE_TERMINATION -> {
+                if (bookingEngine.isEnabled()) {
+                    bookingEngine.endLease(id);
+                } else {
+                    leaseService.endLease(id);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Convert Job entity to JobDto
+     */
+    private JobDto convertToDto(Job job) {
+        JobDto dto = new JobDto();
+        dto.setId(job.getId());
+        dto.setType(job.getType());
+        dto.setStatus(job.getStatus());
+        dto.setCarStatus(job.getCarStatus());
+        dto.setTotalItems(job.getTotalItems());
+        dto.setProcessedItems(job.getProcessedItems());
+        dto.setFailedItems(job.getFailedItems());
+        dto.setProgressPercent(job.getTotalItems() == 0 ? 100.0 : 100.0 * job.getProcessedItems() / job.getTotalItems());
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getCompletedAt() != null ? job.getCompletedAt() : LocalDateTime.now();
+            long millis = Math.max(1, Duration.between(job.getStartedAt(), end).toMillis());
+            dto.setItemsPerSecond(job.getProcessedItems() * 1000.0 / millis);
+        }
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setCompletedAt(job.getCompletedAt());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,111 @@
+package com.trimble.service;
+
+import com.trimble.repository.ArchivedLeaseRepository;
+import com.trimble.repository.LeaseRepository;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service class for lease archival
+ * Moves completed and cancelled leases older than the retention period from the hot leases
+ * table into lease_archive, so the per-booking active lease queries scan a small table
+ */
+@Service
+@Slf4j
+public class LeaseArchiveService {
+    
+    private final LeaseRepository leaseRepository;
+    private final ArchivedLeaseRepository archivedLeaseRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter archivedCounter;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int batchSize;
+    
+    public LeaseArchiveService(LeaseRepository leaseRepository,
+                               ArchivedLeaseRepository archivedLeaseRepository,
+                               ShardRouter shardRouter,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${carlease.archive.enabled:true}") boolean enabled,
+                               @Value("${carlease.archive.retention-days:90}") int retentionDays,
+                               @Value("${carlease.archive.batch-size:1000}") int batchSize) {
+        this.leaseRepository = leaseRepository;
+        this.archivedLeaseRepository = archivedLeaseRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivedCounter = meterRegistry.counter("carlease.archive.leases");
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Scheduled archival run
+     */
+    @Scheduled(cron = "${carlease.archive.cron:0 0 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveLeases();
+        }
+    }
+    
+    /**
+     * Archive finished leases older than the retention period, on every shard
+     * Each batch is copied and deleted in one transaction, so a lease is always in exactly one tier
+     * @return the number of leases archived
+     */
+    public int archiveLeases() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Lease archival already running");
+            return 0;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            log.info("Archiving leases finished before {}", cutoff);
+            
+            int total = 0;
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                total += shardRouter.callOnShard(shard, () -> archiveShard(cutoff));
+            }
+            
+            log.info("Archived {} leases", total);
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private int archiveShard(LocalDateTime cutoff) {
+        int total = 0;
+        while (true) {
+            Integer archived = transactionTemplate.execute(status -> {
+                List<Long> ids = leaseRepository.findArchivableIds(cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                archivedLeaseRepository.copyFromLeases(ids, LocalDateTime.now());
+                return leaseRepository.deleteByIdIn(ids);
+            });
+            if (archived == null || archived == 0) {
+                return total;
+            }
+            archivedCounter.increment(archived);
+            total += archived;
+        }
+    }
+}
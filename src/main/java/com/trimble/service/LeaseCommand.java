@@ -0,0 +1,50 @@
+package com.trimble.service;
+
+import com.trimble.dto.LeaseDto;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A lease start or end waiting in a write batch, with the outcome it got once applied
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class LeaseCommand {
+    
+    public enum Type {
+        START,
+        END
+    }
+    
+    private final Type type;
+    private final LeaseDto lease;
+    private final Long leaseId;
+    private LeaseDto result;
+    private RuntimeException failure;
+    
+    public static LeaseCommand start(LeaseDto lease) {
+        return new LeaseCommand(Type.START, lease, null);
+    }
+    
+    public static LeaseCommand end(Long leaseId) {
+        return new LeaseCommand(Type.END, null, leaseId);
+    }
+    
+    /**
+     * ID that decides the shard the command writes to: the car for a start, the lease for an end
+     */
+    public Long getShardKey() {
+        return type == Type.START ? lease.getCarId() : leaseId;
+    }
+    
+    void succeeded(LeaseDto result) {
+        this.result = result;
+        this.failure = null;
+    }
+    
+    void failed(RuntimeException failure) {
+        this.result = null;
+        this.failure = failure;
+    }
+}
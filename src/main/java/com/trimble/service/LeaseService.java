@@ -1,27 +1,56 @@
 package com.trimble.service;
 
+import com.trimble.dto.BatchItem;
+import com.trimble.dto.GroupLeaseRequest;
+import com.trimble.dto.GroupLeaseResultDto;
 import com.trimble.dto.LeaseDto;
+import com.trimble.entity.ArchivedLease;
 import com.trimble.entity.Car;
 import com.trimble.entity.Customer;
 import com.trimble.entity.Lease;
 import com.trimble.enums.CarStatus;
+import com.trimble.enums.GroupBookingMode;
 import com.trimble.enums.LeaseStatus;
+import com.trimble.event.CarStatusChangedEvent;
 import com.trimble.exception.CarNotFoundException;
 import com.trimble.exception.CustomerNotFoundException;
 import com.trimble.exception.LeaseException;
+import com.trimble.mapper.FieldSets;
+import com.trimble.mapper.LeaseMapper;
+import com.trimble.registry.CarStatusRegistry;
+import com.trimble.repository.ArchivedLeaseRepository;
 import com.trimble.repository.CarRepository;
 import com.trimble.repository.CustomerRepository;
+import com.trimble.repository.FieldProjectionRepository;
+import com.trimble.repository.HomeShardKeyRepository;
 import com.trimble.repository.LeaseRepository;
+import com.trimble.shard.ShardRouter;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Savepoint;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for Lease operations
@@ -35,6 +64,24 @@ public class LeaseService {
     private final LeaseRepository leaseRepository;
     private final CarRepository carRepository;
     private final CustomerRepository customerRepository;
+    private final HomeShardKeyRepository homeShardKeyRepository;
+    private final ArchivedLeaseRepository archivedLeaseRepository;
+    private final LeaseMapper leaseMapper;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final CarStatusRegistry carStatusRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    
+    @Value("${carlease.lease.max-active-per-customer:2}")
+    private int defaultMaxActiveLeases;
+    
+    @Value("${carlease.group-booking.default-mode:ALL_OR_NOTHING}")
+    private GroupBookingMode defaultGroupBookingMode;
+    
+    @Value("${carlease.group-booking.max-cars:50}")
+    private int maxGroupBookingCars;
     
     /**
      * Start a new lease
@@ -42,22 +89,39 @@ public class LeaseService {
     public LeaseDto startLease(LeaseDto leaseDto) {
         log.info("Starting new lease for car ID: {} and customer ID: {}", 
                 leaseDto.getCarId(), leaseDto.getCustomerId());
+        // The lease is written to the shard of its car, next to the car row it locks
+        shardRouter.bindToId(leaseDto.getCarId());
         
-        // Validate customer lease limit (max 2 active leases)
-        long activeLeases = leaseRepository.countActiveLeasesByCustomerId(leaseDto.getCustomerId());
-        if (activeLeases >= 2) {
-            throw new LeaseException("Customer cannot have more than 2 active leases");
+        // Turn down cars the registry knows are taken before any query; the rest are decided by the
+        // database. The claim is undone if this transaction rolls back
+        if (!carStatusRegistry.tryClaimForLease(leaseDto.getCarId())) {
+            throw new LeaseException("Car is not available for lease");
+        }
+        
+        try {
+            return createLease(leaseDto);
+        } catch (RuntimeException e) {
+            // Hand the claim back at once, a rollback to a savepoint of a batch would not
+            carStatusRegistry.releaseClaim(leaseDto.getCarId());
+            throw e;
+        }
+    }
+    
+    private LeaseDto createLease(LeaseDto leaseDto) {
+        // Claim the car with a conditional update, so concurrent bookings on any node cannot both win;
+        // a car held by this customer, or whose hold has lapsed, is taken over from the hold the same way
+        LocalDateTime now = LocalDateTime.now();
+        if (carRepository.claimForLease(leaseDto.getCarId(), leaseDto.getCustomerId(), now) == 0) {
+            if (!carRepository.existsById(leaseDto.getCarId())) {
+                throw new CarNotFoundException("Car not found with ID: " + leaseDto.getCarId());
+            }
+            throw new LeaseException("Car is not available for lease");
         }
         
         // Get car
         Car car = carRepository.findById(leaseDto.getCarId())
                 .orElseThrow(() -> new CarNotFoundException("Car not found with ID: " + leaseDto.getCarId()));
         
-        // Check if car is available
-        if (car.getStatus() != CarStatus.AVAILABLE) {
-            throw new LeaseException("Car is not available for lease");
-        }
-        
         // Get customer
         Customer customer = customerRepository.findById(leaseDto.getCustomerId())
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + leaseDto.getCustomerId()));
@@ -72,13 +136,103 @@ public class LeaseService {
         
         Lease savedLease = leaseRepository.save(lease);
         
-        // Update car status
-        car.setStatus(CarStatus.ON_LEASE);
-        carRepository.save(car);
+        // Reserve one of the customer's active lease slots, counted on the home shard for all shards.
+        // Taken last, after the car, as every booking does; nothing after it can fail a check, so a
+        // batch rolling this lease back to its savepoint never leaves the slot taken on the home shard
+        if (!homeShardKeyRepository.reserveActiveLease(customer.getId(), defaultMaxActiveLeases)) {
+            int limit = customer.getMaxActiveLeases() != null ? customer.getMaxActiveLeases() : defaultMaxActiveLeases;
+            throw new LeaseException("Customer cannot have more than " + limit + " active leases");
+        }
+        eventPublisher.publishEvent(new CarStatusChangedEvent(List.of(car.getId()), CarStatus.ON_LEASE));
         
         log.info("Lease started successfully with ID: {}", savedLease.getId());
         
-        return convertToDto(savedLease);
+        return leaseMapper.toDto(savedLease);
+    }
+    
+    /**
+     * Lease several cars to one customer in one transaction
+     * The cars are locked first in ID order and then the customer's counter on the home shard,
+     * the order the single-lease path takes them too, so overlapping bookings wait for each other
+     * instead of deadlocking.
+     * All cars are validated from the one locking query, then put on lease with one UPDATE and
+     * given their leases with one INSERT ... SELECT. In ALL_OR_NOTHING mode any car that cannot
+     * be booked fails the whole request; in BEST_EFFORT mode it is reported and left out.
+     */
+    public GroupLeaseResultDto startGroupLease(GroupLeaseRequest request) {
+        GroupBookingMode mode = request.getMode() != null ? request.getMode() : defaultGroupBookingMode;
+        List<Long> carIds = new ArrayList<>(new TreeSet<>(request.getCarIds()));
+        log.info("Starting {} group lease of {} cars for customer ID: {}", mode, carIds.size(), request.getCustomerId());
+        
+        if (carIds.size() > maxGroupBookingCars) {
+            throw new LeaseException("At most " + maxGroupBookingCars + " cars can be leased at once");
+        }
+        if (shardRouter.groupByShard(carIds).size() > 1) {
+            throw new LeaseException("Cars of a group lease must all be on the same shard");
+        }
+        shardRouter.bindToId(carIds.get(0));
+        
+        LocalDateTime now = LocalDateTime.now();
+        Customer customer = customerRepository.findById(request.getCustomerId())
+                .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + request.getCustomerId()));
+        List<Car> cars = carRepository.lockAllByIdIn(carIds);
+        Integer activeLeases = homeShardKeyRepository.lockActiveLeaseCount(customer.getId());
+        if (activeLeases == null) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + request.getCustomerId());
+        }
+        
+        Set<Long> found = cars.stream().map(Car::getId).collect(Collectors.toSet());
+        List<Long> notFound = carIds.stream().filter(id -> !found.contains(id)).collect(Collectors.toList());
+        List<Long> bookable = new ArrayList<>();
+        List<Long> unavailable = new ArrayList<>();
+        for (Car car : cars) {
+            if (isBookableBy(car, customer.getId(), now)) {
+                bookable.add(car.getId());
+            } else {
+                unavailable.add(car.getId());
+            }
+        }
+        int limit = customer.getMaxActiveLeases() != null ? customer.getMaxActiveLeases() : defaultMaxActiveLeases;
+        int freeSlots = Math.max(limit - activeLeases, 0);
+        List<Long> overLimit = new ArrayList<>(bookable.subList(Math.min(freeSlots, bookable.size()), bookable.size()));
+        bookable.removeAll(overLimit);
+        
+        if (mode == GroupBookingMode.ALL_OR_NOTHING) {
+            if (!notFound.isEmpty()) {
+                throw new CarNotFoundException("Cars not found with IDs: " + notFound);
+            }
+            if (!unavailable.isEmpty()) {
+                throw new LeaseException("Cars are not available for lease: " + unavailable);
+            }
+            if (!overLimit.isEmpty()) {
+                throw new LeaseException("Customer cannot have more than " + limit + " active leases");
+            }
+        }
+        
+        List<LeaseDto> leases = List.of();
+        if (!bookable.isEmpty()) {
+            carRepository.putOnLease(bookable, now);
+            homeShardKeyRepository.addActiveLeases(customer.getId(), bookable.size());
+            LocalDateTime startDate = request.getStartDate() != null ? request.getStartDate() : now;
+            leaseRepository.insertLeases(bookable, customer.getId(), startDate, BigDecimal.ZERO, LeaseStatus.ACTIVE, now);
+            leases = leaseMapper.toDtos(leaseRepository.findActiveWithDetailsByCarIdIn(bookable));
+            eventPublisher.publishEvent(new CarStatusChangedEvent(bookable, CarStatus.ON_LEASE));
+        }
+        
+        log.info("Group lease for customer ID: {} booked {} cars; {} unavailable, {} not found, {} over the limit",
+                customer.getId(), bookable.size(), unavailable.size(), notFound.size(), overLimit.size());
+        return new GroupLeaseResultDto(mode, leases, unavailable, notFound, overLimit);
+    }
+    
+    /**
+     * An available car, or one held by this customer or whose hold has lapsed; as CarRepository.claimForLease
+     */
+    private static boolean isBookableBy(Car car, Long customerId, LocalDateTime now) {
+        if (car.getStatus() == CarStatus.AVAILABLE) {
+            return true;
+        }
+        return car.getStatus() == CarStatus.HELD
+                && ((car.getHeldUntil() != null && !car.getHeldUntil().isAfter(now)) || customerId.equals(car.getHeldByCustomerId()));
     }
     
     /**
@@ -86,6 +240,7 @@ public class LeaseService {
      */
     public LeaseDto endLease(Long leaseId) {
         log.info("Ending lease with ID: {}", leaseId);
+        shardRouter.bindToId(leaseId);
         
         Lease lease = leaseRepository.findById(leaseId)
                 .orElseThrow(() -> new LeaseException("Lease not found with ID: " + leaseId));
@@ -101,25 +256,61 @@ public class LeaseService {
         
         BigDecimal totalAmount = lease.getCar().getDailyRate().multiply(BigDecimal.valueOf(days));
         
-        // Update lease
-        lease.setEndDate(endDate);
-        lease.setTotalAmount(totalAmount);
-        lease.setStatus(LeaseStatus.COMPLETED);
-        
-        Lease updatedLease = leaseRepository.save(lease);
+        // Complete the lease only if it is still active, so a concurrent end cannot run twice
+        if (leaseRepository.completeIfActive(leaseId, endDate, totalAmount) == 0) {
+            throw new LeaseException("Lease is not active");
+        }
         
         // Update car status to available
         Car car = lease.getCar();
         car.setStatus(CarStatus.AVAILABLE);
         carRepository.save(car);
+        entityManager.flush();
+        // The customer's slot last, after the car, in the order bookings take them
+        homeShardKeyRepository.releaseActiveLease(lease.getCustomer().getId());
+        eventPublisher.publishEvent(new CarStatusChangedEvent(List.of(car.getId()), CarStatus.AVAILABLE));
         
         log.info("Lease ended successfully. Total amount: {}", totalAmount);
         
-        return convertToDto(updatedLease);
+        // The UPDATE above already wrote the lease; the loaded entity is left as read, so it is not written again
+        LeaseDto ended = leaseMapper.toDto(lease);
+        ended.setEndDate(endDate);
+        ended.setTotalAmount(totalAmount);
+        ended.setStatus(LeaseStatus.COMPLETED);
+        return ended;
+    }
+    
+    /**
+     * Apply a batch of lease commands in the current transaction, all on one shard
+     * Each command runs behind its own savepoint: one that fails a check is rolled back alone
+     * and keeps its exception, while the others commit together. Any other failure ends the
+     * whole transaction.
+     */
+    public void applyBatch(List<LeaseCommand> commands) {
+        // Before the first statement, even the savepoint needs the shard's connection
+        shardRouter.bindToId(commands.get(0).getShardKey());
+        Session session = entityManager.unwrap(Session.class);
+        for (LeaseCommand command : commands) {
+            // Write out and forget the previous command's entities, so a rollback to this savepoint
+            // cannot undo them and this command does not see stale copies
+            entityManager.flush();
+            entityManager.clear();
+            Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+            try {
+                command.succeeded(command.getType() == LeaseCommand.Type.START
+                        ? startLease(command.getLease())
+                        : endLease(command.getLeaseId()));
+                session.doWork(connection -> connection.releaseSavepoint(savepoint));
+            } catch (LeaseException | CarNotFoundException | CustomerNotFoundException e) {
+                session.doWork(connection -> connection.rollback(savepoint));
+                command.failed(e);
+            }
+        }
+        entityManager.flush();
     }
     
     /**
-     * Get lease history for a customer
+     * Get lease history for a customer, archived leases first
      */
     @Transactional(readOnly = true)
     public List<LeaseDto> getLeaseHistoryByCustomer(Long customerId) {
@@ -128,25 +319,28 @@ public class LeaseService {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + customerId));
         
-        List<Lease> leases = leaseRepository.findByCustomer(customer);
-        return leases.stream()
-                .map(this::convertToDto)
+        List<LeaseDto> archived = shardRouter.scatterGather(shard -> leaseMapper.archivedToDtos(archivedLeaseRepository.findByCustomerIdOrderById(customerId)));
+        List<LeaseDto> leases = shardRouter.scatterGather(shard -> leaseMapper.toDtos(leaseRepository.findByCustomer(customer)));
+        return Stream.concat(archived.stream(), leases.stream())
                 .collect(Collectors.toList());
     }
     
     /**
-     * Get lease history for a car
+     * Get lease history for a car, archived leases first
      */
     @Transactional(readOnly = true)
     public List<LeaseDto> getLeaseHistoryByCar(Long carId) {
         log.info("Fetching lease history for car: {}", carId);
+        shardRouter.bindToId(carId);
         
         Car car = carRepository.findById(carId)
                 .orElseThrow(() -> new CarNotFoundException("Car not found with ID: " + carId));
         
+        List<ArchivedLease> archived = archivedLeaseRepository.findByCarIdOrderById(carId);
         List<Lease> leases = leaseRepository.findByCar(car);
-        return leases.stream()
-                .map(this::convertToDto)
+        return Stream.concat(
+                        archived.stream().map(leaseMapper::toDto),
+                        leases.stream().map(leaseMapper::toDto))
                 .collect(Collectors.toList());
     }
     
@@ -157,10 +351,73 @@ public class LeaseService {
     public List<LeaseDto> getActiveLeasesByCustomer(Long customerId) {
         log.info("Fetching active leases for customer: {}", customerId);
         
-        List<Lease> leases = leaseRepository.findActiveLeasesByCustomerId(customerId);
-        return leases.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return shardRouter.scatterGather(shard -> leaseMapper.toDtos(leaseRepository.findActiveLeasesByCustomerId(customerId)));
+    }
+    
+    /**
+     * Get several leases by ID with a single query
+     */
+    @Transactional(readOnly = true)
+    public List<BatchItem<LeaseDto>> getLeasesByIds(List<Long> leaseIds) {
+        log.info("Fetching {} leases by ID", leaseIds.size());
+        
+        Map<Integer, List<Long>> idsByShard = shardRouter.groupByShard(new LinkedHashSet<>(leaseIds));
+        Map<Long, LeaseDto> leases = shardRouter.scatterGather(shard -> idsByShard.containsKey(shard)
+                        ? findLeasesByIds(new LinkedHashSet<>(idsByShard.get(shard)))
+                        : List.<LeaseDto>of()).stream()
+                .collect(Collectors.toMap(LeaseDto::getId, Function.identity()));
+        
+        return BatchItem.inRequestOrder(leaseIds, leases);
+    }
+    
+    private List<LeaseDto> findLeasesByIds(Set<Long> ids) {
+        List<LeaseDto> leases = leaseRepository.findAllWithDetailsByIdIn(ids).stream()
+                .map(leaseMapper::toDto)
+                .collect(Collectors.toCollection(ArrayList::new));
+        
+        // Leases missing from the hot table may have been archived
+        leases.forEach(lease -> ids.remove(lease.getId()));
+        if (!ids.isEmpty()) {
+            archivedLeaseRepository.findByIdIn(ids).forEach(archived -> leases.add(leaseMapper.toDto(archived)));
+        }
+        return leases;
+    }
+    
+    /**
+     * Repair drift between Customer.activeLeaseCount on the home shard and the ACTIVE leases on all shards
+     * Each drifting customer is recounted under its row lock, which every lease start and end holds
+     * until it has committed, so a booking in flight is either fully counted or not at all.
+     */
+    @Scheduled(cron = "${carlease.lease.reconcile-cron:0 */15 * * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int reconcileActiveLeaseCounts() {
+        Map<Long, Long> activeLeases = countActiveLeasesByCustomer();
+        int repaired = 0;
+        for (Object[] counter : customerRepository.findActiveLeaseCounts()) {
+            Long customerId = (Long) counter[0];
+            if (((Number) counter[1]).longValue() != activeLeases.getOrDefault(customerId, 0L)) {
+                repaired += transactionTemplate.execute(status -> reconcileActiveLeaseCount(customerId));
+            }
+        }
+        if (repaired > 0) {
+            log.warn("Repaired active lease count of {} customers", repaired);
+        }
+        return repaired;
+    }
+    
+    private Map<Long, Long> countActiveLeasesByCustomer() {
+        return shardRouter.scatterGather(shard -> leaseRepository.countActiveGroupByCustomerId()).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1], Long::sum));
+    }
+    
+    private int reconcileActiveLeaseCount(Long customerId) {
+        if (customerRepository.lockById(customerId).isEmpty()) {
+            return 0;
+        }
+        int active = shardRouter.scatterGather(shard -> List.of(leaseRepository.countActiveLeasesByCustomerId(customerId))).stream()
+                .mapToInt(Long::intValue)
+                .sum();
+        return customerRepository.setActiveLeaseCount(customerId, active);
     }
     
     /**
@@ -170,29 +427,17 @@ public class LeaseService {
     public List<LeaseDto> getAllLeases() {
         log.info("Fetching all leases");
         
-        List<Lease> leases = leaseRepository.findAll();
-        return leases.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return shardRouter.scatterGather(shard -> leaseMapper.toDtos(leaseRepository.findAll()));
     }
     
     /**
-     * Convert Lease entity to LeaseDto
+     * Get the given fields of all leases; car and customer are only joined for carDetails and customerName
      */
-    private LeaseDto convertToDto(Lease lease) {
-        LeaseDto dto = new LeaseDto();
-        dto.setId(lease.getId());
-        dto.setCarId(lease.getCar().getId());
-        dto.setCustomerId(lease.getCustomer().getId());
-        dto.setCarDetails(lease.getCar().getMake() + " " + lease.getCar().getModel() + 
-                         " (" + lease.getCar().getLicensePlate() + ")");
-        dto.setCustomerName(lease.getCustomer().getUser().getFullName());
-        dto.setStartDate(lease.getStartDate());
-        dto.setEndDate(lease.getEndDate());
-        dto.setTotalAmount(lease.getTotalAmount());
-        dto.setStatus(lease.getStatus());
-        dto.setCreatedAt(lease.getCreatedAt());
-        dto.setUpdatedAt(lease.getUpdatedAt());
-        return dto;
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllLeases(List<String> fields) {
+        List<String> selected = FieldSets.LEASES.select(fields);
+        log.info("Fetching fields {} of all leases", selected);
+        
+        return shardRouter.scatterGather(shard -> fieldProjectionRepository.findAll(FieldSets.LEASES, selected));
     }
 }
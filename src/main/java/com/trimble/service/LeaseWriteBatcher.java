@@ -0,0 +1,259 @@
+package com.trimble.service;
+
+import com.trimble.dto.LeaseDto;
+import com.trimble.exception.LeaseException;
+import com.trimble.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for lease starts and ends
+ * Concurrent commands are collected for at most maxDelayMs or maxBatchSize commands and applied
+ * in one transaction per shard, so a burst of bookings pays for one commit instead of one each.
+ * Every caller still gets its own result or its own validation failure. If a batch fails as a
+ * whole, its commands are applied again one by one, as JobService does with failed chunks.
+ * A caller that times out withdraws its command if no batch has taken it yet; otherwise it
+ * waits for the outcome, so a command is never applied behind the back of a caller told it failed.
+ * When disabled, calls go straight to LeaseService.
+ */
+@Service
+@Slf4j
+public class LeaseWriteBatcher {
+    
+    private final LeaseService leaseService;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<Pending> queue;
+    private final Timer commandTimer;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter replayedBatches;
+    private final Thread flusher;
+    private volatile boolean running;
+    
+    public LeaseWriteBatcher(LeaseService leaseService,
+                             ShardRouter shardRouter,
+                             MeterRegistry meterRegistry,
+                             @Value("${carlease.lease-batching.enabled:false}") boolean enabled,
+                             @Value("${carlease.lease-batching.max-batch-size:64}") int maxBatchSize,
+                             @Value("${carlease.lease-batching.max-delay-ms:2}") long maxDelayMillis,
+                             @Value("${carlease.lease-batching.queue-capacity:1024}") int queueCapacity,
+                             @Value("${carlease.lease-batching.timeout-ms:5000}") long timeoutMillis) {
+        this.leaseService = leaseService;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.commandTimer = meterRegistry.timer("carlease.lease-batch.command");
+        this.flushTimer = meterRegistry.timer("carlease.lease-batch.flush");
+        this.batchSizes = meterRegistry.summary("carlease.lease-batch.size");
+        this.replayedBatches = meterRegistry.counter("carlease.lease-batch.replayed");
+        meterRegistry.gauge("carlease.lease-batch.queued", queue, BlockingQueue::size);
+        this.flusher = new Thread(this::run, "lease-batch-flusher");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            running = true;
+            flusher.start();
+        }
+    }
+    
+    public LeaseDto startLease(LeaseDto leaseDto) {
+        return enabled ? submit(LeaseCommand.start(leaseDto)) : leaseService.startLease(leaseDto);
+    }
+    
+    public LeaseDto endLease(Long leaseId) {
+        return enabled ? submit(LeaseCommand.end(leaseId)) : leaseService.endLease(leaseId);
+    }
+    
+    /**
+     * Apply what is still queued, then stop
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (enabled) {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+    
+    private LeaseDto submit(LeaseCommand command) {
+        if (!running) {
+            throw new IllegalStateException("Lease write batching is shut down");
+        }
+        long start = System.nanoTime();
+        Pending pending = new Pending(command);
+        if (!queue.offer(pending)) {
+            throw new LeaseException("Too many lease writes in progress, please retry");
+        }
+        try {
+            return pending.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (pending.cancel()) {
+                throw new IllegalStateException(e instanceof TimeoutException
+                        ? "Lease write did not complete within " + timeoutMillis + " ms; it was not applied"
+                        : "Interrupted while waiting for a lease write; it was not applied");
+            }
+            // A batch has taken the command, so its outcome is the answer
+            return awaitApplied(pending);
+        } finally {
+            commandTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private static LeaseDto awaitApplied(Pending pending) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return pending.result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw unwrap(e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException("Lease write failed", e.getCause());
+    }
+    
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Wait up to maxDelay for more commands; once it has passed, only take what is already queued
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // Commands whose callers have given up are dropped, the rest can no longer be withdrawn
+                batch.removeIf(pending -> !pending.take());
+                batch.stream()
+                        .collect(Collectors.groupingBy(pending -> shardRouter.shardForId(pending.command.getShardKey()),
+                                LinkedHashMap::new, Collectors.toList()))
+                        .values()
+                        .forEach(this::flush);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                IllegalStateException interrupted = new IllegalStateException("Lease write batching was interrupted");
+                batch.forEach(pending -> pending.result.completeExceptionally(interrupted));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Lease write batch failed unexpectedly", e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void flush(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<LeaseCommand> commands = batch.stream().map(pending -> pending.command).collect(Collectors.toList());
+        try {
+            leaseService.applyBatch(commands);
+            batch.forEach(Pending::complete);
+        } catch (RuntimeException e) {
+            log.warn("Lease write batch of {} commands failed ({}); applying them one by one", batch.size(), e.getMessage());
+            replayedBatches.increment();
+            batch.forEach(this::applyAlone);
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+    }
+    
+    private void applyAlone(Pending pending) {
+        LeaseCommand command = pending.command;
+        try {
+            pending.result.complete(command.getType() == LeaseCommand.Type.START
+                    ? leaseService.startLease(command.getLease())
+                    : leaseService.endLease(command.getLeaseId()));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+    
+    private static class Pending {
+        
+        private static final int QUEUED = 0;
+        private static final int TAKEN = 1;
+        private static final int CANCELLED = 2;
+        
+        private final LeaseCommand command;
+        private final CompletableFuture<LeaseDto> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        
+        Pending(LeaseCommand command) {
+            this.command = command;
+        }
+        
+        /**
+         * Claim the command for a batch; false if its caller withdrew it
+         */
+        boolean take() {
+            return state.compareAndSet(QUEUED, TAKEN);
+        }
+        
+        /**
+         * Withdraw the command; false if a batch has already taken it
+         */
+        boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+        
+        void complete() {
+            if (command.getFailure() != null) {
+                result.completeExceptionally(command.getFailure());
+            } else {
+                result.complete(command.getResult());
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.trimble.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs statements on the home shard as part of the current transaction, whatever shard that
+ * transaction is bound to
+ * Rows that must be unique or counted across all shards are kept on the home shard only. A
+ * transaction on another shard writes them over a second connection to the home shard, opened
+ * on first use and committed right after the transaction commits, or rolled back with it; the
+ * home shard's row locks are held until then, so anything that locks the same rows sees both
+ * commits or neither. A crash between the two commits leaves the home shard behind, which the
+ * repairs of those rows (counter reconciliation, plate key backfill) put right.
+ * Without sharding, or on the home shard itself, the statements simply join the transaction.
+ */
+@Component
+@Slf4j
+public class HomeShardWriter {
+    
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private volatile DataSource homeShardPool;
+    
+    public HomeShardWriter(DataSource dataSource, JdbcTemplate jdbcTemplate, ShardRouter shardRouter) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+    }
+    
+    /**
+     * A JdbcTemplate on the home shard, within the current transaction
+     */
+    public JdbcTemplate jdbcTemplate() {
+        Integer shard = ShardContext.current();
+        if (!shardRouter.isSharded() || shard == null || shard == ShardContext.HOME_SHARD) {
+            return jdbcTemplate;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Home shard writes require an active transaction");
+        }
+        // Synchronizations belong to one transaction, so a nested new transaction gets its own connection
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof HomeShardConnection home) {
+                return home.jdbcTemplate;
+            }
+        }
+        HomeShardConnection home = new HomeShardConnection(openHomeShardConnection());
+        TransactionSynchronizationManager.registerSynchronization(home);
+        return home.jdbcTemplate;
+    }
+    
+    private Connection openHomeShardConnection() {
+        try {
+            if (homeShardPool == null) {
+                homeShardPool = dataSource.unwrap(ShardRoutingDataSource.class).getResolvedDataSources().get(ShardContext.HOME_SHARD);
+            }
+            Connection connection = homeShardPool.getConnection();
+            connection.setAutoCommit(false);
+            return connection;
+        } catch (SQLException e) {
+            throw new CannotGetJdbcConnectionException("Failed to open a home shard connection", e);
+        }
+    }
+    
+    /**
+     * The home shard connection of one transaction, finished right after it
+     */
+    private static class HomeShardConnection implements TransactionSynchronization {
+        
+        private final Connection connection;
+        private final JdbcTemplate jdbcTemplate;
+        
+        HomeShardConnection(Connection connection) {
+            this.connection = connection;
+            this.jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            try {
+                if (status == STATUS_COMMITTED) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                log.error("Home shard {} failed after the shard transaction completed: {}",
+                        status == STATUS_COMMITTED ? "commit" : "rollback", e.getMessage(), e);
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Failed to close home shard connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.trimble.shard;
+
+import com.trimble.entity.Customer;
+import com.trimble.entity.User;
+import com.trimble.event.ReferenceDataChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener that announces writes to users and customers
+ * Cars and leases on every shard reference these rows, so they are copied to all shards
+ */
+public class ReferenceDataListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    public ReferenceDataListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+    
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Object entity) {
+        if (entity instanceof User user) {
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent("users", user.getId()));
+        } else if (entity instanceof Customer customer) {
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent("customers", customer.getId()));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.trimble.shard;
+
+import com.trimble.event.ReferenceDataChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Copies reference rows (users, customers) from the home shard to every other shard
+ * Leases and cars keep their foreign keys to these tables on each shard. The copies are read-only:
+ * the customer's active lease counter in particular is only kept on the home shard.
+ */
+@Component
+@ConditionalOnProperty(name = "carlease.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ReferenceDataReplicator {
+    
+    private static final Set<String> TABLES = Set.of("users", "customers");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    
+    public ReferenceDataReplicator(JdbcTemplate jdbcTemplate,
+                                   ShardRouter shardRouter,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        // A new transaction per shard, so the copy never reuses the connection of the committing transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        replicate(event.getTable(), "SELECT * FROM " + table(event.getTable()) + " WHERE id = ?", event.getId());
+    }
+    
+    /**
+     * Copy a whole reference table, e.g. rows seeded directly into the home shard
+     */
+    public void replicateAll(String table) {
+        replicate(table, "SELECT * FROM " + table(table), new Object[0]);
+    }
+    
+    private void replicate(String table, String sql, Object... args) {
+        List<Map<String, Object>> rows = shardRouter.callOnShard(ShardContext.HOME_SHARD,
+                () -> transactionTemplate.execute(status -> jdbcTemplate.queryForList(sql, args)));
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.callOnShard(shard, () -> transactionTemplate.execute(status -> {
+                rows.forEach(row -> upsert(table, row));
+                return null;
+            }));
+        }
+        log.debug("Replicated {} {} rows to {} shards", rows.size(), table, shardRouter.getShardCount() - 1);
+    }
+    
+    private void upsert(String table, Map<String, Object> row) {
+        List<String> updateColumns = row.keySet().stream()
+                .filter(column -> !column.equalsIgnoreCase("id"))
+                .collect(Collectors.toList());
+        List<Object> updateArgs = new ArrayList<>();
+        updateColumns.forEach(column -> updateArgs.add(row.get(column)));
+        updateArgs.add(row.get(idColumn(row)));
+        
+        int updated = jdbcTemplate.update("UPDATE " + table + " SET "
+                + updateColumns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                + " WHERE id = ?", updateArgs.toArray());
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO " + table + " (" + String.join(", ", row.keySet()) + ") VALUES ("
+                    + row.keySet().stream().map(column -> "?").collect(Collectors.joining(", ")) + ")",
+                    row.values().toArray());
+        }
+    }
+    
+    private static String idColumn(Map<String, Object> row) {
+        return row.keySet().stream()
+                .filter(column -> column.equalsIgnoreCase("id"))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Reference row without id column"));
+    }
+    
+    private static String table(String table) {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Not a reference table: " + table);
+        }
+        return table;
+    }
+}
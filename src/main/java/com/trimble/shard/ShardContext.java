@@ -0,0 +1,34 @@
+package com.trimble.shard;
+
+/**
+ * Holds the shard the current thread is working against
+ * Nothing bound means the home shard (0), which also keeps all non-sharded tables
+ */
+public final class ShardContext {
+    
+    public static final int HOME_SHARD = 0;
+    
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    
+    private ShardContext() {
+    }
+    
+    /**
+     * The explicitly bound shard, or null when the thread uses the home shard
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+    
+    static void bind(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+    
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,221 @@
+package com.trimble.shard;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard owns a car or lease and runs work against it
+ * Cars live on the shard picked by a hash of their owner's ID; leases live with their car.
+ * Car and lease IDs are interleaved per shard (shard s hands out s + 1, s + 1 + n, ...), so the
+ * shard can be derived from an ID alone. With sharding disabled there is one shard and every
+ * method here is a pass-through.
+ */
+@Component
+@Slf4j
+public class ShardRouter {
+    
+    private final int shardCount;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService scatterExecutor;
+    
+    public ShardRouter(PlatformTransactionManager transactionManager,
+                       @Value("${carlease.sharding.enabled:false}") boolean enabled,
+                       @Value("${carlease.sharding.urls:}") List<String> urls) {
+        this.shardCount = enabled ? Math.max(1, urls.size()) : 1;
+        this.transactionManager = transactionManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (shardCount > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.scatterExecutor = Executors.newFixedThreadPool(shardCount, runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.info("Sharding enabled across {} shards", shardCount);
+        } else {
+            this.scatterExecutor = null;
+        }
+    }
+    
+    public int getShardCount() {
+        return shardCount;
+    }
+    
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+    
+    /**
+     * Shard holding the cars (and their leases) of an owner
+     */
+    public int shardForOwner(Long ownerId) {
+        // Fibonacci hashing spreads sequential owner IDs evenly
+        return Math.floorMod((int) ((ownerId * 0x9E3779B97F4A7C15L) >>> 32), shardCount);
+    }
+    
+    /**
+     * Shard holding a car or lease, derived from its interleaved ID
+     */
+    public int shardForId(Long id) {
+        return (int) Math.floorMod(id - 1, (long) shardCount);
+    }
+    
+    /**
+     * Route the current transaction to the shard of an owner's cars
+     */
+    public void bindToOwner(Long ownerId) {
+        if (isSharded()) {
+            bind(shardForOwner(ownerId));
+        }
+    }
+    
+    /**
+     * Route the current transaction to the shard holding a car or lease
+     */
+    public void bindToId(Long id) {
+        if (isSharded()) {
+            bind(shardForId(id));
+        }
+    }
+    
+    /**
+     * Bind a shard for the rest of the current transaction; must be called before its first statement
+     */
+    private void bind(int shard) {
+        Integer current = ShardContext.current();
+        if (current != null) {
+            if (current != shard) {
+                throw new IllegalStateException("Transaction is bound to shard " + current + ", cannot switch to " + shard);
+            }
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Shard binding requires an active transaction");
+        }
+        ShardContext.bind(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ShardContext.clear();
+            }
+        });
+    }
+    
+    /**
+     * Run work against one shard; the work opens its own transactions
+     */
+    public <T> T callOnShard(int shard, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        Integer previous = ShardContext.current();
+        ShardContext.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.bind(previous);
+        }
+    }
+    
+    /**
+     * Run work against every shard in turn
+     */
+    public void forEachShard(IntFunction<?> work) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            callOnShard(target, () -> work.apply(target));
+        }
+    }
+    
+    /**
+     * Run a read on every shard in parallel, each in its own read-only transaction, and
+     * concatenate the results in shard order
+     * With a single shard the read runs inline in the caller's transaction.
+     */
+    public <T> List<T> scatterGather(IntFunction<List<T>> query) {
+        return scatterGather(query, TransactionDefinition.TIMEOUT_DEFAULT);
+    }
+    
+    /**
+     * Run a read on every shard as above, with a timeout in seconds for each shard's transaction
+     * The shard transactions run on other threads and do not inherit the caller's timeout; a caller
+     * with one passes it on here, so the queries on every shard are given the same limit.
+     */
+    public <T> List<T> scatterGather(IntFunction<List<T>> query, int timeoutSeconds) {
+        if (!isSharded()) {
+            return query.apply(ShardContext.HOME_SHARD);
+        }
+        TransactionTemplate transaction = readOnlyTransaction;
+        if (timeoutSeconds != TransactionDefinition.TIMEOUT_DEFAULT) {
+            transaction = new TransactionTemplate(transactionManager, readOnlyTransaction);
+            transaction.setTimeout(timeoutSeconds);
+        }
+        TransactionTemplate shardTransaction = transaction;
+        List<Future<List<T>>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(scatterExecutor.submit(() ->
+                    callOnShard(target, () -> shardTransaction.execute(status -> query.apply(target)))));
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<List<T>> future : futures) {
+            results.addAll(await(future));
+        }
+        return results;
+    }
+    
+    /**
+     * Group car or lease IDs by the shard that holds them
+     */
+    public Map<Integer, List<Long>> groupByShard(Collection<Long> ids) {
+        Map<Integer, List<Long>> groups = new TreeMap<>();
+        for (Long id : ids) {
+            groups.computeIfAbsent(isSharded() ? shardForId(id) : ShardContext.HOME_SHARD, shard -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+    
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+    }
+}
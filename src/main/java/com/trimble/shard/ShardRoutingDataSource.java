@@ -0,0 +1,17 @@
+package com.trimble.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Routes connections to the shard bound in ShardContext, or to the home shard
+ * Must sit behind a LazyConnectionDataSourceProxy so a transaction can bind its shard
+ * before the first statement fetches the physical connection
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        return shard != null ? shard : ShardContext.HOME_SHARD;
+    }
+}
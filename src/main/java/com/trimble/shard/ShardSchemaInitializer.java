@@ -0,0 +1,90 @@
+package com.trimble.shard;
+
+import com.trimble.repository.HomeShardKeyRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prepares every shard once the persistence unit is up
+ * Hibernate only manages the schema of the home shard, so the mapped schema is exported into
+ * any shard that does not have it yet. Car and lease identity columns are then interleaved so
+ * each shard hands out IDs congruent to its own index, and reference tables are copied over.
+ * The home shard's license plate keys are filled in with the plates of every shard, covering
+ * cars registered before they existed or whose key commit was lost.
+ */
+@Component
+@ConditionalOnProperty(name = "carlease.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+    
+    private static final List<String> SHARDED_TABLES = List.of("cars", "leases");
+    
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final ReferenceDataReplicator referenceDataReplicator;
+    
+    public ShardSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                  JdbcTemplate jdbcTemplate,
+                                  ShardRouter shardRouter,
+                                  ReferenceDataReplicator referenceDataReplicator) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.referenceDataReplicator = referenceDataReplicator;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        int shardCount = shardRouter.getShardCount();
+        shardRouter.forEachShard(shard -> {
+            if (shard != ShardContext.HOME_SHARD && !tableExists("cars")) {
+                log.info("Creating schema on shard {}", shard);
+                entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+            }
+            SHARDED_TABLES.forEach(table -> interleaveIds(table, shard, shardCount));
+            return null;
+        });
+        referenceDataReplicator.replicateAll("users");
+        referenceDataReplicator.replicateAll("customers");
+        backfillLicensePlateKeys();
+        log.info("Prepared {} shards", shardCount);
+    }
+    
+    private void backfillLicensePlateKeys() {
+        String keys = HomeShardKeyRepository.LICENSE_PLATE_KEYS;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + keys + " (license_plate VARCHAR(255) NOT NULL PRIMARY KEY)");
+        List<String> plates = new ArrayList<>();
+        shardRouter.forEachShard(shard -> plates.addAll(jdbcTemplate.queryForList("SELECT license_plate FROM cars", String.class)));
+        jdbcTemplate.batchUpdate("INSERT INTO " + keys + " (license_plate) SELECT ? WHERE NOT EXISTS "
+                + "(SELECT 1 FROM " + keys + " WHERE license_plate = ?)",
+                plates.stream().map(plate -> new Object[]{plate, plate}).toList());
+    }
+    
+    private boolean tableExists(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = ?", Integer.class, table.toUpperCase());
+        return count != null && count > 0;
+    }
+    
+    /**
+     * Make the identity column of a table hand out shard + 1, shard + 1 + n, ... above its current maximum
+     */
+    private void interleaveIds(String table, int shard, int shardCount) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long next = maxId - Math.floorMod(maxId, (long) shardCount) + shard + 1;
+        if (next <= maxId) {
+            next += shardCount;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET INCREMENT BY " + shardCount);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+    }
+}
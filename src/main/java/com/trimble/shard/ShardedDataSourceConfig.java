@@ -0,0 +1,58 @@
+package com.trimble.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owner-sharded DataSource setup, enabled with carlease.sharding.enabled=true
+ * One HikariCP pool per URL in carlease.sharding.urls; the first URL is the home shard.
+ * Credentials and driver come from spring.datasource.*. Not combinable with the read replica setup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "carlease.sharding.enabled", havingValue = "true")
+public class ShardedDataSourceConfig {
+    
+    private final List<HikariDataSource> shardPools = new ArrayList<>();
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 @Value("${carlease.sharding.urls}") List<String> urls,
+                                 @Value("${carlease.sharding.maximum-pool-size:10}") int maximumPoolSize) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(shard).trim())
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            shardPools.add(dataSource);
+            targets.put(shard, dataSource);
+        }
+        
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(shardPools.get(ShardContext.HOME_SHARD));
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+    
+    @PreDestroy
+    public void closeShardPools() {
+        shardPools.forEach(HikariDataSource::close);
+    }
+}
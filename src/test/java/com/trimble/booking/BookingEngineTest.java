@@ -0,0 +1,322 @@
+package com.trimble.booking;
+
+import com.trimble.dto.CarDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.LeaseException;
+import com.trimble.service.CarHoldService;
+import com.trimble.service.CarService;
+import com.trimble.service.CarWaitlistService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.h2Url;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application with the booking engine enabled against an in-memory H2 database
+ * The throughput comparison with the JPA path is opt-in: mvn test -Dtest=BookingEngineTest -Dcarlease.benchmark=true
+ */
+@Slf4j(topic = "benchmark")
+class BookingEngineTest {
+
+	private static final AtomicInteger RUN = new AtomicInteger();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void startsAndEndsLeasesAndProjectsThemToTheDatabase() throws Exception {
+		try (ConfigurableApplicationContext context = start(true)) {
+			BookingEngine engine = context.getBean(BookingEngine.class);
+			Long ownerId = owner(context, "be").getId();
+			CarService carService = context.getBean(CarService.class);
+			CarDto first = carService.registerCar(car("BE-1"), ownerId);
+			CarDto second = carService.registerCar(car("BE-2"), ownerId);
+			CarDto third = carService.registerCar(car("BE-3"), ownerId);
+			Long customerId = context.getBean(CustomerService.class).registerCustomer(customer("be")).getId();
+
+			LeaseDto lease = engine.startLease(lease(first.getId(), customerId));
+			assertEquals(LeaseStatus.ACTIVE, lease.getStatus());
+			assertEquals("Skoda Octavia (BE-1)", lease.getCarDetails());
+			assertEquals("Customer be", lease.getCustomerName());
+			LeaseException taken = assertThrows(LeaseException.class, () -> engine.startLease(lease(first.getId(), customerId)));
+			assertEquals("Car is not available for lease", taken.getMessage());
+			assertThrows(CarNotFoundException.class, () -> engine.startLease(lease(999_999L, customerId)));
+			// The projector writes car statuses without knowing of holds, so neither holds nor waitlists are taken
+			assertThrows(LeaseException.class, () -> context.getBean(CarHoldService.class).holdCar(third.getId(), customerId));
+			assertThrows(LeaseException.class, () -> context.getBean(CarWaitlistService.class).join(third.getId(), customerId));
+
+			engine.startLease(lease(second.getId(), customerId));
+			LeaseException limit = assertThrows(LeaseException.class, () -> engine.startLease(lease(third.getId(), customerId)));
+			assertEquals("Customer cannot have more than 2 active leases", limit.getMessage());
+
+			LeaseDto ended = engine.endLease(lease.getId());
+			assertEquals(LeaseStatus.COMPLETED, ended.getStatus());
+			assertEquals(new BigDecimal("40.00"), ended.getTotalAmount());
+			assertEquals("Lease is not active", assertThrows(LeaseException.class, () -> engine.endLease(lease.getId())).getMessage());
+			engine.startLease(lease(third.getId(), customerId));
+
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			awaitProjected(() -> {
+				assertEquals("COMPLETED", jdbcTemplate.queryForObject("SELECT status FROM leases WHERE id = ?", String.class, lease.getId()));
+				assertEquals(2, jdbcTemplate.queryForObject("SELECT active_lease_count FROM customers WHERE id = ?", Integer.class, customerId));
+				assertEquals(List.of(first.getId()), carService.getAvailableCars().stream().map(CarDto::getId).collect(Collectors.toList()));
+			});
+		}
+	}
+
+	@Test
+	void endsLeasesStartedBeforeTheEngineAndFollowsAdminStatusChanges() throws Exception {
+		String url = h2Url("booking-shared" + RUN.incrementAndGet());
+		Long carId;
+		Long otherCarId;
+		Long customerId;
+		LeaseDto earlier;
+		try (ConfigurableApplicationContext context = start(false, url)) {
+			Long ownerId = owner(context, "bl").getId();
+			CarService carService = context.getBean(CarService.class);
+			carId = carService.registerCar(car("BL-1"), ownerId).getId();
+			otherCarId = carService.registerCar(car("BL-2"), ownerId).getId();
+			customerId = context.getBean(CustomerService.class).registerCustomer(customer("bl")).getId();
+			earlier = context.getBean(LeaseService.class).startLease(lease(carId, customerId));
+		}
+
+		try (ConfigurableApplicationContext context = start(true, url)) {
+			BookingEngine engine = context.getBean(BookingEngine.class);
+			LeaseDto next = engine.startLease(lease(otherCarId, customerId));
+			assertTrue(next.getId() > earlier.getId());
+			assertEquals("Customer bl", engine.endLease(earlier.getId()).getCustomerName());
+			assertEquals("Lease is not active", assertThrows(LeaseException.class, () -> engine.endLease(earlier.getId())).getMessage());
+
+			// Once the end is projected, a car put on service through the regular service is no longer bookable
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			awaitProjected(() -> assertEquals("AVAILABLE", jdbcTemplate.queryForObject("SELECT status FROM cars WHERE id = ?", String.class, carId)));
+			context.getBean(CarService.class).updateCarStatus(carId, CarStatus.ON_SERVICE);
+			assertEquals("Car is not available for lease",
+					assertThrows(LeaseException.class, () -> engine.startLease(lease(carId, customerId))).getMessage());
+		}
+	}
+
+	@Test
+	void concurrentBookingsOfOneCarHaveExactlyOneWinner() throws Exception {
+		try (ConfigurableApplicationContext context = start(true)) {
+			BookingEngine engine = context.getBean(BookingEngine.class);
+			Long carId = context.getBean(CarService.class).registerCar(car("BC-1"), owner(context, "bc").getId()).getId();
+			CustomerService customerService = context.getBean(CustomerService.class);
+			int threads = 8;
+			List<Long> customers = IntStream.range(0, threads)
+					.mapToObj(t -> customerService.registerCustomer(customer("bc" + t)).getId())
+					.collect(Collectors.toList());
+
+			CyclicBarrier barrier = new CyclicBarrier(threads);
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (Long customerId : customers) {
+				results.add(executor.submit(() -> {
+					barrier.await();
+					try {
+						engine.startLease(lease(carId, customerId));
+						return true;
+					} catch (LeaseException e) {
+						return false;
+					}
+				}));
+			}
+			int winners = 0;
+			for (Future<Boolean> result : results) {
+				winners += result.get(30, TimeUnit.SECONDS) ? 1 : 0;
+			}
+			executor.shutdown();
+			assertEquals(1, winners);
+
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			awaitProjected(() -> assertEquals(1, jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM leases WHERE car_id = ? AND status = 'ACTIVE'", Integer.class, carId)));
+		}
+	}
+
+	@Test
+	void aDecisionThatCannotBeProjectedStopsTheEngineAndOutlivesAFullJournal() throws Exception {
+		String url = h2Url("booking-failing" + RUN.incrementAndGet());
+		// Room for 63 records, so the bookings below fill the journal many times over
+		Path journal = directory.resolve("failing.journal");
+		Long carId;
+		Long customerId;
+		long failedLeaseId;
+		try (ConfigurableApplicationContext context = start(true, url, journal, "4KB")) {
+			BookingEngine engine = context.getBean(BookingEngine.class);
+			Long ownerId = owner(context, "bf").getId();
+			CarService carService = context.getBean(CarService.class);
+			carId = carService.registerCar(car("BF-1"), ownerId).getId();
+			Long spareCarId = carService.registerCar(car("BF-2"), ownerId).getId();
+			CustomerService customerService = context.getBean(CustomerService.class);
+			customerId = customerService.registerCustomer(customer("bf")).getId();
+			Long otherCustomerId = customerService.registerCustomer(customer("bf-other")).getId();
+			Long firstLeaseId = engine.startLease(lease(carId, customerId)).getId();
+			engine.endLease(firstLeaseId);
+
+			// The car leaves the database while the engine still knows it, so its next lease cannot be inserted
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			awaitProjected(() -> assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+					"SELECT MAX(status) FROM leases WHERE id = ?", String.class, firstLeaseId)));
+			jdbcTemplate.execute("CREATE TABLE removed_cars AS SELECT * FROM cars WHERE id = " + carId);
+			jdbcTemplate.update("DELETE FROM leases WHERE car_id = ?", carId);
+			jdbcTemplate.update("DELETE FROM cars WHERE id = ?", carId);
+			failedLeaseId = engine.startLease(lease(carId, customerId)).getId();
+
+			IllegalStateException stopped = null;
+			for (int i = 0; i < 100 && stopped == null; i++) {
+				try {
+					engine.endLease(engine.startLease(lease(spareCarId, otherCustomerId)).getId());
+				} catch (IllegalStateException e) {
+					stopped = e;
+				}
+			}
+			assertNotNull(stopped, "The engine kept accepting bookings after a projection failure");
+		}
+
+		// The journal still holds the lease: the next start fails until it can be projected, then projects it
+		assertThrows(IllegalStateException.class, () -> start(true, url, journal, "4KB").close());
+		try (ConfigurableApplicationContext context = start(false, url)) {
+			context.getBean(JdbcTemplate.class).update("INSERT INTO cars SELECT * FROM removed_cars");
+		}
+		try (ConfigurableApplicationContext context = start(true, url, journal, "4KB")) {
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			assertEquals("ACTIVE", jdbcTemplate.queryForObject("SELECT status FROM leases WHERE id = ?", String.class, failedLeaseId));
+			assertEquals(customerId, jdbcTemplate.queryForObject("SELECT customer_id FROM leases WHERE id = ?", Long.class, failedLeaseId));
+			assertEquals("ON_LEASE", jdbcTemplate.queryForObject("SELECT status FROM cars WHERE id = ?", String.class, carId));
+		}
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void bookingThroughputAgainstJpa() throws Exception {
+		int threads = Integer.getInteger("carlease.benchmark.threads", 16);
+		int seconds = Integer.getInteger("carlease.benchmark.seconds", 10);
+		int hotCars = Integer.getInteger("carlease.benchmark.hot-cars", 4);
+
+		log.info(String.format("%-10s %-12s %-14s %-12s", "path", "commands/s", "p99 cmd ms", "rejected"));
+		try (ConfigurableApplicationContext context = start(false)) {
+			LeaseService leaseService = context.getBean(LeaseService.class);
+			runBenchmark(context, "jpa", threads, seconds, hotCars, leaseService::startLease, leaseService::endLease);
+		}
+		try (ConfigurableApplicationContext context = start(true)) {
+			BookingEngine engine = context.getBean(BookingEngine.class);
+			runBenchmark(context, "engine", threads, seconds, hotCars, engine::startLease, engine::endLease);
+		}
+	}
+
+	private void runBenchmark(ConfigurableApplicationContext context, String label, int threads, int seconds, int hotCars,
+							  Function<LeaseDto, LeaseDto> startLease, LongFunction<LeaseDto> endLease) throws Exception {
+		CarService carService = context.getBean(CarService.class);
+		CustomerService customerService = context.getBean(CustomerService.class);
+		Long ownerId = owner(context, "bb").getId();
+		List<Long> cars = IntStream.range(0, hotCars)
+				.mapToObj(i -> carService.registerCar(car("BB-" + i), ownerId).getId())
+				.collect(Collectors.toList());
+		List<Long> customers = IntStream.range(0, threads)
+				.mapToObj(t -> customerService.registerCustomer(customer("bb" + t)).getId())
+				.collect(Collectors.toList());
+
+		// Every thread competes for the same few cars and ends each lease it wins
+		AtomicLong commands = new AtomicLong();
+		AtomicLong rejected = new AtomicLong();
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			Long customerId = customers.get(t);
+			int offset = t;
+			executor.submit(() -> {
+				int next = offset;
+				while (System.nanoTime() < deadline) {
+					long start = System.nanoTime();
+					try {
+						LeaseDto lease = startLease.apply(lease(cars.get(next++ % cars.size()), customerId));
+						commands.incrementAndGet();
+						endLease.apply(lease.getId());
+					} catch (LeaseException e) {
+						rejected.incrementAndGet();
+					}
+					commands.incrementAndGet();
+					latencies.add(System.nanoTime() - start);
+				}
+				return null;
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS));
+
+		List<Long> sorted = new ArrayList<>(latencies);
+		sorted.sort(null);
+		double p99 = sorted.isEmpty() ? 0 : sorted.get((int) (sorted.size() * 0.99)) / 1_000_000.0;
+		log.info(String.format("%-10s %-12d %-14.2f %-12d", label, commands.get() / seconds, p99, rejected.get()));
+	}
+
+	private static void awaitProjected(Runnable assertion) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (true) {
+			try {
+				assertion.run();
+				return;
+			} catch (AssertionError e) {
+				if (System.nanoTime() > deadline) {
+					throw e;
+				}
+				Thread.sleep(20);
+			}
+		}
+	}
+
+	private ConfigurableApplicationContext start(boolean engine) {
+		return start(engine, h2Url("booking" + RUN.incrementAndGet()));
+	}
+
+	private ConfigurableApplicationContext start(boolean engine, String url) {
+		return start(engine, url, directory.resolve("bookings" + RUN.incrementAndGet() + ".journal"), "4MB");
+	}
+
+	private ConfigurableApplicationContext start(boolean engine, String url, Path journal, String journalSize) {
+		return TestFixtures.start(
+				"--carlease.booking-engine.enabled=" + engine,
+				"--carlease.booking-engine.journal-path=" + journal,
+				"--carlease.booking-engine.journal-size=" + journalSize,
+				"--spring.datasource.url=" + url,
+				"--spring.jpa.hibernate.ddl-auto=update");
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.trimble.booking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysRecordsUntilTheFirstTornOne() throws Exception {
+		Path path = directory.resolve("bookings.journal");
+		LocalDateTime start = LocalDateTime.of(2024, 5, 1, 9, 30, 15, 123_456_000);
+		try (BookingJournal journal = new BookingJournal(path, 4096)) {
+			assertTrue(journal.replay().isEmpty());
+			journal.append(new BookingRecord(BookingRecord.Type.START, 11, 3, 7, start, start, BigDecimal.ZERO));
+			journal.append(new BookingRecord(BookingRecord.Type.END, 11, 3, 7, start.plusDays(2), start.plusDays(2), new BigDecimal("80.00")));
+			journal.append(new BookingRecord(BookingRecord.Type.START, 12, 4, 7, start, start, BigDecimal.ZERO));
+			journal.force();
+		}
+
+		// Flip one byte of the last record, as a write cut short by a crash would leave it
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{42}), BookingJournal.HEADER_SIZE + 2L * BookingJournal.RECORD_SIZE + 20);
+		}
+
+		try (BookingJournal journal = new BookingJournal(path, 4096)) {
+			List<BookingRecord> records = journal.replay();
+			assertEquals(2, records.size());
+			BookingRecord end = records.get(1);
+			assertEquals(BookingRecord.Type.END, end.getType());
+			assertEquals(11, end.getLeaseId());
+			assertEquals(3, end.getCarId());
+			assertEquals(7, end.getCustomerId());
+			assertEquals(start.plusDays(2), end.getTime());
+			assertEquals(new BigDecimal("80.00"), end.getAmount());
+			assertEquals(start, records.get(0).getTime());
+
+			// Appending continues after the last good record
+			journal.append(new BookingRecord(BookingRecord.Type.START, 13, 5, 8, start, start, BigDecimal.ZERO));
+			assertEquals(3, journal.replay().size());
+		}
+	}
+
+	@Test
+	void resetDropsEveryRecordAndReusesTheFile() throws Exception {
+		Path path = directory.resolve("bookings.journal");
+		LocalDateTime now = LocalDateTime.now();
+		try (BookingJournal journal = new BookingJournal(path, BookingJournal.HEADER_SIZE + 2 * BookingJournal.RECORD_SIZE)) {
+			assertEquals(2, journal.capacityRecords());
+			journal.append(new BookingRecord(BookingRecord.Type.START, 1, 1, 1, now, now, BigDecimal.ZERO));
+			journal.append(new BookingRecord(BookingRecord.Type.START, 2, 2, 1, now, now, BigDecimal.ZERO));
+			assertFalse(journal.hasRoomFor(1));
+
+			journal.reset();
+			assertTrue(journal.hasRoomFor(2));
+			journal.append(new BookingRecord(BookingRecord.Type.END, 1, 1, 1, now, now, BigDecimal.TEN));
+			journal.force();
+		}
+
+		// The older record still in the second slot is out of sequence and not replayed
+		try (BookingJournal journal = new BookingJournal(path, 0)) {
+			List<BookingRecord> records = journal.replay();
+			assertEquals(1, records.size());
+			assertEquals(BookingRecord.Type.END, records.get(0).getType());
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.trimble.cli;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.h2Url;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static com.trimble.support.TestFixtures.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Export mode as main starts it: no web server, the file written during start-up, exit code 0
+ * The data comes from a second context on the same database, which export mode leaves as it is
+ */
+class ExportCommandLineRunnerTest {
+
+	@Test
+	void exportModeWritesTheFileWithoutAWebServer(@TempDir Path dir) throws Exception {
+		String url = h2Url("cliExport");
+		try (ConfigurableApplicationContext data = start("--spring.datasource.url=" + url)) {
+			Long carId = data.getBean(CarService.class).registerCar(car("CLI-1"), owner(data, "cli").getId()).getId();
+			Long customerId = data.getBean(CustomerService.class).registerCustomer(customer("cli")).getId();
+			Long leaseId = data.getBean(LeaseService.class).startLease(lease(carId, customerId)).getId();
+
+			Path output = dir.resolve("leases.csv");
+			String[] args = {"--export=leases", "--output=" + output};
+			SpringApplication application = CarLeaseManagementApplication.application(args);
+			assertEquals(WebApplicationType.NONE, application.getWebApplicationType());
+			assertEquals(WebApplicationType.SERVLET, CarLeaseManagementApplication.application().getWebApplicationType());
+
+			ConfigurableApplicationContext export = application.run(args[0], args[1],
+					"--spring.config.additional-location=" + TestFixtures.PROPERTIES,
+					"--spring.datasource.url=" + url,
+					"--spring.jpa.hibernate.ddl-auto=none");
+			assertFalse(export instanceof WebServerApplicationContext);
+			assertEquals(0, SpringApplication.exit(export));
+
+			List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+			assertEquals(2, lines.size());
+			assertTrue(lines.get(0).startsWith("lease_id,status,"), lines.get(0));
+			assertTrue(lines.get(1).startsWith(leaseId + ",ACTIVE,"), lines.get(1));
+			assertTrue(lines.get(1).contains(",CLI-1,"), lines.get(1));
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.trimble.cluster;
+
+import com.trimble.dto.CarDto;
+import com.trimble.dto.CustomerDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.ClusterChange;
+import com.trimble.entity.Lease;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.event.CacheInvalidationEvent;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.ClusterChangeRepository;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.h2Url;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two application nodes in one JVM against one shared H2 database, using the DB-polled
+ * invalidation channel, and checks invalidation delivery and the cross-node booking guard
+ */
+class MultiNodeClusterTest {
+
+	private static final String DB_URL = h2Url("cluster");
+
+	private static ConfigurableApplicationContext nodeA;
+	private static ConfigurableApplicationContext nodeB;
+	private static final BlockingQueue<CacheInvalidationEvent> receivedByB = new LinkedBlockingQueue<>();
+
+	@BeforeAll
+	static void startNodes() {
+		nodeA = startNode("node-a", "create");
+		nodeB = startNode("node-b", "none");
+		nodeB.addApplicationListener((ApplicationListener<ApplicationEvent>) event -> {
+			if (event instanceof PayloadApplicationEvent<?> payloadEvent
+					&& payloadEvent.getPayload() instanceof CacheInvalidationEvent invalidation
+					&& invalidation.isRemote()) {
+				receivedByB.add(invalidation);
+			}
+		});
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		if (nodeB != null) {
+			nodeB.close();
+		}
+		if (nodeA != null) {
+			nodeA.close();
+		}
+	}
+
+	@Test
+	void statusChangeOnOneNodeInvalidatesTheOther() throws Exception {
+		CarDto car = registerCar("CL-1");
+
+		nodeA.getBean(CarService.class).updateCarStatus(car.getId(), CarStatus.ON_SERVICE);
+
+		CacheInvalidationEvent event = receivedByB.poll(10, TimeUnit.SECONDS);
+		assertNotNull(event);
+		assertEquals(CacheInvalidationEvent.CARS, event.getRegion());
+		assertTrue(event.getKeys().contains(car.getId()));
+	}
+
+	@Test
+	void changesCommittedOutOfIdOrderAreStillDelivered() throws Exception {
+		ClusterChangeRepository changes = nodeA.getBean(ClusterChangeRepository.class);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+		CountDownLatch inserted = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+
+		// The first change takes its ID but commits only after a later change has been polled
+		CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+			changes.saveAndFlush(change("900001"));
+			inserted.countDown();
+			await(commit);
+		}));
+		assertTrue(inserted.await(10, TimeUnit.SECONDS));
+		changes.save(change("900002"));
+		awaitInvalidationOf(900002L);
+
+		commit.countDown();
+		slow.get(10, TimeUnit.SECONDS);
+		awaitInvalidationOf(900001L);
+	}
+
+	@Test
+	void concurrentBookingsOnDifferentNodesAdmitOnlyOne() throws Exception {
+		CarDto car = registerCar("CL-2");
+		List<CustomerDto> customers = List.of(registerCustomer("a"), registerCustomer("b"));
+		List<ConfigurableApplicationContext> nodes = List.of(nodeA, nodeB);
+
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		List<Future<LeaseDto>> results = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			LeaseService leaseService = nodes.get(i).getBean(LeaseService.class);
+			LeaseDto request = new LeaseDto();
+			request.setCarId(car.getId());
+			request.setCustomerId(customers.get(i).getId());
+			request.setStartDate(LocalDateTime.now());
+			results.add(executor.submit(() -> {
+				barrier.await();
+				return leaseService.startLease(request);
+			}));
+		}
+		executor.shutdown();
+
+		int started = 0;
+		int rejected = 0;
+		for (Future<LeaseDto> result : results) {
+			try {
+				result.get(30, TimeUnit.SECONDS);
+				started++;
+			} catch (java.util.concurrent.ExecutionException e) {
+				assertInstanceOf(LeaseException.class, e.getCause());
+				rejected++;
+			}
+		}
+		assertEquals(1, started);
+		assertEquals(1, rejected);
+	}
+
+	@Test
+	void endingALeaseWritesItOnlyThroughTheGuardedUpdate() {
+		CarDto car = registerCar("CL-3");
+		LeaseService leaseService = nodeA.getBean(LeaseService.class);
+		LeaseDto request = new LeaseDto();
+		request.setCarId(car.getId());
+		request.setCustomerId(registerCustomer("c").getId());
+		request.setStartDate(LocalDateTime.now());
+		Long leaseId = leaseService.startLease(request).getId();
+
+		EntityStatistics leases = nodeA.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class)
+				.getStatistics().getEntityStatistics(Lease.class.getName());
+		long updatesBefore = leases.getUpdateCount();
+		LeaseDto ended = leaseService.endLease(leaseId);
+
+		assertEquals(LeaseStatus.COMPLETED, ended.getStatus());
+		assertEquals(0, new BigDecimal("40.00").compareTo(ended.getTotalAmount()));
+		assertNotNull(ended.getEndDate());
+		assertEquals(updatesBefore, leases.getUpdateCount());
+	}
+
+	private static ConfigurableApplicationContext startNode(String nodeId, String ddlAuto) {
+		return TestFixtures.start(
+				"--spring.datasource.url=" + DB_URL,
+				"--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+				"--spring.jpa.properties.hibernate.generate_statistics=true",
+				"--carlease.cluster.transport=db",
+				"--carlease.cluster.node-id=" + nodeId,
+				"--carlease.cluster.poll-interval-ms=50");
+	}
+
+	private static void awaitInvalidationOf(Long key) throws InterruptedException {
+		while (true) {
+			CacheInvalidationEvent event = receivedByB.poll(10, TimeUnit.SECONDS);
+			assertNotNull(event, "No invalidation of " + key);
+			if (event.getKeys().contains(key)) {
+				return;
+			}
+		}
+	}
+
+	private static ClusterChange change(String keys) {
+		ClusterChange change = new ClusterChange();
+		change.setOriginNodeId("node-a");
+		change.setRegion(CacheInvalidationEvent.CARS);
+		change.setChangedKeys(keys);
+		change.setCreatedAt(LocalDateTime.now());
+		return change;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private CarDto registerCar(String plate) {
+		return nodeA.getBean(CarService.class).registerCar(car(plate), owner(nodeA, plate).getId());
+	}
+
+	private CustomerDto registerCustomer(String name) {
+		return nodeA.getBean(CustomerService.class).registerCustomer(customer(name));
+	}
+
+}
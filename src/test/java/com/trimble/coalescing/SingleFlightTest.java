@@ -0,0 +1,134 @@
+package com.trimble.coalescing;
+
+import com.trimble.config.ReplicaLagGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+	@Test
+	void concurrentCallersShareOneComputation() throws Exception {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		SingleFlight singleFlight = new SingleFlight(meterRegistry, Optional.empty(), true, 0);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		int callers = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		List<Future<List<String>>> results = new ArrayList<>();
+		for (int i = 0; i < callers; i++) {
+			results.add(executor.submit(() -> singleFlight.execute("cars", 7L, () -> {
+				runs.incrementAndGet();
+				await(release);
+				return List.of("car");
+			})));
+		}
+		// Every caller has either started the computation or is waiting for it
+		while (coalesced(meterRegistry) + runs.get() < callers) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		List<String> first = results.get(0).get(10, TimeUnit.SECONDS);
+		for (Future<List<String>> result : results) {
+			assertSame(first, result.get(10, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		assertEquals(1, runs.get());
+		assertEquals(callers - 1, coalesced(meterRegistry));
+		assertEquals(0, singleFlight.size());
+
+		// Once finished, and without a window, the next call reads again; other keys never share
+		singleFlight.execute("cars", 7L, runs::incrementAndGet);
+		singleFlight.execute("cars", 8L, runs::incrementAndGet);
+		assertEquals(3, runs.get());
+	}
+
+	@Test
+	void windowSharesARecentResultButNeverAFailure() throws Exception {
+		SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry(), Optional.empty(), true, 200);
+		AtomicInteger runs = new AtomicInteger();
+
+		assertEquals(1, singleFlight.execute("cars", null, runs::incrementAndGet));
+		assertEquals(1, singleFlight.execute("cars", null, runs::incrementAndGet));
+		Thread.sleep(300);
+		assertEquals(2, singleFlight.execute("cars", null, runs::incrementAndGet));
+
+		assertThrows(IllegalStateException.class, () -> singleFlight.execute("failing", null, () -> {
+			throw new IllegalStateException("database down");
+		}));
+		assertEquals("ok", singleFlight.execute("failing", null, () -> "ok"));
+
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (singleFlight.size() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, singleFlight.size());
+	}
+
+	@Test
+	void disabledFlightRunsEveryCall() {
+		SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry(), Optional.empty(), false, 1_000);
+		AtomicInteger runs = new AtomicInteger();
+		singleFlight.execute("cars", null, runs::incrementAndGet);
+		singleFlight.execute("cars", null, runs::incrementAndGet);
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	void callersInTheirReadYourWritesWindowNeverJoinAFlight() throws Exception {
+		ReplicaLagGuard replicaLagGuard = new ReplicaLagGuard(60_000);
+		SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry(), Optional.of(replicaLagGuard), true, 60_000);
+		AtomicInteger runs = new AtomicInteger();
+		try {
+			SecurityContextHolder.getContext().setAuthentication(
+					new UsernamePasswordAuthenticationToken("alice", null, AuthorityUtils.NO_AUTHORITIES));
+			assertEquals(1, singleFlight.execute("cars", null, runs::incrementAndGet));
+			assertEquals(1, singleFlight.execute("cars", null, runs::incrementAndGet));
+
+			// After a write, alice reads on her own until the lag has passed; the shared result stays for others
+			replicaLagGuard.recordWrite();
+			assertEquals(2, singleFlight.execute("cars", null, runs::incrementAndGet));
+			assertEquals(3, singleFlight.execute("cars", null, runs::incrementAndGet));
+			SecurityContextHolder.getContext().setAuthentication(
+					new UsernamePasswordAuthenticationToken("bob", null, AuthorityUtils.NO_AUTHORITIES));
+			assertEquals(1, singleFlight.execute("cars", null, runs::incrementAndGet));
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	private static double coalesced(MeterRegistry meterRegistry) {
+		Counter counter = meterRegistry.find("carlease.single-flight.calls").tag("outcome", "coalesced").counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.trimble.config;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.registry.RegistrationKeyFilters;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The shipped main class started with the faststart profile: lazy beans, the eager exceptions and the warm-up
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@ActiveProfiles("faststart")
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:fastStart;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.warmup.iterations=3"})
+@DirtiesContext
+class FastStartProfileTest {
+
+	@Autowired
+	private ConfigurableApplicationContext context;
+
+	@Test
+	void backgroundBeansStayEagerAndWarmUpRunsBeforeReadiness() {
+		// Scheduled beans are created although nothing injects them
+		assertTrue(context.getBeanFactory().containsSingleton("leaseArchiveService"));
+		assertTrue(context.getBean(RegistrationKeyFilters.class).isLoaded());
+		// Everything else waits for its first use
+		assertFalse(context.getBeanFactory().containsSingleton("exportController"));
+
+		assertEquals(3, context.getBean(StartupWarmup.class).getCompletedIterations());
+		assertEquals(ReadinessState.ACCEPTING_TRAFFIC, context.getBean(ApplicationAvailability.class).getReadinessState());
+	}
+}
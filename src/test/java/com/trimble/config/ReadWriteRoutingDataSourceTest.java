@@ -0,0 +1,88 @@
+package com.trimble.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routing between two separate H2 databases, so every read shows which one served it: the
+ * replica never receives the primary's rows
+ */
+class ReadWriteRoutingDataSourceTest {
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readsStayOnThePrimaryForTheLagAfterTheCommit() throws Exception {
+		DataSource primary = database("routingPrimary");
+		DataSource replica = database("routingReplica");
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(new ReplicaLagGuard(300), new SimpleMeterRegistry());
+		routing.setTargetDataSources(Map.of(ReadWriteRoutingDataSource.PRIMARY, primary, ReadWriteRoutingDataSource.REPLICA, replica));
+		routing.setDefaultTargetDataSource(primary);
+		routing.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		TransactionTemplate read = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		read.setReadOnly(true);
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("alice", null, AuthorityUtils.createAuthorityList("ROLE_END_CUSTOMER")));
+
+		// A rolled back write leaves the reads on the replica
+		write.executeWithoutResult(status -> {
+			jdbcTemplate.update("INSERT INTO notes (id) VALUES (1)");
+			status.setRollbackOnly();
+		});
+		assertEquals(0, count(read, jdbcTemplate));
+
+		// A write that outlasts the lag still gets the full window once it commits
+		write.executeWithoutResult(status -> {
+			jdbcTemplate.update("INSERT INTO notes (id) VALUES (2)");
+			sleep(500);
+		});
+		assertEquals(1, count(read, jdbcTemplate));
+
+		// Once the lag has passed the replica serves the reads again; other principals never waited
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("bob", null, AuthorityUtils.createAuthorityList("ROLE_END_CUSTOMER")));
+		assertEquals(0, count(read, jdbcTemplate));
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("alice", null, AuthorityUtils.createAuthorityList("ROLE_END_CUSTOMER")));
+		sleep(400);
+		assertEquals(0, count(read, jdbcTemplate));
+	}
+
+	private static int count(TransactionTemplate read, JdbcTemplate jdbcTemplate) {
+		return read.execute(status -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notes", Integer.class));
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+		new JdbcTemplate(dataSource).execute("CREATE TABLE notes (id BIGINT PRIMARY KEY)");
+		return dataSource;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.trimble.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.repository.UserRepository;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Batch read endpoints through the web layer
+ * The throughput comparison with the per-ID endpoints is opt-in:
+ *   mvn test -Dtest=BatchReadControllerTest -Dcarlease.benchmark=true
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties =
+		"spring.datasource.url=jdbc:h2:mem:batchRead;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR")
+@AutoConfigureMockMvc
+@DirtiesContext
+@Slf4j(topic = "benchmark")
+class BatchReadControllerTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void carsFollowTheRequestOrderWithNotFoundMarkers() throws Exception {
+		List<Long> carIds = cars("order", 3);
+
+		JsonNode items = items("/api/cars/batch", List.of(carIds.get(2), 999_999L, carIds.get(0)));
+		assertEquals(3, items.size());
+		assertEquals(carIds.get(2).longValue(), items.get(0).get("id").asLong());
+		assertEquals("ORDER-2", items.get(0).get("data").get("licensePlate").asText());
+		assertNotFound(items.get(1), 999_999L);
+		assertEquals("ORDER-0", items.get(2).get("data").get("licensePlate").asText());
+	}
+
+	@Test
+	void customersFollowTheRequestOrderWithNotFoundMarkers() throws Exception {
+		Long first = customerService.registerCustomer(customer("batch-first")).getId();
+		Long second = customerService.registerCustomer(customer("batch-second")).getId();
+
+		JsonNode items = items("/api/customers/batch", List.of(second, 999_999L, first));
+		assertEquals(3, items.size());
+		assertEquals(second.longValue(), items.get(0).get("id").asLong());
+		assertEquals("Customer batch-second", items.get(0).get("data").get("fullName").asText());
+		assertNotFound(items.get(1), 999_999L);
+		assertEquals("Customer batch-first", items.get(2).get("data").get("fullName").asText());
+	}
+
+	@Test
+	void leasesFollowTheRequestOrderWithNotFoundMarkers() throws Exception {
+		List<Long> carIds = cars("leased", 2);
+		Long customerId = customerService.registerCustomer(customer("batch-lessee")).getId();
+		Long first = leaseService.startLease(lease(carIds.get(0), customerId)).getId();
+		Long second = leaseService.startLease(lease(carIds.get(1), customerId)).getId();
+
+		JsonNode items = items("/api/leases/batch", List.of(999_999L, second, first));
+		assertEquals(3, items.size());
+		assertNotFound(items.get(0), 999_999L);
+		assertEquals(second.longValue(), items.get(1).get("id").asLong());
+		assertEquals(carIds.get(1).longValue(), items.get(1).get("data").get("carId").asLong());
+		assertEquals(carIds.get(0).longValue(), items.get(2).get("data").get("carId").asLong());
+	}
+
+	@Test
+	void moreThanFiveHundredIdsAreRejected() throws Exception {
+		List<Long> tooMany = new ArrayList<>();
+		for (long id = 1; id <= 501; id++) {
+			tooMany.add(id);
+		}
+		for (String path : List.of("/api/cars/batch", "/api/customers/batch", "/api/leases/batch")) {
+			mvc.perform(batch(path, tooMany)).andExpect(status().isBadRequest());
+			mvc.perform(batch(path, tooMany.subList(0, 500))).andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void batchAgainstPerIdRequests() throws Exception {
+		int ids = Integer.getInteger("carlease.benchmark.ids", 200);
+		int rounds = Integer.getInteger("carlease.benchmark.rounds", 20);
+
+		// One client resolving the same ID list both ways through the full filter chain, controller
+		// and JSON serialization. The caller is pre-authenticated, since a BCrypt check per request
+		// would hide everything else, and there is no network in between: a real round trip adds
+		// its latency to every per-ID request but only once to a batch.
+		log.info(String.format("%-10s %-10s %-8s %-12s %-14s", "entity", "path", "ids", "requests", "ids/s"));
+		List<Long> carIds = cars("bench", ids);
+		List<Long> customerIds = new ArrayList<>();
+		for (int i = 0; i < ids; i++) {
+			customerIds.add(customerService.registerCustomer(customer("bench-" + i)).getId());
+		}
+
+		for (int pass = 0; pass < 2; pass++) {
+			double carsPerId = perId("/api/cars/", carIds, rounds);
+			double carsBatch = batch("/api/cars/batch", carIds, rounds);
+			double customersPerId = perId("/api/customers/", customerIds, rounds);
+			double customersBatch = batch("/api/customers/batch", customerIds, rounds);
+			if (pass == 1) {
+				log.info(String.format("%-10s %-10s %-8d %-12d %-14.0f", "cars", "per-id", ids, ids, carsPerId));
+				log.info(String.format("%-10s %-10s %-8d %-12d %-14.0f", "cars", "batch", ids, 1, carsBatch));
+				log.info(String.format("%-10s %-10s %-8d %-12d %-14.0f", "customers", "per-id", ids, ids, customersPerId));
+				log.info(String.format("%-10s %-10s %-8d %-12d %-14.0f", "customers", "batch", ids, 1, customersBatch));
+			}
+		}
+	}
+
+	private static void assertNotFound(JsonNode item, long id) {
+		assertEquals(id, item.get("id").asLong());
+		assertFalse(item.get("found").asBoolean());
+		assertTrue(item.get("data").isNull());
+	}
+
+	private JsonNode items(String path, List<Long> ids) throws Exception {
+		String body = mvc.perform(batch(path, ids))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body).get("data");
+	}
+
+	private double perId(String path, List<Long> ids, int rounds) throws Exception {
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			for (Long id : ids) {
+				mvc.perform(get(path + id).with(user("integration"))).andExpect(status().isOk());
+			}
+		}
+		return (double) ids.size() * rounds / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private double batch(String path, List<Long> ids, int rounds) throws Exception {
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			mvc.perform(batch(path, ids)).andExpect(status().isOk());
+		}
+		return (double) ids.size() * rounds / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private MockHttpServletRequestBuilder batch(String path, List<Long> ids) throws Exception {
+		return post(path)
+				.with(user("integration"))
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(Map.of("ids", ids)));
+	}
+
+	private List<Long> cars(String name, int count) {
+		Long ownerId = owner(userRepository, name).getId();
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(carService.registerCar(car(name.toUpperCase() + "-" + i), ownerId).getId());
+		}
+		return ids;
+	}
+
+}
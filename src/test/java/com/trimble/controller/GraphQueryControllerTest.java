@@ -0,0 +1,217 @@
+package com.trimble.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.ApiResponse;
+import com.trimble.dto.LeaseDto;
+import com.trimble.repository.UserRepository;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * GraphQL reads against a real context, counting the statements each query prepares
+ * The comparison with the REST call sequence is opt-in:
+ *   mvn test -Dtest=GraphQueryControllerTest -Dcarlease.benchmark=true
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:graphql;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@DirtiesContext
+@Slf4j(topic = "benchmark")
+class GraphQueryControllerTest {
+
+	private static final String SCREEN = """
+			query Screen($id: ID!) {
+			  customer(id: $id) {
+			    phoneNumber
+			    user { fullName }
+			    leases { status startDate car { licensePlate make model owner { fullName } } }
+			  }
+			}""";
+
+	@Autowired
+	private ExecutionGraphQlService graphQlService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private CustomerController customerController;
+
+	@Autowired
+	private LeaseController leaseController;
+
+	@Autowired
+	private CarController carController;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void associationsAreBatchedAndOnlyLoadedWhenSelected() {
+		Statistics statistics = statistics();
+		Long customerId = customerWithLeases("gq", 3);
+
+		statistics.clear();
+		Map<String, Object> customer = execute(SCREEN, Map.of("id", customerId)).field("customer").getValue();
+		// Customer with user, archived and current leases, their cars, the cars' owners
+		long screenStatements = statistics.getPrepareStatementCount();
+		assertEquals(5, screenStatements);
+		assertEquals("Customer gq", ((Map<?, ?>) customer.get("user")).get("fullName"));
+		List<Map<String, Object>> leases = leases(customer);
+		assertEquals(3, leases.size());
+		assertEquals(Set.of("GQ-0", "GQ-1", "GQ-2"), leases.stream()
+				.map(lease -> ((Map<?, ?>) lease.get("car")).get("licensePlate"))
+				.collect(Collectors.toSet()));
+		leases.forEach(lease -> assertEquals("Owner gq", ((Map<?, ?>) ((Map<?, ?>) lease.get("car")).get("owner")).get("fullName")));
+
+		// Ten times the leases, on ten times the cars, in the same number of statements
+		Long busierId = customerWithLeases("gq-busy", 30);
+		statistics.clear();
+		Map<String, Object> busier = execute(SCREEN, Map.of("id", busierId)).field("customer").getValue();
+		assertEquals(30, leases(busier).size());
+		assertEquals(screenStatements, statistics.getPrepareStatementCount());
+
+		// Without the car selected, neither cars nor owners are read
+		statistics.clear();
+		Map<String, Object> statuses = execute("query($id: ID!) { customer(id: $id) { leases { status } } }",
+				Map.of("id", customerId)).field("customer").getValue();
+		assertEquals(3, leases(statuses).size());
+		assertEquals(3, statistics.getPrepareStatementCount());
+
+		List<Object> cars = execute("{ cars(ids: [\"1\", \"999999\"]) { id } }", Map.of())
+				.field("cars").getValue();
+		assertEquals(2, cars.size());
+		assertNull(cars.get(1));
+		assertNull(execute("{ customer(id: \"999999\") { id } }", Map.of()).field("customer").getValue());
+	}
+
+	@Test
+	void deepAndOversizedQueriesAreRejected() {
+		String deep = "{ customer(id: \"1\") { leases { customer { leases { customer { leases { customer { leases { customer { id } } } } } } } } } }";
+		assertFalse(execute(deep, Map.of()).getErrors().isEmpty());
+
+		String ids = IntStream.rangeClosed(1, 501).mapToObj(id -> "\"" + id + "\"").collect(Collectors.joining(","));
+		ExecutionGraphQlResponse oversized = execute("{ cars(ids: [" + ids + "]) { id } }", Map.of());
+		assertEquals(1, oversized.getErrors().size());
+		assertEquals("BAD_REQUEST", oversized.getErrors().get(0).getErrorType().toString());
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void screenThroughGraphQlAgainstTheRestCallSequence() throws Exception {
+		int iterations = Integer.getInteger("carlease.benchmark.iterations", 2000);
+		int leaseCount = Integer.getInteger("carlease.benchmark.leases", 20);
+
+		// Handlers are called in-process and their responses serialized, so HTTP and basic auth
+		// (a BCrypt check per request) stay out of the timings; round trips are counted instead
+		log.info(String.format("%-10s %-10s %-14s %-14s %-14s", "path", "requests", "statements", "bytes", "avg ms"));
+		Long customerId = customerWithLeases("bench", leaseCount);
+		Statistics statistics = statistics();
+
+		for (String path : List.of("rest", "graphql", "rest", "graphql")) {
+			statistics.clear();
+			long bytes = 0;
+			int requests = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				if (path.equals("rest")) {
+					// The customer, their lease history, then each car in it
+					bytes += objectMapper.writeValueAsBytes(customerController.getCustomerById(customerId).getBody()).length;
+					ApiResponse<List<LeaseDto>> history = leaseController.getLeaseHistoryByCustomer(customerId).getBody();
+					bytes += objectMapper.writeValueAsBytes(history).length;
+					requests += 2;
+					Set<Long> carIds = history.getData().stream().map(LeaseDto::getCarId).collect(Collectors.toCollection(LinkedHashSet::new));
+					for (Long carId : carIds) {
+						bytes += objectMapper.writeValueAsBytes(carController.getCarById(carId).getBody()).length;
+						requests++;
+					}
+				} else {
+					bytes += objectMapper.writeValueAsBytes(execute(SCREEN, Map.of("id", customerId)).toMap()).length;
+					requests++;
+				}
+			}
+			double millis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+			log.info(String.format("%-10s %-10d %-14d %-14d %-14.3f", path, requests / iterations,
+					statistics.getPrepareStatementCount() / iterations, bytes / iterations, millis));
+		}
+	}
+
+	private ExecutionGraphQlResponse execute(String document, Map<String, Object> variables) {
+		return graphQlService
+				.execute(new DefaultExecutionGraphQlRequest(document, null, variables, null, "test", null))
+				.block();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Map<String, Object>> leases(Map<String, Object> customer) {
+		return (List<Map<String, Object>>) customer.get("leases");
+	}
+
+	private Statistics statistics() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	/**
+	 * A customer who has leased each of an owner's cars once, all ended but the last
+	 */
+	private Long customerWithLeases(String name, int count) {
+		Long ownerId = owner(userRepository, name).getId();
+		Long customerId = customerService.registerCustomer(customer(name)).getId();
+		List<Long> leaseIds = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Long carId = carService.registerCar(car(name.toUpperCase() + "-" + i), ownerId).getId();
+			leaseIds.add(leaseService.startLease(lease(carId, customerId)).getId());
+			if (i < count - 1) {
+				leaseService.endLease(leaseIds.get(i));
+			}
+		}
+		return customerId;
+	}
+
+}
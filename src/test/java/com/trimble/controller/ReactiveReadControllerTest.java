@@ -0,0 +1,331 @@
+package com.trimble.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.dto.LeaseDto;
+import com.trimble.repository.ReactiveReadRepository;
+import com.trimble.service.AdminService;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseArchiveService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.reactivestreams.Subscription;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.h2Url;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The reactive read path against a real context, compared with the blocking services it mirrors
+ * The load comparison with the servlet/JDBC path is opt-in:
+ *   mvn test -Dtest=ReactiveReadControllerTest -Dcarlease.benchmark=true
+ */
+@Slf4j(topic = "benchmark")
+class ReactiveReadControllerTest {
+
+	private static final AtomicInteger RUN = new AtomicInteger();
+	private static final String ADMIN_PASSWORD = "admin-secret";
+
+	@Test
+	void streamsTheSameDtosAsTheBlockingReads() {
+		try (ConfigurableApplicationContext context = start(4)) {
+			ReactiveReadRepository reactive = context.getBean(ReactiveReadRepository.class);
+			AdminService adminService = context.getBean(AdminService.class);
+			Long customerId = customerWithLeases(context, "rx", 4);
+			// Finished leases move to lease_archive, so the history spans both tables
+			assertEquals(3, context.getBean(LeaseArchiveService.class).archiveLeases());
+
+			assertEquals(adminService.getAllCars(), reactive.findAllCars().collectList().block());
+			assertEquals(adminService.getAllLeases(), reactive.findAllLeases().collectList().block());
+			List<LeaseDto> history = context.getBean(LeaseService.class).getLeaseHistoryByCustomer(customerId);
+			assertEquals(4, history.size());
+			assertEquals(history, reactive.findLeaseHistoryByCustomer(customerId).collectList().block());
+			Long carId = history.get(0).getCarId();
+			assertEquals(context.getBean(LeaseService.class).getLeaseHistoryByCar(carId),
+					reactive.findLeaseHistoryByCar(carId).collectList().block());
+		}
+	}
+
+	@Test
+	void historyIsStreamedOneLinePerLeaseAndUnknownIdsAreNotFound() throws Exception {
+		try (ConfigurableApplicationContext context = start(4)) {
+			Long customerId = customerWithLeases(context, "nd", 3);
+			HttpClient client = HttpClient.newHttpClient();
+
+			HttpResponse<String> stream = client.send(get(context, "/api/leases/reactive/customer/" + customerId + "/history"),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, stream.statusCode());
+			assertTrue(stream.headers().firstValue("Content-Type").orElseThrow().startsWith("application/x-ndjson"));
+			ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+			List<String> lines = stream.body().lines().filter(line -> !line.isBlank()).toList();
+			assertEquals(3, lines.size());
+			assertEquals(customerId, objectMapper.readValue(lines.get(0), LeaseDto.class).getCustomerId());
+
+			HttpResponse<String> missing = client.send(get(context, "/api/leases/reactive/customer/999999/history"),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(404, missing.statusCode());
+		}
+	}
+
+	@Test
+	void slowReadersShareTheBoundedPool() throws Exception {
+		try (ConfigurableApplicationContext context = start(2)) {
+			ReactiveReadRepository reactive = context.getBean(ReactiveReadRepository.class);
+			customerWithLeases(context, "bp", 20);
+
+			// Six readers asking for one row at a time; the rest wait for a connection, not a thread
+			int readers = 6;
+			AtomicInteger peakAcquired = new AtomicInteger();
+			CountDownLatch done = new CountDownLatch(readers);
+			List<AtomicInteger> received = new ArrayList<>();
+			for (int i = 0; i < readers; i++) {
+				AtomicInteger count = new AtomicInteger();
+				received.add(count);
+				reactive.findAllLeases().subscribe(new BaseSubscriber<>() {
+					@Override
+					protected void hookOnSubscribe(Subscription subscription) {
+						request(1);
+					}
+
+					@Override
+					protected void hookOnNext(LeaseDto lease) {
+						count.incrementAndGet();
+						peakAcquired.accumulateAndGet(reactive.poolMetrics().acquiredSize(), Math::max);
+						request(1);
+					}
+
+					@Override
+					protected void hookFinally(SignalType type) {
+						done.countDown();
+					}
+				});
+			}
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+			received.forEach(count -> assertEquals(20, count.get()));
+			assertTrue(peakAcquired.get() <= 2, "acquired " + peakAcquired.get());
+		}
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void historyUnderHighConcurrencyAgainstTheServletPath() throws Exception {
+		int clients = Integer.getInteger("carlease.benchmark.clients", 200);
+		int leaseCount = Integer.getInteger("carlease.benchmark.leases", 200);
+		int poolSize = Integer.getInteger("carlease.benchmark.pool", 4);
+
+		// Handlers are called in-process and each DTO serialized, so basic auth (a BCrypt check
+		// per request) stays out of the timings. The servlet path gets one thread per client, as
+		// Tomcat would; the reactive path only has the repository's scheduler, whose threads are
+		// started in the warm-up pass. Latency is measured from the moment all clients have sent
+		// their request.
+		log.info(String.format("%-10s %-8s %-12s %-12s %-10s %-10s", "path", "clients", "connections", "new threads", "p50 ms", "p99 ms"));
+		try (ConfigurableApplicationContext context = start(poolSize)) {
+			Long customerId = customerWithLeases(context, "bench", 1);
+			context.getBean(JdbcTemplate.class).update(
+					"INSERT INTO leases (car_id, customer_id, start_date, end_date, total_amount, status, created_at) " +
+					"SELECT (SELECT MIN(id) FROM cars), ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 120.00, 'COMPLETED', CURRENT_TIMESTAMP " +
+					"FROM SYSTEM_RANGE(1, ?)", customerId, leaseCount);
+			LeaseController leaseController = context.getBean(LeaseController.class);
+			ReactiveReadController reactiveController = context.getBean(ReactiveReadController.class);
+			ReactiveReadRepository reactive = context.getBean(ReactiveReadRepository.class);
+			HikariDataSource dataSource = (HikariDataSource) context.getBean(DataSource.class);
+			ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+			for (int pass = 0; pass < 2; pass++) {
+				Result servlet = servlet(clients, () -> {
+					List<LeaseDto> leases = leaseController.getLeaseHistoryByCustomer(customerId).getBody().getData();
+					for (LeaseDto lease : leases) {
+						write(objectMapper, lease);
+					}
+				}, () -> dataSource.getHikariPoolMXBean().getActiveConnections());
+				Result flux = reactive(clients, () -> reactiveController.streamLeaseHistoryByCustomer(customerId)
+						.flatMapMany(response -> response.getBody())
+						.doOnNext(lease -> write(objectMapper, lease))
+						.then(), () -> reactive.poolMetrics().acquiredSize());
+				if (pass == 1) {
+					servlet.print("servlet", clients);
+					flux.print("reactive", clients);
+				}
+			}
+		}
+	}
+
+	private record Result(long[] latencies, int connections, int threads) {
+		void print(String path, int clients) {
+			Arrays.sort(latencies);
+			log.info(String.format("%-10s %-8d %-12d %-12d %-10.1f %-10.1f", path, clients, connections, threads,
+					latencies[latencies.length / 2] / 1_000_000.0, latencies[(int) (latencies.length * 0.99)] / 1_000_000.0));
+		}
+	}
+
+	private static Result servlet(int clients, Runnable request, IntSupplier connections) throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int baseThreads = threads.getThreadCount();
+		threads.resetPeakThreadCount();
+		long[] latencies = new long[clients];
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		try (Sampler sampler = new Sampler(connections)) {
+			CountDownLatch ready = new CountDownLatch(clients);
+			CountDownLatch start = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(clients);
+			long[] begin = new long[1];
+			for (int i = 0; i < clients; i++) {
+				int client = i;
+				executor.execute(() -> {
+					try {
+						ready.countDown();
+						start.await();
+						request.run();
+						latencies[client] = System.nanoTime() - begin[0];
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				});
+			}
+			ready.await();
+			begin[0] = System.nanoTime();
+			start.countDown();
+			done.await();
+			// The sampler thread itself is not counted
+			return new Result(latencies, sampler.peak(), threads.getPeakThreadCount() - baseThreads - 1);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static Result reactive(int clients, Supplier<Mono<Void>> request,
+								   IntSupplier connections) throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int baseThreads = threads.getThreadCount();
+		threads.resetPeakThreadCount();
+		long[] latencies = new long[clients];
+		try (Sampler sampler = new Sampler(connections)) {
+			CountDownLatch done = new CountDownLatch(clients);
+			// All requests arrive at once; the H2 driver runs a query on the thread that
+			// subscribes, so later requests also wait for the earlier ones to be served
+			long begin = System.nanoTime();
+			for (int i = 0; i < clients; i++) {
+				int client = i;
+				request.get().doFinally(signal -> {
+					latencies[client] = System.nanoTime() - begin;
+					done.countDown();
+				}).subscribe();
+			}
+			done.await();
+			return new Result(latencies, sampler.peak(), Math.max(0, threads.getPeakThreadCount() - baseThreads - 1));
+		}
+	}
+
+	/**
+	 * Peak of a connection count, sampled every 100 microseconds
+	 */
+	private static final class Sampler implements AutoCloseable {
+		private final Thread thread;
+		private final AtomicInteger peak = new AtomicInteger();
+		private volatile boolean running = true;
+
+		Sampler(IntSupplier value) {
+			thread = new Thread(() -> {
+				while (running) {
+					peak.accumulateAndGet(value.getAsInt(), Math::max);
+					LockSupport.parkNanos(100_000);
+				}
+			});
+			thread.start();
+		}
+
+		int peak() {
+			return peak.get();
+		}
+
+		@Override
+		public void close() throws InterruptedException {
+			running = false;
+			thread.join();
+		}
+	}
+
+	private static void write(ObjectMapper objectMapper, LeaseDto lease) {
+		try {
+			objectMapper.writeValueAsBytes(lease);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ConfigurableApplicationContext start(int poolSize) {
+		int run = RUN.incrementAndGet();
+		return TestFixtures.start(
+				"--spring.datasource.url=" + h2Url("reactive" + run),
+				"--spring.security.user.name=admin",
+				"--spring.security.user.password=" + new BCryptPasswordEncoder().encode(ADMIN_PASSWORD),
+				"--spring.security.user.roles=ADMIN",
+				"--carlease.archive.retention-days=-1",
+				"--carlease.reactive.enabled=true",
+				"--carlease.reactive.url=r2dbc:h2:mem:///reactive" + run + "?options=DB_CLOSE_DELAY=-1",
+				"--carlease.reactive.max-pool-size=" + poolSize);
+	}
+
+	private static HttpRequest get(ConfigurableApplicationContext context, String path) {
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		String credentials = Base64.getEncoder().encodeToString(("admin:" + ADMIN_PASSWORD).getBytes(StandardCharsets.UTF_8));
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Authorization", "Basic " + credentials)
+				.build();
+	}
+
+	private static Long customerWithLeases(ConfigurableApplicationContext context, String name, int count) {
+		CarService carService = context.getBean(CarService.class);
+		LeaseService leaseService = context.getBean(LeaseService.class);
+		Long ownerId = owner(context, name).getId();
+		Long customerId = context.getBean(CustomerService.class).registerCustomer(customer(name)).getId();
+		List<Long> leaseIds = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Long carId = carService.registerCar(car(name.toUpperCase() + "-" + i), ownerId).getId();
+			leaseIds.add(leaseService.startLease(lease(carId, customerId)).getId());
+			if (i < count - 1) {
+				leaseService.endLease(leaseIds.get(i));
+			}
+		}
+		return customerId;
+	}
+
+}
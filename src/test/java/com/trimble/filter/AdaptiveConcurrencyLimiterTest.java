@@ -0,0 +1,49 @@
+package com.trimble.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+	@Test
+	void shedsOnceQueueingExceedsTheThresholdAndShrinksTheLimit() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 4, 10, 20);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(limiter.acquire() >= 0);
+		}
+		assertEquals(10, limiter.getInFlight());
+
+		// The threshold has passed since construction, so the first timeout also decreases the limit
+		Thread.sleep(25);
+		assertEquals(-1, limiter.acquire());
+		assertEquals(1, limiter.getRejectedCount());
+		assertEquals(9, limiter.getLimit());
+
+		// The next timeout is a full threshold later, so it shrinks the limit again
+		assertEquals(-1, limiter.acquire());
+		assertEquals(2, limiter.getRejectedCount());
+		assertEquals(8, limiter.getLimit());
+
+		// Filling the reduced limit again without queueing grows it back by one
+		for (int i = 0; i < 10; i++) {
+			limiter.release();
+		}
+		for (int i = 0; i < 8; i++) {
+			assertTrue(limiter.acquire() >= 0);
+		}
+		assertEquals(9, limiter.getLimit());
+	}
+
+	@Test
+	void growsByOneWhenSaturatedWithoutQueueing() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, 1000);
+		limiter.acquire();
+		assertEquals(2, limiter.getLimit());
+		limiter.acquire();
+		assertEquals(3, limiter.getLimit());
+		limiter.acquire();
+		assertEquals(3, limiter.getLimit());
+	}
+}
@@ -0,0 +1,106 @@
+package com.trimble.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.enums.EndpointClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class RateLimitFilterTest {
+
+	@Test
+	void rejectsWith429OnceTheClientsBucketIsEmpty() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RateLimitFilter filter = filter(meterRegistry, 100, 0.1, 2);
+
+		assertEquals(200, call(filter, "GET", "/api/cars/1", "10.0.0.1").getStatus());
+		assertEquals(200, call(filter, "GET", "/api/cars/2", "10.0.0.1").getStatus());
+		MockHttpServletResponse rejected = call(filter, "GET", "/api/cars/3", "10.0.0.1");
+		assertEquals(429, rejected.getStatus());
+		assertEquals("10", rejected.getHeader("Retry-After"));
+		assertEquals(1, meterRegistry.counter("carlease.ratelimit.rejected", "endpointClass", "CHEAP_READ").count());
+
+		// Another client and another endpoint class have buckets of their own
+		assertEquals(200, call(filter, "GET", "/api/cars/1", "10.0.0.2").getStatus());
+		assertEquals(200, call(filter, "POST", "/api/leases/start", "10.0.0.1").getStatus());
+	}
+
+	@Test
+	void clientsBeyondTheCapShareAnOverflowBucketUntilASweepFreesRoom() throws Exception {
+		RateLimitFilter filter = filter(new SimpleMeterRegistry(), 2, 0.1, 1);
+
+		assertEquals(200, call(filter, "GET", "/api/cars/1", "10.0.0.1").getStatus());
+		assertEquals(200, call(filter, "GET", "/api/cars/1", "10.0.0.2").getStatus());
+		assertEquals(200, call(filter, "GET", "/api/cars/1", "10.0.0.3").getStatus());
+		assertEquals(429, call(filter, "GET", "/api/cars/1", "10.0.0.4").getStatus());
+		assertEquals(2, filter.getTrackedClients());
+
+		// Nothing has refilled yet, so the sweep keeps every bucket
+		filter.sweepIdleBuckets();
+		assertEquals(2, filter.getTrackedClients());
+	}
+
+	@Test
+	void sweepDropsRefilledBuckets() throws Exception {
+		RateLimitFilter filter = filter(new SimpleMeterRegistry(), 10, 1000, 1);
+		call(filter, "GET", "/api/cars/1", "10.0.0.1");
+		call(filter, "GET", "/api/cars/1", "10.0.0.2");
+		assertEquals(2, filter.getTrackedClients());
+
+		Thread.sleep(5);
+		filter.sweepIdleBuckets();
+		assertEquals(0, filter.getTrackedClients());
+	}
+
+	@Test
+	void limitsGraphQlQueriesAsHeavyReads() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RateLimitFilter filter = filter(meterRegistry, 100, 0.1, 1);
+
+		assertEquals(200, call(filter, "POST", "/graphql", "10.0.0.1").getStatus());
+		assertEquals(429, call(filter, "POST", "/graphql", "10.0.0.1").getStatus());
+		assertEquals(1, meterRegistry.counter("carlease.ratelimit.rejected", "endpointClass", "HEAVY_READ").count());
+
+		// Other paths outside /api/ are not limited
+		assertEquals(200, call(filter, "GET", "/actuator/health", "10.0.0.1").getStatus());
+		assertEquals(200, call(filter, "GET", "/actuator/health", "10.0.0.1").getStatus());
+	}
+
+	@Test
+	void classifiesByEndpointCost() {
+		assertEquals(EndpointClass.CHEAP_READ, RateLimitFilter.classify(request("GET", "/api/cars/1")));
+		assertEquals(EndpointClass.HEAVY_READ, RateLimitFilter.classify(request("GET", "/api/admin/cars")));
+		assertEquals(EndpointClass.HEAVY_READ, RateLimitFilter.classify(request("POST", "/api/cars/batch")));
+		assertEquals(EndpointClass.HEAVY_READ, RateLimitFilter.classify(request("POST", "/graphql")));
+		assertEquals(EndpointClass.WRITE, RateLimitFilter.classify(request("PUT", "/api/leases/1/end")));
+	}
+
+	private static RateLimitFilter filter(SimpleMeterRegistry meterRegistry, int maxTrackedClients,
+										  double cheapReadRate, int burst) {
+		return new RateLimitFilter(new ObjectMapper(), meterRegistry, true, maxTrackedClients,
+				cheapReadRate, burst, cheapReadRate, burst, cheapReadRate, burst);
+	}
+
+	private static MockHttpServletResponse call(RateLimitFilter filter, String method, String uri, String remoteAddress)
+			throws Exception {
+		MockHttpServletRequest request = request(method, uri);
+		request.setRemoteAddr(remoteAddress);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, response, chain);
+		if (response.getStatus() == 200) {
+			assertNotNull(chain.getRequest());
+		}
+		return response;
+	}
+
+	private static MockHttpServletRequest request(String method, String uri) {
+		return new MockHttpServletRequest(method, uri);
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.trimble.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	void allowsBurstThenRefillsAtRate() {
+		TokenBucket bucket = new TokenBucket(10, 3);
+		long now = 5 * SECOND;
+
+		assertEquals(0, bucket.tryAcquire(now));
+		assertEquals(0, bucket.tryAcquire(now));
+		assertEquals(0, bucket.tryAcquire(now));
+
+		long wait = bucket.tryAcquire(now);
+		assertEquals(SECOND / 10, wait);
+
+		assertEquals(0, bucket.tryAcquire(now + wait));
+	}
+
+	@Test
+	void becomesIdleOnceFullyRefilled() {
+		TokenBucket bucket = new TokenBucket(10, 2);
+		long now = 5 * SECOND;
+
+		bucket.tryAcquire(now);
+		bucket.tryAcquire(now);
+
+		assertTrue(!bucket.isIdle(now));
+		assertTrue(bucket.isIdle(now + SECOND / 5));
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.trimble.hold;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+	@Test
+	void everyTimeoutFiresInTheFirstAdvanceThatReachesItsDeadline() {
+		TimingWheel<Integer> wheel = new TimingWheel<>(1, TimeUnit.NANOSECONDS, 0);
+		Random random = new Random(42);
+		Map<Integer, Long> deadlines = new HashMap<>();
+		Set<Integer> fired = new HashSet<>();
+		long now = 0;
+		int next = 0;
+		// Deadlines on every level and beyond the top one, scheduled at many different points of the wheel
+		while (now < 20_000_000L) {
+			Set<Integer> scheduledNow = new HashSet<>();
+			for (int i = 0; i < 20; i++) {
+				long delay = switch (i % 4) {
+					case 0 -> random.nextInt(64);
+					case 1 -> random.nextInt(4096);
+					case 2 -> random.nextInt(300_000);
+					default -> random.nextInt(18_000_000);
+				};
+				deadlines.put(next, now + delay);
+				scheduledNow.add(next);
+				wheel.schedule(next++, now + delay);
+			}
+			long previous = now;
+			now += 1 + random.nextInt(random.nextBoolean() ? 50 : 200_000);
+			long reached = now;
+			wheel.advance(reached, timeout -> {
+				long deadline = deadlines.get(timeout.getItem());
+				assertTrue(deadline <= reached);
+				// Anything due by the previous advance fired then, unless it was scheduled after it
+				assertTrue(deadline > previous || scheduledNow.contains(timeout.getItem()));
+				assertTrue(fired.add(timeout.getItem()));
+			});
+		}
+		wheel.advance(now + 20_000_000L, timeout -> assertTrue(fired.add(timeout.getItem())));
+
+		assertEquals(deadlines.size(), fired.size());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void cancelledTimeoutsNeverFire() {
+		TimingWheel<String> wheel = new TimingWheel<>(10, TimeUnit.MILLISECONDS, 0);
+		TimingWheel.Timeout<String> kept = wheel.schedule("kept", TimeUnit.MILLISECONDS.toNanos(25));
+		TimingWheel.Timeout<String> dropped = wheel.schedule("dropped", TimeUnit.MILLISECONDS.toNanos(25));
+		TimingWheel.Timeout<String> late = wheel.schedule("late", TimeUnit.SECONDS.toNanos(30));
+		assertEquals(3, wheel.size());
+
+		List<String> fired = new ArrayList<>();
+		wheel.advance(TimeUnit.MILLISECONDS.toNanos(20), timeout -> fired.add(timeout.getItem()));
+		assertTrue(fired.isEmpty());
+		assertTrue(dropped.cancel());
+		assertFalse(dropped.cancel());
+		assertTrue(late.cancel());
+		assertEquals(1, wheel.size());
+
+		// Rounded up to the next tick, never early
+		wheel.advance(TimeUnit.MILLISECONDS.toNanos(29), timeout -> fired.add(timeout.getItem()));
+		assertTrue(fired.isEmpty());
+		wheel.advance(TimeUnit.MILLISECONDS.toNanos(30), timeout -> fired.add(timeout.getItem()));
+		assertEquals(List.of("kept"), fired);
+		assertFalse(kept.cancel());
+
+		wheel.advance(TimeUnit.SECONDS.toNanos(60), timeout -> fired.add(timeout.getItem()));
+		assertEquals(List.of("kept"), fired);
+		assertEquals(0, wheel.size());
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.trimble.mapper;
+
+import com.trimble.dto.CarDto;
+import com.trimble.dto.CustomerDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.ArchivedLease;
+import com.trimble.entity.Car;
+import com.trimble.entity.Customer;
+import com.trimble.entity.Lease;
+import com.trimble.entity.User;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.enums.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation benchmark for the list endpoints' entity to DTO mapping
+ * Not a unit test; run it with -prof gc and compare gc.alloc.rate.norm (bytes per call):
+ *   mvn test-compile
+ *   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *       org.openjdk.jmh.Main DtoMappingBenchmark -prof gc
+ * leasesWithConcatenatedDetails is the old per-row string building, kept as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+	@Param({"1000"})
+	private int rows;
+
+	private List<Car> cars;
+	private List<Customer> customers;
+	private List<Lease> leases;
+	private List<ArchivedLease> archivedLeases;
+
+	private CarMapper carMapper;
+	private CustomerMapper customerMapper;
+	private LeaseMapper leaseMapper;
+
+	@Setup
+	public void setUp() {
+		carMapper = new CarMapperImpl();
+		customerMapper = new CustomerMapperImpl();
+		leaseMapper = new LeaseMapperImpl(new CarDetailsCache(10_000));
+
+		User owner = user(1L, "owner", UserRole.CAR_OWNER);
+		cars = new ArrayList<>();
+		customers = new ArrayList<>();
+		leases = new ArrayList<>();
+		archivedLeases = new ArrayList<>();
+		// A small fleet leased many times over, as in a lease history listing
+		for (long i = 1; i <= Math.max(1, rows / 10); i++) {
+			cars.add(car(i, owner));
+		}
+		for (long i = 1; i <= rows; i++) {
+			customers.add(customer(i));
+		}
+		for (long i = 1; i <= rows; i++) {
+			Car car = cars.get((int) (i % cars.size()));
+			leases.add(lease(i, car, customers.get((int) (i - 1))));
+			archivedLeases.add(archivedLease(i, car));
+		}
+	}
+
+	@Benchmark
+	public List<CarDto> cars() {
+		return carMapper.toDtos(cars);
+	}
+
+	@Benchmark
+	public List<CustomerDto> customers() {
+		return customerMapper.toDtos(customers);
+	}
+
+	@Benchmark
+	public List<LeaseDto> leases() {
+		return leaseMapper.toDtos(leases);
+	}
+
+	@Benchmark
+	public List<LeaseDto> archivedLeases() {
+		return leaseMapper.archivedToDtos(archivedLeases);
+	}
+
+	@Benchmark
+	public List<LeaseDto> leasesWithConcatenatedDetails() {
+		List<LeaseDto> dtos = new ArrayList<>(leases.size());
+		for (Lease lease : leases) {
+			LeaseDto dto = new LeaseDto();
+			dto.setId(lease.getId());
+			dto.setCarId(lease.getCar().getId());
+			dto.setCustomerId(lease.getCustomer().getId());
+			dto.setCarDetails(lease.getCar().getMake() + " " + lease.getCar().getModel() +
+					" (" + lease.getCar().getLicensePlate() + ")");
+			dto.setCustomerName(lease.getCustomer().getUser().getFullName());
+			dto.setStartDate(lease.getStartDate());
+			dto.setEndDate(lease.getEndDate());
+			dto.setTotalAmount(lease.getTotalAmount());
+			dto.setStatus(lease.getStatus());
+			dto.setCreatedAt(lease.getCreatedAt());
+			dto.setUpdatedAt(lease.getUpdatedAt());
+			dtos.add(dto);
+		}
+		return dtos;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder()
+				.include(DtoMappingBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+
+	private static User user(Long id, String name, UserRole role) {
+		User user = new User();
+		user.setId(id);
+		user.setUsername(name + id);
+		user.setPassword("secret");
+		user.setEmail(name + id + "@bench.test");
+		user.setFullName("User " + name + id);
+		user.setRole(role);
+		return user;
+	}
+
+	private static Car car(Long id, User owner) {
+		Car car = new Car();
+		car.setId(id);
+		car.setLicensePlate("BM-" + id);
+		car.setMake("Skoda");
+		car.setModel("Octavia");
+		car.setYear(2022);
+		car.setColor("Grey");
+		car.setDailyRate(new BigDecimal("40.00"));
+		car.setStatus(CarStatus.AVAILABLE);
+		car.setOwner(owner);
+		car.setCreatedAt(LocalDateTime.now());
+		return car;
+	}
+
+	private static Customer customer(Long id) {
+		Customer customer = new Customer();
+		customer.setId(id);
+		customer.setUser(user(id + 1, "customer", UserRole.END_CUSTOMER));
+		customer.setPhoneNumber("555-0100");
+		customer.setAddress("1 Main Street");
+		customer.setDriverLicense("DL-" + id);
+		customer.setCreatedAt(LocalDateTime.now());
+		return customer;
+	}
+
+	private static Lease lease(Long id, Car car, Customer customer) {
+		Lease lease = new Lease();
+		lease.setId(id);
+		lease.setCar(car);
+		lease.setCustomer(customer);
+		lease.setStartDate(LocalDateTime.now().minusDays(3));
+		lease.setEndDate(LocalDateTime.now());
+		lease.setTotalAmount(new BigDecimal("120.00"));
+		lease.setStatus(LeaseStatus.COMPLETED);
+		lease.setCreatedAt(LocalDateTime.now());
+		return lease;
+	}
+
+	private static ArchivedLease archivedLease(Long id, Car car) {
+		ArchivedLease lease = new ArchivedLease();
+		lease.setId(id);
+		lease.setCarId(car.getId());
+		lease.setOwnerId(car.getOwner().getId());
+		lease.setLicensePlate(car.getLicensePlate());
+		lease.setMake(car.getMake());
+		lease.setModel(car.getModel());
+		lease.setCustomerId(id);
+		lease.setCustomerName("Customer " + id);
+		lease.setStartDate(LocalDateTime.now().minusDays(3));
+		lease.setEndDate(LocalDateTime.now());
+		lease.setTotalAmount(new BigDecimal("120.00"));
+		lease.setStatus(LeaseStatus.COMPLETED);
+		lease.setCreatedAt(LocalDateTime.now());
+		lease.setArchivedAt(LocalDateTime.now());
+		return lease;
+	}
+}
@@ -0,0 +1,67 @@
+package com.trimble.registry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+	@Test
+	void neverMissesAKeyAndStaysNearTheTargetRateAtCapacity() {
+		int keys = 100_000;
+		BloomFilter filter = new BloomFilter(keys, 0.01);
+		assertEquals(7, filter.getHashCount());
+		assertFalse(filter.mightContain("user-1@customer.test"));
+		for (int i = 0; i < keys; i++) {
+			filter.put("user-" + i + "@customer.test");
+		}
+		for (int i = 0; i < keys; i++) {
+			assertTrue(filter.mightContain("user-" + i + "@customer.test"));
+		}
+
+		int falsePositives = 0;
+		for (int i = keys; i < 2 * keys; i++) {
+			if (filter.mightContain("user-" + i + "@customer.test")) {
+				falsePositives++;
+			}
+		}
+		double observed = (double) falsePositives / keys;
+		assertTrue(observed < 0.015, "observed " + observed);
+		assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.003);
+	}
+
+	@Test
+	void concurrentPutsAreAllKept() throws Exception {
+		int threads = 8;
+		int perThread = 20_000;
+		BloomFilter filter = new BloomFilter((long) threads * perThread, 0.01);
+		CountDownLatch go = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			executor.submit(() -> {
+				go.await();
+				for (int i = 0; i < perThread; i++) {
+					filter.put("PL-" + thread + "-" + i);
+				}
+				return null;
+			});
+		}
+		go.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+		for (int t = 0; t < threads; t++) {
+			for (int i = 0; i < perThread; i++) {
+				assertTrue(filter.mightContain("PL-" + t + "-" + i));
+			}
+		}
+	}
+}
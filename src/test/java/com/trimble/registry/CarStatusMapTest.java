@@ -0,0 +1,147 @@
+package com.trimble.registry;
+
+import com.trimble.entity.Car;
+import com.trimble.entity.User;
+import com.trimble.enums.CarStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The heap footprint comparison is opt-in: mvn test -Dtest=CarStatusMapTest -Dcarlease.benchmark=true
+ */
+@Slf4j(topic = "benchmark")
+class CarStatusMapTest {
+
+	@Test
+	void storesValuesAndTransitionsStatusWithCas() {
+		CarStatusMap map = new CarStatusMap(4);
+		map.put(7, CarStatus.AVAILABLE, 4000, 3);
+
+		assertEquals(CarStatus.AVAILABLE, map.status(7));
+		assertEquals(4000, map.dailyRateCents(7));
+		assertEquals(3, map.ownerId(7));
+		assertNull(map.status(8));
+		assertEquals(CarStatusMap.UNKNOWN, map.ownerId(8));
+
+		assertTrue(map.compareAndSetStatus(7, CarStatus.AVAILABLE, CarStatus.ON_LEASE));
+		assertFalse(map.compareAndSetStatus(7, CarStatus.AVAILABLE, CarStatus.ON_LEASE));
+		assertFalse(map.compareAndSetStatus(8, CarStatus.AVAILABLE, CarStatus.ON_LEASE));
+
+		map.putIfAbsent(7, CarStatus.AVAILABLE, 1, 1);
+		assertEquals(CarStatus.ON_LEASE, map.status(7));
+		map.put(7, CarStatus.ON_SERVICE, 4500, 3);
+		assertEquals(CarStatus.ON_SERVICE, map.status(7));
+		assertEquals(4500, map.dailyRateCents(7));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void keepsConcurrentTransitionsWhileGrowing() throws Exception {
+		CarStatusMap map = new CarStatusMap(4);
+		int seeded = 64;
+		for (long id = 1; id <= seeded; id++) {
+			map.put(id, CarStatus.AVAILABLE, 100, 1);
+		}
+
+		// Every seeded car is claimed exactly once while another thread keeps growing the table
+		int threads = 8;
+		AtomicInteger claims = new AtomicInteger();
+		CountDownLatch go = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		executor.submit(() -> {
+			go.await();
+			for (long id = seeded + 1; id <= 200_000; id++) {
+				map.put(id, CarStatus.AVAILABLE, 100, 1);
+			}
+			return null;
+		});
+		for (int t = 0; t < threads; t++) {
+			executor.submit(() -> {
+				go.await();
+				for (int round = 0; round < 2_000; round++) {
+					for (long id = 1; id <= seeded; id++) {
+						if (map.compareAndSetStatus(id, CarStatus.AVAILABLE, CarStatus.ON_LEASE)) {
+							claims.incrementAndGet();
+						}
+					}
+				}
+				return null;
+			});
+		}
+		go.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+		assertEquals(seeded, claims.get());
+		assertEquals(200_000, map.size());
+		for (long id = 1; id <= seeded; id++) {
+			assertEquals(CarStatus.ON_LEASE, map.status(id));
+		}
+		assertEquals(CarStatus.AVAILABLE, map.status(200_000));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void heapFootprintAgainstEntities() {
+		int count = Integer.getInteger("carlease.benchmark.cars", 1_000_000);
+		User owner = new User();
+		owner.setId(1L);
+
+		long baseline = usedHeap();
+		Map<Long, Car> entities = new HashMap<>();
+		for (long id = 1; id <= count; id++) {
+			Car car = new Car();
+			car.setId(id);
+			car.setLicensePlate("FP-" + id);
+			car.setMake("Skoda");
+			car.setModel("Octavia");
+			car.setYear(2022);
+			car.setColor("Grey");
+			car.setDailyRate(BigDecimal.valueOf(4000 + id % 500, 2));
+			car.setStatus(CarStatus.AVAILABLE);
+			car.setOwner(owner);
+			car.setCreatedAt(LocalDateTime.now());
+			entities.put(id, car);
+		}
+		long entityBytes = usedHeap() - baseline;
+		entities = null;
+
+		baseline = usedHeap();
+		CarStatusMap map = new CarStatusMap(count);
+		for (long id = 1; id <= count; id++) {
+			map.put(id, CarStatus.AVAILABLE, 4000 + id % 500, 1);
+		}
+		long mapBytes = usedHeap() - baseline;
+
+		log.info(String.format("%-28s %12s %10s", "cars: " + count, "heap MB", "B/car"));
+		log.info(String.format("%-28s %12.1f %10d", "HashMap<Long, Car>", entityBytes / 1e6, entityBytes / count));
+		log.info(String.format("%-28s %12.1f %10d", "CarStatusMap", mapBytes / 1e6, mapBytes / count));
+		assertEquals(count, map.size());
+		assertTrue(mapBytes < entityBytes);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.trimble.registry;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.event.CacheInvalidationEvent;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.UserRepository;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The registry against a real context: it turns down cars it knows are taken before any query,
+ * and leaves every other car to the database
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:registry;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"spring.jpa.properties.hibernate.generate_statistics=true"})
+@DirtiesContext
+class CarStatusRegistryTest {
+
+	@Autowired
+	private CarStatusRegistry registry;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Test
+	void carsKnownToBeTakenAreTurnedDownWithoutAQuery() {
+		Long carId = carService.registerCar(car("REG-1"), owner(userRepository, "registry").getId()).getId();
+		Long first = customerService.registerCustomer(customer("first")).getId();
+		Long second = customerService.registerCustomer(customer("second")).getId();
+
+		leaseService.startLease(lease(carId, first));
+		assertEquals(CarStatus.ON_LEASE, registry.status(carId));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long statements = statistics.getPrepareStatementCount();
+		assertThrows(LeaseException.class, () -> leaseService.startLease(lease(carId, second)));
+		assertEquals(statements, statistics.getPrepareStatementCount());
+
+		// Freed behind the registry's back, the car stays turned down until its invalidation arrives
+		jdbcTemplate.update("UPDATE leases SET status = 'COMPLETED' WHERE car_id = ?", carId);
+		jdbcTemplate.update("UPDATE cars SET status = 'AVAILABLE' WHERE id = ?", carId);
+		assertThrows(LeaseException.class, () -> leaseService.startLease(lease(carId, second)));
+		eventPublisher.publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.CARS, List.of(carId), true));
+		assertEquals(CarStatus.AVAILABLE, registry.status(carId));
+		assertEquals(LeaseStatus.ACTIVE, leaseService.startLease(lease(carId, second)).getStatus());
+		assertEquals(CarStatus.ON_LEASE, registry.status(carId));
+
+		// A car the registry has never seen is decided by the database
+		jdbcTemplate.update("INSERT INTO cars (license_plate, make, model, year, color, daily_rate, status, owner_id, created_at) "
+				+ "SELECT 'REG-2', make, model, year, color, daily_rate, 'AVAILABLE', owner_id, created_at FROM cars WHERE id = ?", carId);
+		Long unknownCarId = jdbcTemplate.queryForObject("SELECT id FROM cars WHERE license_plate = 'REG-2'", Long.class);
+		assertNull(registry.status(unknownCarId));
+		assertEquals(LeaseStatus.ACTIVE, leaseService.startLease(lease(unknownCarId, first)).getStatus());
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.trimble.registry;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.CustomerDto;
+import com.trimble.entity.User;
+import com.trimble.enums.UserRole;
+import com.trimble.repository.UserRepository;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.support.TestFixtures;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Registration uniqueness checks with the filters in front of the database
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:registrationKeys;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.trimble.registry.RegistrationKeyFiltersTest$RecordingInspector"})
+@DirtiesContext
+class RegistrationKeyFiltersTest {
+
+	private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	private RegistrationKeyFilters filters;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	public static class RecordingInspector implements StatementInspector {
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql.toLowerCase());
+			return sql;
+		}
+	}
+
+	@Test
+	void newValuesSkipTheQueriesAndTakenOnesAreStillRejected() {
+		assertTrue(filters.isLoaded());
+
+		// Inserted outside the registration services, the owner still reaches the filters
+		Long ownerId = owner(userRepository, "rk").getId();
+
+		STATEMENTS.clear();
+		customerService.registerCustomer(customer("rk"));
+		carService.registerCar(car("RK-1"), ownerId);
+		assertFalse(STATEMENTS.isEmpty());
+		for (String column : List.of("username=?", "email=?", "driver_license=?", "license_plate=?")) {
+			assertTrue(STATEMENTS.stream().noneMatch(sql -> sql.contains(column)), column);
+		}
+		assertEquals(3, checks("skipped", "USERNAME") + checks("skipped", "EMAIL")
+				+ checks("skipped", "DRIVER_LICENSE"));
+		assertEquals(1, checks("skipped", "LICENSE_PLATE"));
+
+		CustomerDto sameUsername = customer("rk-2");
+		sameUsername.setUsername("owner-rk");
+		assertThrows(RuntimeException.class, () -> customerService.registerCustomer(sameUsername));
+		CustomerDto sameLicense = customer("rk-3");
+		sameLicense.setDriverLicense("DL-rk");
+		assertThrows(RuntimeException.class, () -> customerService.registerCustomer(sameLicense));
+		assertThrows(RuntimeException.class, () -> carService.registerCar(car("RK-1"), ownerId));
+		assertEquals(1, checks("duplicate", "USERNAME"));
+		assertEquals(1, checks("duplicate", "DRIVER_LICENSE"));
+		assertEquals(1, checks("duplicate", "LICENSE_PLATE"));
+
+		// A rebuild reads the same values back from the tables
+		filters.rebuild();
+		assertThrows(RuntimeException.class, () -> carService.registerCar(car("RK-1"), ownerId));
+		assertEquals(2, checks("duplicate", "LICENSE_PLATE"));
+
+		// Email and driver license are now unique in the schema as well
+		User duplicateEmail = new User();
+		duplicateEmail.setUsername("other-rk");
+		duplicateEmail.setPassword("secret");
+		duplicateEmail.setEmail("rk@customer.test");
+		duplicateEmail.setFullName("Other rk");
+		duplicateEmail.setRole(UserRole.END_CUSTOMER);
+		assertThrows(DataIntegrityViolationException.class, () -> userRepository.save(duplicateEmail));
+	}
+
+	private double checks(String outcome, String key) {
+		return meterRegistry.get("carlease.registration.filter.checks")
+				.tag("key", key)
+				.tag("outcome", outcome)
+				.counter()
+				.count();
+	}
+
+}
@@ -0,0 +1,177 @@
+package com.trimble.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.CarDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.exception.FieldSelectionException;
+import com.trimble.service.AdminService;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sparse fieldsets of the admin list endpoints, checked against the full DTOs and the SQL they run
+ * The comparison on a large lease list is opt-in:
+ *   mvn test -Dtest=FieldProjectionRepositoryTest -Dcarlease.benchmark=true
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:fields;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.trimble.repository.FieldProjectionRepositoryTest$RecordingInspector",
+		"logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@DirtiesContext
+@Slf4j(topic = "benchmark")
+class FieldProjectionRepositoryTest {
+
+	private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	private AdminService adminService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	public static class RecordingInspector implements StatementInspector {
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql.toLowerCase());
+			return sql;
+		}
+	}
+
+	@Test
+	void sparseRowsMatchTheDtosAndJoinOnlyWhatTheyNeed() {
+		Long ownerId = owner(userRepository, "fp").getId();
+		Long customerId = customerService.registerCustomer(customer("fp")).getId();
+		Long leasedCar = carService.registerCar(car("FP-1"), ownerId).getId();
+		carService.registerCar(car("FP-2"), ownerId);
+		leaseService.startLease(lease(leasedCar, customerId));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		// An association's ID comes from the foreign key: one statement, no join, no entities
+		statistics.clear();
+		STATEMENTS.clear();
+		List<Map<String, Object>> cars = adminService.getAllCars(List.of("status", "id", "ownerId", "id"));
+		assertEquals(2, cars.size());
+		assertEquals(List.of("status", "id", "ownerId"), List.copyOf(cars.get(0).keySet()));
+		assertEquals(ownerId, cars.get(0).get("ownerId"));
+		assertEquals(1, STATEMENTS.size());
+		assertFalse(STATEMENTS.get(0).contains("join"));
+		assertEquals(0, statistics.getEntityLoadCount());
+
+		STATEMENTS.clear();
+		List<Map<String, Object>> owners = adminService.getAllCars(List.of("id", "ownerName"));
+		assertEquals(1, STATEMENTS.size());
+		assertTrue(STATEMENTS.get(0).contains("join"));
+		List<CarDto> carDtos = adminService.getAllCars();
+		assertEquals(carDtos.get(0).getOwnerName(), owners.get(0).get("ownerName"));
+
+		// Computed and two-hop fields have the same values as the mapped DTO
+		LeaseDto leaseDto = adminService.getAllLeases().get(0);
+		Map<String, Object> lease = adminService.getAllLeases(List.of("id", "carDetails", "customerName", "status")).get(0);
+		assertEquals(leaseDto.getId(), lease.get("id"));
+		assertEquals(leaseDto.getCarDetails(), lease.get("carDetails"));
+		assertEquals(leaseDto.getCustomerName(), lease.get("customerName"));
+		assertEquals(leaseDto.getStatus(), lease.get("status"));
+
+		Map<String, Object> customer = adminService.getAllCustomers(List.of("fullName", "activeLeaseCount")).get(0);
+		assertEquals(Map.of("fullName", "Customer fp", "activeLeaseCount", 1), customer);
+
+		FieldSelectionException unknown = assertThrows(FieldSelectionException.class, () -> adminService.getAllCustomers(List.of("id", "password")));
+		assertTrue(unknown.getMessage().startsWith("Unknown field 'password'"));
+		assertThrows(FieldSelectionException.class, () -> adminService.getAllLeases(List.of()));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	// Leaves its leases behind, which the test above counts on not seeing
+	@DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+	void largeLeaseListWithAndWithoutFields() throws Exception {
+		int leases = Integer.getInteger("carlease.benchmark.rows", 50_000);
+		int rounds = Integer.getInteger("carlease.benchmark.rounds", 10);
+
+		Long ownerId = owner(userRepository, "bench").getId();
+		Long customerId = customerService.registerCustomer(customer("bench")).getId();
+		for (int i = 0; i < 100; i++) {
+			carService.registerCar(car("BM-" + i), ownerId);
+		}
+		// Completed leases spread over the fleet, inserted directly to keep the setup short
+		jdbcTemplate.update(
+				"INSERT INTO leases (car_id, customer_id, start_date, end_date, total_amount, status, created_at) " +
+				"SELECT (SELECT MIN(id) FROM cars) + MOD(x, 100), ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 120.00, 'COMPLETED', CURRENT_TIMESTAMP " +
+				"FROM SYSTEM_RANGE(1, ?)", customerId, leases);
+
+		Map<String, Supplier<List<?>>> variants = new LinkedHashMap<>();
+		variants.put("full dto", adminService::getAllLeases);
+		variants.put("id,status", () -> adminService.getAllLeases(List.of("id", "status")));
+		variants.put("ids+amount", () -> adminService.getAllLeases(List.of("id", "carId", "customerId", "status", "totalAmount")));
+		variants.put("names", () -> adminService.getAllLeases(List.of("id", "carDetails", "customerName")));
+
+		log.info(String.format("%-12s %-10s %-14s %-12s", "fields", "rows", "bytes", "avg ms"));
+		for (int pass = 0; pass < 2; pass++) {
+			for (Map.Entry<String, Supplier<List<?>>> variant : variants.entrySet()) {
+				long bytes = 0;
+				int rows = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < rounds; i++) {
+					List<?> result = variant.getValue().get();
+					rows = result.size();
+					bytes = objectMapper.writeValueAsBytes(result).length;
+				}
+				double millis = (System.nanoTime() - start) / 1_000_000.0 / rounds;
+				if (pass == 1) {
+					log.info(String.format("%-12s %-10d %-14d %-12.1f", variant.getKey(), rows, bytes, millis));
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.CustomerDto;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.CustomerRepository;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The per-customer active lease counter against a real context: the limit, its overrides and
+ * the reconciliation, each while leases start and end on other threads
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:leaseLimit;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.lease.max-active-per-customer=2"})
+@DirtiesContext
+class ActiveLeaseLimitTest {
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void limitIsEnforcedAndChangingItKeepsTheCount() {
+		List<Long> cars = cars("LIMIT", 4);
+		Long customerId = customerService.registerCustomer(customer("limit")).getId();
+
+		Long leaseId = leaseService.startLease(lease(cars.get(0), customerId)).getId();
+		leaseService.startLease(lease(cars.get(1), customerId));
+		LeaseException refused = assertThrows(LeaseException.class, () -> leaseService.startLease(lease(cars.get(2), customerId)));
+		assertEquals("Customer cannot have more than 2 active leases", refused.getMessage());
+
+		CustomerDto raised = customerService.updateLeaseLimit(customerId, 3);
+		assertEquals(3, raised.getMaxActiveLeases());
+		assertEquals(2, raised.getActiveLeaseCount());
+		leaseService.startLease(lease(cars.get(2), customerId));
+		assertThrows(LeaseException.class, () -> leaseService.startLease(lease(cars.get(3), customerId)));
+
+		// A caller that loaded the customer before a lease ended elsewhere cannot write the old count back
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			customerRepository.findById(customerId).orElseThrow();
+			CompletableFuture.runAsync(() -> leaseService.endLease(leaseId)).join();
+			assertNull(customerService.updateLeaseLimit(customerId, null).getMaxActiveLeases());
+		});
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT active_lease_count FROM customers WHERE id = ?", Integer.class, customerId));
+		assertEquals(2, customerService.getCustomerById(customerId).getActiveLeaseCount());
+	}
+
+	@Test
+	void limitChangesAndReconciliationDoNotLoseConcurrentBookings() throws Exception {
+		List<Long> cars = cars("COUNT", 4);
+		Long customerId = customerService.registerCustomer(customer("counter")).getId();
+		customerService.updateLeaseLimit(customerId, 100);
+
+		// Four bookers start and end leases on their own car, while the limit is rewritten and
+		// the counter reconciled as fast as possible
+		AtomicBoolean stop = new AtomicBoolean();
+		List<CompletableFuture<Void>> bookers = new ArrayList<>();
+		for (Long carId : cars) {
+			bookers.add(CompletableFuture.runAsync(() -> {
+				for (int i = 0; i < 25; i++) {
+					try {
+						leaseService.endLease(leaseService.startLease(lease(carId, customerId)).getId());
+					} catch (RuntimeException e) {
+						// A lock timeout rolls the whole start or end back, which leaves the counter right
+					}
+				}
+				leaseService.startLease(lease(carId, customerId));
+			}));
+		}
+		CompletableFuture<Void> admin = CompletableFuture.runAsync(() -> {
+			while (!stop.get()) {
+				customerService.updateLeaseLimit(customerId, 50);
+				leaseService.reconcileActiveLeaseCounts();
+			}
+		});
+		CompletableFuture.allOf(bookers.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+		stop.set(true);
+		admin.get(10, TimeUnit.SECONDS);
+
+		assertEquals(cars.size(), activeLeases(customerId));
+		assertEquals(cars.size(), customerService.getCustomerById(customerId).getActiveLeaseCount());
+
+		// Drift from outside the services is repaired for that customer only
+		jdbcTemplate.update("UPDATE customers SET active_lease_count = 0 WHERE id = ?", customerId);
+		assertEquals(1, leaseService.reconcileActiveLeaseCounts());
+		assertEquals(0, leaseService.reconcileActiveLeaseCounts());
+		assertEquals(cars.size(), customerService.getCustomerById(customerId).getActiveLeaseCount());
+	}
+
+	private int activeLeases(Long customerId) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM leases WHERE customer_id = ? AND status = 'ACTIVE'",
+				Integer.class, customerId);
+	}
+
+	private List<Long> cars(String prefix, int count) {
+		Long ownerId = owner(userRepository, prefix.toLowerCase()).getId();
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(carService.registerCar(car(prefix + "-" + i), ownerId).getId());
+		}
+		return ids;
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.BulkCarStatusRequest;
+import com.trimble.dto.BulkCarStatusResultDto;
+import com.trimble.dto.CarDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.event.CacheInvalidationEvent;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk car status changes against a real context, in batches of two so every selection spans several
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:bulkStatus;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.bulk-update.batch-size=2"})
+@AutoConfigureMockMvc
+@Import(BulkCarStatusUpdateTest.Invalidations.class)
+@DirtiesContext
+class BulkCarStatusUpdateTest {
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private Invalidations invalidations;
+
+	@BeforeEach
+	void clearInvalidations() {
+		invalidations.events.clear();
+	}
+
+	@Test
+	void carsSelectedByIdSkipLeasedOnesAndInvalidateOncePerBatch() {
+		List<Long> cars = cars("byid", 3, "Skoda");
+		leaseOn(cars.get(1), "byid");
+		invalidations.events.clear();
+
+		BulkCarStatusResultDto result = carService.bulkUpdateCarStatus(request(CarStatus.ON_SERVICE, cars, null, null, null));
+		assertEquals(List.of(cars.get(0), cars.get(2)), result.getUpdatedCarIds());
+		assertEquals(List.of(cars.get(1)), result.getUnchangedCarIds());
+		assertEquals(2, result.getBatches());
+		assertEquals(List.of(List.of(cars.get(0)), List.of(cars.get(2))), invalidations.keys());
+		assertEquals(CarStatus.ON_SERVICE, carService.getCarById(cars.get(0)).getStatus());
+		assertEquals(CarStatus.ON_LEASE, carService.getCarById(cars.get(1)).getStatus());
+
+		// Nothing left to change: no batch is invalidated
+		invalidations.events.clear();
+		BulkCarStatusResultDto again = carService.bulkUpdateCarStatus(request(CarStatus.ON_SERVICE, cars, null, null, null));
+		assertEquals(List.of(), again.getUpdatedCarIds());
+		assertEquals(cars, again.getUnchangedCarIds());
+		assertEquals(List.of(), invalidations.keys());
+	}
+
+	@Test
+	void carsSelectedByOwnerAreUpdatedInKeysetBatches() {
+		Long ownerId = owner(userRepository, "byowner").getId();
+		List<Long> cars = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			cars.add(carService.registerCar(car("BYOWNER-" + i), ownerId).getId());
+		}
+		List<Long> others = cars("notmine", 1, "Skoda");
+		leaseOn(cars.get(3), "byowner");
+		invalidations.events.clear();
+
+		BulkCarStatusResultDto result = carService.bulkUpdateCarStatus(request(CarStatus.INACTIVE, null, ownerId, null, null));
+		assertEquals(List.of(cars.get(0), cars.get(1), cars.get(2), cars.get(4)), result.getUpdatedCarIds());
+		assertEquals(List.of(cars.get(3)), result.getUnchangedCarIds());
+		assertEquals(3, result.getBatches());
+		assertEquals(List.of(List.of(cars.get(0), cars.get(1)), List.of(cars.get(2)), List.of(cars.get(4))),
+				invalidations.keys());
+		assertEquals(CarStatus.AVAILABLE, carService.getCarById(others.get(0)).getStatus());
+	}
+
+	@Test
+	void carsSelectedByFilterOnlyMatchTheFilter() {
+		List<Long> volvos = cars("volvo", 3, "Volvo");
+		List<Long> skodas = cars("skoda", 1, "Skoda");
+		carService.bulkUpdateCarStatus(request(CarStatus.ON_SERVICE, List.of(volvos.get(2)), null, null, null));
+		invalidations.events.clear();
+
+		// Available Volvos only: the one on service and the Skoda are not selected at all
+		BulkCarStatusResultDto result = carService.bulkUpdateCarStatus(
+				request(CarStatus.INACTIVE, null, null, CarStatus.AVAILABLE, "Volvo"));
+		assertEquals(List.of(volvos.get(0), volvos.get(1)), result.getUpdatedCarIds());
+		assertEquals(List.of(), result.getUnchangedCarIds());
+		assertEquals(1, result.getBatches());
+		assertEquals(List.of(List.of(volvos.get(0), volvos.get(1))), invalidations.keys());
+		assertEquals(CarStatus.ON_SERVICE, carService.getCarById(volvos.get(2)).getStatus());
+		assertEquals(CarStatus.AVAILABLE, carService.getCarById(skodas.get(0)).getStatus());
+	}
+
+	@Test
+	void leasesAndHoldsCannotBeSetInBulk() {
+		List<Long> cars = cars("forbidden", 1, "Skoda");
+		assertThrows(LeaseException.class, () -> carService.bulkUpdateCarStatus(request(CarStatus.ON_LEASE, cars, null, null, null)));
+		assertThrows(LeaseException.class, () -> carService.bulkUpdateCarStatus(request(CarStatus.HELD, cars, null, null, null)));
+		assertEquals(CarStatus.AVAILABLE, carService.getCarById(cars.get(0)).getStatus());
+	}
+
+	@Test
+	void theEndpointNeedsASelectorAndReportsTheAffectedIds() throws Exception {
+		List<Long> cars = cars("endpoint", 2, "Skoda");
+
+		mvc.perform(put("/api/admin/cars/status")
+						.with(user("admin").roles("ADMIN"))
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"status\": \"INACTIVE\"}"))
+				.andExpect(status().isBadRequest());
+
+		mvc.perform(put("/api/admin/cars/status")
+						.with(user("admin").roles("ADMIN"))
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"status\": \"INACTIVE\", \"carIds\": [" + cars.get(0) + ", " + cars.get(1) + "]}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.updatedCarIds.length()").value(2))
+				.andExpect(jsonPath("$.data.updatedCarIds[0]").value(cars.get(0)))
+				.andExpect(jsonPath("$.data.updatedCarIds[1]").value(cars.get(1)))
+				.andExpect(jsonPath("$.data.batches").value(1));
+	}
+
+	private List<Long> cars(String name, int count, String make) {
+		Long ownerId = owner(userRepository, name).getId();
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			CarDto car = car(name.toUpperCase() + "-" + i);
+			car.setMake(make);
+			ids.add(carService.registerCar(car, ownerId).getId());
+		}
+		return ids;
+	}
+
+	private void leaseOn(Long carId, String name) {
+		Long customerId = customerService.registerCustomer(customer(name)).getId();
+		leaseService.startLease(lease(carId, customerId));
+	}
+
+	private static BulkCarStatusRequest request(CarStatus status, List<Long> carIds, Long ownerId,
+												CarStatus currentStatus, String make) {
+		return new BulkCarStatusRequest(status, carIds, ownerId, currentStatus, make);
+	}
+
+	/**
+	 * Records the car invalidations raised on this node
+	 */
+	@TestConfiguration
+	static class Invalidations {
+
+		private final List<CacheInvalidationEvent> events = new CopyOnWriteArrayList<>();
+
+		@EventListener
+		void onCacheInvalidation(CacheInvalidationEvent event) {
+			if (!event.isRemote() && CacheInvalidationEvent.CARS.equals(event.getRegion())) {
+				events.add(event);
+			}
+		}
+
+		List<List<Long>> keys() {
+			return events.stream().map(CacheInvalidationEvent::getKeys).toList();
+		}
+	}
+
+}
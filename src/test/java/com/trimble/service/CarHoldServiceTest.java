@@ -0,0 +1,169 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.CarHoldDto;
+import com.trimble.dto.GroupLeaseRequest;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.GroupBookingMode;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.exception.LeaseException;
+import com.trimble.registry.CarStatusRegistry;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Car holds against a real context, each nested class with the hold TTL its test needs
+ */
+class CarHoldServiceTest {
+
+	/**
+	 * A short TTL and tick, so expiry can be waited for
+	 */
+	@Nested
+	@SpringBootTest(classes = CarLeaseManagementApplication.class)
+	@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+			"spring.datasource.url=jdbc:h2:mem:holds;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+			"carlease.holds.ttl-seconds=2",
+			"carlease.holds.tick-ms=50"})
+	@DirtiesContext
+	class ShortTtl {
+
+		@Autowired
+		private CarHoldService holds;
+
+		@Autowired
+		private LeaseService leaseService;
+
+		@Autowired
+		private CarService carService;
+
+		@Autowired
+		private CustomerService customerService;
+
+		@Autowired
+		private CarStatusRegistry registry;
+
+		@Autowired
+		private UserRepository userRepository;
+
+		@Autowired
+		private MeterRegistry meterRegistry;
+
+		@Test
+		void holdsAreTakenOverByTheirLeaseReleasedOrExpired() throws Exception {
+			Long ownerId = owner(userRepository, "hold").getId();
+			Long holder = customerService.registerCustomer(customer("holder")).getId();
+			Long other = customerService.registerCustomer(customer("other")).getId();
+			Long leased = carService.registerCar(car("HOLD-1"), ownerId).getId();
+			Long expiring = carService.registerCar(car("HOLD-2"), ownerId).getId();
+			Long released = carService.registerCar(car("HOLD-3"), ownerId).getId();
+
+			// A held car is out of the available list and closed to everyone but the holder
+			CarHoldDto hold = holds.holdCar(leased, holder);
+			assertEquals(holder, hold.getCustomerId());
+			assertEquals(CarStatus.HELD, registry.status(leased));
+			assertEquals(2, carService.getAvailableCars().size());
+			LeaseException taken = assertThrows(LeaseException.class, () -> leaseService.startLease(lease(leased, other)));
+			assertEquals("Car is not available for lease", taken.getMessage());
+			assertThrows(LeaseException.class, () -> holds.holdCar(leased, other));
+
+			LeaseDto lease = leaseService.startLease(lease(leased, holder));
+			assertEquals(LeaseStatus.ACTIVE, lease.getStatus());
+			assertEquals(CarStatus.ON_LEASE, carService.getCarById(leased).getStatus());
+
+			holds.holdCar(released, holder);
+			assertThrows(LeaseException.class, () -> holds.releaseHold(released, other));
+			holds.releaseHold(released, holder);
+			assertEquals(CarStatus.AVAILABLE, carService.getCarById(released).getStatus());
+			// Converted and released holds no longer wait in the wheel
+			assertEquals(0, holds.scheduledHolds());
+
+			holds.holdCar(expiring, other);
+			assertEquals(1, holds.scheduledHolds());
+			long deadline = System.currentTimeMillis() + 10_000;
+			// The registry hears of the release once it has committed
+			while (registry.status(expiring) == CarStatus.HELD && System.currentTimeMillis() < deadline) {
+				Thread.sleep(100);
+			}
+			assertEquals(CarStatus.AVAILABLE, registry.status(expiring));
+			assertEquals(CarStatus.AVAILABLE, carService.getCarById(expiring).getStatus());
+			assertEquals(1.0, meterRegistry.get("carlease.holds.expired").counter().count());
+
+			// The lapsed hold's car can be leased by anyone again
+			assertEquals(LeaseStatus.ACTIVE, leaseService.startLease(lease(expiring, holder)).getStatus());
+		}
+	}
+
+	/**
+	 * A long TTL, so the wheel does not release the holds backdated below
+	 */
+	@Nested
+	@SpringBootTest(classes = CarLeaseManagementApplication.class)
+	@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+			"spring.datasource.url=jdbc:h2:mem:lapsedHolds;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+			"carlease.holds.ttl-seconds=300"})
+	@DirtiesContext
+	class LongTtl {
+
+		@Autowired
+		private CarHoldService holds;
+
+		@Autowired
+		private LeaseService leaseService;
+
+		@Autowired
+		private CarService carService;
+
+		@Autowired
+		private CustomerService customerService;
+
+		@Autowired
+		private UserRepository userRepository;
+
+		@Autowired
+		private JdbcTemplate jdbcTemplate;
+
+		@Test
+		void aLapsedHoldIsAvailableToEveryoneBeforeItIsReleased() {
+			Long ownerId = owner(userRepository, "hold").getId();
+			Long holder = customerService.registerCustomer(customer("holder")).getId();
+			Long other = customerService.registerCustomer(customer("other")).getId();
+			Long single = carService.registerCar(car("LAPSE-1"), ownerId).getId();
+			Long grouped = carService.registerCar(car("LAPSE-2"), ownerId).getId();
+
+			holds.holdCar(single, holder);
+			holds.holdCar(grouped, holder);
+			assertEquals(0, carService.getAvailableCars().size());
+			jdbcTemplate.update("UPDATE cars SET held_until = ?", LocalDateTime.now().minusSeconds(1));
+			assertEquals(2, carService.getAvailableCars().size());
+
+			assertEquals(LeaseStatus.ACTIVE, leaseService.startLease(lease(single, other)).getStatus());
+			GroupLeaseRequest request = new GroupLeaseRequest();
+			request.setCustomerId(other);
+			request.setCarIds(List.of(grouped));
+			request.setMode(GroupBookingMode.ALL_OR_NOTHING);
+			assertEquals(1, leaseService.startGroupLease(request).getLeases().size());
+			assertEquals(CarStatus.ON_LEASE, carService.getCarById(grouped).getStatus());
+		}
+	}
+
+}
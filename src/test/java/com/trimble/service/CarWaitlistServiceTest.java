@@ -0,0 +1,117 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.event.WaitlistHoldGrantedEvent;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Waitlists against a real context, with a short hold TTL so a lapsed offer moves down the line
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:waitlist;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.holds.ttl-seconds=2",
+		"carlease.holds.tick-ms=50"})
+@DirtiesContext
+class CarWaitlistServiceTest {
+
+	@Autowired
+	private ConfigurableApplicationContext context;
+
+	@Autowired
+	private CarWaitlistService waitlist;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void freedCarsAreHeldForTheirWaitlistInOrder() throws Exception {
+		BlockingQueue<WaitlistHoldGrantedEvent> granted = new LinkedBlockingQueue<>();
+		context.addApplicationListener((ApplicationListener<ApplicationEvent>) event -> {
+			if (event instanceof PayloadApplicationEvent<?> payload && payload.getPayload() instanceof WaitlistHoldGrantedEvent grant) {
+				granted.add(grant);
+			}
+		});
+		Long ownerId = owner(userRepository, "waitlist").getId();
+		Long first = customerService.registerCustomer(customer("first")).getId();
+		Long second = customerService.registerCustomer(customer("second")).getId();
+		Long third = customerService.registerCustomer(customer("third")).getId();
+		Long popular = carService.registerCar(car("WAIT-1"), ownerId).getId();
+		Long free = carService.registerCar(car("WAIT-2"), ownerId).getId();
+
+		LeaseDto lease = leaseService.startLease(lease(popular, third));
+		assertEquals(1, waitlist.join(popular, first).getPosition());
+		assertEquals(2, waitlist.join(popular, second).getPosition());
+		assertThrows(LeaseException.class, () -> waitlist.join(popular, first));
+		assertEquals(3, waitlist.join(popular, third).getPosition());
+		waitlist.leave(popular, third);
+		assertEquals(0, waitlist.position(popular, third));
+
+		// Ending the lease offers the car to the head of the line
+		leaseService.endLease(lease.getId());
+		WaitlistHoldGrantedEvent grant = granted.poll(10, TimeUnit.SECONDS);
+		assertNotNull(grant);
+		assertEquals(popular, grant.getCarId());
+		assertEquals(first, grant.getCustomerId());
+		assertEquals(first, heldBy(jdbcTemplate, popular));
+		assertEquals(1, waitlist.position(popular, second));
+
+		// The first customer lets the hold lapse, so the car moves on to the second
+		grant = granted.poll(10, TimeUnit.SECONDS);
+		assertNotNull(grant);
+		assertEquals(second, grant.getCustomerId());
+		assertEquals(LeaseStatus.ACTIVE, leaseService.startLease(lease(popular, second)).getStatus());
+		assertEquals(0, waitlist.position(popular, second));
+
+		// Someone first in line for a car that is free already gets it right away
+		assertEquals(1, waitlist.join(free, third).getPosition());
+		grant = granted.poll(10, TimeUnit.SECONDS);
+		assertNotNull(grant);
+		assertEquals(free, grant.getCarId());
+		assertEquals(CarStatus.HELD, carService.getCarById(free).getStatus());
+	}
+
+	private static Long heldBy(JdbcTemplate jdbcTemplate, Long carId) {
+		return jdbcTemplate.queryForObject("SELECT held_by_customer_id FROM cars WHERE id = ?", Long.class, carId);
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.CarDto;
+import com.trimble.dto.DashboardDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.repository.ArchivedLeaseRepository;
+import com.trimble.repository.CarRepository;
+import com.trimble.repository.LeaseRepository;
+import com.trimble.repository.UserRepository;
+import com.trimble.shard.ShardRouter;
+import com.trimble.support.TestFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The dashboard against two H2 shards: the queries on every shard run under the subquery timeout
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"carlease.sharding.enabled=true",
+		"carlease.sharding.urls=" + DashboardServiceTest.URLS})
+@DirtiesContext
+class DashboardServiceTest {
+
+	static final String URLS = "jdbc:h2:mem:dashboard0;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR,"
+			+ "jdbc:h2:mem:dashboard1;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR";
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private ShardRouter contextRouter;
+
+	@Autowired
+	private PlatformTransactionManager contextTransactionManager;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@Autowired
+	private LeaseRepository leaseRepository;
+
+	@Autowired
+	private ArchivedLeaseRepository archivedLeaseRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void everyShardQueryRunsUnderTheSubqueryTimeout() {
+		int cars = 0;
+		Set<Integer> shards = new HashSet<>();
+		for (int owner = 0; shards.size() < 2; owner++) {
+			CarDto registered = carService.registerCar(car("DASH-" + owner), owner(userRepository, "dash" + owner).getId());
+			shards.add(contextRouter.shardForOwner(registered.getOwnerId()));
+			cars++;
+		}
+
+		RecordingTransactionManager transactionManager = new RecordingTransactionManager(contextTransactionManager);
+		ShardRouter shardRouter = new ShardRouter(transactionManager, true, List.of(URLS.split(",")));
+		DashboardService dashboardService = new DashboardService(carRepository, leaseRepository, archivedLeaseRepository,
+				userRepository, shardRouter, transactionManager, new SimpleMeterRegistry(), 4, 32, 2500);
+		try {
+			DashboardDto dashboard = dashboardService.getDashboard(30, 5);
+			assertFalse(dashboard.isPartial(), () -> "Unavailable: " + dashboard.getUnavailableSections());
+			assertEquals(cars, dashboard.getCarsByStatus().get(CarStatus.AVAILABLE));
+
+			// The four sections each open one transaction and one per shard, all with the 3 second limit
+			assertEquals(12, transactionManager.timeouts.size());
+			assertEquals(List.of(3), transactionManager.timeouts.stream().distinct().toList());
+		} finally {
+			dashboardService.shutdown();
+			shardRouter.shutdown();
+		}
+	}
+
+	/**
+	 * Records the timeout of every transaction it begins
+	 */
+	private static class RecordingTransactionManager implements PlatformTransactionManager {
+
+		private final PlatformTransactionManager delegate;
+		private final List<Integer> timeouts = new CopyOnWriteArrayList<>();
+
+		RecordingTransactionManager(PlatformTransactionManager delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			timeouts.add(definition.getTimeout());
+			return delegate.getTransaction(definition);
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+			delegate.commit(status);
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+			delegate.rollback(status);
+		}
+	}
+
+}
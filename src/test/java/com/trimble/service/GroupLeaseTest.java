@@ -0,0 +1,156 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.GroupLeaseRequest;
+import com.trimble.dto.GroupLeaseResultDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.GroupBookingMode;
+import com.trimble.exception.LeaseException;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Group leases against a real context
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:group;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.lease.max-active-per-customer=20"})
+@DirtiesContext
+class GroupLeaseTest {
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CarHoldService holds;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void groupLeasesAreAllOrNothingOrBestEffortAndNeverDeadlock() throws Exception {
+		Long ownerId = owner(userRepository, "group").getId();
+		Long corporate = customerService.registerCustomer(customer("corporate")).getId();
+		Long other = customerService.registerCustomer(customer("other")).getId();
+		List<Long> cars = IntStream.range(0, 6)
+				.mapToObj(i -> carService.registerCar(car("GRP-" + i), ownerId).getId())
+				.collect(Collectors.toList());
+		holds.holdCar(cars.get(4), other);
+		holds.holdCar(cars.get(0), corporate);
+
+		// One car held by someone else fails the whole request and books nothing
+		LeaseException rejected = assertThrows(LeaseException.class,
+				() -> leaseService.startGroupLease(request(corporate, cars, GroupBookingMode.ALL_OR_NOTHING)));
+		assertEquals("Cars are not available for lease: [" + cars.get(4) + "]", rejected.getMessage());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM leases", Integer.class));
+		assertEquals(0, activeLeaseCount(jdbcTemplate, corporate));
+
+		// Best effort books the rest, the customer's own hold included, up to the lease limit
+		jdbcTemplate.update("UPDATE customers SET max_active_leases = 4 WHERE id = ?", corporate);
+		List<Long> requested = new ArrayList<>(cars);
+		requested.add(999_999L);
+		Collections.reverse(requested);
+		GroupLeaseResultDto result = leaseService.startGroupLease(request(corporate, requested, GroupBookingMode.BEST_EFFORT));
+		assertEquals(cars.subList(0, 4), result.getLeases().stream().map(LeaseDto::getCarId).collect(Collectors.toList()));
+		assertEquals(List.of(cars.get(4)), result.getUnavailableCarIds());
+		assertEquals(List.of(999_999L), result.getNotFoundCarIds());
+		assertEquals(List.of(cars.get(5)), result.getOverLimitCarIds());
+		assertEquals(4, activeLeaseCount(jdbcTemplate, corporate));
+		assertEquals(CarStatus.ON_LEASE, carService.getCarById(cars.get(0)).getStatus());
+		// Only the other customer's hold is still waiting to expire
+		assertEquals(1, holds.scheduledHolds());
+
+		// Overlapping groups requested in opposite orders: one wins each round, neither deadlocks
+		jdbcTemplate.update("UPDATE customers SET max_active_leases = NULL WHERE id = ?", corporate);
+		for (LeaseDto lease : result.getLeases()) {
+			leaseService.endLease(lease.getId());
+		}
+		List<Long> fleet = IntStream.range(0, 12)
+				.mapToObj(i -> carService.registerCar(car("FLT-" + i), ownerId).getId())
+				.collect(Collectors.toList());
+		List<Long> reversed = new ArrayList<>(fleet);
+		Collections.reverse(reversed);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		for (int round = 0; round < 5; round++) {
+			CyclicBarrier barrier = new CyclicBarrier(2);
+			List<Future<Object>> outcomes = new ArrayList<>();
+			for (List<Long> order : List.of(fleet, reversed)) {
+				Long customerId = order == fleet ? corporate : other;
+				outcomes.add(executor.submit(() -> {
+					barrier.await();
+					try {
+						return leaseService.startGroupLease(request(customerId, order, GroupBookingMode.ALL_OR_NOTHING));
+					} catch (LeaseException e) {
+						return e;
+					}
+				}));
+			}
+			List<GroupLeaseResultDto> winners = new ArrayList<>();
+			for (Future<Object> outcome : outcomes) {
+				Object value = outcome.get(30, TimeUnit.SECONDS);
+				if (value instanceof GroupLeaseResultDto won) {
+					winners.add(won);
+				} else {
+					assertInstanceOf(LeaseException.class, value);
+				}
+			}
+			assertEquals(1, winners.size());
+			assertEquals(12, winners.get(0).getLeases().size());
+			for (LeaseDto lease : winners.get(0).getLeases()) {
+				leaseService.endLease(lease.getId());
+			}
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT SUM(active_lease_count) FROM customers", Integer.class));
+	}
+
+	private static GroupLeaseRequest request(Long customerId, List<Long> carIds, GroupBookingMode mode) {
+		GroupLeaseRequest request = new GroupLeaseRequest();
+		request.setCustomerId(customerId);
+		request.setCarIds(carIds);
+		request.setMode(mode);
+		return request;
+	}
+
+	private static int activeLeaseCount(JdbcTemplate jdbcTemplate, Long customerId) {
+		return jdbcTemplate.queryForObject("SELECT active_lease_count FROM customers WHERE id = ?", Integer.class, customerId);
+	}
+
+}
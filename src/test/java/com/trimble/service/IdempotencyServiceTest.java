@@ -0,0 +1,164 @@
+package com.trimble.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimble.dto.LeaseDto;
+import com.trimble.exception.IdempotencyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyServiceTest {
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void retriesReplayTheStoredResponseAndOtherBodiesAreRejected() {
+		IdempotencyService service = service(10);
+		authenticate("alice");
+		AtomicInteger executions = new AtomicInteger();
+
+		ResponseEntity<String> first = service.execute("lease-start", "key-1", lease(1L, "40.00"), () -> created(executions));
+		ResponseEntity<String> retry = service.execute("lease-start", "key-1", lease(1L, "40.00"), () -> created(executions));
+		assertEquals(1, executions.get());
+		assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+		assertEquals(first.getBody(), retry.getBody());
+		assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+		assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+		assertThrows(IdempotencyException.class,
+				() -> service.execute("lease-start", "key-1", lease(1L, "40.01"), () -> created(executions)));
+		assertEquals(1, executions.get());
+
+		// The same key from another principal is a different request
+		authenticate("bob");
+		service.execute("lease-start", "key-1", lease(1L, "40.00"), () -> created(executions));
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	void anonymousCallersAreScopedByRemoteAddress() {
+		IdempotencyService service = service(10);
+		AtomicInteger executions = new AtomicInteger();
+
+		anonymousFrom("10.0.0.1");
+		service.execute("customer-register", "key-1", lease(1L, "40.00"), () -> created(executions));
+		anonymousFrom("10.0.0.2");
+		ResponseEntity<String> other = service.execute("customer-register", "key-1", lease(1L, "40.00"), () -> created(executions));
+		assertEquals(2, executions.get());
+		assertNull(other.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+		anonymousFrom("10.0.0.1");
+		ResponseEntity<String> retry = service.execute("customer-register", "key-1", lease(1L, "40.00"), () -> created(executions));
+		assertEquals(2, executions.get());
+		assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+	}
+
+	@Test
+	void aKeyWhoseActionFailsWithAnErrorCanBeRetried() {
+		IdempotencyService service = service(10);
+		authenticate("alice");
+		AtomicInteger executions = new AtomicInteger();
+
+		assertThrows(OutOfMemoryError.class, () -> service.execute("lease-start", "key-1", lease(1L, "40.00"), () -> {
+			throw new OutOfMemoryError("simulated");
+		}));
+		ResponseEntity<String> retry = service.execute("lease-start", "key-1", lease(1L, "40.00"), () -> created(executions));
+		assertEquals(1, executions.get());
+		assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+	}
+
+	@Test
+	void concurrentDuplicatesWaitForTheOriginalEvenWhenTheStoreIsFull() throws Exception {
+		// Room for one entry only, so completing other keys tries to evict the one in flight
+		IdempotencyService service = service(1);
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<ResponseEntity<String>> original = CompletableFuture.supplyAsync(() -> {
+			authenticate("alice");
+			return service.execute("lease-start", "slow", lease(1L, "40.00"), () -> {
+				started.countDown();
+				await(release);
+				return created(executions);
+			});
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		authenticate("alice");
+		service.execute("lease-start", "other-1", lease(2L, "40.00"), () -> created(executions));
+		service.execute("lease-start", "other-2", lease(3L, "40.00"), () -> created(executions));
+
+		CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(() -> {
+			authenticate("alice");
+			return service.execute("lease-start", "slow", lease(1L, "40.00"), () -> created(executions));
+		});
+		release.countDown();
+
+		assertEquals(original.get(5, TimeUnit.SECONDS).getBody(), duplicate.get(5, TimeUnit.SECONDS).getBody());
+		assertEquals("true", duplicate.get().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+		assertEquals(3, executions.get());
+	}
+
+	private static IdempotencyService service(int maxEntries) {
+		return new IdempotencyService(new SimpleMeterRegistry(), new ObjectMapper().findAndRegisterModules(), 3600, maxEntries, 5000);
+	}
+
+	private static ResponseEntity<String> created(AtomicInteger executions) {
+		return ResponseEntity.status(HttpStatus.CREATED).body("lease-" + executions.incrementAndGet());
+	}
+
+	private static void authenticate(String name) {
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(name, null, AuthorityUtils.createAuthorityList("ROLE_END_CUSTOMER")));
+	}
+
+	private static void anonymousFrom(String remoteAddress) {
+		SecurityContextHolder.getContext().setAuthentication(
+				new AnonymousAuthenticationToken("key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/customers/register");
+		request.setRemoteAddr(remoteAddress);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static LeaseDto lease(Long carId, String amount) {
+		LeaseDto lease = new LeaseDto();
+		lease.setCarId(carId);
+		lease.setCustomerId(7L);
+		lease.setTotalAmount(new BigDecimal(amount));
+		return lease;
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.JobDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.enums.JobStatus;
+import com.trimble.enums.JobType;
+import com.trimble.event.CarStatusChangedEvent;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Admin jobs against a real context: item-by-item replay, cancellation and a full queue
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:jobs;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.jobs.chunk-size=10"})
+@Import(JobServiceTest.AdminCancellation.class)
+@DirtiesContext
+class JobServiceTest {
+
+	@Autowired
+	private JobService jobService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private AdminCancellation admin;
+
+	@Test
+	void replayCheckpointsEveryItemStopsOnCancelAndFailsRejectedJobs() throws Exception {
+		Long ownerId = owner(userRepository, "jobs").getId();
+		List<Long> cars = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			cars.add(carService.registerCar(car("JOB-" + i), ownerId).getId());
+		}
+
+		// The unknown ID fails the chunk, which is then replayed; its failure is counted once
+		JobDto completed = waitUntilFinished(jobService.submitJob(job(999_999L, cars.get(0), cars.get(1))));
+		assertEquals(JobStatus.COMPLETED, completed.getStatus());
+		assertEquals(3, completed.getProcessedItems());
+		assertEquals(1, completed.getFailedItems());
+		assertEquals(CarStatus.ON_SERVICE, carService.getCarById(cars.get(1)).getStatus());
+
+		// Cancelled while the replay updates the fourth item: the items before it stay committed
+		admin.cancelOn.set(cars.get(4));
+		JobDto cancelled = waitUntilFinished(jobService.submitJob(job(999_999L, cars.get(2), cars.get(3), cars.get(4), cars.get(5))));
+		assertEquals(JobStatus.CANCELLED, cancelled.getStatus());
+		// The admin is answered with the job as cancelled, not as it was read before
+		assertEquals(1, admin.cancelled.size());
+		assertEquals(JobStatus.CANCELLED, admin.cancelled.get(0).getStatus());
+		assertNotNull(admin.cancelled.get(0).getCompletedAt());
+		assertEquals(3, cancelled.getProcessedItems());
+		assertEquals(1, cancelled.getFailedItems());
+		assertEquals(CarStatus.ON_SERVICE, carService.getCarById(cars.get(3)).getStatus());
+		assertEquals(CarStatus.AVAILABLE, carService.getCarById(cars.get(4)).getStatus());
+		assertEquals(CarStatus.AVAILABLE, carService.getCarById(cars.get(5)).getStatus());
+
+		// A job the workers cannot take any more is failed instead of left pending
+		jobService.shutdown();
+		JobDto rejected = jobService.getJobById(jobService.submitJob(job(cars.get(0))).getId());
+		assertEquals(JobStatus.FAILED, rejected.getStatus());
+		assertEquals("Job queue was full, submit the job again", rejected.getErrorMessage());
+	}
+
+	/**
+	 * Cancels the running jobs from another thread, as an admin would, when the chosen car is updated
+	 */
+	@TestConfiguration
+	static class AdminCancellation {
+
+		private final JobService jobService;
+		private final AtomicReference<Long> cancelOn = new AtomicReference<>();
+		private final List<JobDto> cancelled = new CopyOnWriteArrayList<>();
+
+		AdminCancellation(JobService jobService) {
+			this.jobService = jobService;
+		}
+
+		@EventListener
+		void onCarStatusChanged(CarStatusChangedEvent event) {
+			if (cancelOn.get() != null && event.getCarIds().contains(cancelOn.get())) {
+				CompletableFuture.runAsync(() -> cancelled.addAll(cancelRunningJobs())).join();
+			}
+		}
+
+		private List<JobDto> cancelRunningJobs() {
+			return jobService.getAllJobs().stream()
+					.filter(job -> job.getStatus() == JobStatus.RUNNING)
+					.map(job -> jobService.cancelJob(job.getId()))
+					.toList();
+		}
+	}
+
+	private JobDto waitUntilFinished(JobDto job) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			JobDto current = jobService.getJobById(job.getId());
+			if (current.getStatus() != JobStatus.PENDING && current.getStatus() != JobStatus.RUNNING) {
+				return current;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Job " + job.getId() + " did not finish");
+	}
+
+	private static JobDto job(Long... carIds) {
+		JobDto job = new JobDto();
+		job.setType(JobType.CAR_STATUS_UPDATE);
+		job.setCarStatus(CarStatus.ON_SERVICE);
+		job.setTargetIds(List.of(carIds));
+		return job;
+	}
+
+}
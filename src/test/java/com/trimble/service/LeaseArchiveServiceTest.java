@@ -0,0 +1,104 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.BatchItem;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lease archival against a real context: only old finished leases move, and reads still see them
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties = {
+		"spring.datasource.url=jdbc:h2:mem:archive;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+		"carlease.archive.retention-days=90",
+		"carlease.archive.batch-size=1"})
+@DirtiesContext
+class LeaseArchiveServiceTest {
+
+	@Autowired
+	private LeaseArchiveService archiveService;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void oldFinishedLeasesMoveToTheArchiveAndStayReadable() {
+		Long ownerId = owner(userRepository, "archive").getId();
+		Long customerId = customerService.registerCustomer(customer("archive")).getId();
+		Long carId = carService.registerCar(car("ARCH-1"), ownerId).getId();
+
+		// Two leases that ended long ago, one that ended yesterday and one still running
+		Long oldest = leaseService.endLease(leaseService.startLease(lease(carId, customerId)).getId()).getId();
+		Long older = leaseService.endLease(leaseService.startLease(lease(carId, customerId)).getId()).getId();
+		Long recent = leaseService.endLease(leaseService.startLease(lease(carId, customerId)).getId()).getId();
+		Long active = leaseService.startLease(lease(carId, customerId)).getId();
+		endedDaysAgo(jdbcTemplate, oldest, 200);
+		endedDaysAgo(jdbcTemplate, older, 100);
+		endedDaysAgo(jdbcTemplate, recent, 1);
+
+		// A batch size of one copies and deletes the two old leases in separate transactions
+		assertEquals(2, archiveService.archiveLeases());
+		assertEquals(0, archiveService.archiveLeases());
+		assertEquals(2, count(jdbcTemplate, "lease_archive"));
+		assertEquals(2, count(jdbcTemplate, "leases"));
+
+		// History lists the archived tier first, with the details copied at archive time
+		List<LeaseDto> history = leaseService.getLeaseHistoryByCustomer(customerId);
+		assertEquals(List.of(oldest, older, recent, active), history.stream().map(LeaseDto::getId).toList());
+		assertEquals(LeaseStatus.COMPLETED, history.get(0).getStatus());
+		assertEquals("Customer archive", history.get(0).getCustomerName());
+		assertTrue(history.get(0).getCarDetails().contains("ARCH-1"));
+		assertEquals(List.of(oldest, older, recent, active),
+				leaseService.getLeaseHistoryByCar(carId).stream().map(LeaseDto::getId).toList());
+
+		// Batch lookups fall back to the archive for IDs the hot table no longer has
+		List<BatchItem<LeaseDto>> batch = leaseService.getLeasesByIds(List.of(active, oldest, 999_999L));
+		assertTrue(batch.get(0).isFound());
+		assertEquals(LeaseStatus.ACTIVE, batch.get(0).getData().getStatus());
+		assertTrue(batch.get(1).isFound());
+		assertEquals(oldest, batch.get(1).getData().getId());
+		assertFalse(batch.get(2).isFound());
+	}
+
+	private static void endedDaysAgo(JdbcTemplate jdbcTemplate, Long leaseId, int days) {
+		LocalDateTime end = LocalDateTime.now().minusDays(days);
+		jdbcTemplate.update("UPDATE leases SET start_date = ?, end_date = ? WHERE id = ?", end.minusDays(7), end, leaseId);
+	}
+
+	private static int count(JdbcTemplate jdbcTemplate, String table) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+	}
+
+}
@@ -0,0 +1,188 @@
+package com.trimble.service;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.repository.UserRepository;
+import com.trimble.support.TestFixtures;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV exports against a real context; each test works in its own year so the date ranges keep them apart
+ * The throughput measurement against carlease.export.target-rows-per-sec is opt-in:
+ *   mvn test -Dtest=LeaseExportServiceTest -Dcarlease.benchmark=true
+ */
+@SpringBootTest(classes = CarLeaseManagementApplication.class)
+@TestPropertySource(locations = TestFixtures.PROPERTIES, properties =
+		"spring.datasource.url=jdbc:h2:mem:export;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR")
+@DirtiesContext
+@Slf4j(topic = "benchmark")
+class LeaseExportServiceTest {
+
+	private static final String LEASES_HEADER =
+			"lease_id,status,start_date,end_date,total_amount,car_id,license_plate,make,model,owner_id,customer_id,customer_name";
+
+	@Autowired
+	private LeaseExportService exportService;
+
+	@Autowired
+	private LeaseArchiveService archiveService;
+
+	@Autowired
+	private LeaseService leaseService;
+
+	@Autowired
+	private CarService carService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${carlease.export.target-rows-per-sec}")
+	private long targetRowsPerSecond;
+
+	@Test
+	void leasesInTheRangeAreWrittenFromBothTiersInIdOrder() {
+		Long ownerId = owner(userRepository, "export").getId();
+		Long customerId = customerService.registerCustomer(customer("export")).getId();
+		jdbcTemplate.update("UPDATE users SET full_name = 'Doe, \"JD\" Jane' WHERE id = (SELECT user_id FROM customers WHERE id = ?)",
+				customerId);
+		List<Long> cars = List.of(
+				carService.registerCar(car("EXP-0"), ownerId).getId(),
+				carService.registerCar(car("EXP-1"), ownerId).getId(),
+				carService.registerCar(car("EXP-2"), ownerId).getId());
+
+		// The first lease is archived before the others finish, so it is only in lease_archive
+		Long archived = leased(cars.get(0), customerId, "2025-01-10T09:00", "2025-01-20T09:00", "100.00");
+		assertTrue(archiveService.archiveLeases() >= 1);
+		Long active = leased(cars.get(1), customerId, "2025-02-05T10:30", null, null);
+		Long later = leased(cars.get(2), customerId, "2025-03-01T00:00", "2025-03-04T00:00", "120.00");
+
+		String csv = export(writer -> exportService.exportLeases(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1), writer), 2);
+		String expected = LEASES_HEADER + "\r\n"
+				+ archived + ",COMPLETED,2025-01-10T09:00,2025-01-20T09:00,100.00," + cars.get(0) + ",EXP-0,Skoda,Octavia,"
+				+ ownerId + "," + customerId + ",\"Doe, \"\"JD\"\" Jane\"\r\n"
+				+ active + ",ACTIVE,2025-02-05T10:30,," + amount(active) + "," + cars.get(1) + ",EXP-1,Skoda,Octavia,"
+				+ ownerId + "," + customerId + ",\"Doe, \"\"JD\"\" Jane\"\r\n";
+		assertEquals(expected, csv);
+
+		// The end of the range is exclusive, the start inclusive
+		String march = export(writer -> exportService.exportLeases(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1), writer), 1);
+		assertTrue(march.endsWith("\r\n" + later + ",COMPLETED,2025-03-01T00:00,2025-03-04T00:00,120.00," + cars.get(2)
+				+ ",EXP-2,Skoda,Octavia," + ownerId + "," + customerId + ",\"Doe, \"\"JD\"\" Jane\"\r\n"), march);
+		export(writer -> exportService.exportLeases(LocalDate.of(2025, 4, 1), LocalDate.of(2026, 1, 1), writer), 0);
+	}
+
+	@Test
+	void revenueIsCompletedLeasesPerMonthAndOwner() {
+		Long first = owner(userRepository, "revenue-first").getId();
+		Long second = owner(userRepository, "revenue-second").getId();
+		Long customerId = customerService.registerCustomer(customer("revenue")).getId();
+
+		leased(carService.registerCar(car("REV-0"), first).getId(), customerId, "2024-05-01T09:00", "2024-05-10T09:00", "100.00");
+		assertTrue(archiveService.archiveLeases() >= 1);
+		leased(carService.registerCar(car("REV-1"), first).getId(), customerId, "2024-05-12T09:00", "2024-05-20T09:00", "50.50");
+		leased(carService.registerCar(car("REV-2"), second).getId(), customerId, "2024-05-15T09:00", "2024-05-25T09:00", "70.00");
+		leased(carService.registerCar(car("REV-3"), first).getId(), customerId, "2024-05-28T09:00", "2024-06-02T09:00", "30.00");
+		// Not counted: still running, and completed after the end of the range
+		leased(carService.registerCar(car("REV-4"), first).getId(), customerId, "2024-06-10T09:00", null, null);
+		leased(carService.registerCar(car("REV-5"), second).getId(), customerId, "2024-06-20T09:00", "2024-07-01T00:00", "90.00");
+
+		String csv = export(writer -> exportService.exportRevenue(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 7, 1), writer), 3);
+		String expected = "revenue_year,revenue_month,owner_id,owner_name,completed_leases,revenue\r\n"
+				+ "2024,5," + first + ",Owner revenue-first,2,150.50\r\n"
+				+ "2024,5," + second + ",Owner revenue-second,1,70.00\r\n"
+				+ "2024,6," + first + ",Owner revenue-first,1,30.00\r\n";
+		assertEquals(expected, csv);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void exportThroughputAgainstTheTarget(@TempDir Path dir) throws Exception {
+		int rows = Integer.getInteger("carlease.benchmark.rows", 500_000);
+
+		// Leases in 2000, which no other test reads, written with one statement
+		Long ownerId = owner(userRepository, "export-bench").getId();
+		Long carId = carService.registerCar(car("EXP-BENCH"), ownerId).getId();
+		Long customerId = customerService.registerCustomer(customer("export-bench")).getId();
+		jdbcTemplate.update("INSERT INTO leases (car_id, customer_id, start_date, end_date, total_amount, status, created_at) "
+				+ "SELECT ?, ?, DATEADD('SECOND', X, TIMESTAMP '2000-01-01 00:00:00'), DATEADD('SECOND', X + 3600, TIMESTAMP '2000-01-01 00:00:00'), "
+				+ "40.00, 'COMPLETED', CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", carId, customerId, rows);
+
+		log.info(String.format("%-10s %-10s %-12s %-12s", "dataset", "rows", "rows/s", "target"));
+		for (int pass = 0; pass < 3; pass++) {
+			Path file = dir.resolve("leases-" + pass + ".csv");
+			long start = System.nanoTime();
+			long written;
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				written = exportService.exportLeases(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1), writer);
+			}
+			long rowsPerSecond = written * 1_000_000_000L / (System.nanoTime() - start);
+			assertEquals(rows, written);
+			// The first pass warms up the JIT and the H2 page cache
+			if (pass > 0) {
+				log.info(String.format("%-10s %-10d %-12d %-12d", "leases", written, rowsPerSecond, targetRowsPerSecond));
+				assertTrue(rowsPerSecond >= targetRowsPerSecond,
+						rowsPerSecond + " rows/sec is below the target of " + targetRowsPerSecond);
+			}
+		}
+	}
+
+	/**
+	 * A lease started through the service, then moved to the given dates; ended first when end is set
+	 */
+	private Long leased(Long carId, Long customerId, String start, String end, String amount) {
+		Long leaseId = leaseService.startLease(lease(carId, customerId)).getId();
+		if (end != null) {
+			leaseService.endLease(leaseId);
+			jdbcTemplate.update("UPDATE leases SET end_date = ?, total_amount = ? WHERE id = ?",
+					LocalDateTime.parse(end), new BigDecimal(amount), leaseId);
+		}
+		jdbcTemplate.update("UPDATE leases SET start_date = ? WHERE id = ?", LocalDateTime.parse(start), leaseId);
+		return leaseId;
+	}
+
+	private String amount(Long leaseId) {
+		return jdbcTemplate.queryForObject("SELECT total_amount FROM leases WHERE id = ?", BigDecimal.class, leaseId).toString();
+	}
+
+	private static String export(Export export, long rows) {
+		StringWriter writer = new StringWriter();
+		assertEquals(rows, export.to(writer));
+		return writer.toString();
+	}
+
+	private interface Export {
+		long to(Writer writer);
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.trimble.service;
+
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.LeaseStatus;
+import com.trimble.exception.CarNotFoundException;
+import com.trimble.exception.LeaseException;
+import com.trimble.support.TestFixtures;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.h2Url;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lease writes through the group commit layer
+ * The throughput comparison is opt-in: mvn test -Dtest=LeaseWriteBatcherTest -Dcarlease.benchmark=true
+ */
+@Slf4j(topic = "benchmark")
+class LeaseWriteBatcherTest {
+
+	private static final AtomicInteger RUN = new AtomicInteger();
+
+	@Test
+	void batchedBookingsOfOneCarGiveEachCallerItsOwnOutcome() throws Exception {
+		// Without the registry pre-check, losers get as far as the conditional car update
+		try (ConfigurableApplicationContext context = start(true, 20, memoryUrl(), "--carlease.car-registry.enabled=false")) {
+			LeaseWriteBatcher batcher = context.getBean(LeaseWriteBatcher.class);
+			CarService carService = context.getBean(CarService.class);
+			Long ownerId = owner(context, "wb").getId();
+			Long carId = carService.registerCar(car("WB-1"), ownerId).getId();
+			CustomerService customerService = context.getBean(CustomerService.class);
+			int threads = 8;
+			List<Long> customers = IntStream.range(0, threads)
+					.mapToObj(t -> customerService.registerCustomer(customer("wb" + t)).getId())
+					.collect(Collectors.toList());
+
+			CyclicBarrier barrier = new CyclicBarrier(threads);
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<Object>> results = new ArrayList<>();
+			for (Long customerId : customers) {
+				results.add(executor.submit(() -> {
+					barrier.await();
+					try {
+						return batcher.startLease(lease(carId, customerId));
+					} catch (LeaseException e) {
+						return e;
+					}
+				}));
+			}
+			List<LeaseDto> winners = new ArrayList<>();
+			for (Future<Object> result : results) {
+				Object outcome = result.get(30, TimeUnit.SECONDS);
+				if (outcome instanceof LeaseDto lease) {
+					winners.add(lease);
+				} else {
+					assertEquals("Car is not available for lease", ((LeaseException) outcome).getMessage());
+				}
+			}
+			executor.shutdown();
+			assertEquals(1, winners.size());
+
+			// The losers' reserved lease slots were rolled back with their savepoints
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			assertEquals(1, jdbcTemplate.queryForObject("SELECT SUM(active_lease_count) FROM customers", Integer.class));
+			assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM leases", Integer.class));
+			DistributionSummary sizes = context.getBean(MeterRegistry.class).get("carlease.lease-batch.size").summary();
+			assertTrue(sizes.max() > 1);
+
+			LeaseDto ended = batcher.endLease(winners.get(0).getId());
+			assertEquals(LeaseStatus.COMPLETED, ended.getStatus());
+			assertThrows(CarNotFoundException.class, () -> batcher.startLease(lease(999_999L, customers.get(0))));
+			assertEquals(1, carService.getAvailableCars().size());
+		}
+	}
+
+	@Test
+	void aTimedOutCommandIsWithdrawnOrAnsweredWithItsOutcome() throws Exception {
+		String url = memoryUrl() + ";LOCK_TIMEOUT=10000";
+		try (ConfigurableApplicationContext context = start(true, 2, url, "--carlease.lease-batching.timeout-ms=300")) {
+			LeaseWriteBatcher batcher = context.getBean(LeaseWriteBatcher.class);
+			CarService carService = context.getBean(CarService.class);
+			Long ownerId = owner(context, "wt").getId();
+			Long lockedCarId = carService.registerCar(car("WT-1"), ownerId).getId();
+			Long queuedCarId = carService.registerCar(car("WT-2"), ownerId).getId();
+			CustomerService customerService = context.getBean(CustomerService.class);
+			Long firstCustomerId = customerService.registerCustomer(customer("wt1")).getId();
+			Long secondCustomerId = customerService.registerCustomer(customer("wt2")).getId();
+
+			// Another transaction holds the first car's row, so the batch booking it waits for the lock
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+			CountDownLatch locked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(2);
+			Future<?> lockHolder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				jdbcTemplate.queryForObject("SELECT id FROM cars WHERE id = ? FOR UPDATE", Long.class, lockedCarId);
+				locked.countDown();
+				await(release);
+			}));
+			assertTrue(locked.await(10, TimeUnit.SECONDS));
+			Future<LeaseDto> taken = executor.submit(() -> batcher.startLease(lease(lockedCarId, firstCustomerId)));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL",
+					Integer.class) == 0) {
+				assertTrue(System.nanoTime() < deadline, "The batch never waited for the lock");
+				Thread.sleep(10);
+			}
+
+			// Still queued behind the stuck batch when it times out, so it is withdrawn
+			IllegalStateException timedOut = assertThrows(IllegalStateException.class,
+					() -> batcher.startLease(lease(queuedCarId, secondCustomerId)));
+			assertTrue(timedOut.getMessage().endsWith("it was not applied"));
+
+			// The command the batch had taken gets its lease once the lock is gone, well after its timeout
+			release.countDown();
+			lockHolder.get(10, TimeUnit.SECONDS);
+			assertEquals(LeaseStatus.ACTIVE, taken.get(10, TimeUnit.SECONDS).getStatus());
+			executor.shutdown();
+
+			// The withdrawn booking never happened: the car is still free for the same customer
+			assertEquals(LeaseStatus.ACTIVE, batcher.startLease(lease(queuedCarId, secondCustomerId)).getStatus());
+			assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM leases WHERE car_id = ?", Integer.class, queuedCarId));
+		}
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void throughputWithAndWithoutGroupCommit() throws Exception {
+		int threads = Integer.getInteger("carlease.benchmark.threads", 32);
+		int seconds = Integer.getInteger("carlease.benchmark.seconds", 10);
+		String dbFile = System.getProperty("carlease.benchmark.db-dir", "target/batching-bench");
+
+		log.info(String.format("%-10s %-12s %-14s %-12s", "batching", "leases/s", "p99 cmd ms", "avg batch"));
+		for (boolean batching : new boolean[]{false, true}) {
+			// A file database, so every commit pays for a real log write
+			String url = "jdbc:h2:file:./" + dbFile + "/run" + RUN.incrementAndGet() + ";NON_KEYWORDS=YEAR";
+			try (ConfigurableApplicationContext context = start(batching, 2, url)) {
+				runBenchmark(context, batching, threads, seconds);
+			}
+		}
+	}
+
+	private void runBenchmark(ConfigurableApplicationContext context, boolean batching, int threads, int seconds) throws Exception {
+		LeaseWriteBatcher batcher = context.getBean(LeaseWriteBatcher.class);
+		CarService carService = context.getBean(CarService.class);
+		CustomerService customerService = context.getBean(CustomerService.class);
+		Long ownerId = owner(context, "wm").getId();
+		List<Long> cars = IntStream.range(0, threads)
+				.mapToObj(i -> carService.registerCar(car("WM-" + i), ownerId).getId())
+				.collect(Collectors.toList());
+		List<Long> customers = IntStream.range(0, threads)
+				.mapToObj(t -> customerService.registerCustomer(customer("wm" + t)).getId())
+				.collect(Collectors.toList());
+
+		// Each thread books and returns its own car, so every command succeeds and costs a write
+		AtomicLong leases = new AtomicLong();
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			Long carId = cars.get(t);
+			Long customerId = customers.get(t);
+			executor.submit(() -> {
+				while (System.nanoTime() < deadline) {
+					long start = System.nanoTime();
+					LeaseDto lease = batcher.startLease(lease(carId, customerId));
+					latencies.add(System.nanoTime() - start);
+					start = System.nanoTime();
+					batcher.endLease(lease.getId());
+					latencies.add(System.nanoTime() - start);
+					leases.incrementAndGet();
+				}
+				return null;
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS));
+
+		List<Long> sorted = new ArrayList<>(latencies);
+		sorted.sort(null);
+		double p99 = sorted.isEmpty() ? 0 : sorted.get((int) (sorted.size() * 0.99)) / 1_000_000.0;
+		DistributionSummary sizes = context.getBean(MeterRegistry.class).get("carlease.lease-batch.size").summary();
+		log.info(String.format("%-10s %-12d %-14.2f %-12.1f", batching, leases.get() / seconds, p99, sizes.mean()));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String memoryUrl() {
+		return h2Url("batching" + RUN.incrementAndGet());
+	}
+
+	private static ConfigurableApplicationContext start(boolean batching, long maxDelayMillis, String url, String... args) {
+		List<String> arguments = new ArrayList<>(List.of(
+				"--carlease.lease-batching.enabled=" + batching,
+				"--carlease.lease-batching.max-delay-ms=" + maxDelayMillis,
+				"--spring.datasource.url=" + url));
+		arguments.addAll(List.of(args));
+		return TestFixtures.start(arguments.toArray(String[]::new));
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.trimble.shard;
+
+import com.trimble.dto.CarDto;
+import com.trimble.dto.CustomerDto;
+import com.trimble.dto.GroupLeaseRequest;
+import com.trimble.dto.LeaseDto;
+import com.trimble.enums.CarStatus;
+import com.trimble.exception.LeaseException;
+import com.trimble.service.AdminService;
+import com.trimble.service.CarService;
+import com.trimble.service.CustomerService;
+import com.trimble.service.LeaseService;
+import com.trimble.support.TestFixtures;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.trimble.support.TestFixtures.car;
+import static com.trimble.support.TestFixtures.customer;
+import static com.trimble.support.TestFixtures.h2Url;
+import static com.trimble.support.TestFixtures.lease;
+import static com.trimble.support.TestFixtures.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application against several in-memory H2 shards
+ * The scaling benchmark is opt-in: mvn test -Dtest=ShardingTest -Dcarlease.benchmark=true
+ */
+@Slf4j(topic = "benchmark")
+class ShardingTest {
+
+	private static final AtomicInteger RUN = new AtomicInteger();
+
+	@Test
+	void carsAndLeasesAreCoLocatedOnTheOwnersShard() {
+		try (ConfigurableApplicationContext context = start(2)) {
+			ShardRouter shardRouter = context.getBean(ShardRouter.class);
+			CarService carService = context.getBean(CarService.class);
+			LeaseService leaseService = context.getBean(LeaseService.class);
+
+			List<CarDto> cars = new ArrayList<>();
+			for (int owner = 0; owner < 6; owner++) {
+				cars.add(carService.registerCar(car("SH-" + owner), owner(context, "sh" + owner).getId()));
+			}
+			for (CarDto car : cars) {
+				int shard = shardRouter.shardForOwner(car.getOwnerId());
+				assertEquals(shard, shardRouter.shardForId(car.getId()));
+				assertEquals(1, countOnShard(context, shard, "cars", car.getId()));
+				assertEquals(car.getLicensePlate(), carService.getCarById(car.getId()).getLicensePlate());
+			}
+			assertTrue(cars.stream().map(car -> shardRouter.shardForId(car.getId())).distinct().count() > 1);
+			assertEquals(cars.size(), context.getBean(AdminService.class).getAllCars().size());
+
+			CustomerDto customer = context.getBean(CustomerService.class).registerCustomer(customer("shc"));
+			CarDto car = cars.get(cars.size() - 1);
+			LeaseDto lease = leaseService.startLease(lease(car.getId(), customer.getId()));
+			int shard = shardRouter.shardForId(car.getId());
+			assertEquals(shard, shardRouter.shardForId(lease.getId()));
+			assertEquals(1, countOnShard(context, shard, "leases", lease.getId()));
+
+			leaseService.endLease(lease.getId());
+			assertEquals(1, leaseService.getLeaseHistoryByCustomer(customer.getId()).size());
+			assertEquals(cars.size(), carService.getAvailableCars().size());
+		}
+	}
+
+	@Test
+	void platesAndActiveLeaseLimitsHoldAcrossShards() {
+		try (ConfigurableApplicationContext context = start(2)) {
+			ShardRouter shardRouter = context.getBean(ShardRouter.class);
+			CarService carService = context.getBean(CarService.class);
+			LeaseService leaseService = context.getBean(LeaseService.class);
+			CustomerService customerService = context.getBean(CustomerService.class);
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+			// One owner on each shard
+			Long[] owners = new Long[2];
+			for (int i = 0; owners[0] == null || owners[1] == null; i++) {
+				Long ownerId = owner(context, "x" + i).getId();
+				owners[shardRouter.shardForOwner(ownerId)] = ownerId;
+			}
+			CarDto home = carService.registerCar(car("XS-HOME"), owners[0]);
+			CarDto other = carService.registerCar(car("XS-OTHER"), owners[1]);
+			CarDto third = carService.registerCar(car("XS-THIRD"), owners[1]);
+			assertEquals(0, shardRouter.shardForId(home.getId()));
+			assertEquals(1, shardRouter.shardForId(other.getId()));
+
+			// A plate taken on one shard cannot be registered on the other
+			assertThrows(RuntimeException.class, () -> carService.registerCar(car("XS-HOME"), owners[1]));
+			assertThrows(RuntimeException.class, () -> carService.registerCar(car("XS-OTHER"), owners[0]));
+			assertEquals(1, (int) shardRouter.callOnShard(1, () -> jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM cars WHERE license_plate IN ('XS-HOME', 'XS-OTHER')", Integer.class)));
+
+			// The default limit of two active leases counts the leases of both shards
+			Long customerId = customerService.registerCustomer(customer("xs")).getId();
+			leaseService.startLease(lease(home.getId(), customerId));
+			LeaseDto onOther = leaseService.startLease(lease(other.getId(), customerId));
+			assertThrows(LeaseException.class, () -> leaseService.startLease(lease(third.getId(), customerId)));
+			assertThrows(LeaseException.class, () -> leaseService.startGroupLease(groupLease(third.getId(), customerId)));
+			assertEquals(CarStatus.AVAILABLE, carService.getCarById(third.getId()).getStatus());
+			assertEquals(2, customerService.getCustomerById(customerId).getActiveLeaseCount());
+
+			leaseService.endLease(onOther.getId());
+			assertEquals(1, customerService.getCustomerById(customerId).getActiveLeaseCount());
+			leaseService.startLease(lease(third.getId(), customerId));
+			assertEquals(2, customerService.getCustomerById(customerId).getActiveLeaseCount());
+
+			// Reconciliation counts the leases of every shard against the home shard's counter
+			assertEquals(0, leaseService.reconcileActiveLeaseCounts());
+			jdbcTemplate.update("UPDATE customers SET active_lease_count = 0 WHERE id = ?", customerId);
+			assertEquals(1, leaseService.reconcileActiveLeaseCounts());
+			assertEquals(2, customerService.getCustomerById(customerId).getActiveLeaseCount());
+		}
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "carlease.benchmark", matches = "true")
+	void bookingThroughputScalesWithShards() throws Exception {
+		int threads = Integer.getInteger("carlease.benchmark.threads", 16);
+		int seconds = Integer.getInteger("carlease.benchmark.seconds", 10);
+		int maxShards = Integer.getInteger("carlease.benchmark.max-shards", 8);
+
+		log.info(String.format("%-8s %-12s %-14s %-14s", "shards", "bookings/s", "p99 book ms", "scatter ms"));
+		for (int shards = 1; shards <= maxShards; shards *= 2) {
+			try (ConfigurableApplicationContext context = start(shards)) {
+				runBenchmark(context, shards, threads, seconds);
+			}
+		}
+	}
+
+	private void runBenchmark(ConfigurableApplicationContext context, int shards, int threads, int seconds) throws Exception {
+		CarService carService = context.getBean(CarService.class);
+		LeaseService leaseService = context.getBean(LeaseService.class);
+		CustomerService customerService = context.getBean(CustomerService.class);
+
+		// One owner with a small fleet and one customer per worker thread
+		List<List<Long>> fleets = new ArrayList<>();
+		List<Long> customers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Long ownerId = owner(context, "bo" + t).getId();
+			int thread = t;
+			fleets.add(IntStream.range(0, 4)
+					.mapToObj(i -> carService.registerCar(car("BM-" + thread + "-" + i), ownerId).getId())
+					.collect(Collectors.toList()));
+			customers.add(customerService.registerCustomer(customer("bc" + t)).getId());
+		}
+
+		AtomicLong bookings = new AtomicLong();
+		List<Long> latencies = java.util.Collections.synchronizedList(new ArrayList<>());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			List<Long> fleet = fleets.get(t);
+			Long customerId = customers.get(t);
+			executor.submit(() -> {
+				int next = 0;
+				while (System.nanoTime() < deadline) {
+					long start = System.nanoTime();
+					LeaseDto lease = leaseService.startLease(lease(fleet.get(next++ % fleet.size()), customerId));
+					leaseService.endLease(lease.getId());
+					latencies.add(System.nanoTime() - start);
+					bookings.incrementAndGet();
+				}
+				return null;
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS));
+
+		long scatterStart = System.nanoTime();
+		int leases = context.getBean(AdminService.class).getAllLeases().size();
+		long scatterMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scatterStart);
+
+		List<Long> sorted = new ArrayList<>(latencies);
+		sorted.sort(null);
+		double p99 = sorted.isEmpty() ? 0 : sorted.get((int) (sorted.size() * 0.99)) / 1_000_000.0;
+		log.info(String.format("%-8d %-12d %-14.2f %-14s", shards, bookings.get() / seconds, p99, scatterMillis + " (" + leases + " leases)"));
+	}
+
+	private static ConfigurableApplicationContext start(int shards) {
+		int run = RUN.incrementAndGet();
+		String urls = IntStream.range(0, shards)
+				.mapToObj(shard -> h2Url("sharding" + run + "s" + shard))
+				.collect(Collectors.joining(","));
+		return TestFixtures.start("--carlease.sharding.enabled=true", "--carlease.sharding.urls=" + urls);
+	}
+
+	private static int countOnShard(ConfigurableApplicationContext context, int shard, String table, Long id) {
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		return context.getBean(ShardRouter.class).callOnShard(shard, () ->
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE id = ?", Integer.class, id));
+	}
+
+	private static GroupLeaseRequest groupLease(Long carId, Long customerId) {
+		GroupLeaseRequest request = new GroupLeaseRequest();
+		request.setCarIds(List.of(carId));
+		request.setCustomerId(customerId);
+		return request;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.trimble.support;
+
+import com.trimble.carlease.CarLeaseManagementApplication;
+import com.trimble.dto.CarDto;
+import com.trimble.dto.CustomerDto;
+import com.trimble.dto.LeaseDto;
+import com.trimble.entity.User;
+import com.trimble.enums.UserRole;
+import com.trimble.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Test data and application start-up shared by the tests that run against a real context
+ * Most of them are @SpringBootTest classes reading PROPERTIES; tests that need several
+ * contexts, or restart one, use start()
+ */
+public final class TestFixtures {
+
+	public static final String PROPERTIES = "classpath:context-test.properties";
+
+	private TestFixtures() {
+	}
+
+	/**
+	 * An in-memory H2 URL that outlives its connections, for a database of the given name
+	 */
+	public static String h2Url(String name) {
+		return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR";
+	}
+
+	/**
+	 * Start the application with the shared test properties and the given arguments
+	 */
+	public static ConfigurableApplicationContext start(String... args) {
+		String[] withProperties = Stream.concat(Stream.of("--spring.config.additional-location=" + PROPERTIES),
+				Arrays.stream(args)).toArray(String[]::new);
+		return new SpringApplicationBuilder(CarLeaseManagementApplication.class).run(withProperties);
+	}
+
+	public static User owner(UserRepository userRepository, String name) {
+		User owner = new User();
+		owner.setUsername("owner-" + name);
+		owner.setPassword("secret");
+		owner.setEmail(name + "@owner.test");
+		owner.setFullName("Owner " + name);
+		owner.setRole(UserRole.CAR_OWNER);
+		return userRepository.save(owner);
+	}
+
+	public static User owner(ConfigurableApplicationContext context, String name) {
+		return owner(context.getBean(UserRepository.class), name);
+	}
+
+	public static CarDto car(String plate) {
+		CarDto car = new CarDto();
+		car.setLicensePlate(plate);
+		car.setMake("Skoda");
+		car.setModel("Octavia");
+		car.setYear(2022);
+		car.setColor("Grey");
+		car.setDailyRate(new BigDecimal("40.00"));
+		return car;
+	}
+
+	public static CustomerDto customer(String name) {
+		CustomerDto customer = new CustomerDto();
+		customer.setUsername("customer-" + name);
+		customer.setPassword("secret");
+		customer.setEmail(name + "@customer.test");
+		customer.setFullName("Customer " + name);
+		customer.setPhoneNumber("555-0100");
+		customer.setAddress("1 Main Street");
+		customer.setDriverLicense("DL-" + name);
+		return customer;
+	}
+
+	public static LeaseDto lease(Long carId, Long customerId) {
+		LeaseDto lease = new LeaseDto();
+		lease.setCarId(carId);
+		lease.setCustomerId(customerId);
+		lease.setStartDate(LocalDateTime.now());
+		return lease;
+	}
+
+}